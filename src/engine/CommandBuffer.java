@@ -0,0 +1,146 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Records changes of the scene graph during a tick and applies them together at the end of the update, see {@link Engine#commands()}. <p>
+ *
+ * Spawning, destroying, reparenting and attaching or detaching scripts directly changes the scene while it gets updated,
+ * so what the following scripts of the same tick see depends on the order of the updates.
+ * Recorded commands are applied in the order they were recorded after all scripts are updated,
+ * including the parallel ones, and before the input gets updated and the scene gets rendered. <p>
+ *
+ * Commands recorded while the commands get applied, for example in {@link Script#onDestroy()}, are applied in the same pass.
+ * Commands for game objects that got destroyed by an earlier command are skipped.
+ * Recording is thread safe, the commands of {@link IParallelScript}s are applied in the order they were recorded in. <p>
+ *
+ * @author NextLegacy
+ */
+public final class CommandBuffer
+{
+    private static final byte SPAWN          = 0;
+    private static final byte DESTROY_OBJECT = 1;
+    private static final byte DESTROY_SCRIPT = 2;
+    private static final byte SET_PARENT     = 3;
+    private static final byte ADD_SCRIPT     = 4;
+    private static final byte REMOVE_SCRIPT  = 5;
+
+    private final Engine engine;
+
+    private byte  [] types    ;
+    private Object[] targets  ;
+    private Object[] arguments;
+    private int      count    ;
+
+    CommandBuffer(final Engine engine)
+    {
+        this.engine = engine;
+
+        types     = new byte  [64];
+        targets   = new Object[64];
+        arguments = new Object[64];
+    }
+
+    /**
+     * @return the number of commands that are not applied yet
+     */
+    public synchronized int size() { return count; }
+
+    /** Adds the game object to the active scene. */
+    public void spawn       (final GameObject gameObject                         ) { record(SPAWN         , gameObject, null  ); }
+    /** Destroys the game object, its scripts and its children. */
+    public void destroy     (final GameObject gameObject                         ) { record(DESTROY_OBJECT, gameObject, null  ); }
+    /** Destroys the script. */
+    public void destroy     (final Script     script                             ) { record(DESTROY_SCRIPT, script    , null  ); }
+    /** Sets the parent of the game object, null removes the parent. */
+    public void setParent   (final GameObject gameObject, final GameObject parent) { record(SET_PARENT    , gameObject, parent); }
+    /** Attaches the script to the game object. */
+    public void addScript   (final GameObject gameObject, final Script     script) { record(ADD_SCRIPT    , gameObject, script); }
+    /** Detaches the script from the game object. */
+    public void removeScript(final GameObject gameObject, final Script     script) { record(REMOVE_SCRIPT , gameObject, script); }
+
+    private synchronized void record(final byte type, final Object target, final Object argument)
+    {
+        if (target == null) throw new NullPointerException("The target of a command is null!");
+
+        if (type == ADD_SCRIPT || type == REMOVE_SCRIPT)
+            if (argument == null) throw new NullPointerException("The script of a command is null!");
+
+        if (count == types.length)
+        {
+            types     = Arrays.copyOf(types    , count * 2);
+            targets   = Arrays.copyOf(targets  , count * 2);
+            arguments = Arrays.copyOf(arguments, count * 2);
+        }
+
+        types    [count] = type    ;
+        targets  [count] = target  ;
+        arguments[count] = argument;
+
+        count++;
+    }
+
+    /**
+     * Applies all recorded commands in their order and clears the buffer, called by the game loop thread once per tick.
+     */
+    void apply()
+    {
+        try
+        {
+            applyCommands();
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    private void applyCommands()
+    {
+        for (int i = 0; i < size(); i++)
+        {
+            final byte   type    ;
+            final Object target  ;
+            final Object argument;
+
+            synchronized (this)
+            {
+                type     = types    [i];
+                target   = targets  [i];
+                argument = arguments[i];
+            }
+
+            if (target instanceof GameObject && ((GameObject) target).isDestroyed()) continue;
+
+            switch (type)
+            {
+                case SPAWN         : spawnInActiveScene((GameObject) target);                  break;
+                case DESTROY_OBJECT: ((GameObject) target).destroy     (                     ); break;
+                case DESTROY_SCRIPT: ((Script    ) target).destroy     (                     ); break;
+                case SET_PARENT    : ((GameObject) target).setParent   ((GameObject) argument); break;
+                case ADD_SCRIPT    : ((GameObject) target).addScript   ((Script    ) argument); break;
+                case REMOVE_SCRIPT : ((GameObject) target).removeScript((Script    ) argument); break;
+            }
+        }
+    }
+
+    private void spawnInActiveScene(final GameObject gameObject)
+    {
+        final Scene scene = engine.activeScene();
+
+        if (scene != null) scene.addGameObject(gameObject);
+    }
+
+    /**
+     * Drops all recorded commands without applying them.
+     */
+    synchronized void clear()
+    {
+        Arrays.fill(targets  , 0, count, null);
+        Arrays.fill(arguments, 0, count, null);
+
+        count = 0;
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(commands: " + size() + ")"; }
+}
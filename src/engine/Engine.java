@@ -1,11 +1,14 @@
 package engine;
 
+import engine.ecs.World;
 import engine.math.FinalVector;
 import engine.math.Vector4;
 import engine.utils.Screen;
+import engine.utils.TripleBuffer;
 import engine.utils.activatable.IActivatable;
 import engine.utils.destroyable.ObjectIsDestroyedException;
 import engine.utils.time.GameLoop;
+import engine.utils.time.Histogram;
 import engine.window.Window;
 import engine.window.WindowLayer;
 import engine.window.Input.Input;
@@ -17,6 +20,10 @@ import engine.window.Input.Input;
  * 
  * For a more complex setup you can create a new Engine object and set the active scene with {@link Engine#setActiveScene(Scene)}. <p>
  * 
+ * With {@link Engine#setThreadedRendering(boolean)} the scene gets updated and rendered on different threads. <p>
+ * 
+ * An engine created without a screen is headless, see {@link #Engine(Vector4, int, int, String...)}. <p>
+ * 
  * @author NextLegacy
  * @version 1.0
  */
@@ -32,9 +39,35 @@ public final class Engine implements IActivatable
 
     private WindowLayer currentImage; //Variable that is only defined when Script.render is executed
 
+    // snapshots of the active scene, published after every tick and rendered by the render thread of a threaded engine
+    private final TripleBuffer<SceneSnapshot> snapshots;
+    private       SceneSnapshot               renderedSnapshot; //Variable that is only defined while the render thread renders
+
+    private UpdatePool updatePool;
+
+    private final CommandBuffer commands;
+
+    private World world;
+
     public Engine(Screen screen, Vector4 size, int tps, int fps, String... layers)
     {
-        window   = new GameWindow(screen, size, layers);
+        this(screen, size, tps, fps, layers, false);
+    }
+
+    /**
+     * Creates a headless engine, it renders its layers into the window buffer of a window without a frame, see {@link Window#windowBuffer()}. <p>
+     * 
+     * It needs no display and no AWT component, so it runs on servers and build machines to simulate and render in batches,
+     * combined with {@link #setUncapped(boolean)} as fast as possible. The input never receives any events. <p>
+     */
+    public Engine(Vector4 size, int tps, int fps, String... layers)
+    {
+        this(null, size, tps, fps, layers, true);
+    }
+
+    private Engine(Screen screen, Vector4 size, int tps, int fps, String[] layers, boolean headless)
+    {
+        window   = headless ? new GameWindow(size, layers) : new GameWindow(screen, size, layers);
         gameLoop = new EngineGameLoop(tps, fps);
 
         activeScene = sceneToLoad = null;
@@ -42,8 +75,78 @@ public final class Engine implements IActivatable
         active = false;
         
         currentImage = null;
+
+        snapshots = new TripleBuffer<>(new SceneSnapshot(0), new SceneSnapshot(1), new SceneSnapshot(2));
+
+        commands = new CommandBuffer(this);
     }
 
+    /**
+     * Renders on a thread of its own, takes effect when the engine gets activated. <p>
+     * 
+     * The scene gets updated every tick as before, afterwards the transforms of its active game objects and the scripts to render
+     * are published as a snapshot. The render thread renders the latest snapshot, so the tick rate holds steady 
+     * even when rendering saturates and rendering never waits for an update. <p>
+     * 
+     * {@link Script#render()} then runs concurrently to {@link Script#update()}: {@link Script#transform()}, {@link GameObject#transform()} 
+     * and {@link GameObject#worldMatrix()} return the ones of the snapshot, everything else a script reads while rendering has to be safe to share. <p>
+     * 
+     * @param threadedRendering whether to render on a thread of its own
+     */
+    public Engine setThreadedRendering(boolean threadedRendering) { gameLoop.setRenderThreaded(threadedRendering); return this; }
+
+    public boolean isThreadedRendering() { return gameLoop.isRenderThreaded(); }
+
+    /**
+     * Sleeps until the next tick or frame is due instead of spinning, see {@link GameLoop#setSleeping(boolean)}. <p>
+     * 
+     * @param sleeping whether to sleep between ticks and frames
+     */
+    public Engine setSleeping(boolean sleeping) { gameLoop.setSleeping(sleeping); return this; }
+
+    public boolean isSleeping() { return gameLoop.isSleeping(); }
+
+    /**
+     * Runs ticks and frames back to back as fast as possible instead of at their rates, see {@link GameLoop#setUncapped(boolean)}. <p>
+     * 
+     * @param uncapped whether to run as fast as possible
+     */
+    public Engine setUncapped(boolean uncapped) { gameLoop.setUncapped(uncapped); return this; }
+
+    public boolean isUncapped() { return gameLoop.isUncapped(); }
+
+    public boolean isHeadless() { return window.isHeadless(); }
+
+    /**
+     * Updates the {@link IParallelScript}s of the active scene in parallel on the given pool, see {@link UpdatePool}. <p>
+     * 
+     * All parallel scripts are updated before the input gets updated and before the tick ends, so rendering never sees a partial update. <p>
+     * 
+     * @param updatePool the update pool, or null to update every script on the game loop thread
+     */
+    public Engine setUpdatePool(UpdatePool updatePool) { this.updatePool = updatePool; return this; }
+
+    public UpdatePool updatePool() { return updatePool; }
+
+    /**
+     * @return the buffer that records changes of the scene graph during a tick, they get applied after the scene got updated
+     */
+    public CommandBuffer commands() { return commands; }
+
+    /**
+     * Sets the world whose systems run every tick after the scripts got updated and the commands got applied, see {@link World#update()}. <p>
+     * 
+     * @param world the world, or null for none
+     */
+    public Engine setWorld(World world) { this.world = world; return this; }
+
+    public World world() { return world; }
+
+    /**
+     * @return the snapshot that gets rendered if called by the render thread of a threaded engine, otherwise null
+     */
+    SceneSnapshot renderedSnapshot() { return gameLoop.isRenderThread() ? renderedSnapshot : null; }
+
     /**
      * Sets the active scene to the given scene. <p>
      * @param scene the scene to set as active scene
@@ -73,6 +176,16 @@ public final class Engine implements IActivatable
     public double        frameDeltaTime() { return gameLoop.frameDeltaTimeInSeconds(); }
     public double        tickDeltaTime () { return gameLoop.tickDeltaTimeInSeconds (); }
 
+    /**
+     * @return how far the time advanced from the last tick towards the next one, from 0 to 1, see {@link GameLoop#interpolationAlpha()}
+     */
+    public double        interpolationAlpha() { return gameLoop.interpolationAlpha(); }
+
+    public double        cpuUsage      () { return gameLoop.cpuUsage()               ; }
+
+    public Histogram     tickJitter    () { return gameLoop.tickJitter()             ; }
+    public Histogram     frameJitter   () { return gameLoop.frameJitter()            ; }
+
     public String toString()
     {
         return "Engine(tps: " + tps() + " | fps: " + fps() + " | dt: " + deltaTime() + " | fs: " + frameSkips() + ")";
@@ -87,14 +200,24 @@ public final class Engine implements IActivatable
         {
             super(screen, size, layers);
         }
+
+        GameWindow(final Vector4 size, final String[] layers) 
+        {
+            super(size, layers);
+        }
         
         public void renderImage(WindowLayer image)
         {
             currentImage = image;
 
-            image.clear();
+            image.resetCullingCounters();
+
+            if (!image.isRetained()) 
+                image.clear();
             
-            if (activeScene != null) 
+            if (renderedSnapshot != null) 
+                renderedSnapshot.render();
+            else if (activeScene != null) 
                 activeScene.render();
 
             currentImage = null;
@@ -154,7 +277,7 @@ public final class Engine implements IActivatable
      * mainLoop: while active
      *     If there is a scene to load, destroy old scene if there is one and load the new scene
      *     Start
-     *     Update and Render alternately
+     *     Update and Render alternately, commands recorded during an update are applied after it
      * mainLoop: end because of Engine deactivation
      *     ↓
      * Close Window
@@ -174,12 +297,22 @@ public final class Engine implements IActivatable
         {
             if (sceneToLoad == null) return;
             
-            if (activeScene != null)
+            // the render thread must not render the game objects of a destroyed scene
+            synchronized (snapshots)
             {
-                activeScene.onSceneChange();
-                activeScene.destroy      ();
+                if (activeScene != null)
+                {
+                    activeScene.onSceneChange();
+                    activeScene.destroy      ();
+                }
+
+                snapshots.write().clear();
+                snapshots.publish();
             }
 
+            // commands of the previous scene do not apply to the new one
+            commands.clear();
+
             activeScene = sceneToLoad; 
             
             sceneToLoad = null;
@@ -217,19 +350,41 @@ public final class Engine implements IActivatable
             if (activeScene == null) return;
             
             activeScene.update();
+
+            commands.apply();
+
+            if (world != null) world.update();
+
+            activeScene.updateWorldMatrices();
+
             input().update();
+
+            if (!isRenderThreaded()) return;
+
+            activeScene.snapshot(snapshots.write());
+            snapshots.publish();
         }
 
         @Override
         public void render() 
         {
-            window.render();
+            if (!isRenderThreaded()) { window.render(); return; }
+
+            synchronized (snapshots)
+            {
+                renderedSnapshot = snapshots.read();
+
+                window.render();
+
+                renderedSnapshot = null;
+            }
         }
 
         @Override
         public boolean isActive() 
         {
-            return engine.isActive() && input().isActive(); 
+            // a headless window has no frame that could get closed
+            return engine.isActive() && (window.isHeadless() || input().isActive()); 
         }
     }
 }
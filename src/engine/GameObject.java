@@ -1,12 +1,14 @@
 package engine;
 
+import engine.ecs.World;
 import engine.utils.ArrayUtils;
+import engine.utils.DenseSet;
 import engine.utils.activatable.IActivatable;
 import engine.utils.destroyable.IDestroyable;
 import engine.utils.destroyable.ObjectIsDestroyedException;
 
-import static engine.utils.ArrayUtils.*;
 
+import engine.math.Matrix;
 import engine.math.Transform;
 
 /**
@@ -24,16 +26,30 @@ public final class GameObject implements IActivatable, IDestroyable
 
     public Transform transform;
 
+    Transform[] snapshotTransforms   ; // Copies of the transform for the snapshots of a threaded engine, see SceneSnapshot
+    Matrix   [] snapshotWorldMatrices; // The world matrices for the snapshots of a threaded engine, see SceneSnapshot
+
+    private Matrix  localMatrix       ; // The transformation matrix the world matrix got computed from
+    private Matrix  worldMatrix       ;
+    private boolean isWorldMatrixDirty; // If set, the world matrices of all descendants are dirty as well
+    private int     worldMatrixPass   ; // The pass of Scene#updateWorldMatrices that updated the world matrix, 0 if it is dirty
+
+    private World world ; // The world of the entity that backs the transform, see bindEntity
+    private int   entity;
+
+    SpatialGrid spatialGrid ; // The grid this game object is in, see SpatialGrid
+    int         spatialIndex; // The index of this game object in the grid
+
     private boolean isActive   ;
     private boolean isDestroyed;
 
-    private GameObject   parent  ;
-    private GameObject[] children;
+    private GameObject           parent  ;
+    private DenseSet<GameObject> children;
 
-    Script[] scriptsToStart; // Scripts that will be started in the next update
+    DenseSet<Script> scriptsToStart; // Scripts that will be started in the next update
 
-    private Script[] scripts       ; // All scripts that are attached to this GameObject
-    private Script[] currentScripts; // All scripts that are attached in the current update
+    private DenseSet<Script> scripts       ; // All scripts that are attached to this GameObject
+    private Script[]         currentScripts; // All scripts that are attached in the current update
 
     private Scene scene;
     
@@ -43,10 +59,15 @@ public final class GameObject implements IActivatable, IDestroyable
     {
         this.name = name;
 
-        children       = new GameObject[0];
-        scripts        = new Script    [0];
+        children       = new DenseSet<>(GameObject[]::new);
+        scripts        = new DenseSet<>(Script    []::new);
         currentScripts = new Script    [0];
-        scriptsToStart = new Script    [0];
+        scriptsToStart = new DenseSet<>(Script    []::new);
+
+        entity       = -1;
+        spatialIndex = -1;
+
+        isWorldMatrixDirty = true;
 
         activate();
     }
@@ -57,27 +78,170 @@ public final class GameObject implements IActivatable, IDestroyable
 
         scene = newScene;
 
+        // the passes of another scene are counted separately
+        worldMatrixPass = 0;
+
         if (scene == null) return;
 
-        for (int i = 0; i < children.length; i++)
-            scene.addGameObject(children[i]);
+        for (GameObject child : children.toArray())
+            scene.addGameObject(child);
     }
 
     @Override
     public boolean      isDestroyed() { return isDestroyed                 ; }
     public String       name       () { return name                      ; }
-    public Transform    transform  () { return transform                 ; }
+    public Transform    transform  () { return transform(this)           ; }
     public GameObject   parent     () { return parent                    ; }
-    public GameObject[] children   () { return ArrayUtils.clone(children); }
-    public Script    [] scripts    () { return ArrayUtils.clone(scripts ); }
+    public GameObject[] children   () { return ArrayUtils.clone(children.toArray()); }
+    public Script    [] scripts    () { return ArrayUtils.clone(scripts .toArray()); }
     public Engine       engine     () { return scene.engine()            ; }
     public Scene        scene      () { return scene                     ; }
+    public World        world      () { return world                     ; }
+    public int          entity     () { return entity                    ; }
+
+    /**
+     * Backs the transform of this game object by an entity of the world, so systems of the world can update it, see {@link World}. <p>
+     * 
+     * The entity gets destroyed together with this game object. A game object can only be bound to a single entity. <p>
+     * 
+     * @return the entity
+     */
+    public int bindEntity(World world)
+    {
+        ObjectIsDestroyedException.throwIfIsDestroyed(this);
+
+        if (this.world != null) throw new RuntimeException(this + " is already bound to an entity!");
+
+        this.world = world;
+
+        return entity = world.bind(this);
+    }
+
+    /**
+     * The transformation from the space of this game object into world space, 
+     * the transformation matrix of the transform followed by the world matrix of the parent. <p>
+     * 
+     * The world matrix is cached and only recomputed if the transform of this game object or of one of its ancestors changed,
+     * or if the parent changed. A change marks the world matrices of all descendants dirty, they get recomputed when they are needed,
+     * so a change high up in a deep hierarchy costs one matrix multiplication per descendant and no change costs none. <p>
+     * 
+     * Detecting changes means looking at the transforms of all ancestors. The engine updates the world matrices of the whole scene 
+     * at the end of every tick, from then on until the next tick the cached world matrix is returned right away, 
+     * transforms that are changed in place or replaced while rendering are picked up at the end of the next tick. <p>
+     * 
+     * A game object without a transform has the identity as transformation matrix. On the render thread of a threaded engine
+     * this is the world matrix of the snapshot that gets rendered, see {@link Engine#setThreadedRendering(boolean)}. <p>
+     * 
+     * @return the world matrix
+     */
+    public Matrix worldMatrix()
+    {
+        final SceneSnapshot snapshot = scene == null ? null : scene.renderedSnapshot();
+
+        if (snapshot != null)
+        {
+            // the render thread only reads, the game loop thread owns the cache
+            if (snapshotWorldMatrices == null || snapshotWorldMatrices[snapshot.index] == null) return worldMatrix;
+
+            return snapshotWorldMatrices[snapshot.index];
+        }
+
+        if (worldMatrixPass != 0 && scene != null && worldMatrixPass == scene.currentWorldMatrixPass()) return worldMatrix;
+
+        return updateWorldMatrix();
+    }
+
+    /**
+     * Marks the world matrices of this game object and all its descendants dirty. 
+     * Changes of transforms are detected by {@link #worldMatrix()}, this is only needed if a transform got replaced by one with the same matrix.
+     */
+    public void invalidateWorldMatrix()
+    {
+        // a dirty game object only has dirty descendants, so the walk stops there
+        if (isWorldMatrixDirty) return;
+
+        isWorldMatrixDirty = true;
+        worldMatrixPass    = 0;
+
+        for (GameObject child : children.toArray())
+            child.invalidateWorldMatrix();
+    }
+
+    /**
+     * Detects changes of the transforms from the root down to this game object and recomputes the dirty world matrices on the way.
+     */
+    Matrix updateWorldMatrix()
+    {
+        final Matrix parentWorldMatrix = parent == null ? null : parent.updateWorldMatrix();
+
+        return updateWorldMatrix(parentWorldMatrix);
+    }
+
+    /**
+     * Recomputes the world matrix if it is dirty, the world matrix of the parent has to be up to date.
+     */
+    Matrix updateWorldMatrix(final Matrix parentWorldMatrix)
+    {
+        final Matrix matrix = transform == null ? Matrix.IDENTITY : transform.transformationMatrix();
+
+        if (matrix != localMatrix)
+        {
+            localMatrix = matrix;
+
+            invalidateWorldMatrix();
+        }
+
+        if (isWorldMatrixDirty)
+        {
+            worldMatrix        = parentWorldMatrix == null ? matrix : matrix.times(parentWorldMatrix);
+            isWorldMatrixDirty = false;
+        }
+
+        return worldMatrix;
+    }
+
+    Matrix cachedWorldMatrix() { return worldMatrix; }
+
+    /**
+     * Updates the world matrices of this game object and all its descendants, the world matrix of the parent has to be up to date.
+     * 
+     * @param pass the pass of {@link Scene#updateWorldMatrices()} the world matrices are updated in
+     */
+    void updateWorldMatrices(final Matrix parentWorldMatrix, final int pass)
+    {
+        final Matrix matrix = updateWorldMatrix(parentWorldMatrix);
+
+        worldMatrixPass = pass;
 
-    public boolean hasChildren(final GameObject child ) { return contains(children, child ); }
-    public boolean hasScript  (final Script     script) { return contains(scripts , script); }
+        // every transform has to be checked, they can be changed in place without the game object noticing
+        for (GameObject child : children.toArray())
+            child.updateWorldMatrices(matrix, pass);
+    }
 
-    private final void addChildrenInternal   (GameObject gameObject) { children = push  (children, gameObject); }
-    private final void removeChildrenInternel(GameObject gameObject) { children = remove(children, gameObject); }
+    /**
+     * Renames the game object, the scene keeps its index of names up to date, see {@link Scene#getGameObject(String)}.
+     */
+    public void setName(String name)
+    {
+        ObjectIsDestroyedException.throwIfIsDestroyed(this);
+
+        final String oldName = this.name;
+
+        this.name = name;
+
+        if (scene != null) scene.onRename(this, oldName);
+    }
+
+    /**
+     * @return the scripts, the array must not be changed, it is shared until a script gets added or removed
+     */
+    Script[] attachedScripts() { return scripts.toArray(); }
+
+    public boolean hasChildren(final GameObject child ) { return children.contains(child ); }
+    public boolean hasScript  (final Script     script) { return scripts .contains(script); }
+
+    private final void addChildrenInternal   (GameObject gameObject) { children.add   (gameObject); }
+    private final void removeChildrenInternel(GameObject gameObject) { children.remove(gameObject); }
     private final void setParentInternal     (GameObject gameObject) { parent   = gameObject                  ; }
 
     public void setParent(GameObject newParent)
@@ -92,6 +256,8 @@ public final class GameObject implements IActivatable, IDestroyable
         if (newParent != null) newParent.addChildrenInternal   (this);
 
         setParentInternal(newParent);
+
+        invalidateWorldMatrix();
         
         if (newParent != null && newParent.scene() != scene && newParent.scene() != null)
             newParent.scene().addGameObject(newParent);
@@ -125,24 +291,29 @@ public final class GameObject implements IActivatable, IDestroyable
     {
         ObjectIsDestroyedException.throwIfIsDestroyed(this);
 
-        if (script.gameObject() != null || contains(scripts, script)) return;
+        if (script.gameObject() != null || scripts.contains(script)) return;
 
         script.setGameObject(this);
 
-        scripts = push(scripts, script);
+        scripts.add(script);
+
+        if (script.isActive()) scriptsToStart.add(script);
 
-        if (script.isActive()) scriptsToStart = push(scriptsToStart, script);
+        if (scene != null) scene.onScriptAdded(this, script);
     }
 
     public void removeScript(Script script)
     {
         ObjectIsDestroyedException.throwIfIsDestroyed(this);
 
-        if (!contains(scripts, script)) return;
+        if (!scripts.contains(script)) return;
 
         script.setGameObject(null);
 
-        scripts = remove(scripts, script);
+        scripts       .remove(script);
+        scriptsToStart.remove(script);
+
+        if (scene != null) scene.onScriptRemoved(this, script);
     }
     
     @Override
@@ -154,10 +325,10 @@ public final class GameObject implements IActivatable, IDestroyable
         deactivate();
 
         // then, destroy all scripts and children
-        for (Script script : scripts)
+        for (Script script : scripts.toArray())
             script.destroy();
 
-        for (GameObject children : children)
+        for (GameObject children : children.toArray())
             children.destroy();
 
         // then, remove the object from the scene
@@ -170,6 +341,18 @@ public final class GameObject implements IActivatable, IDestroyable
 
         // then, remove the object from the parent
         setParent(null);
+
+        // then, remove the object from its spatial grid
+        if (spatialGrid != null) spatialGrid.remove(this);
+
+        // then, destroy the entity that backs the transform
+        if (world != null) 
+        {
+            world.destroy(entity);
+
+            world  = null;
+            entity = -1;
+        }
         
         // then, mark the object as destroyed
         isDestroyed = true;
@@ -183,18 +366,33 @@ public final class GameObject implements IActivatable, IDestroyable
         parent   = null;
     }
 
-    void update() 
+    void update() { update(null); }
+
+    /**
+     * Updates the scripts, the active {@link IParallelScript}s are added to the pool instead if there is one.
+     */
+    void update(UpdatePool updatePool) 
     {
         updateScripts();
 
-        for (Script script : scriptsToStart)
-            script.tryStartOnce();
+        // scripts added while starting get started in the next update
+        if (!scriptsToStart.isEmpty())
+        {
+            final Script[] toStart = scriptsToStart.toArray();
+
+            scriptsToStart.clear();
 
-        scriptsToStart = new Script[0];
+            for (Script script : toStart)
+                script.tryStartOnce();
+        }
 
         for (Script script : currentScripts) 
-            if (script.isActive()) 
-                script.update();
+        {
+            if (!script.isActive()) continue;
+
+            if (updatePool != null && script instanceof IParallelScript) updatePool.add(script);
+            else                                                         script.update();
+        }
     }
 
     void render()
@@ -206,12 +404,33 @@ public final class GameObject implements IActivatable, IDestroyable
                 script.render(); 
     }
 
+    void snapshot(SceneSnapshot snapshot)
+    {
+        updateScripts();
+
+        snapshot.add(this, currentScripts);
+    }
+
     void onActivate   () { updateScripts(); for (Script script : currentScripts) script.onGameObjectActivate  (); }
     void onDeactivate () { updateScripts(); for (Script script : currentScripts) script.onGameObjectDeactivate(); }
     void onDestroy    () { updateScripts(); for (Script script : currentScripts) script.onDestroy             (); }
     void onSceneChange() { updateScripts(); for (Script script : currentScripts) script.onSceneChange         (); }
 
-    void updateScripts() { currentScripts = scripts; }
+    void updateScripts() { currentScripts = scripts.toArray(); }
+
+    /**
+     * On the render thread of a threaded engine the transform of the snapshot that gets rendered, 
+     * see {@link Engine#setThreadedRendering(boolean)}, otherwise the transform itself.
+     */
+    static Transform transform(final GameObject gameObject)
+    {
+        final SceneSnapshot snapshot = gameObject.scene == null ? null : gameObject.scene.renderedSnapshot();
+
+        if (snapshot == null || gameObject.snapshotTransforms == null || gameObject.snapshotTransforms[snapshot.index] == null) 
+            return gameObject.transform;
+
+        return gameObject.snapshotTransforms[snapshot.index];
+    }
 
     @Override
     public void setActive(boolean state) 
@@ -0,0 +1,15 @@
+package engine;
+
+/**
+ * Marks a {@link Script} whose {@link Script#update()} may run in parallel to the updates of other scripts. <p>
+ * 
+ * With an {@link UpdatePool} set by {@link Engine#setUpdatePool(UpdatePool)} the updates of all parallel scripts 
+ * are spread over the workers of the pool. A parallel script may only change its own state and the {@link engine.math.Transform} 
+ * of its own game object, reading other objects is only safe if no parallel script changes them. 
+ * It must not add, remove, activate or destroy game objects or scripts in update. <p>
+ * 
+ * {@link Script#start()} and {@link Script#render()} of a parallel script are not affected. <p>
+ * 
+ * @author NextLegacy
+ */
+public interface IParallelScript { }
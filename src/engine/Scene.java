@@ -1,15 +1,19 @@
 package engine;
 
+import java.util.HashMap;
+
 import engine.utils.ArrayUtils;
+import engine.utils.DenseSet;
+import engine.utils.Lambda.Action1;
 import engine.utils.activatable.IActivatable;
 import engine.utils.activatable.ObjectIsNotActiveException;
 import engine.utils.destroyable.IDestroyable;
 import engine.utils.destroyable.ObjectIsDestroyedException;
+import engine.utils.time.Time;
 import engine.window.Window;
 
 import engine.utils.ArrayUtils.ArrayFunctions.*;
 
-import static engine.utils.ArrayUtils.*;
 
 /**
  * A scene is a collection of GameObjects that get updated and rendered by the engine.
@@ -20,18 +24,33 @@ import static engine.utils.ArrayUtils.*;
  */
 public abstract class Scene implements IActivatable, IDestroyable
 {
+    private static final GameObject[] NO_GAME_OBJECTS = new GameObject[0];
+
     private Engine engine;
     
-    private GameObject[] currentGameObjects;
-    private GameObject[] gameObjectsInScene;
+    private GameObject[]         currentGameObjects;
+    private DenseSet<GameObject> gameObjectsInScene;
+
+    // the game objects of the scene by name and by the classes of their scripts, see getGameObject and getGameObjectsWithScript
+    private HashMap<String  , DenseSet<GameObject>> gameObjectsByName  ;
+    private HashMap<Class<?>, DenseSet<GameObject>> gameObjectsByScript;
+
+    private SpatialGrid spatialGrid;
+
+    // counts the passes of updateWorldMatrices, the world matrices are up to date from the end of a pass until the scene gets updated again
+    private int     worldMatrixPass;
+    private boolean areWorldMatricesUpToDate;
 
     private boolean isDestroyed;
 
     public Scene()
     {
         engine             = null             ;
-        gameObjectsInScene = new GameObject[0];
+        gameObjectsInScene = new DenseSet<>(GameObject[]::new);
         currentGameObjects = new GameObject[0];
+
+        gameObjectsByName   = new HashMap<>();
+        gameObjectsByScript = new HashMap<>();
     }
 
     void setEngine(Engine engine) { this.engine = engine; }
@@ -45,49 +64,209 @@ public abstract class Scene implements IActivatable, IDestroyable
     {
         throwIfIsUnvalid(this);
 
-        if (contains(gameObjectsInScene, gameObject))
+        if (gameObjectsInScene.contains(gameObject))
             return;
 
+        if (spatialGrid != null) spatialGrid.add(gameObject);
+
         gameObject.setScene(this);
 
-        gameObjectsInScene = push(gameObjectsInScene, gameObject);
+        gameObjectsInScene.add(gameObject);
+
+        index(gameObjectsByName, gameObject.name(), gameObject);
+
+        for (Script script : gameObject.attachedScripts())
+            onScriptAdded(gameObject, script);
     }
     
     public final void removeGameObject(GameObject gameObject)
     {
         throwIfIsUnvalid(this);
 
-        if (!contains(gameObjectsInScene, gameObject))
+        if (!gameObjectsInScene.contains(gameObject))
             return;
 
         gameObject.setScene(null);
     
-        gameObjectsInScene = remove(gameObjectsInScene, gameObject);
+        gameObjectsInScene.remove(gameObject);
+
+        unindex(gameObjectsByName, gameObject.name(), gameObject);
+
+        // all scripts leave, so the other scripts of the game object must not keep it indexed under a shared class
+        for (Script script : gameObject.attachedScripts())
+            unindexScript(gameObject, script);
+
+        if (spatialGrid != null) spatialGrid.remove(gameObject);
     }
 
     public final GameObject[] gameObjects()
     {
         throwIfIsUnvalid(this);
 
-        return ArrayUtils.clone(gameObjectsInScene);
+        return ArrayUtils.clone(gameObjectsInScene.toArray());
     }
 
+    /**
+     * Looks the name up in an index that is kept up to date when game objects get added, removed or renamed.
+     * @return a game object with the name, null if there is none
+     */
     public final GameObject getGameObject(String name)
     {
         throwIfIsUnvalid(this);
 
-        for (GameObject gameObject : gameObjectsInScene)
-            if (gameObject.name() == name)
-                return gameObject;
-            
-        return null;
+        final DenseSet<GameObject> gameObjects = gameObjectsByName.get(name);
+
+        return gameObjects == null ? null : gameObjects.get(0);
+    }
+
+    /**
+     * @return all game objects with the name
+     */
+    public final GameObject[] getGameObjects(String name)
+    {
+        throwIfIsUnvalid(this);
+
+        return ArrayUtils.clone(indexed(gameObjectsByName, name));
+    }
+
+    /**
+     * Runs the action for every game object with the name, does not create any objects.
+     * The action may add or remove game objects, the ones that had the name when it got called are visited.
+     */
+    public final void forEachGameObject(String name, Action1<GameObject> action)
+    {
+        throwIfIsUnvalid(this);
+
+        for (GameObject gameObject : indexed(gameObjectsByName, name))
+            action.run(gameObject);
+    }
+
+    /**
+     * Looks the type up in an index that is kept up to date when scripts get added or removed and game objects get added or removed.
+     * @param type the class of the script, subclasses count as well
+     * @return all game objects with a script of the type
+     */
+    public final GameObject[] getGameObjectsWithScript(Class<? extends Script> type)
+    {
+        throwIfIsUnvalid(this);
+
+        return ArrayUtils.clone(indexed(gameObjectsByScript, type));
+    }
+
+    /**
+     * Runs the action for every game object with a script of the type, does not create any objects.
+     * The action may add or remove game objects or scripts, the ones that had a script of the type when it got called are visited.
+     * @param type the class of the script, subclasses count as well
+     */
+    public final void forEachGameObjectWithScript(Class<? extends Script> type, Action1<GameObject> action)
+    {
+        throwIfIsUnvalid(this);
+
+        for (GameObject gameObject : indexed(gameObjectsByScript, type))
+            action.run(gameObject);
     }
 
     public final GameObject[] getGameObjects(GenericFilter<GameObject> filter)
     {
         throwIfIsUnvalid(this);
 
-        return ArrayUtils.filter(gameObjectsInScene, filter);
+        return ArrayUtils.filter(gameObjectsInScene.toArray(), filter);
+    }
+
+    /**
+     * Sets the grid that keeps track of the positions of all game objects of this scene, null for none. <p>
+     * 
+     * The game objects of the scene get added to the grid and removed from the previous one,
+     * the grid gets updated once per tick after the world matrices, see {@link SpatialGrid#update()}.
+     * Scripts can query it for the game objects around them and renderers for the game objects in view. <p>
+     */
+    public final void setSpatialGrid(SpatialGrid spatialGrid)
+    {
+        throwIfIsUnvalid(this);
+
+        if (this.spatialGrid == spatialGrid) return;
+
+        final GameObject[] gameObjects = gameObjectsInScene.toArray();
+
+        if (this.spatialGrid != null)
+            for (GameObject gameObject : gameObjects)
+                this.spatialGrid.remove(gameObject);
+
+        this.spatialGrid = spatialGrid;
+
+        if (spatialGrid != null)
+            for (GameObject gameObject : gameObjects)
+                spatialGrid.add(gameObject);
+    }
+
+    public final SpatialGrid spatialGrid() { throwIfIsUnvalid(this); return spatialGrid; }
+
+    void onRename(GameObject gameObject, String oldName)
+    {
+        unindex(gameObjectsByName, oldName, gameObject);
+        index  (gameObjectsByName, gameObject.name(), gameObject);
+    }
+
+    /**
+     * Indexes the game object under the class of the script and all its superclasses up to {@link Script}.
+     */
+    void onScriptAdded(GameObject gameObject, Script script)
+    {
+        for (Class<?> type = script.getClass(); type != Object.class; type = type.getSuperclass())
+            index(gameObjectsByScript, type, gameObject);
+    }
+
+    /**
+     * Removes the game object from the index of every class of the script that no other script of the game object has.
+     */
+    void onScriptRemoved(GameObject gameObject, Script script)
+    {
+        for (Class<?> type = script.getClass(); type != Object.class; type = type.getSuperclass())
+            if (!hasScript(gameObject, type, script))
+                unindex(gameObjectsByScript, type, gameObject);
+    }
+
+    /**
+     * Removes the game object from the index of every class of the script and all its superclasses up to {@link Script}.
+     */
+    private void unindexScript(GameObject gameObject, Script script)
+    {
+        for (Class<?> type = script.getClass(); type != Object.class; type = type.getSuperclass())
+            unindex(gameObjectsByScript, type, gameObject);
+    }
+
+    private static boolean hasScript(GameObject gameObject, Class<?> type, Script except)
+    {
+        for (Script script : gameObject.attachedScripts())
+            if (script != except && type.isInstance(script))
+                return true;
+
+        return false;
+    }
+
+    private static <K> void index(HashMap<K, DenseSet<GameObject>> index, K key, GameObject gameObject)
+    {
+        index.computeIfAbsent(key, k -> new DenseSet<>(GameObject[]::new)).add(gameObject);
+    }
+
+    private static <K> void unindex(HashMap<K, DenseSet<GameObject>> index, K key, GameObject gameObject)
+    {
+        final DenseSet<GameObject> gameObjects = index.get(key);
+
+        if (gameObjects == null || !gameObjects.remove(gameObject)) return;
+
+        // empty sets get dropped, so names and types that are not used anymore do not pile up
+        if (gameObjects.isEmpty()) index.remove(key);
+    }
+
+    /**
+     * @return the game objects under the key, the array must not be changed, see {@link DenseSet#toArray()}
+     */
+    private static <K> GameObject[] indexed(HashMap<K, DenseSet<GameObject>> index, K key)
+    {
+        final DenseSet<GameObject> gameObjects = index.get(key);
+
+        return gameObjects == null ? NO_GAME_OBJECTS : gameObjects.toArray();
     }
 
     @Override
@@ -104,11 +283,21 @@ public abstract class Scene implements IActivatable, IDestroyable
     
     void update() 
     { 
+        // scripts may change transforms in place from now on
+        areWorldMatricesUpToDate = false;
+
         updateGameObjects();
 
+        final UpdatePool updatePool = engine == null ? null : engine.updatePool();
+
+        final long start = Time.nanos();
+
         for (GameObject gameObject : currentGameObjects)
             if (gameObject.isActive())
-                gameObject.update();
+                gameObject.update(updatePool);
+
+        // the parallel scripts run after all others and are done before the tick continues
+        if (updatePool != null) updatePool.update(Time.nanos() - start);
     }
     
     void render() 
@@ -120,6 +309,47 @@ public abstract class Scene implements IActivatable, IDestroyable
                 gameObject.render();
     }
 
+    /**
+     * Updates the world matrices of all game objects in a single pass from the roots down, 
+     * so changes made during the tick are picked up before the scene gets rendered, see {@link GameObject#worldMatrix()},
+     * and then the spatial grid. Until the next update the cached world matrices are returned without looking at the ancestors.
+     */
+    void updateWorldMatrices()
+    {
+        updateGameObjects();
+
+        final int pass = ++worldMatrixPass;
+
+        for (GameObject gameObject : currentGameObjects)
+            if (gameObject.parent() == null)
+                gameObject.updateWorldMatrices(null, pass);
+
+        if (spatialGrid != null) spatialGrid.update(true);
+
+        areWorldMatricesUpToDate = true;
+    }
+
+    /**
+     * @return the pass of {@link #updateWorldMatrices()} the world matrices are up to date since, or 0 if the scene got updated since then
+     */
+    int currentWorldMatrixPass() { return areWorldMatricesUpToDate ? worldMatrixPass : 0; }
+
+    /**
+     * Stores the scripts to render and the transforms of the active game objects in the snapshot.
+     */
+    void snapshot(SceneSnapshot snapshot)
+    {
+        updateGameObjects();
+
+        snapshot.clear();
+
+        for (GameObject gameObject : currentGameObjects)
+            if (gameObject.isActive())
+                gameObject.snapshot(snapshot);
+    }
+
+    SceneSnapshot renderedSnapshot() { return engine == null ? null : engine.renderedSnapshot(); }
+
     void onSceneChange() 
     {
         for (GameObject gameObject : currentGameObjects)
@@ -128,7 +358,7 @@ public abstract class Scene implements IActivatable, IDestroyable
 
     void updateGameObjects()
     {
-        currentGameObjects = gameObjectsInScene;
+        currentGameObjects = gameObjectsInScene.toArray();
     }
 
     public final boolean isDestroyed() { return isDestroyed; }
@@ -146,10 +376,14 @@ public abstract class Scene implements IActivatable, IDestroyable
         isDestroyed        = true;
 
         engine             = null;
+        spatialGrid        = null;
 
         gameObjectsInScene = null;
         currentGameObjects = null;
 
+        gameObjectsByName   = null;
+        gameObjectsByScript = null;
+
         end();
     }
 
@@ -0,0 +1,72 @@
+package engine;
+
+import java.util.Arrays;
+
+import engine.math.Matrix;
+import engine.math.Transform;
+
+/**
+ * The state of a {@link Scene} the render thread of a threaded {@link Engine} renders, see {@link Engine#setThreadedRendering(boolean)}. <p>
+ *
+ * A snapshot holds the scripts to render in their order. The transforms are stored in the game objects,
+ * one per snapshot, so a game object keeps its transforms between snapshots and only copies what changed.
+ * The world matrices are immutable, so the snapshot shares them with the game objects. <p>
+ *
+ * @author NextLegacy
+ */
+final class SceneSnapshot
+{
+    static final int COUNT = 3;
+
+    final int index;
+
+    private Script[] scripts;
+    private int      scriptCount;
+
+    SceneSnapshot(final int index)
+    {
+        this.index = index;
+
+        scripts = new Script[16];
+    }
+
+    void clear()
+    {
+        Arrays.fill(scripts, 0, scriptCount, null);
+
+        scriptCount = 0;
+    }
+
+    void add(final GameObject gameObject, final Script[] scripts)
+    {
+        if (gameObject.snapshotTransforms == null) gameObject.snapshotTransforms = new Transform[COUNT];
+
+        final Transform[] transforms = gameObject.snapshotTransforms;
+
+        if      (gameObject.transform == null) transforms[index] = null;
+        else if (transforms[index]    == null) transforms[index] = new Transform().set(gameObject.transform);
+        else                                   transforms[index].set(gameObject.transform);
+
+        if (gameObject.snapshotWorldMatrices == null) gameObject.snapshotWorldMatrices = new Matrix[COUNT];
+
+        // the world matrices got updated at the end of the tick, see Scene#updateWorldMatrices
+        gameObject.snapshotWorldMatrices[index] = gameObject.cachedWorldMatrix();
+
+        for (Script script : scripts)
+        {
+            if (!script.isActive()) continue;
+
+            if (scriptCount == this.scripts.length) this.scripts = Arrays.copyOf(this.scripts, scriptCount * 2);
+
+            this.scripts[scriptCount++] = script;
+        }
+    }
+
+    void render()
+    {
+        // scripts destroyed or deactivated since the snapshot got taken are skipped
+        for (int i = 0; i < scriptCount; i++)
+            if (scripts[i].isActive())
+                scripts[i].render();
+    }
+}
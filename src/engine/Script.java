@@ -30,7 +30,7 @@ public abstract class Script implements IActivatable, IDestroyable
     void setGameObject(GameObject gameObject) { this.gameObject = gameObject; }
     
     protected final GameObject  gameObject() { return gameObject          ; }
-    protected final Transform   transform () { return gameObject.transform; }
+    protected final Transform   transform () { return gameObject.transform(); }
 
     protected final Transform   setTransform(Transform transform) { return gameObject.transform = transform; }
 
@@ -39,6 +39,8 @@ public abstract class Script implements IActivatable, IDestroyable
     protected final Engine      engine    () { return gameObject.engine(); }
     protected final Window      window    () { return engine().window  (); }
 
+    protected final CommandBuffer commands() { return engine().commands(); }
+
     protected final Input       input     () { return engine().input   (); }
     protected final Mouse       mouse     () { return input().mouse    (); }
     protected final Button      left      () { return input().left     (); }
@@ -61,7 +63,11 @@ public abstract class Script implements IActivatable, IDestroyable
     /** the update method is called every tick. */
     protected void update() { }
 
-    /** the render method is called every frame. */
+    /** 
+     * the render method is called every frame. 
+     * With {@link Engine#setThreadedRendering(boolean)} it runs on the render thread concurrently to update, 
+     * {@link #transform()} then returns the transform of the last published snapshot. 
+     */
     protected void render() { }
 
     protected void onActivate() { }
@@ -0,0 +1,924 @@
+package engine;
+
+import java.util.Arrays;
+
+import engine.math.Matrix;
+import engine.math.Vector4;
+import engine.threed.Frustum;
+import engine.utils.Lambda.Action1;
+import engine.utils.destroyable.ObjectIsDestroyedException;
+
+/**
+ * A uniform hash grid over the positions of game objects, finds the game objects in a radius, in a box, in a frustum,
+ * the nearest ones and the first one on a ray without looking at every game object. <p>
+ *
+ * A game object is a point at the translation of its world matrix, see {@link GameObject#worldMatrix()}.
+ * Only the occupied cells exist, they are kept in an open addressing hash table keyed by their coordinates,
+ * so the grid has no bounds and an empty region costs nothing. The cell size should be about the radius of a typical query,
+ * much smaller cells make queries visit many cells, much bigger ones make them test many game objects. <p>
+ *
+ * {@link #update()} moves the game objects whose world matrix changed into their new cells, the positions are the ones of the last update,
+ * a {@link Scene} with a grid does that once per tick after the world matrices got updated, see {@link Scene#setSpatialGrid(SpatialGrid)}.
+ * A game object can only be in a single grid and leaves it when it gets destroyed. <p>
+ *
+ * The grid is not thread safe and a query can not be started from the action of another query,
+ * the action may add, remove or destroy game objects though. <p>
+ *
+ * @author NextLegacy
+ */
+public final class SpatialGrid
+{
+    private static final int MINIMUM_CAPACITY = 16;
+
+    // bits of a cell coordinate in a key, coordinates further apart wrap around and share keys, which only costs speed
+    private static final int  KEY_BITS = 21;
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+
+    private final double cellSize       ;
+    private final double inverseCellSize;
+
+    // the game objects and their positions, dense, removing one moves the last one into its place
+    private GameObject[] gameObjects;
+    private Matrix    [] matrices   ; // the world matrices the positions got taken from
+    private double    [] xs, ys, zs ;
+    private int       [] cells      ; // the cell of a game object
+    private int       [] slots      ; // the index of a game object in the members of its cell
+    private int          size       ;
+
+    // the cells by id, the ids of removed cells get reused, a removed cell has -1 members
+    private int [][] members     ;
+    private int []   memberCounts;
+    private long[]   keys        ;
+    private int      cellIds     ; // the ids handed out so far
+    private int []   freeIds     ;
+    private int      freeCount   ;
+
+    // the range of the coordinates of all cells that got added, only grows
+    private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE, minCellZ = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE, maxCellZ = Integer.MIN_VALUE;
+
+    // slots of the hash table, the key of a cell and its id plus one, 0 marks an empty slot
+    private long[] tableKeys;
+    private int [] tableIds ;
+    private int    mask     ;
+
+    // buffers of the queries
+    private int       [] candidates;
+    private GameObject[] results   ;
+    private int       [] visited   ; // the last query that tested a game object
+    private int          query     ;
+    private boolean      isQuerying;
+
+    /**
+     * @param cellSize the edge length of the cubic cells
+     */
+    public SpatialGrid(final double cellSize)
+    {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) throw new IllegalArgumentException("The cell size has to be positive and finite!");
+
+        this.cellSize   = cellSize    ;
+        inverseCellSize = 1 / cellSize;
+
+        gameObjects = new GameObject[MINIMUM_CAPACITY];
+        matrices    = new Matrix    [MINIMUM_CAPACITY];
+        xs          = new double    [MINIMUM_CAPACITY];
+        ys          = new double    [MINIMUM_CAPACITY];
+        zs          = new double    [MINIMUM_CAPACITY];
+        cells       = new int       [MINIMUM_CAPACITY];
+        slots       = new int       [MINIMUM_CAPACITY];
+        candidates  = new int       [MINIMUM_CAPACITY];
+        results     = new GameObject[MINIMUM_CAPACITY];
+        visited     = new int       [MINIMUM_CAPACITY];
+
+        members      = new int [MINIMUM_CAPACITY][];
+        memberCounts = new int [MINIMUM_CAPACITY];
+        keys         = new long[MINIMUM_CAPACITY];
+        freeIds      = new int [MINIMUM_CAPACITY];
+
+        tableKeys = new long[MINIMUM_CAPACITY * 2];
+        tableIds  = new int [MINIMUM_CAPACITY * 2];
+        mask      = tableIds.length - 1;
+    }
+
+    public int    size    () { return size    ; }
+    public double cellSize() { return cellSize; }
+
+    /**
+     * @return the number of cells that contain game objects
+     */
+    public int cellCount() { return cellIds - freeCount; }
+
+    public boolean contains(final GameObject gameObject) { return gameObject != null && gameObject.spatialGrid == this; }
+
+    /**
+     * Adds the game object at the translation of its world matrix, does nothing if it is already in this grid.
+     */
+    public void add(final GameObject gameObject)
+    {
+        ObjectIsDestroyedException.throwIfIsDestroyed(gameObject);
+
+        if (gameObject.spatialGrid == this) return;
+
+        if (gameObject.spatialGrid != null) throw new RuntimeException(gameObject + " is already in another spatial grid!");
+
+        if (size == gameObjects.length) grow(size * 2);
+
+        final int index = size++;
+
+        final Matrix matrix = gameObject.updateWorldMatrix();
+
+        gameObjects[index] = gameObject;
+        matrices   [index] = matrix    ;
+
+        xs[index] = matrix.get(12);
+        ys[index] = matrix.get(13);
+        zs[index] = matrix.get(14);
+
+        addMember(index, cellOf(xs[index], ys[index], zs[index]));
+
+        gameObject.spatialGrid  = this ;
+        gameObject.spatialIndex = index;
+    }
+
+    /**
+     * Removes the game object, does nothing if it is not in this grid.
+     */
+    public void remove(final GameObject gameObject)
+    {
+        if (!contains(gameObject)) return;
+
+        final int index = gameObject.spatialIndex;
+
+        removeMember(index);
+
+        final int last = --size;
+
+        if (index != last)
+        {
+            gameObjects[index] = gameObjects[last];
+            matrices   [index] = matrices   [last];
+            xs         [index] = xs         [last];
+            ys         [index] = ys         [last];
+            zs         [index] = zs         [last];
+            cells      [index] = cells      [last];
+            slots      [index] = slots      [last];
+
+            members[cells[index]][slots[index]] = index;
+
+            gameObjects[index].spatialIndex = index;
+        }
+
+        gameObjects[last] = null;
+        matrices   [last] = null;
+
+        gameObject.spatialGrid  = null;
+        gameObject.spatialIndex = -1  ;
+    }
+
+    /**
+     * Moves the game objects whose world matrix changed since the last update into their new cells. <p>
+     *
+     * A game object that did not move costs a comparison of its world matrix, one that stays in its cell additionally a comparison of the key of its cell.
+     */
+    public void update() { update(false); }
+
+    /**
+     * @param isWorldMatrixUpToDate whether the cached world matrices are up to date, like right after {@link Scene#updateWorldMatrices()},
+     *                              so the transforms of the game objects and their ancestors do not need to be checked again
+     */
+    void update(final boolean isWorldMatrixUpToDate)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            Matrix matrix = isWorldMatrixUpToDate ? gameObjects[i].cachedWorldMatrix() : null;
+
+            if (matrix == null) matrix = gameObjects[i].updateWorldMatrix();
+
+            if (matrix == matrices[i]) continue;
+
+            matrices[i] = matrix;
+
+            final double x = matrix.get(12), y = matrix.get(13), z = matrix.get(14);
+
+            xs[i] = x; ys[i] = y; zs[i] = z;
+
+            if (keys[cells[i]] == key(coordinate(x), coordinate(y), coordinate(z))) continue;
+
+            removeMember(i);
+            addMember   (i, cellOf(x, y, z));
+        }
+    }
+
+    /**
+     * @return the game objects whose position is at most radius away from the center, in no particular order
+     */
+    public GameObject[] inRadius(final Vector4 center, final double radius) { return collect(queryRadius(center.x(), center.y(), center.z(), radius)); }
+
+    /**
+     * Runs the action for every game object whose position is at most radius away from the center, does not create any objects.
+     */
+    public void forEachInRadius(final Vector4 center, final double radius, final Action1<GameObject> action) { run(queryRadius(center.x(), center.y(), center.z(), radius), action); }
+
+    /**
+     * @return the game objects whose position is inside the box, borders included, in no particular order
+     */
+    public GameObject[] inBox(final Vector4 min, final Vector4 max) { return collect(queryBox(min.x(), min.y(), min.z(), max.x(), max.y(), max.z())); }
+
+    /**
+     * Runs the action for every game object whose position is inside the box, borders included, does not create any objects.
+     */
+    public void forEachInBox(final Vector4 min, final Vector4 max, final Action1<GameObject> action) { run(queryBox(min.x(), min.y(), min.z(), max.x(), max.y(), max.z()), action); }
+
+    /**
+     * The frustum has to be in world space, see {@link Frustum#set(Matrix, Matrix, double)} with the view matrix of the camera.
+     * @param radius the radius of the spheres around the positions that get tested, how far a game object reaches
+     * @return the game objects that may be visible, in no particular order
+     */
+    public GameObject[] inFrustum(final Frustum frustum, final double radius) { return collect(queryFrustum(frustum, radius)); }
+
+    /**
+     * Runs the action for every game object that may be visible, does not create any objects, see {@link #inFrustum(Frustum, double)}.
+     */
+    public void forEachInFrustum(final Frustum frustum, final double radius, final Action1<GameObject> action) { run(queryFrustum(frustum, radius), action); }
+
+    /**
+     * Searches the cells in shells of growing distance around the cell of the point until no unsearched cell can hold a nearer game object.
+     * @return the count nearest game objects to the point, the nearest first, fewer if the grid has fewer
+     */
+    public GameObject[] nearest(final Vector4 point, final int count)
+    {
+        beginQuery();
+
+        try
+        {
+            return nearest(point.x(), point.y(), point.z(), Math.min(count, size));
+        }
+        finally
+        {
+            isQuerying = false;
+        }
+    }
+
+    /**
+     * Walks the cells along the ray and tests the game objects as spheres of the radius.
+     * @param direction the direction of the ray, does not need to be normalized
+     * @param maxDistance the length of the ray
+     * @param radius the radius of the spheres around the positions, how far a game object reaches
+     * @return the game object that the ray hits first, null if it hits none
+     */
+    public GameObject raycast(final Vector4 origin, final Vector4 direction, final double maxDistance, final double radius)
+    {
+        beginQuery();
+
+        try
+        {
+            return raycast(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(), maxDistance, radius);
+        }
+        finally
+        {
+            isQuerying = false;
+        }
+    }
+
+    private int queryRadius(final double x, final double y, final double z, final double radius)
+    {
+        beginQuery();
+
+        final int candidateCount = candidates(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+
+        final double radiusSquared = radius * radius;
+
+        int count = 0;
+
+        for (int i = 0; i < candidateCount; i++)
+        {
+            final int index = candidates[i];
+
+            final double dx = xs[index] - x, dy = ys[index] - y, dz = zs[index] - z;
+
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) results[count++] = gameObjects[index];
+        }
+
+        return count;
+    }
+
+    private int queryBox(final double minX, final double minY, final double minZ, final double maxX, final double maxY, final double maxZ)
+    {
+        beginQuery();
+
+        final int candidateCount = candidates(minX, minY, minZ, maxX, maxY, maxZ);
+
+        int count = 0;
+
+        for (int i = 0; i < candidateCount; i++)
+        {
+            final int index = candidates[i];
+
+            final double x = xs[index], y = ys[index], z = zs[index];
+
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) results[count++] = gameObjects[index];
+        }
+
+        return count;
+    }
+
+    private int queryFrustum(final Frustum frustum, final double radius)
+    {
+        beginQuery();
+
+        // a wrapped key does not tell where the members of its cell are, they get tested one by one
+        final boolean isUnwrapped = isUnwrapped();
+
+        int count = 0;
+
+        for (int id = 0; id < cellIds; id++)
+        {
+            if (memberCounts[id] <= 0) continue;
+
+            final long key = keys[id];
+
+            final double minX = unpack(key >>> (KEY_BITS * 2)) * cellSize - radius;
+            final double minY = unpack(key >>>  KEY_BITS     ) * cellSize - radius;
+            final double minZ = unpack(key                   ) * cellSize - radius;
+
+            final double maxX = minX + cellSize + radius * 2, maxY = minY + cellSize + radius * 2, maxZ = minZ + cellSize + radius * 2;
+
+            if (isUnwrapped && !frustum.intersects(minX, minY, minZ, maxX, maxY, maxZ)) continue;
+
+            final int[] cellMembers = members[id];
+
+            for (int i = 0; i < memberCounts[id]; i++)
+            {
+                final int index = cellMembers[i];
+
+                if (frustum.intersects(xs[index], ys[index], zs[index], radius)) results[count++] = gameObjects[index];
+            }
+        }
+
+        return count;
+    }
+
+    private GameObject[] nearest(final double x, final double y, final double z, final int count)
+    {
+        if (count <= 0) return new GameObject[0];
+
+        // a max heap of the nearest game objects found so far, the farthest of them on top
+        final int   [] heap      = new int   [count];
+        final double[] distances = new double[count];
+
+        int found = 0;
+
+        final int cellX = coordinate(x), cellY = coordinate(y), cellZ = coordinate(z);
+
+        // the distance of the point to the nearest face of its cell, every cell in the shell r is at least this plus r - 1 cells away
+        final double inner = Math.min(Math.min(Math.min(x - cellX * cellSize, (cellX + 1) * cellSize - x),
+                                               Math.min(y - cellY * cellSize, (cellY + 1) * cellSize - y)),
+                                               Math.min(z - cellZ * cellSize, (cellZ + 1) * cellSize - z));
+
+        int searched = 0;
+
+        for (int r = 0; ; r++)
+        {
+            if (found == count && r > 0)
+            {
+                final double distance = Math.max(0, inner + (r - 1) * cellSize);
+
+                if (distances[0] <= distance * distance) break;
+            }
+
+            if (searched == size) break;
+
+            final double shellCells = r == 0 ? 1 : Math.pow(2 * r + 1, 3) - Math.pow(2 * r - 1, 3);
+
+            if (shellCells > cellCount() || !isUnwrapped())
+            {
+                // the shell has more cells than there are occupied ones, testing every game object is cheaper
+                found = 0;
+
+                for (int index = 0; index < size; index++) found = offer(heap, distances, found, index, x, y, z);
+
+                break;
+            }
+
+            for (int dx = -r; dx <= r; dx++)
+            for (int dy = -r; dy <= r; dy++)
+            {
+                final boolean isOnSide = dx == -r || dx == r || dy == -r || dy == r;
+
+                // inside the shell only the two cells on its front and back face belong to it
+                for (int dz = -r; dz <= r; dz += isOnSide || r == 0 ? 1 : 2 * r)
+                {
+                    final int id = findCell(key(cellX + dx, cellY + dy, cellZ + dz));
+
+                    if (id < 0) continue;
+
+                    final int[] cellMembers = members[id];
+
+                    for (int i = 0; i < memberCounts[id]; i++) found = offer(heap, distances, found, cellMembers[i], x, y, z);
+
+                    searched += memberCounts[id];
+                }
+            }
+        }
+
+        final GameObject[] nearest = new GameObject[found];
+
+        // taking the farthest off the heap fills the result from the back
+        for (int i = found - 1; i >= 0; i--)
+        {
+            nearest[i] = gameObjects[heap[0]];
+
+            heap     [0] = heap     [i];
+            distances[0] = distances[i];
+
+            siftDown(heap, distances, i);
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Adds the game object to the heap if it is nearer than the farthest one in there or if the heap is not full.
+     * @return the number of game objects in the heap
+     */
+    private int offer(final int[] heap, final double[] distances, int found, final int index, final double x, final double y, final double z)
+    {
+        final double dx = xs[index] - x, dy = ys[index] - y, dz = zs[index] - z;
+
+        final double distance = dx * dx + dy * dy + dz * dz;
+
+        if (found < heap.length)
+        {
+            // sift up
+            int i = found++;
+
+            while (i > 0)
+            {
+                final int parent = (i - 1) >>> 1;
+
+                if (distances[parent] >= distance) break;
+
+                heap[i] = heap[parent]; distances[i] = distances[parent];
+
+                i = parent;
+            }
+
+            heap[i] = index; distances[i] = distance;
+
+            return found;
+        }
+
+        if (distance >= distances[0]) return found;
+
+        heap[0] = index; distances[0] = distance;
+
+        siftDown(heap, distances, found);
+
+        return found;
+    }
+
+    private static void siftDown(final int[] heap, final double[] distances, final int size)
+    {
+        final int    index    = heap     [0];
+        final double distance = distances[0];
+
+        int i = 0;
+
+        while (true)
+        {
+            int child = i * 2 + 1;
+
+            if (child >= size) break;
+
+            if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+
+            if (distances[child] <= distance) break;
+
+            heap[i] = heap[child]; distances[i] = distances[child];
+
+            i = child;
+        }
+
+        heap[i] = index; distances[i] = distance;
+    }
+
+    private GameObject raycast(final double originX, final double originY, final double originZ, double directionX, double directionY, double directionZ, final double maxDistance, final double radius)
+    {
+        final double length = Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+
+        if (length == 0 || size == 0 || !(maxDistance >= 0)) return null;
+
+        directionX /= length; directionY /= length; directionZ /= length;
+
+        // a sphere that the ray hits in a cell has its position at most reach cells away from that cell
+        final int reach = (int) Math.ceil(Math.max(0, radius) * inverseCellSize);
+
+        // the ray only needs to be walked where it passes the cells that got added
+        final double[] interval = { 0, maxDistance };
+
+        if (isUnwrapped())
+        {
+            if (!clip(interval, originX, directionX, (double) (minCellX - reach) * cellSize, (double) (maxCellX + reach + 1) * cellSize) ||
+                !clip(interval, originY, directionY, (double) (minCellY - reach) * cellSize, (double) (maxCellY + reach + 1) * cellSize) ||
+                !clip(interval, originZ, directionZ, (double) (minCellZ - reach) * cellSize, (double) (maxCellZ + reach + 1) * cellSize))
+                return null;
+        }
+        else if (Double.isInfinite(maxDistance))
+        {
+            throw new IllegalArgumentException("The grid spans too many cells for a ray without a maximum distance!");
+        }
+
+        final double start = interval[0], end = interval[1];
+
+        final double startX = originX + directionX * start, startY = originY + directionY * start, startZ = originZ + directionZ * start;
+
+        int cellX = coordinate(startX), cellY = coordinate(startY), cellZ = coordinate(startZ);
+
+        final int stepX = directionX > 0 ? 1 : -1, stepY = directionY > 0 ? 1 : -1, stepZ = directionZ > 0 ? 1 : -1;
+
+        // the distances along the ray to the next cell border on each axis and between two borders
+        double nextX = border(startX, cellX, directionX) + start, nextY = border(startY, cellY, directionY) + start, nextZ = border(startZ, cellZ, directionZ) + start;
+
+        final double deltaX = cellSize / Math.abs(directionX), deltaY = cellSize / Math.abs(directionY), deltaZ = cellSize / Math.abs(directionZ);
+
+        final double radiusSquared = radius * radius;
+
+        final int query = nextQuery();
+
+        GameObject hit = null;
+
+        double hitDistance = end;
+
+        double entry = start;
+
+        while (entry <= hitDistance)
+        {
+            for (int dx = -reach; dx <= reach; dx++)
+            for (int dy = -reach; dy <= reach; dy++)
+            for (int dz = -reach; dz <= reach; dz++)
+            {
+                final int id = findCell(key(cellX + dx, cellY + dy, cellZ + dz));
+
+                if (id < 0) continue;
+
+                final int[] cellMembers = members[id];
+
+                for (int i = 0; i < memberCounts[id]; i++)
+                {
+                    final int index = cellMembers[i];
+
+                    if (visited[index] == query) continue;
+
+                    visited[index] = query;
+
+                    final double toX = xs[index] - originX, toY = ys[index] - originY, toZ = zs[index] - originZ;
+
+                    // the distance along the ray to the point nearest to the position, and the squared distance of the two
+                    final double along   = toX * directionX + toY * directionY + toZ * directionZ;
+                    final double squared = toX * toX + toY * toY + toZ * toZ - along * along;
+
+                    if (squared > radiusSquared) continue;
+
+                    final double half = Math.sqrt(radiusSquared - squared);
+
+                    if (along + half < 0) continue; // behind the origin
+
+                    final double distance = Math.max(0, along - half);
+
+                    if (distance <= hitDistance)
+                    {
+                        hit         = gameObjects[index];
+                        hitDistance = distance;
+                    }
+                }
+            }
+
+            // step into the cell whose border is nearest
+            if (nextX <= nextY && nextX <= nextZ) { entry = nextX; nextX += deltaX; cellX += stepX; }
+            else if (nextY <= nextZ)              { entry = nextY; nextY += deltaY; cellY += stepY; }
+            else                                  { entry = nextZ; nextZ += deltaZ; cellZ += stepZ; }
+        }
+
+        return hit;
+    }
+
+    /**
+     * @return the distance along the ray from the point to the next border of its cell on the axis, infinity if the ray is parallel to the axis
+     */
+    private double border(final double position, final int cell, final double direction)
+    {
+        if (direction > 0) return ((cell + 1) * cellSize - position) / direction;
+        if (direction < 0) return (cell * cellSize - position) / direction;
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Narrows the interval of distances along the ray to the part between the two planes of an axis.
+     * @return false if nothing is left of the interval
+     */
+    private static boolean clip(final double[] interval, final double origin, final double direction, final double min, final double max)
+    {
+        if (direction == 0) return origin >= min && origin <= max;
+
+        final double a = (min - origin) / direction, b = (max - origin) / direction;
+
+        interval[0] = Math.max(interval[0], Math.min(a, b));
+        interval[1] = Math.min(interval[1], Math.max(a, b));
+
+        return interval[0] <= interval[1];
+    }
+
+    /**
+     * Collects the members of the cells that overlap the box into the candidates.
+     * @return the number of candidates
+     */
+    private int candidates(final double minX, final double minY, final double minZ, final double maxX, final double maxY, final double maxZ)
+    {
+        final int fromX = coordinate(minX), fromY = coordinate(minY), fromZ = coordinate(minZ);
+        final int toX   = coordinate(maxX), toY   = coordinate(maxY), toZ   = coordinate(maxZ);
+
+        if (fromX > toX || fromY > toY || fromZ > toZ) return 0;
+
+        final double spanX = (double) toX - fromX + 1, spanY = (double) toY - fromY + 1, spanZ = (double) toZ - fromZ + 1;
+
+        int count = 0;
+
+        // wrapped coordinates would visit cells twice, walking the occupied cells does not
+        if (spanX * spanY * spanZ > cellCount() || spanX > KEY_MASK || spanY > KEY_MASK || spanZ > KEY_MASK)
+        {
+            for (int id = 0; id < cellIds; id++)
+            {
+                if (memberCounts[id] <= 0) continue;
+
+                final long key = keys[id];
+
+                if (isInRange(key >>> (KEY_BITS * 2), fromX, toX) && isInRange(key >>> KEY_BITS, fromY, toY) && isInRange(key, fromZ, toZ))
+                    count = addCandidates(id, count);
+            }
+
+            return count;
+        }
+
+        for (int x = fromX; x <= toX; x++)
+        for (int y = fromY; y <= toY; y++)
+        for (int z = fromZ; z <= toZ; z++)
+        {
+            final int id = findCell(key(x, y, z));
+
+            if (id >= 0) count = addCandidates(id, count);
+        }
+
+        return count;
+    }
+
+    private int addCandidates(final int id, final int count)
+    {
+        System.arraycopy(members[id], 0, candidates, count, memberCounts[id]);
+
+        return count + memberCounts[id];
+    }
+
+    /**
+     * @return whether the coordinate in the lowest bits of the key lies in the range, wrapped around like the keys
+     */
+    private static boolean isInRange(final long key, final int from, final int to)
+    {
+        return (long) to - from >= KEY_MASK || ((key - from) & KEY_MASK) <= (long) to - from;
+    }
+
+    /**
+     * @return whether every cell that got added has its own key, so the key of a cell tells where it is
+     */
+    private boolean isUnwrapped()
+    {
+        final long half = 1L << (KEY_BITS - 1);
+
+        return minCellX >= -half && maxCellX < half && minCellY >= -half && maxCellY < half && minCellZ >= -half && maxCellZ < half;
+    }
+
+    private GameObject[] collect(final int count)
+    {
+        isQuerying = false;
+
+        final GameObject[] found = Arrays.copyOf(results, count);
+
+        Arrays.fill(results, 0, count, null);
+
+        return found;
+    }
+
+    private void run(final int count, final Action1<GameObject> action)
+    {
+        final GameObject[] found = results;
+
+        try
+        {
+            for (int i = 0; i < count; i++) action.run(found[i]);
+        }
+        finally
+        {
+            Arrays.fill(found, 0, count, null);
+
+            isQuerying = false;
+        }
+    }
+
+    private void beginQuery()
+    {
+        if (isQuerying) throw new RuntimeException("The spatial grid can not be queried from within a query!");
+
+        isQuerying = true;
+    }
+
+    private int nextQuery()
+    {
+        if (++query == 0)
+        {
+            Arrays.fill(visited, 0);
+
+            query = 1;
+        }
+
+        return query;
+    }
+
+    private int coordinate(final double position) { return (int) Math.floor(position * inverseCellSize); }
+
+    private static long key(final int x, final int y, final int z)
+    {
+        return ((x & KEY_MASK) << (KEY_BITS * 2)) | ((y & KEY_MASK) << KEY_BITS) | (z & KEY_MASK);
+    }
+
+    /**
+     * @return the coordinate in the lowest bits of the key, sign extended
+     */
+    private static int unpack(final long key) { return (int) ((key & KEY_MASK) << (64 - KEY_BITS) >> (64 - KEY_BITS)); }
+
+    private int slot(final long key)
+    {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * @return the id of the cell with the key, -1 if there is none
+     */
+    private int findCell(final long key)
+    {
+        for (int slot = slot(key); tableIds[slot] != 0; slot = (slot + 1) & mask)
+            if (tableKeys[slot] == key) return tableIds[slot] - 1;
+
+        return -1;
+    }
+
+    /**
+     * @return the id of the cell of the position, added if there is none
+     */
+    private int cellOf(final double x, final double y, final double z)
+    {
+        final int cellX = coordinate(x), cellY = coordinate(y), cellZ = coordinate(z);
+
+        final long key = key(cellX, cellY, cellZ);
+
+        final int id = findCell(key);
+
+        if (id >= 0) return id;
+
+        minCellX = Math.min(minCellX, cellX); maxCellX = Math.max(maxCellX, cellX);
+        minCellY = Math.min(minCellY, cellY); maxCellY = Math.max(maxCellY, cellY);
+        minCellZ = Math.min(minCellZ, cellZ); maxCellZ = Math.max(maxCellZ, cellZ);
+
+        return addCell(key);
+    }
+
+    private int addCell(final long key)
+    {
+        // the table stays at most half full
+        if ((cellCount() + 1) * 2 > tableIds.length) rehash(tableIds.length * 2);
+
+        final int id;
+
+        if (freeCount > 0)
+        {
+            id = freeIds[--freeCount];
+        }
+        else
+        {
+            if (cellIds == keys.length)
+            {
+                members      = Arrays.copyOf(members     , cellIds * 2);
+                memberCounts = Arrays.copyOf(memberCounts, cellIds * 2);
+                keys         = Arrays.copyOf(keys        , cellIds * 2);
+                freeIds      = Arrays.copyOf(freeIds     , cellIds * 2);
+            }
+
+            id = cellIds++;
+
+            members[id] = new int[4];
+        }
+
+        keys        [id] = key;
+        memberCounts[id] = 0  ;
+
+        int slot = slot(key);
+
+        while (tableIds[slot] != 0) slot = (slot + 1) & mask;
+
+        tableKeys[slot] = key   ;
+        tableIds [slot] = id + 1;
+
+        return id;
+    }
+
+    /**
+     * Empties the slot of the cell and moves the following keys back, so every key stays reachable from its own slot without tombstones.
+     */
+    private void removeCell(final int id)
+    {
+        int slot = slot(keys[id]);
+
+        while (tableIds[slot] != id + 1) slot = (slot + 1) & mask;
+
+        tableIds[slot] = 0;
+
+        for (int next = (slot + 1) & mask; tableIds[next] != 0; next = (next + 1) & mask)
+        {
+            final int home = slot(tableKeys[next]);
+
+            // the key may move into the empty slot if the empty slot lies between its home slot and its current slot
+            final boolean movable = slot <= next ? home <= slot || home > next : home <= slot && home > next;
+
+            if (!movable) continue;
+
+            tableKeys[slot] = tableKeys[next];
+            tableIds [slot] = tableIds [next];
+            tableIds [next] = 0;
+
+            slot = next;
+        }
+
+        memberCounts[id]       = -1;
+        freeIds[freeCount++]   = id;
+    }
+
+    private void rehash(final int capacity)
+    {
+        tableKeys = new long[capacity];
+        tableIds  = new int [capacity];
+        mask      = capacity - 1;
+
+        for (int id = 0; id < cellIds; id++)
+        {
+            if (memberCounts[id] < 0) continue;
+
+            int slot = slot(keys[id]);
+
+            while (tableIds[slot] != 0) slot = (slot + 1) & mask;
+
+            tableKeys[slot] = keys[id];
+            tableIds [slot] = id + 1  ;
+        }
+    }
+
+    private void addMember(final int index, final int id)
+    {
+        final int count = memberCounts[id];
+
+        if (count == members[id].length) members[id] = Arrays.copyOf(members[id], count * 2);
+
+        members     [id][count] = index    ;
+        memberCounts[id]        = count + 1;
+
+        cells[index] = id   ;
+        slots[index] = count;
+    }
+
+    private void removeMember(final int index)
+    {
+        final int id = cells[index], slot = slots[index];
+
+        final int last  = --memberCounts[id];
+        final int moved = members[id][last];
+
+        members[id][slot] = moved;
+        slots  [moved]    = slot ;
+
+        if (last == 0) removeCell(id);
+    }
+
+    private void grow(final int capacity)
+    {
+        gameObjects = Arrays.copyOf(gameObjects, capacity);
+        matrices    = Arrays.copyOf(matrices   , capacity);
+        xs          = Arrays.copyOf(xs         , capacity);
+        ys          = Arrays.copyOf(ys         , capacity);
+        zs          = Arrays.copyOf(zs         , capacity);
+        cells       = Arrays.copyOf(cells      , capacity);
+        slots       = Arrays.copyOf(slots      , capacity);
+        visited     = Arrays.copyOf(visited    , capacity);
+        candidates  = new int       [capacity];
+        results     = new GameObject[capacity];
+    }
+}
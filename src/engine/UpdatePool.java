@@ -0,0 +1,147 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import engine.utils.destroyable.IDestroyable;
+
+/**
+ * An UpdatePool is a {@link ForkJoinPool} that updates the {@link IParallelScript}s of a scene in parallel. <p>
+ * 
+ * With an UpdatePool a scene first updates its other scripts one after another, as without pool, 
+ * and collects the active parallel scripts. Then the parallel scripts get updated in chunks of {@link #chunkSize()} scripts,
+ * the workers steal chunks from each other, and the tick continues once all of them are updated. <p>
+ * 
+ * The time both phases took in the last tick is kept, see {@link #serialTime()} and {@link #parallelTime()}. <p>
+ * 
+ * @see Engine#setUpdatePool(UpdatePool)
+ * 
+ * @author NextLegacy
+ * @version 1.0
+ */
+public final class UpdatePool implements IDestroyable
+{
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final ForkJoinPool pool;
+
+    private final int workers  ;
+    private final int chunkSize;
+
+    private Script[] scripts;
+    private int      scriptCount;
+
+    private long serialTime  ;
+    private long parallelTime;
+    private int  parallelScripts;
+
+    private boolean isDestroyed;
+
+    public UpdatePool()                  { this(Runtime.getRuntime().availableProcessors()); }
+    public UpdatePool(final int workers) { this(workers, DEFAULT_CHUNK_SIZE); }
+
+    /**
+     * @param workers the number of threads
+     * @param chunkSize the number of scripts a worker updates at once
+     */
+    public UpdatePool(final int workers, final int chunkSize)
+    {
+        if (workers   <= 0) throw new IllegalArgumentException("An UpdatePool needs at least one worker!");
+        if (chunkSize <= 0) throw new IllegalArgumentException("The chunk size of an UpdatePool must be positive!");
+
+        this.workers   = workers  ;
+        this.chunkSize = chunkSize;
+
+        pool = new ForkJoinPool(workers);
+
+        scripts = new Script[chunkSize];
+    }
+
+    public int workers  () { return workers  ; }
+    public int chunkSize() { return chunkSize; }
+
+    /**
+     * @return the nanoseconds the scripts that are not parallel took in the last tick, including collecting the parallel scripts
+     */
+    public long serialTime     () { return serialTime     ; }
+
+    /**
+     * @return the nanoseconds the parallel scripts took in the last tick
+     */
+    public long parallelTime   () { return parallelTime   ; }
+
+    /**
+     * @return the number of parallel scripts updated in the last tick
+     */
+    public int  parallelScripts() { return parallelScripts; }
+
+    void add(final Script script)
+    {
+        if (scriptCount == scripts.length) scripts = Arrays.copyOf(scripts, scriptCount * 2);
+
+        scripts[scriptCount++] = script;
+    }
+
+    /**
+     * Updates the collected scripts and returns once all of them are updated.
+     */
+    void update(final long serialTime)
+    {
+        final long start = System.nanoTime();
+
+        try
+        {
+            if (scriptCount > 0) pool.invoke(new Chunk(0, scriptCount));
+        }
+        finally
+        {
+            parallelScripts = scriptCount;
+
+            Arrays.fill(scripts, 0, scriptCount, null);
+
+            scriptCount = 0;
+        }
+
+        this.serialTime   = serialTime;
+        this.parallelTime = System.nanoTime() - start;
+    }
+
+    @SuppressWarnings("serial")
+    private final class Chunk extends RecursiveAction
+    {
+        private final int from;
+        private final int to  ;
+
+        Chunk(final int from, final int to) { this.from = from; this.to = to; }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > chunkSize)
+            {
+                final int middle = (from + to) >>> 1;
+
+                invokeAll(new Chunk(from, middle), new Chunk(middle, to));
+
+                return;
+            }
+
+            for (int i = from; i < to; i++) scripts[i].update();
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (isDestroyed) return;
+
+        isDestroyed = true;
+
+        pool.shutdown();
+    }
+
+    @Override public boolean isDestroyed() { return isDestroyed; }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(workers: " + workers + " | chunk size: " + chunkSize + ")"; }
+}
@@ -0,0 +1,149 @@
+package engine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * The table of all entities of a {@link World} that have exactly the same components. <p>
+ *
+ * Every field of every component is stored in a primitive array of its own, a column, and every entity is a row,
+ * so a system that touches a few fields of many entities walks a few contiguous arrays.
+ * Removing an entity moves the last row into its place, so the rows stay dense. <p>
+ *
+ * Rows and columns are only valid until the next structural change of the world: creating or destroying entities
+ * and adding or removing components may move rows and replace the arrays. <p>
+ *
+ * @author NextLegacy
+ */
+public final class Archetype
+{
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final long        mask      ;
+    private final Component[] components;
+
+    // the first column of every component, indexed by the id of the component, -1 if the archetype does not have the component
+    private final int[] firstColumns;
+
+    private double[][] columns ;
+    private int     [] entities;
+    private int        size    ;
+
+    Archetype(final long mask, final Component[] components)
+    {
+        this.mask       = mask      ;
+        this.components = components;
+
+        firstColumns = new int[Component.MAXIMUM_COMPONENTS];
+
+        Arrays.fill(firstColumns, -1);
+
+        int columnCount = 0;
+
+        for (Component component : components)
+        {
+            firstColumns[component.id()] = columnCount;
+
+            columnCount += component.fields();
+        }
+
+        columns  = new double[columnCount][MINIMUM_CAPACITY];
+        entities = new int[MINIMUM_CAPACITY];
+    }
+
+    public int         size      () { return size              ; }
+    public Component[] components() { return components.clone(); }
+
+    public boolean has(final Component component) { return (mask & component.bit()) != 0; }
+
+    long mask() { return mask; }
+
+    /**
+     * @return the entity stored in the row
+     */
+    public int entity(final int row) { return entities[row]; }
+
+    /**
+     * @return the values of a field of the component for all rows, valid from 0 to {@link #size()}
+     */
+    public double[] column(final Component component, final int field)
+    {
+        final int firstColumn = firstColumns[component.id()];
+
+        if (firstColumn < 0) throw new RuntimeException(this + " does not have " + component + "!");
+
+        if (field < 0 || field >= component.fields()) throw new IndexOutOfBoundsException(field);
+
+        return columns[firstColumn + field];
+    }
+
+    /**
+     * Adds a row with the default values of all components.
+     * @return the row
+     */
+    int add(final int entity)
+    {
+        if (size == entities.length)
+        {
+            final int capacity = size * 2;
+
+            entities = Arrays.copyOf(entities, capacity);
+
+            for (int i = 0; i < columns.length; i++) columns[i] = Arrays.copyOf(columns[i], capacity);
+        }
+
+        for (Component component : components)
+        {
+            final int firstColumn = firstColumns[component.id()];
+
+            for (int field = 0; field < component.fields(); field++) columns[firstColumn + field][size] = component.defaultValue(field);
+        }
+
+        entities[size] = entity;
+
+        return size++;
+    }
+
+    /**
+     * Removes the row by moving the last row into its place.
+     * @return the entity that got moved into the row, or -1 if the row was the last one
+     */
+    int remove(final int row)
+    {
+        final int last = --size;
+
+        if (row == last) return -1;
+
+        for (double[] column : columns) column[row] = column[last];
+
+        entities[row] = entities[last];
+
+        return entities[row];
+    }
+
+    /**
+     * Copies the fields of all components both archetypes have from a row of the other archetype into a row of this one.
+     */
+    void copy(final Archetype from, final int fromRow, final int toRow)
+    {
+        for (Component component : components)
+        {
+            final int source = from.firstColumns[component.id()];
+
+            if (source < 0) continue;
+
+            final int destination = firstColumns[component.id()];
+
+            for (int field = 0; field < component.fields(); field++) columns[destination + field][toRow] = from.columns[source + field][fromRow];
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder names = new StringBuilder();
+
+        for (Component component : components) names.append(names.length() == 0 ? "" : ", ").append(component.name());
+
+        return getClass().getSimpleName() + "(" + names + " | entities: " + size + ")";
+    }
+}
@@ -0,0 +1,68 @@
+package engine.ecs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A component type of a {@link World}, a fixed number of double fields every entity with the component has. <p>
+ *
+ * The fields are not stored in objects but in one primitive array per field and {@link Archetype},
+ * see {@link Archetype#column(Component, int)}. <p>
+ *
+ * There can be at most {@link #MAXIMUM_COMPONENTS} component types, the built in ones included. <p>
+ *
+ * @author NextLegacy
+ */
+public final class Component
+{
+    public static final int MAXIMUM_COMPONENTS = 64;
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private static final Component[] components = new Component[MAXIMUM_COMPONENTS];
+
+    /** x, y and z of the position, backs {@link engine.math.Transform#position} of bound game objects. */
+    public static final Component POSITION = Create("position", 0, 0, 0);
+
+    /** x, y, z and w of the rotation quaternion, backs {@link engine.math.Transform#rotation} of bound game objects. */
+    public static final Component ROTATION = Create("rotation", 0, 0, 0, 1);
+
+    /** x, y and z of the scale, backs {@link engine.math.Transform#scale} of bound game objects. */
+    public static final Component SCALE    = Create("scale"   , 1, 1, 1);
+
+    private final String   name    ;
+    private final int      id      ;
+    private final double[] defaults;
+
+    private Component(final String name, final int id, final double[] defaults)
+    {
+        this.name     = name    ;
+        this.id       = id      ;
+        this.defaults = defaults;
+    }
+
+    /**
+     * @param name the name, only used for debugging
+     * @param defaults the values of the fields of a new entity, the number of values is the number of fields
+     */
+    public static Component Create(final String name, final double... defaults)
+    {
+        if (defaults.length == 0) throw new RuntimeException("A component needs at least one field!");
+
+        final int id = nextId.getAndIncrement();
+
+        if (id >= MAXIMUM_COMPONENTS) throw new RuntimeException("There can not be more than " + MAXIMUM_COMPONENTS + " components!");
+
+        return components[id] = new Component(name, id, defaults.clone());
+    }
+
+    static Component ofId(final int id) { return components[id]; }
+
+    public String name  () { return name           ; }
+    public int    fields() { return defaults.length; }
+
+    int    id          ()                  { return id             ; }
+    long   bit         ()                  { return 1L << id       ; }
+    double defaultValue(final int field)   { return defaults[field]; }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(" + name + " | fields: " + defaults.length + ")"; }
+}
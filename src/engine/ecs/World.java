@@ -0,0 +1,359 @@
+package engine.ecs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import engine.GameObject;
+import engine.math.Quaternion;
+import engine.math.Transform;
+
+/**
+ * An optional entity component store next to the {@link engine.Scene}, see {@link engine.Engine#setWorld(World)}. <p>
+ *
+ * An entity is an int id with a set of {@link Component}s. Entities with the same components share an {@link Archetype},
+ * a table that stores every field in a primitive array of its own. Behaviour lives in systems, see {@link ISystem},
+ * which are called with contiguous chunks of up to {@link #CHUNK_SIZE} rows of every archetype that has the components they need,
+ * instead of one virtual call per object. <p>
+ *
+ * A {@link GameObject} can be backed by an entity, see {@link GameObject#bindEntity(World)}: the entity gets {@link Component#POSITION},
+ * {@link Component#ROTATION} and {@link Component#SCALE}, {@link #update()} copies the transform into them before the systems run
+ * and copies them back afterwards, so scripts and systems can work on the same objects. <p>
+ *
+ * Ids of destroyed entities get reused. A world is not thread safe. <p>
+ *
+ * @author NextLegacy
+ */
+public final class World
+{
+    public static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Updates the rows from (inclusive) to (exclusive) of an archetype, read and write the fields through {@link Archetype#column(Component, int)}.
+     * A system must not create or destroy entities or add or remove components while it runs.
+     */
+    @FunctionalInterface
+    public static interface ISystem { public void update(Archetype archetype, int from, int to); }
+
+    private final HashMap<Long, Archetype> archetypesByMask;
+
+    private Archetype[] archetypes    ;
+    private int         archetypeCount;
+
+    // archetype and row of every entity, the archetype is null for ids that are not in use
+    private Archetype [] entityArchetypes;
+    private int       [] entityRows      ;
+    private GameObject[] entityObjects   ;
+    private int          entityIds       ;
+    private int          entityCount     ;
+
+    private int[] freeIds  ;
+    private int   freeCount;
+
+    private ISystem[] systems    ;
+    private long   [] systemMasks;
+    private int       systemCount;
+
+    public World()
+    {
+        archetypesByMask = new HashMap<>();
+        archetypes       = new Archetype[8];
+
+        entityArchetypes = new Archetype [64];
+        entityRows       = new int       [64];
+        entityObjects    = new GameObject[64];
+        freeIds          = new int       [64];
+
+        systems     = new ISystem[8];
+        systemMasks = new long   [8];
+    }
+
+    public int entities() { return entityCount; }
+
+    public boolean isAlive(final int entity) { return entity >= 0 && entity < entityIds && entityArchetypes[entity] != null; }
+
+    public Archetype  archetype (final int entity) { throwIfIsNotAlive(entity); return entityArchetypes[entity]; }
+    public int        row       (final int entity) { throwIfIsNotAlive(entity); return entityRows      [entity]; }
+    public GameObject gameObject(final int entity) { throwIfIsNotAlive(entity); return entityObjects   [entity]; }
+
+    public boolean has(final int entity, final Component component) { return archetype(entity).has(component); }
+
+    public double get(final int entity, final Component component, final int field)
+    {
+        return archetype(entity).column(component, field)[entityRows[entity]];
+    }
+
+    public void set(final int entity, final Component component, final int field, final double value)
+    {
+        archetype(entity).column(component, field)[entityRows[entity]] = value;
+    }
+
+    /**
+     * @return a new entity with the given components, all fields have their default values
+     */
+    public int create(final Component... components)
+    {
+        final int entity = freeCount > 0 ? freeIds[--freeCount] : newId();
+
+        final Archetype archetype = archetype(mask(components));
+
+        entityArchetypes[entity] = archetype;
+        entityRows      [entity] = archetype.add(entity);
+        entityObjects   [entity] = null;
+
+        entityCount++;
+
+        return entity;
+    }
+
+    /**
+     * Creates an entity with {@link Component#POSITION}, {@link Component#ROTATION} and {@link Component#SCALE}
+     * that backs the transform of the game object, use {@link GameObject#bindEntity(World)} instead.
+     * @return the entity
+     */
+    public int bind(final GameObject gameObject)
+    {
+        if (gameObject.transform == null) gameObject.transform = new Transform();
+
+        final int entity = create(Component.POSITION, Component.ROTATION, Component.SCALE);
+
+        entityObjects[entity] = gameObject;
+
+        final Archetype archetype = entityArchetypes[entity];
+        final int       row       = entityRows      [entity];
+        final Transform transform = gameObject.transform;
+
+        archetype.column(Component.POSITION, 0)[row] = transform.position.x;
+        archetype.column(Component.POSITION, 1)[row] = transform.position.y;
+        archetype.column(Component.POSITION, 2)[row] = transform.position.z;
+
+        archetype.column(Component.ROTATION, 0)[row] = transform.rotation.x();
+        archetype.column(Component.ROTATION, 1)[row] = transform.rotation.y();
+        archetype.column(Component.ROTATION, 2)[row] = transform.rotation.z();
+        archetype.column(Component.ROTATION, 3)[row] = transform.rotation.w();
+
+        archetype.column(Component.SCALE, 0)[row] = transform.scale.x;
+        archetype.column(Component.SCALE, 1)[row] = transform.scale.y;
+        archetype.column(Component.SCALE, 2)[row] = transform.scale.z;
+
+        return entity;
+    }
+
+    public void destroy(final int entity)
+    {
+        if (!isAlive(entity)) return;
+
+        removeRow(entity);
+
+        entityArchetypes[entity] = null;
+        entityObjects   [entity] = null;
+
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+
+        freeIds[freeCount++] = entity;
+
+        entityCount--;
+    }
+
+    /**
+     * Adds the component to the entity with its default values, moving the entity to another archetype.
+     */
+    public void add(final int entity, final Component component) { move(entity, archetype(entity).mask() |  component.bit()); }
+
+    /**
+     * Removes the component from the entity, moving the entity to another archetype.
+     */
+    public void remove(final int entity, final Component component) { move(entity, archetype(entity).mask() & ~component.bit()); }
+
+    /**
+     * Registers a system that {@link #update()} runs on all entities with the given components, in the order the systems were added.
+     */
+    public void addSystem(final ISystem system, final Component... components)
+    {
+        if (systemCount == systems.length)
+        {
+            systems     = Arrays.copyOf(systems    , systemCount * 2);
+            systemMasks = Arrays.copyOf(systemMasks, systemCount * 2);
+        }
+
+        systems    [systemCount] = system;
+        systemMasks[systemCount] = mask(components);
+
+        systemCount++;
+    }
+
+    /**
+     * Runs the system on all entities with the given components, chunk by chunk.
+     */
+    public void run(final ISystem system, final Component... components) { run(system, mask(components)); }
+
+    private void run(final ISystem system, final long mask)
+    {
+        for (int i = 0; i < archetypeCount; i++)
+        {
+            final Archetype archetype = archetypes[i];
+
+            if ((archetype.mask() & mask) != mask) continue;
+
+            for (int from = 0; from < archetype.size(); from += CHUNK_SIZE)
+                system.update(archetype, from, Math.min(from + CHUNK_SIZE, archetype.size()));
+        }
+    }
+
+    /**
+     * Copies the transforms of the bound game objects into their entities, runs all systems and copies the results back.
+     */
+    public void update()
+    {
+        pullTransforms();
+
+        for (int i = 0; i < systemCount; i++) run(systems[i], systemMasks[i]);
+
+        pushTransforms();
+    }
+
+    /**
+     * Copies the transforms of all bound game objects into their entities.
+     */
+    public void pullTransforms() { for (int i = 0; i < archetypeCount; i++) if (hasTransform(archetypes[i])) pullTransforms(archetypes[i]); }
+
+    /**
+     * Copies the transforms of all bound entities into their game objects, positions and scales are written into the existing vectors,
+     * see {@link Transform#setPosition(double, double, double)}, rotations are replaced if they changed.
+     */
+    public void pushTransforms() { for (int i = 0; i < archetypeCount; i++) if (hasTransform(archetypes[i])) pushTransforms(archetypes[i]); }
+
+    private static boolean hasTransform(final Archetype archetype)
+    {
+        return archetype.has(Component.POSITION) && archetype.has(Component.ROTATION) && archetype.has(Component.SCALE);
+    }
+
+    private void pullTransforms(final Archetype archetype)
+    {
+        final double[] px = archetype.column(Component.POSITION, 0), rx = archetype.column(Component.ROTATION, 0), sx = archetype.column(Component.SCALE, 0);
+        final double[] py = archetype.column(Component.POSITION, 1), ry = archetype.column(Component.ROTATION, 1), sy = archetype.column(Component.SCALE, 1);
+        final double[] pz = archetype.column(Component.POSITION, 2), rz = archetype.column(Component.ROTATION, 2), sz = archetype.column(Component.SCALE, 2);
+        final double[] rw = archetype.column(Component.ROTATION, 3);
+
+        for (int row = 0; row < archetype.size(); row++)
+        {
+            final GameObject gameObject = entityObjects[archetype.entity(row)];
+
+            if (gameObject == null || gameObject.transform == null) continue;
+
+            final Transform transform = gameObject.transform;
+
+            px[row] = transform.position.x; rx[row] = transform.rotation.x(); sx[row] = transform.scale.x;
+            py[row] = transform.position.y; ry[row] = transform.rotation.y(); sy[row] = transform.scale.y;
+            pz[row] = transform.position.z; rz[row] = transform.rotation.z(); sz[row] = transform.scale.z;
+                                            rw[row] = transform.rotation.w();
+        }
+    }
+
+    private void pushTransforms(final Archetype archetype)
+    {
+        final double[] px = archetype.column(Component.POSITION, 0), rx = archetype.column(Component.ROTATION, 0), sx = archetype.column(Component.SCALE, 0);
+        final double[] py = archetype.column(Component.POSITION, 1), ry = archetype.column(Component.ROTATION, 1), sy = archetype.column(Component.SCALE, 1);
+        final double[] pz = archetype.column(Component.POSITION, 2), rz = archetype.column(Component.ROTATION, 2), sz = archetype.column(Component.SCALE, 2);
+        final double[] rw = archetype.column(Component.ROTATION, 3);
+
+        for (int row = 0; row < archetype.size(); row++)
+        {
+            final GameObject gameObject = entityObjects[archetype.entity(row)];
+
+            if (gameObject == null || gameObject.transform == null) continue;
+
+            final Transform transform = gameObject.transform;
+
+            if (px[row] != transform.position.x || py[row] != transform.position.y || pz[row] != transform.position.z)
+                transform.setPosition(px[row], py[row], pz[row]);
+
+            if (sx[row] != transform.scale.x || sy[row] != transform.scale.y || sz[row] != transform.scale.z)
+                transform.setScale(sx[row], sy[row], sz[row]);
+
+            final Quaternion rotation = transform.rotation;
+
+            if (rx[row] != rotation.x() || ry[row] != rotation.y() || rz[row] != rotation.z() || rw[row] != rotation.w())
+                transform.rotation = Quaternion.FromComponents(rx[row], ry[row], rz[row], rw[row]);
+        }
+    }
+
+    private void move(final int entity, final long mask)
+    {
+        final Archetype from = entityArchetypes[entity];
+
+        if (from.mask() == mask) return;
+
+        final Archetype to = archetype(mask);
+
+        final int fromRow = entityRows[entity];
+        final int toRow   = to.add(entity);
+
+        to.copy(from, fromRow, toRow);
+
+        removeRow(entity);
+
+        entityArchetypes[entity] = to   ;
+        entityRows      [entity] = toRow;
+    }
+
+    private void removeRow(final int entity)
+    {
+        final int row   = entityRows[entity];
+        final int moved = entityArchetypes[entity].remove(row);
+
+        if (moved >= 0) entityRows[moved] = row;
+    }
+
+    private int newId()
+    {
+        if (entityIds == entityArchetypes.length)
+        {
+            final int capacity = entityIds * 2;
+
+            entityArchetypes = Arrays.copyOf(entityArchetypes, capacity);
+            entityRows       = Arrays.copyOf(entityRows      , capacity);
+            entityObjects    = Arrays.copyOf(entityObjects   , capacity);
+        }
+
+        return entityIds++;
+    }
+
+    private Archetype archetype(final long mask)
+    {
+        Archetype archetype = archetypesByMask.get(mask);
+
+        if (archetype != null) return archetype;
+
+        final Component[] components = new Component[Long.bitCount(mask)];
+
+        for (int id = 0, i = 0; id < Component.MAXIMUM_COMPONENTS; id++)
+            if ((mask & (1L << id)) != 0)
+                components[i++] = Component.ofId(id);
+
+        archetype = new Archetype(mask, components);
+
+        archetypesByMask.put(mask, archetype);
+
+        if (archetypeCount == archetypes.length) archetypes = Arrays.copyOf(archetypes, archetypeCount * 2);
+
+        archetypes[archetypeCount++] = archetype;
+
+        return archetype;
+    }
+
+    private static long mask(final Component[] components)
+    {
+        long mask = 0;
+
+        for (Component component : components) mask |= component.bit();
+
+        return mask;
+    }
+
+    private void throwIfIsNotAlive(final int entity)
+    {
+        if (!isAlive(entity)) throw new RuntimeException("Entity " + entity + " does not exist!");
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(entities: " + entityCount + " | archetypes: " + archetypeCount + ")"; }
+}
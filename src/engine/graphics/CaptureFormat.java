@@ -0,0 +1,33 @@
+package engine.graphics;
+
+/**
+ * The file formats a {@link FrameCapture} can write frames in. <p>
+ *
+ * @author NextLegacy
+ */
+public enum CaptureFormat
+{
+    /**
+     * Compressed without loss by {@link javax.imageio.ImageIO}, readable by everything, but slow to encode.
+     */
+    PNG("png"),
+
+    /**
+     * The Quite OK Image format, see https://qoiformat.org, compressed without loss about as well as PNG and many times faster to encode.
+     */
+    QOI("qoi"),
+
+    /**
+     * The width and the height as big endian ints followed by the ARGB colors as big endian ints, row by row. No compression, nothing to encode.
+     */
+    RAW("raw");
+
+    private final String extension;
+
+    private CaptureFormat(final String extension) { this.extension = extension; }
+
+    /**
+     * @return the file extension, without the dot
+     */
+    public String extension() { return extension; }
+}
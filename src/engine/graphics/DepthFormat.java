@@ -0,0 +1,68 @@
+package engine.graphics;
+
+/**
+ * The formats an {@link Image} can store its depths in, see {@link Image#Image(engine.math.Vector4, DepthFormat)}. <p>
+ *
+ * Depths are always passed around as double, the format only decides how they are stored.
+ * Every format keeps the order of the depths it can represent, so draw calls give the same result
+ * as long as the depths they use are far enough apart for the precision of the format.
+ * {@link DrawableImage#CLEAR_Z} is represented by every format and reads back unchanged. <p>
+ *
+ * @author NextLegacy
+ */
+public enum DepthFormat
+{
+    /**
+     * 8 bytes per pixel, the depths are stored exactly.
+     */
+    DOUBLE(8),
+
+    /**
+     * 4 bytes per pixel, the depths are rounded to float.
+     * Depths bigger than {@link Float#MAX_VALUE} are stored as {@link DrawableImage#CLEAR_Z}.
+     */
+    FLOAT(4),
+
+    /**
+     * 4 bytes per pixel, the depths are stored as fixed point numbers with {@link #INT_FRACTION_BITS} fractional bits.
+     * Depths from 0 to 2 keep their order with a precision of about 1e-9,
+     * nearer depths are stored as 0 and farther depths as {@link DrawableImage#CLEAR_Z}.
+     */
+    INT(4),
+
+    /**
+     * No depth per pixel, meant for pure 2D layers. Every draw call is drawn over what is already drawn, no matter its depth.
+     * The whole image has a single depth, which is set by {@link DrawableImage#fillZ(double)}
+     * and used when the image itself gets drawn onto an image with depth. <p>
+     * Rectangles and images get drawn line by line, opaque runs are copied and fully transparent runs skipped,
+     * see also {@link DrawableImage#setOpaque(boolean)}.
+     */
+    NONE(0);
+
+    static final int    INT_FRACTION_BITS = 30;
+    static final double INT_SCALE         = 1 << INT_FRACTION_BITS;
+    static final int    INT_CLEAR         = Integer.MAX_VALUE;
+
+    private final int bytesPerPixel;
+
+    private DepthFormat(final int bytesPerPixel) { this.bytesPerPixel = bytesPerPixel; }
+
+    /**
+     * @return the number of bytes the depth of a single pixel takes
+     */
+    public int bytesPerPixel() { return bytesPerPixel; }
+
+    static float toFloat(final double z) { return z > Float.MAX_VALUE ? Float.MAX_VALUE : (float) z; }
+
+    static double fromFloat(final float z) { return z == Float.MAX_VALUE ? DrawableImage.CLEAR_Z : z; }
+
+    static int toInt(final double z)
+    {
+        if (!(z > 0)) return 0;
+
+        // the cast saturates, so everything from 2 onwards becomes INT_CLEAR
+        return (int) (z * INT_SCALE);
+    }
+
+    static double fromInt(final int z) { return z == INT_CLEAR ? DrawableImage.CLEAR_Z : z / INT_SCALE; }
+}
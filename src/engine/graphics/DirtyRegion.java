@@ -0,0 +1,161 @@
+package engine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * The part of an image that has changed, see {@link DrawableImage#setDirtyTracking(boolean)}. <p>
+ *
+ * The image is divided into tiles of {@link #TILE_SIZE} x {@link #TILE_SIZE} pixels and a tile is dirty if anything inside of it changed,
+ * so adding a rectangle costs only a few tiles and the region never gets more detailed than the tiles. <p>
+ *
+ * {@link #forEach(IRectangleConsumer)} merges the dirty tiles into rectangles, neighboured tiles of a row form a single rectangle
+ * and rows with the same rectangle below each other are merged as well. <p>
+ *
+ * @author NextLegacy
+ */
+public final class DirtyRegion
+{
+    public static final int TILE_SIZE  = 16;
+    static final        int TILE_SHIFT = 4;
+
+    /**
+     * Receives the rectangles of a {@link DirtyRegion}, (x0, y0) is inclusive and (x1, y1) is exclusive,
+     * the same as for {@link DrawableImage#setClip(int, int, int, int)}.
+     */
+    @FunctionalInterface
+    public static interface IRectangleConsumer { public void accept(int x0, int y0, int x1, int y1); }
+
+    private final int width ;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+
+    private final boolean[] dirty;
+
+    private boolean isEmpty;
+
+    // rectangles of the previous row that can still grow downwards and the ones of the current row, in tiles, reused by forEach
+    private int[] open;
+    private int[] next;
+
+    public DirtyRegion(final int width, final int height)
+    {
+        this.width  = width ;
+        this.height = height;
+
+        tilesX = (width  + TILE_SIZE - 1) >> TILE_SHIFT;
+        tilesY = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+
+        dirty = new boolean[tilesX * tilesY];
+
+        // x0, x1 and y0 of every rectangle, a row has at most (tilesX + 1) / 2 runs
+        open = new int[tilesX * 3];
+        next = new int[tilesX * 3];
+
+        isEmpty = true;
+    }
+
+    public int     width  () { return width  ; }
+    public int     height () { return height ; }
+    public boolean isEmpty() { return isEmpty; }
+
+    public void clear() { if (!isEmpty) Arrays.fill(dirty, false); isEmpty = true; }
+
+    public void addAll() { Arrays.fill(dirty, true); isEmpty = dirty.length == 0; }
+
+    /**
+     * Marks the rectangle from (x0, y0) to (x1, y1), both inclusive, dirty. The rectangle gets clamped to the bounds of the image.
+     */
+    public void add(final int x0, final int y0, final int x1, final int y1)
+    {
+        final int tileX0 = Math.max(x0, 0) >> TILE_SHIFT, tileX1 = Math.min(x1, width  - 1) >> TILE_SHIFT;
+        final int tileY0 = Math.max(y0, 0) >> TILE_SHIFT, tileY1 = Math.min(y1, height - 1) >> TILE_SHIFT;
+
+        if (tileX0 > tileX1 || tileY0 > tileY1) return;
+
+        for (int tileY = tileY0; tileY <= tileY1; tileY++)
+            Arrays.fill(dirty, tileX0 + tileY * tilesX, tileX1 + tileY * tilesX + 1, true);
+
+        isEmpty = false;
+    }
+
+    /**
+     * Marks the pixel at the given index dirty, which has to be valid.
+     */
+    public void add(final int index)
+    {
+        final int y = index / width;
+
+        dirty[((index - y * width) >> TILE_SHIFT) + (y >> TILE_SHIFT) * tilesX] = true;
+
+        isEmpty = false;
+    }
+
+    /**
+     * Marks everything dirty that is dirty in the other region, which has to have the same size.
+     */
+    public void add(final DirtyRegion region)
+    {
+        if (region.width != width || region.height != height)
+            throw new RuntimeException("DirtyRegion size does not match!");
+
+        if (region.isEmpty) return;
+
+        for (int tile = 0; tile < dirty.length; tile++) dirty[tile] |= region.dirty[tile];
+
+        isEmpty = false;
+    }
+
+    /**
+     * Passes the dirty area as rectangles to the consumer, the rectangles do not overlap and lie inside of the image.
+     */
+    public void forEach(final IRectangleConsumer consumer)
+    {
+        if (isEmpty) return;
+
+        int openCount = 0;
+
+        for (int tileY = 0; tileY <= tilesY; tileY++)
+        {
+            int nextCount = 0;
+            int i         = 0;
+
+            // the runs of dirty tiles of this row, a row below the last one has no runs and closes all rectangles
+            for (int tileX = 0; tileX < tilesX && tileY < tilesY; )
+            {
+                if (!dirty[tileX + tileY * tilesX]) { tileX++; continue; }
+
+                final int runX0 = tileX;
+
+                while (tileX < tilesX && dirty[tileX + tileY * tilesX]) tileX++;
+
+                // the open rectangles are sorted by x, every rectangle left of the run can not grow anymore
+                while (i < openCount && open[i * 3] < runX0) emit(consumer, open, i++, tileY);
+
+                int runY0 = tileY;
+
+                if (i < openCount && open[i * 3] == runX0 && open[i * 3 + 1] == tileX) runY0 = open[i++ * 3 + 2];
+
+                next[nextCount * 3    ] = runX0;
+                next[nextCount * 3 + 1] = tileX;
+                next[nextCount * 3 + 2] = runY0;
+
+                nextCount++;
+            }
+
+            while (i < openCount) emit(consumer, open, i++, tileY);
+
+            final int[] swap = open; open = next; next = swap;
+
+            openCount = nextCount;
+        }
+    }
+
+    private void emit(final IRectangleConsumer consumer, final int[] rectangles, final int i, final int tileY)
+    {
+        consumer.accept(rectangles[i * 3] << TILE_SHIFT, rectangles[i * 3 + 2] << TILE_SHIFT,
+            Math.min(rectangles[i * 3 + 1] << TILE_SHIFT, width), Math.min(tileY << TILE_SHIFT, height));
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(tiles: " + tilesX + " x " + tilesY + " | empty: " + isEmpty + ")"; }
+}
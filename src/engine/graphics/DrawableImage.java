@@ -1,11 +1,13 @@
 package engine.graphics;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 import engine.math.FinalVector;
 import engine.math.Matrix;
 import engine.math.Vector4;
 import engine.threed.Camera;
+import engine.threed.IndexedMesh;
 import engine.threed.Mesh;
 import engine.threed.Triangle;
 import engine.threed.Vertex;
@@ -13,6 +15,24 @@ import engine.utils.ArrayUtils;
 import engine.utils.ImageUtils;
 import engine.utils.color.Color;
 
+/**
+ * A DrawableImage is an {@link Image} that can be drawn on. <p>
+ * 
+ * Everything that gets drawn is clipped against the clip rectangle of the image, which covers the whole image by default. <p>
+ * 
+ * By setting a {@link RenderPool} with {@link #setRenderPool(RenderPool)} the image switches to a tiled render mode:
+ * {@link #fillRect(int, int, int, int, double, int)}, {@link #drawImage(Image, int, int)}, {@link #fillTriangle(Triangle, Image)}
+ * and {@link #mesh(Camera, Mesh, Matrix, Image)} are recorded and rasterized in parallel tiles on {@link #flush()}.
+ * All other draw calls flush the recorded draw calls first and are executed directly, so the output is identical to the serial path.
+ * Images that are passed to recorded draw calls must not be changed before the image got flushed. <p>
+ * 
+ * With {@link #setDirtyTracking(boolean)} the image keeps track of the area its draw calls have changed,
+ * so {@link #clear()} only has to clear what got drawn and the image can be redrawn partially, see {@link #redraw(DirtyRegion, Image...)}. <p>
+ * 
+ * With {@link #setPremultiplied(boolean)} the image stores its colors premultiplied by their alpha, which makes blending cheaper. <p>
+ * 
+ * @author NextLegacy
+ */
 public class DrawableImage extends Image
 {
     static 
@@ -26,42 +46,560 @@ public class DrawableImage extends Image
 
     public DrawableImage(final BufferedImage image) { super(ImageUtils.getBufferedImageDataArray(image), new FinalVector(image.getWidth(), image.getHeight())); }
     public DrawableImage(final Vector4       size ) { super(size); clear(); }
-    public DrawableImage(final Image         image) { super(image.colorBuffer, image.zBuffer, image.size); }
+    public DrawableImage(final Image         image) { super(image); }
 
-    public void fillColor(final int    color) { ArrayUtils.fill(colorBuffer, color); }
-    public void fillZ    (final double z    ) { ArrayUtils.fill(zBuffer    , z    ); }
+    public DrawableImage(final BufferedImage image, final DepthFormat depthFormat) { super(ImageUtils.getBufferedImageDataArray(image), new FinalVector(image.getWidth(), image.getHeight()), depthFormat); }
+    public DrawableImage(final Vector4       size , final DepthFormat depthFormat) { super(size, depthFormat); clear(); }
 
-    public void fill(final double z, final int color) { fillZ(z); fillColor(color); }
+    // clip rectangle, (clipX0, clipY0) is inclusive, (clipX1, clipY1) is exclusive
+    int clipX0 = 0;
+    int clipY0 = 0;
+    int clipX1 = width ();
+    int clipY1 = height();
+
+    private RenderQueue renderQueue;
+
+    // scratch buffers of ImageAlgorithms3D, tile views have their own, so tiles can be rasterized in parallel
+    final double[] triangleVertices = new double[3 * ImageAlgorithms3D.STRIDE];
+    final double[] rasterVertices   = new double[4 * ImageAlgorithms3D.STRIDE];
+    final double[] textureGradients = new double[6]; // du, dv and dw in x and then in y direction of the triangle that is rasterized
+
+    private MeshPipeline meshPipeline;
+
+    private Rasterizer rasterizer = Rasterizer.SCANLINE;
+
+    HierarchicalZ hierarchicalZ;
+
+    // 0xff000000 if everything drawn onto this image is opaque, otherwise 0, or-ed onto every drawn color
+    int alphaMask;
+
+    // fragments that reached the depth test, tile views count their own
+    long fragmentsShaded;
+
+    // the area that changed since the dirty region got cleared and the area that got drawn since the last clear, null without dirty tracking
+    private DirtyRegion dirtyRegion;
+    private DirtyRegion drawnRegion;
+
+    // depth and color of every pixel outside of the drawn region
+    private double clearedZ    ;
+    private int    clearedColor;
+
+    private DirtyRegion.IRectangleConsumer clearArea ;
+    private DirtyRegion.IRectangleConsumer redrawArea;
+    private Image[]                        redrawImages;
+
+    /**
+     * Sets the clip rectangle, nothing outside of it will be drawn. <p>
+     * The rectangle gets clamped to the bounds of the image. <p>
+     * 
+     * @param x0 the left edge, inclusive
+     * @param y0 the top edge, inclusive
+     * @param x1 the right edge, exclusive
+     * @param y1 the bottom edge, exclusive
+     */
+    public void setClip(int x0, int y0, int x1, int y1)
+    {
+        flush();
+
+        clipX0 = x0 < 0 ? 0 : x0; clipX1 = x1 > width () ? width () : x1;
+        clipY0 = y0 < 0 ? 0 : y0; clipY1 = y1 > height() ? height() : y1;
+    }
+
+    public void resetClip() { setClip(0, 0, width(), height()); }
+
+    /**
+     * Sets the {@link RenderPool} that is used to rasterize this image in parallel tiles. <p>
+     * 
+     * @param renderPool the render pool, or null to draw serially
+     */
+    public void setRenderPool(final RenderPool renderPool)
+    {
+        if (renderPool == renderPool()) return;
+
+        flush();
+
+        if (renderQueue != null) fragmentsShaded += renderQueue.fragmentsShaded();
+
+        renderQueue = renderPool == null ? null : new RenderQueue(this, renderPool);
+    }
+
+    public RenderPool renderPool() { return renderQueue == null ? null : renderQueue.pool(); }
+
+    /**
+     * Rasterizes all recorded draw calls. Does nothing if this image has no {@link RenderPool}. <p>
+     */
+    public void flush() { if (renderQueue != null) renderQueue.flush(); }
+
+    final boolean isRecording() { return renderQueue != null; }
+
+    /**
+     * Sets the algorithm {@link #fillTriangle(Triangle, Image)} and {@link #mesh(Camera, Mesh, Matrix, Image)} rasterize triangles with. <p>
+     * Draw calls that are already recorded keep the rasterizer they were recorded with. <p>
+     */
+    public void setRasterizer(final Rasterizer rasterizer) { this.rasterizer = rasterizer; }
+
+    public Rasterizer rasterizer() { return rasterizer; }
+
+    /**
+     * Enables or disables the hierarchical depth buffer of this image. <p>
+     * 
+     * The image keeps the biggest depth of every 8 x 8 tile of pixels that are all opaque, 
+     * so {@link #fillTriangle(Triangle, Image)}, {@link #mesh(Camera, Mesh, Matrix, Image)} and {@link #drawImage(Image, int, int)}
+     * can skip whole triangles and tiles that lie behind what is already drawn. The output is the same as without it. <p>
+     * 
+     * Everything that writes into {@link #colorBuffer()} or {@link #zBuffer()} directly instead of drawing onto this image
+     * has to call {@link #invalidateHierarchicalZ()} afterwards. <p>
+     * 
+     * @throws RuntimeException if this image has no depth buffer, see {@link DepthFormat#NONE}
+     */
+    public void setHierarchicalZ(final boolean enabled)
+    {
+        if (enabled == hasHierarchicalZ()) return;
+
+        if (enabled && depthFormat == DepthFormat.NONE) 
+            throw new RuntimeException("An image without depth buffer can not have a hierarchical depth buffer!");
+
+        flush();
+
+        hierarchicalZ = enabled ? new HierarchicalZ(this) : null;
+
+        if (renderQueue != null) renderQueue.setHierarchicalZ(hierarchicalZ);
+    }
+
+    public boolean hasHierarchicalZ() { return hierarchicalZ != null; }
+
+    /**
+     * Declares whether everything that gets drawn onto this image is opaque. <p>
+     * 
+     * The alpha of every drawn color is ignored, so nothing gets blended anymore. 
+     * Together with {@link DepthFormat#NONE} {@link #fillRect(int, int, int, int, double, int)} and {@link #drawImage(Image, int, int)}
+     * become plain copies of whole lines, which suits backgrounds and tilemaps. <p>
+     */
+    public void setOpaque(final boolean opaque)
+    {
+        flush();
+
+        alphaMask = opaque ? 0xff000000 : 0;
+
+        if (renderQueue != null) renderQueue.setAlphaMask(alphaMask);
+    }
+
+    public boolean isOpaque() { return alphaMask != 0; }
+
+    /**
+     * Stores the colors of this image with their red, green and blue premultiplied by their alpha, see {@link Color#premultiply(int)}. <p>
+     * 
+     * Colors are still passed to the draw calls as straight colors and get premultiplied when they are drawn,
+     * the colors of images that are drawn or sampled are converted if they are stored differently than the colors of this image.
+     * An image drawn onto an image that are both premultiplied is blended with {@link Color#mixPremultiplied(int, int)}, 
+     * a single multiply add per channel, which suits layers that get composited every frame. 
+     * Onto an opaque background the colors are the same as with straight colors. <p>
+     * 
+     * The colors that are already stored get converted, converting them back loses precision of colors that are not opaque. <p>
+     */
+    public void setPremultiplied(final boolean premultiplied)
+    {
+        if (premultiplied == this.premultiplied) return;
+
+        flush();
+
+        for (int i = 0; i < pixels; i++) 
+            colorBuffer[i] = premultiplied ? Color.premultiply(colorBuffer[i]) : Color.unpremultiply(colorBuffer[i]);
+
+        this.premultiplied = premultiplied;
+
+        if (renderQueue != null) renderQueue.setPremultiplied(premultiplied);
+    }
+
+    /**
+     * @return the straight color as it gets stored in this image, with the alpha mask applied
+     */
+    final int toStoredColor(final int argb) { return premultiplied ? Color.premultiply(argb | alphaMask) : argb; }
+
+    /**
+     * @return the color of the image as it gets stored in this image
+     */
+    final int toStoredColor(final Image image, final int color)
+    {
+        if (image.premultiplied == premultiplied) return color;
+
+        return premultiplied ? Color.premultiply(color) : Color.unpremultiply(color);
+    }
+
+    /**
+     * Blends two colors as they are stored in this image.
+     */
+    final int mixStoredColors(final int background, final int foreground)
+    {
+        return premultiplied ? Color.mixPremultiplied(background, foreground) : Color.mix(background, foreground);
+    }
+
+    /**
+     * Has to be called after the buffers of this image got changed without drawing onto it, if the hierarchical depth buffer is enabled. <p>
+     */
+    public void invalidateHierarchicalZ() { if (hierarchicalZ != null) hierarchicalZ.invalidateAll(); }
+
+    /**
+     * @return the number of fragments that were shaded and handed to the depth test since the last {@link #resetFragmentsShaded()},
+     *         fragments that got rejected by the hierarchical depth buffer are not counted
+     */
+    public long fragmentsShaded() { return fragmentsShaded + (renderQueue == null ? 0 : renderQueue.fragmentsShaded()); }
+
+    public void resetFragmentsShaded()
+    {
+        flush();
+
+        fragmentsShaded = 0;
+
+        if (renderQueue != null) renderQueue.resetFragmentsShaded();
+    }
+
+    /**
+     * Enables or disables skipping the meshes and the clusters of their triangles that are outside of the view 
+     * before any of their vertices get transformed, see {@link #meshesCulled()}. It is enabled by default. <p>
+     * 
+     * The triangles outside of the view get clipped away either way, so disabling it does not change what gets drawn. <p>
+     */
+    public void setFrustumCulling(final boolean enabled) { meshPipeline().isFrustumCulling = enabled; }
+
+    public boolean hasFrustumCulling() { return meshPipeline == null || meshPipeline.isFrustumCulling; }
+
+    /**
+     * @return the number of meshes that got drawn since the last {@link #resetCullingCounters()}, 
+     *         meshes that were only partly visible are counted as drawn
+     */
+    public long meshesDrawn   () { return meshPipeline == null ? 0 : meshPipeline.meshesDrawn   ; }
+    /** @return the number of meshes that got skipped because no cluster of them was in the view since the last {@link #resetCullingCounters()} */
+    public long meshesCulled  () { return meshPipeline == null ? 0 : meshPipeline.meshesCulled  ; }
+    /** @return the number of clusters of triangles that got drawn since the last {@link #resetCullingCounters()} */
+    public long clustersDrawn () { return meshPipeline == null ? 0 : meshPipeline.clustersDrawn ; }
+    /** @return the number of clusters of triangles that got skipped because they were not in the view since the last {@link #resetCullingCounters()} */
+    public long clustersCulled() { return meshPipeline == null ? 0 : meshPipeline.clustersCulled; }
+
+    /**
+     * Resets the culling counters, the engine does this for every layer before it gets rendered,
+     * so between the frames they hold the numbers of the last frame.
+     */
+    public void resetCullingCounters()
+    {
+        if (meshPipeline == null) return;
+
+        meshPipeline.meshesDrawn   = meshPipeline.meshesCulled   = 0;
+        meshPipeline.clustersDrawn = meshPipeline.clustersCulled = 0;
+    }
+
+    /**
+     * Enables or disables the tracking of the area the draw calls of this image change, see {@link #dirtyRegion()}. <p>
+     * 
+     * With dirty tracking {@link #clear()} and {@link #fill(double, int)} with the same depth and color as the last time
+     * only reset the pixels that got drawn on since then. 
+     * Everything that writes into the buffers of this image directly has to call {@link #markDirty(int, int, int, int)}. <p>
+     * 
+     * Enabling it marks the whole image dirty. <p>
+     */
+    public void setDirtyTracking(final boolean enabled)
+    {
+        if (enabled == hasDirtyTracking()) return;
+
+        if (!enabled) { dirtyRegion = drawnRegion = null; return; }
+
+        dirtyRegion = new DirtyRegion(width(), height());
+        drawnRegion = new DirtyRegion(width(), height());
+
+        dirtyRegion.addAll();
+        drawnRegion.addAll();
+
+        clearedZ     = CLEAR_Z    ;
+        clearedColor = CLEAR_COLOR;
+
+        clearArea  = (x0, y0, x1, y1) -> fillArea(x0, y0, x1, y1, clearedZ, clearedColor);
+        redrawArea = this::redrawArea;
+    }
+
+    public boolean hasDirtyTracking() { return dirtyRegion != null; }
+
+    /**
+     * @return the area that changed since this region got cleared the last time, the owner of the image clears it after it got redrawn, 
+     *         or null without dirty tracking
+     */
+    public DirtyRegion dirtyRegion() { return dirtyRegion; }
+
+    /**
+     * Marks the rectangle from (x0, y0) to (x1, y1), both inclusive, as changed. Does nothing without dirty tracking. <p>
+     */
+    public final void markDirty(final int x0, final int y0, final int x1, final int y1)
+    {
+        if (dirtyRegion == null) return;
+
+        dirtyRegion.add(x0, y0, x1, y1);
+        drawnRegion.add(x0, y0, x1, y1);
+    }
+
+    private void markDirty(final int index)
+    {
+        if (dirtyRegion == null) return;
+
+        dirtyRegion.add(index);
+        drawnRegion.add(index);
+    }
+
+    private void markAllDirty()
+    {
+        if (dirtyRegion == null) return;
+
+        dirtyRegion.addAll();
+        drawnRegion.addAll();
+    }
+
+    final MeshPipeline meshPipeline() { return meshPipeline == null ? meshPipeline = new MeshPipeline() : meshPipeline; }
+
+    public void fillColor(final int    color) { flush(); ArrayUtils.fill(colorBuffer, premultiplied ? Color.premultiply(color) : color); invalidateHierarchicalZ(); markAllDirty(); }
+
+    /**
+     * Sets the depth of every pixel, an image without depth buffer takes the depth as the depth of the whole image. <p>
+     */
+    public void fillZ(final double z)
+    {
+        flush();
+
+        switch (depthFormat)
+        {
+            case DOUBLE: ArrayUtils.fill(zBuffer     , z                     ); break;
+            case FLOAT : ArrayUtils.fill(floatZBuffer, DepthFormat.toFloat(z)); break;
+            case INT   : ArrayUtils.fill(intZBuffer  , DepthFormat.toInt  (z)); break;
+            case NONE  : constantZ = z; break;
+        }
+
+        invalidateHierarchicalZ();
+        markAllDirty();
+    }
+
+    public void fill(final double z, final int color) 
+    { 
+        //with dirty tracking only the pixels that got drawn since the last fill with the same depth and color differ from it
+        if (dirtyRegion != null && z == clearedZ && color == clearedColor)
+        {
+            flush();
+
+            drawnRegion.forEach(clearArea);
+
+            dirtyRegion.add(drawnRegion);
+            drawnRegion.clear();
+
+            return;
+        }
+
+        fillZ(z); 
+        fillColor(color); 
+
+        if (dirtyRegion != null)
+        {
+            drawnRegion.clear();
+
+            clearedZ     = z    ;
+            clearedColor = color;
+        }
+    }
 
     public void clear() { fill(CLEAR_Z, CLEAR_COLOR); }
 
+    /**
+     * Sets the pixels from (x0, y0) inclusive to (x1, y1) exclusive to {@link #CLEAR_Z} and {@link #CLEAR_COLOR}, regardless of the clip rectangle. <p>
+     * 
+     * Erases parts of an image whose content is kept over multiple frames. <p>
+     */
+    public void clear(final int x0, final int y0, final int x1, final int y1)
+    {
+        flush();
+
+        final int startX = Math.max(Math.min(x0, x1), 0), endX = Math.min(Math.max(x0, x1), width ());
+        final int startY = Math.max(Math.min(y0, y1), 0), endY = Math.min(Math.max(y0, y1), height());
+
+        if (startX >= endX || startY >= endY) return;
+
+        fillArea(startX, startY, endX, endY, CLEAR_Z, CLEAR_COLOR);
+
+        markDirty(startX, startY, endX - 1, endY - 1);
+    }
+
+    /**
+     * Sets the depth and color of the pixels from (x0, y0) inclusive to (x1, y1) exclusive, which have to lie inside of the image.
+     */
+    private void fillArea(final int x0, final int y0, final int x1, final int y1, final double z, final int color)
+    {
+        final int storedColor = premultiplied ? Color.premultiply(color) : color;
+
+        for (int y = y0; y < y1; y++)
+        {
+            final int from = x0 + y * width(), to = x1 + y * width();
+
+            Arrays.fill(colorBuffer, from, to, storedColor);
+
+            switch (depthFormat)
+            {
+                case DOUBLE: Arrays.fill(zBuffer     , from, to, z                     ); break;
+                case FLOAT : Arrays.fill(floatZBuffer, from, to, DepthFormat.toFloat(z)); break;
+                case INT   : Arrays.fill(intZBuffer  , from, to, DepthFormat.toInt  (z)); break;
+                case NONE  : break;
+            }
+        }
+
+        if (hierarchicalZ != null) hierarchicalZ.invalidate(x0, y0, x1 - 1, y1 - 1);
+    }
+
+    /**
+     * Redraws the area of the region: it gets cleared and the images get drawn over each other in their order, 
+     * clipped to every rectangle of the region. Everything outside of the region stays untouched. <p>
+     * 
+     * Composites layers whose changes are known, for example by their {@link #dirtyRegion()}. <p>
+     */
+    public void redraw(final DirtyRegion region, final Image... images)
+    {
+        if (redrawArea == null) redrawArea = this::redrawArea;
+
+        redrawImages = images;
+
+        region.forEach(redrawArea);
+
+        redrawImages = null;
+
+        resetClip();
+    }
+
+    private void redrawArea(final int x0, final int y0, final int x1, final int y1)
+    {
+        clear(x0, y0, x1, y1);
+
+        setClip(x0, y0, x1, y1);
+
+        for (Image image : redrawImages) drawImage(image);
+    }
+
     final void overridePixel(final int index, final double z, final int argb)
     { 
-        zBuffer    [index] = z   ; 
+        switch (depthFormat)
+        {
+            case DOUBLE: zBuffer     [index] = z                     ; break;
+            case FLOAT : floatZBuffer[index] = DepthFormat.toFloat(z); break;
+            case INT   : intZBuffer  [index] = DepthFormat.toInt  (z); break;
+            case NONE  : break;
+        }
+
         colorBuffer[index] = argb; 
     }
 
     public final void setPixel(int index, double z, int argb)
     {
-        if (isPixelValid(index))
-            overridePixel(index, z, argb);
+        flush();
+
+        if (!isPixelValid(index)) return;
+
+        if (hierarchicalZ != null) hierarchicalZ.invalidate(index);
+
+        markDirty(index);
+
+        overridePixel(index, z, premultiplied ? Color.premultiply(argb) : argb);
+    }
+
+    public void drawPixel(int x, int y, double z, int argb) 
+    { 
+        if (x < clipX0 || y < clipY0 || x >= clipX1 || y >= clipY1) return;
+        
+        drawPixel(x + y * width(), z, argb); 
     }
 
-    public void drawPixel(int x, int y, double z, int argb) { drawPixel(getIndex(x, y), z, argb); }
     public void drawPixel(int index, double z, int argb)
     {
+        flush();
+
         if (!isPixelValid(index)) return; 
 
-        final boolean nearer = z <= zBuffer[index]; 
+        if (hierarchicalZ != null) hierarchicalZ.invalidate(index);
+
+        markDirty(index);
+
+        blendPixel(index, z, argb);
+    }
+
+    /**
+     * {@link #drawPixel(int, int, double, int)} for primitives that are drawn pixel by pixel, like lines, without flushing, 
+     * without invalidating the hierarchical depth buffer and without marking the pixel dirty, 
+     * callers invalidate and mark the bounding box of the primitive beforehand, see {@link #invalidateArea(int, int, int, int)}. <p>
+     */
+    final void drawPrimitivePixel(final int x, final int y, final double z, final int argb)
+    {
+        if (x < clipX0 || y < clipY0 || x >= clipX1 || y >= clipY1) return;
+
+        blendPixel(x + y * width(), z, argb);
+    }
+
+    /**
+     * Invalidates the hierarchical depth buffer and marks dirty the rectangle from (x0, y0) to (x1, y1), both inclusive.
+     */
+    final void invalidateArea(final int x0, final int y0, final int x1, final int y1)
+    {
+        if (hierarchicalZ != null) hierarchicalZ.invalidate(x0, y0, x1, y1);
+
+        markDirty(x0, y0, x1, y1);
+    }
+
+    /**
+     * {@link #drawPixel(int, double, int)} without flushing, without checking the index and without invalidating the hierarchical depth buffer,
+     * callers invalidate the area they have drawn on as a whole. <p>
+     * 
+     * The depth test is done in the {@link DepthFormat} of this image, without depth buffer every fragment is in front.
+     */
+    final void blendPixel(final int index, final double z, final int argb) { blendStoredPixel(index, z, toStoredColor(argb)); }
+
+    /**
+     * {@link #blendPixel(int, double, int)} for a color as it gets stored in this image, see {@link #toStoredColor(Image, int)}.
+     */
+    final void blendStoredPixel(final int index, final double z, int argb)
+    {
+        fragmentsShaded++;
+
+        argb |= alphaMask;
+
+        final boolean nearer;
+
+        switch (depthFormat)
+        {
+            case DOUBLE:
+            {
+                nearer = z <= zBuffer[index];
+
+                if (nearer) zBuffer[index] = z;
+
+                break;
+            }
+            case FLOAT:
+            {
+                final float depth = DepthFormat.toFloat(z);
+
+                nearer = depth <= floatZBuffer[index];
+
+                if (nearer) floatZBuffer[index] = depth;
 
-        if (!nearer && colorBuffer[index] >> 24 == 0xff) return;
+                break;
+            }
+            case INT:
+            {
+                final int depth = DepthFormat.toInt(z);
 
-        overridePixel(
-            index, 
-            nearer ? z : zBuffer[index],
-            nearer ? Color.mix(colorBuffer[index], argb) :
-                     Color.mix(argb, colorBuffer[index])  
-        );
+                nearer = depth <= intZBuffer[index];
+
+                if (nearer) intZBuffer[index] = depth;
+
+                break;
+            }
+            default: nearer = true;
+        }
+
+        //a fragment behind an opaque pixel does not change it
+        if (!nearer && colorBuffer[index] >>> 24 == 0xff) return;
+
+        colorBuffer[index] = nearer ? mixStoredColors(colorBuffer[index], argb) :
+                                      mixStoredColors(argb, colorBuffer[index]) ;
     }
 
     //
@@ -70,11 +608,15 @@ public class DrawableImage extends Image
 
     public void drawLine(int x1, int y1, int x2, int y2, double z, int color) 
     { 
+        flush();
+
         ImageAlgorithms2D.line(this, x1, y1, x2, y2, z, color); 
     }
 
     public void drawLine(int x1, int y1, int x2, int y2, double z, int color, int size) 
     { 
+        flush();
+
         ImageAlgorithms2D.line(this, x1, y1, x2, y2, z, color, size); 
     }
 
@@ -90,16 +632,22 @@ public class DrawableImage extends Image
 
     public void fillTriangle(Vector4 a, Vector4 b, Vector4 c, int color) 
     { 
+        flush();
+
         ImageAlgorithms2D.triangle(this, a, b, c, color); 
     }
 
     public void drawRect(int x0, int y0, int x1, int y1, double z, int color) 
     { 
+        flush();
+
         ImageAlgorithms2D.drawRect(this, x0, y0, x1, y1, z, color); 
     }
 
     public void drawRect(int x0, int y0, int x1, int y1, double z, int color, int size) 
     { 
+        flush();
+
         ImageAlgorithms2D.drawRect(this, x0, y0, x1, y1, z, color, size); 
     }
 
@@ -115,6 +663,15 @@ public class DrawableImage extends Image
 
     public void fillRect(int x0, int y0, int x1, int y1, double z, int color) 
     { 
+        markDirty(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1));
+
+        if (isRecording())
+        {
+            renderQueue.record(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1), 
+                (tile) -> ImageAlgorithms2D.fillRect(tile, x0, y0, x1, y1, z, color));
+            return;
+        }
+
         ImageAlgorithms2D.fillRect(this, x0, y0, x1, y1, z, color); 
     }
 
@@ -125,12 +682,24 @@ public class DrawableImage extends Image
 
     public void drawImage(Image image, int x, int y) 
     { 
+        markDirty(x, y, x + image.width() - 1, y + image.height() - 1);
+
+        // drawing an image onto itself reads pixels of other tiles, therefore it has to be drawn serially
+        if (isRecording() && image.colorBuffer != colorBuffer)
+        {
+            renderQueue.record(x, y, x + image.width() - 1, y + image.height() - 1, 
+                (tile) -> ImageAlgorithms2D.drawImage(tile, image, x, y));
+            return;
+        }
+
+        flush();
+
         ImageAlgorithms2D.drawImage(this, image, x, y); 
     }
 
     public void drawImage(Image image) 
     { 
-        ImageAlgorithms2D.drawImage(this, image, 0, 0); 
+        drawImage(image, 0, 0); 
     }
 
     //
@@ -139,16 +708,85 @@ public class DrawableImage extends Image
 
     public void drawLine(Vertex p1, Vertex p2, Image texture) 
     { 
+        flush();
+
         ImageAlgorithms3D.line(this, p1, p2, texture); 
     }
 
     public void fillTriangle(Triangle t, Image texture) 
     { 
-        ImageAlgorithms3D.triangle(this, t, texture); 
+        // the scanlines are truncated to int, one pixel of padding keeps the bounding box conservative
+        final int x0 = (int) Math.min(t.a.x, Math.min(t.b.x, t.c.x)) - 1, y0 = (int) Math.min(t.a.y, Math.min(t.b.y, t.c.y)) - 1;
+        final int x1 = (int) Math.max(t.a.x, Math.max(t.b.x, t.c.x)) + 1, y1 = (int) Math.max(t.a.y, Math.max(t.b.y, t.c.y)) + 1;
+
+        markDirty(x0, y0, x1, y1);
+
+        if (isRecording())
+        {
+            final Rasterizer rasterizer = this.rasterizer;
+
+            renderQueue.record(x0, y0, x1, y1, (tile) -> ImageAlgorithms3D.triangle(tile, t, texture, rasterizer));
+            return;
+        }
+
+        ImageAlgorithms3D.triangle(this, t, texture, rasterizer); 
     }
 
+    /**
+     * Draws the triangle whose vertices start at the offsets a, b and c of the vertex array, 
+     * the layout of a vertex is described in {@link ImageAlgorithms3D}. <p>
+     * 
+     * In tiled render mode the three vertices are copied, so the vertex array can be reused right away. <p>
+     */
+    final void fillTriangle(final double[] vertices, final int a, final int b, final int c, final Image texture)
+    {
+        final double ax = vertices[a + ImageAlgorithms3D.X], bx = vertices[b + ImageAlgorithms3D.X], cx = vertices[c + ImageAlgorithms3D.X];
+        final double ay = vertices[a + ImageAlgorithms3D.Y], by = vertices[b + ImageAlgorithms3D.Y], cy = vertices[c + ImageAlgorithms3D.Y];
+
+        final int x0 = (int) Math.min(ax, Math.min(bx, cx)) - 1, y0 = (int) Math.min(ay, Math.min(by, cy)) - 1;
+        final int x1 = (int) Math.max(ax, Math.max(bx, cx)) + 1, y1 = (int) Math.max(ay, Math.max(by, cy)) + 1;
+
+        markDirty(x0, y0, x1, y1);
+
+        if (isRecording())
+        {
+            final Rasterizer rasterizer = this.rasterizer;
+
+            final int stride = ImageAlgorithms3D.STRIDE;
+
+            final double[] copy = new double[3 * stride];
+
+            System.arraycopy(vertices, a, copy, 0         , stride);
+            System.arraycopy(vertices, b, copy, stride    , stride);
+            System.arraycopy(vertices, c, copy, stride * 2, stride);
+
+            renderQueue.record(x0, y0, x1, y1, (tile) -> ImageAlgorithms3D.triangle(tile, copy, 0, stride, stride * 2, texture, rasterizer));
+            return;
+        }
+
+        ImageAlgorithms3D.triangle(this, vertices, a, b, c, texture, rasterizer);
+    }
+
+    /**
+     * Draws a mesh. <p>
+     * 
+     * Vertices and triangles are processed in reusable buffers of this image, 
+     * so in the serial render path drawing a mesh does not allocate once the buffers are big enough.
+     * Meshes and clusters of triangles outside of the view of the camera are skipped, see {@link #meshesCulled()}.
+     * In tiled render mode the vertices are processed directly and only the resulting triangles are recorded. <p>
+     */
     public void mesh(final Camera camera, final Mesh mesh, final Matrix transform, final Image texture)
     { 
         ImageAlgorithms3D.mesh(this, mesh, transform, camera.projectionMatrix(), camera.viewMatrix(), camera.position, texture);
     }
+
+    /**
+     * Draws an indexed mesh, every vertex is only transformed once. <p>
+     * 
+     * In tiled render mode the vertices are processed directly and only the resulting triangles are recorded. <p>
+     */
+    public void mesh(final Camera camera, final IndexedMesh mesh, final Matrix transform, final Image texture)
+    { 
+        ImageAlgorithms3D.mesh(this, mesh, transform, camera.projectionMatrix(), camera.viewMatrix(), camera.position, texture);
+    }
 }
@@ -0,0 +1,253 @@
+package engine.graphics;
+
+import static engine.graphics.ImageAlgorithms3D.*;
+
+/**
+ * A triangle rasterizer based on edge functions, used by {@link Rasterizer#EDGE_FUNCTION}. <p>
+ *
+ * The vertices are snapped to a fixed point grid with {@link #SUBPIXEL_STEPS} steps per pixel,
+ * the three edge functions are evaluated in integer arithmetic and stepped incrementally from row to row.
+ * A pixel is covered if its top left corner (x, y) lies inside the triangle, the same sample position the scanline rasterizer uses.
+ * Samples that lie exactly on an edge only belong to the triangle if the edge is a top or a left edge,
+ * so triangles that share an edge never cover a pixel twice and never leave a gap between them. <p>
+ *
+ * Instead of testing every pixel of the bounding box, the interval of every row where all three edge functions are positive
+ * is solved directly from the stepped edge functions, so the pixels outside of the triangle get rejected without touching them
+ * and the pixels inside get drawn without any further test.
+ * With a {@link HierarchicalZ} the rows are split into tiles and tiles that hide the whole triangle are skipped. <p>
+ *
+ * Depth and the texture coordinate (u / w, v / w, 1 / w) are linear in screen space and get evaluated from their plane equation,
+ * the texture lookup divides by w, so texturing is perspective correct.
+ * A {@link Texture} gets the gradients too, to choose its mip level. <p>
+ *
+ * As every attribute only depends on the pixel position, the output does not depend on the clip rectangle,
+ * which keeps tiled rendering identical to serial rendering. <p>
+ *
+ * @author NextLegacy
+ */
+final class EdgeFunctionRasterizer
+{
+    EdgeFunctionRasterizer() { }
+
+    static final int SUBPIXEL_BITS  = 8;
+    static final int SUBPIXEL_STEPS = 1 << SUBPIXEL_BITS;
+
+    static void triangle(final DrawableImage image,
+        final double[] vertices, final int a, int b, int c, final Image texture)
+    {
+        long x0 = snap(vertices[a + X]), y0 = snap(vertices[a + Y]);
+        long x1 = snap(vertices[b + X]), y1 = snap(vertices[b + Y]);
+        long x2 = snap(vertices[c + X]), y2 = snap(vertices[c + Y]);
+
+        long area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+
+        if (area == 0) return;
+
+        //both windings get drawn, the edge functions expect a positive area
+        if (area < 0)
+        {
+            long swap;
+
+            swap = x1; x1 = x2; x2 = swap;
+            swap = y1; y1 = y2; y2 = swap;
+
+            final int vertex = b; b = c; c = vertex;
+
+            area = -area;
+        }
+
+        //bounding box in pixels, intersected with the clip rectangle
+        final int minX = Math.max(image.clipX0    , ceilToPixel (Math.min(x0, Math.min(x1, x2))));
+        final int minY = Math.max(image.clipY0    , ceilToPixel (Math.min(y0, Math.min(y1, y2))));
+        final int maxX = Math.min(image.clipX1 - 1, floorToPixel(Math.max(x0, Math.max(x1, x2))));
+        final int maxY = Math.min(image.clipY1 - 1, floorToPixel(Math.max(y0, Math.max(y1, y2))));
+
+        if (minX > maxX || minY > maxY) return;
+
+        //edge function of the edge from i to j: (xj - xi) * (py - yi) - (yj - yi) * (px - xi),
+        //stepping one pixel in x adds stepX, stepping one pixel in y adds stepY
+        final long stepX0 = (y1 - y2) * SUBPIXEL_STEPS, stepY0 = (x2 - x1) * SUBPIXEL_STEPS; // edge b -> c, weight of a
+        final long stepX1 = (y2 - y0) * SUBPIXEL_STEPS, stepY1 = (x0 - x2) * SUBPIXEL_STEPS; // edge c -> a, weight of b
+        final long stepX2 = (y0 - y1) * SUBPIXEL_STEPS, stepY2 = (x1 - x0) * SUBPIXEL_STEPS; // edge a -> b, weight of c
+
+        //a sample on an edge that is not a top or left edge is outside, which the bias of -1 achieves for integer edge functions
+        final long bias0 = isTopLeft(x1, y1, x2, y2) ? 0 : -1;
+        final long bias1 = isTopLeft(x2, y2, x0, y0) ? 0 : -1;
+        final long bias2 = isTopLeft(x0, y0, x1, y1) ? 0 : -1;
+
+        //edge functions at the pixel (minX, minY), including the bias, so a sample is inside if all three are >= 0
+        final long px = (long) minX << SUBPIXEL_BITS;
+        final long py = (long) minY << SUBPIXEL_BITS;
+
+        final long origin0 = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1) + bias0;
+        final long origin1 = (x0 - x2) * (py - y2) - (y0 - y2) * (px - x2) + bias1;
+        final long origin2 = (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0) + bias2;
+
+        //plane equations of the attributes, attribute(x, y) = base + x * dx + y * dy
+        final double fx0 = x0 / (double) SUBPIXEL_STEPS, fy0 = y0 / (double) SUBPIXEL_STEPS;
+        final double ex1 = (x1 - x0) / (double) SUBPIXEL_STEPS, ey1 = (y1 - y0) / (double) SUBPIXEL_STEPS;
+        final double ex2 = (x2 - x0) / (double) SUBPIXEL_STEPS, ey2 = (y2 - y0) / (double) SUBPIXEL_STEPS;
+
+        final double inversedDeterminant = 1 / (ex1 * ey2 - ex2 * ey1);
+
+        final double dzdx = gradientX(vertices, a, b, c, Z, ey1, ey2, inversedDeterminant), dzdy = gradientY(vertices, a, b, c, Z, ex1, ex2, inversedDeterminant);
+        final double dudx = gradientX(vertices, a, b, c, U, ey1, ey2, inversedDeterminant), dudy = gradientY(vertices, a, b, c, U, ex1, ex2, inversedDeterminant);
+        final double dvdx = gradientX(vertices, a, b, c, V, ey1, ey2, inversedDeterminant), dvdy = gradientY(vertices, a, b, c, V, ex1, ex2, inversedDeterminant);
+        final double dwdx = gradientX(vertices, a, b, c, W, ey1, ey2, inversedDeterminant), dwdy = gradientY(vertices, a, b, c, W, ex1, ex2, inversedDeterminant);
+
+        final double z0 = vertices[a + Z] - fx0 * dzdx - fy0 * dzdy;
+        final double u0 = vertices[a + U] - fx0 * dudx - fy0 * dudy;
+        final double v0 = vertices[a + V] - fx0 * dvdx - fy0 * dvdy;
+        final double w0 = vertices[a + W] - fx0 * dwdx - fy0 * dwdy;
+
+        final int width = image.width();
+
+        final HierarchicalZ hierarchicalZ = image.hierarchicalZ;
+
+        final double minZ = Math.min(vertices[a + Z], Math.min(vertices[b + Z], vertices[c + Z]));
+
+        final int columns = maxX - minX;
+
+        long row0 = origin0, row1 = origin1, row2 = origin2;
+
+        for (int y = minY; y <= maxY; y++, row0 += stepY0, row1 += stepY1, row2 += stepY2)
+        {
+            final int startX = minX + Math.max(firstInside(row0, stepX0), Math.max(firstInside(row1, stepX1), firstInside(row2, stepX2)));
+            final int endX   = minX + Math.min(lastInside (row0, stepX0, columns), Math.min(lastInside(row1, stepX1, columns), lastInside(row2, stepX2, columns)));
+
+            final double rowZ = z0 + y * dzdy;
+            final double rowU = u0 + y * dudy;
+            final double rowV = v0 + y * dvdy;
+            final double rowW = w0 + y * dwdy;
+
+            if (hierarchicalZ == null)
+            {
+                span(image, y * width, startX, endX, rowZ, dzdx, rowU, dudx, dudy, rowV, dvdx, dvdy, rowW, dwdx, dwdy, texture);
+                continue;
+            }
+
+            //the row is split at the borders of the tiles of the hierarchical depth buffer, hidden tiles are skipped
+            final int tileY = y >> HierarchicalZ.TILE_SHIFT;
+
+            for (int from = startX; from <= endX; )
+            {
+                final int to = Math.min(endX, from | (HierarchicalZ.TILE_SIZE - 1));
+
+                if (!hierarchicalZ.isTileOccluded(from >> HierarchicalZ.TILE_SHIFT, tileY, minZ))
+                    span(image, y * width, from, to, rowZ, dzdx, rowU, dudx, dudy, rowV, dvdx, dvdy, rowW, dwdx, dwdy, texture);
+
+                from = to + 1;
+            }
+        }
+    }
+
+    private static void span(final DrawableImage image, final int rowIndex, final int startX, final int endX,
+        final double rowZ, final double dzdx, final double rowU, final double dudx, final double dudy, final double rowV, final double dvdx, final double dvdy,
+        final double rowW, final double dwdx, final double dwdy, final Image texture)
+    {
+        if (!(texture instanceof Texture))
+        {
+            for (int x = startX, index = startX + rowIndex; x <= endX; x++, index++)
+            {
+                image.blendStoredPixel(index, rowZ + x * dzdx, image.toStoredColor(texture, texture.getPixel(rowU + x * dudx, rowV + x * dvdx, rowW + x * dwdx)));
+            }
+
+            return;
+        }
+
+        final Texture mipmapped = (Texture) texture;
+
+        final boolean nearest = mipmapped.filter  () == TextureFilter.NEAREST;
+        final boolean clamp   = mipmapped.wrapMode() == WrapMode.CLAMP;
+
+        //without perspective the derivatives of u / w and v / w are the same everywhere on the triangle,
+        //so every block gets the same level and the whole span is sampled from it, just like from a texture that is always sampled from level 0
+        final boolean oneLevel = (dwdx == 0 && dwdy == 0) || !mipmapped.isMipmapped() || mipmapped.levels() == 1;
+
+        //the row is split into the blocks of Texture.LEVEL_BLOCK pixels that share a level
+        for (int x = startX, index = startX + rowIndex; x <= endX; )
+        {
+            final int to     = oneLevel ? endX : Math.min(endX, x | Texture.LEVEL_BLOCK_MASK);
+            final int center = (x & ~Texture.LEVEL_BLOCK_MASK) + Texture.LEVEL_BLOCK / 2;
+
+            final int level = mipmapped.level(rowU + center * dudx, rowV + center * dvdx, rowW + center * dwdx, dudx, dvdx, dwdx, dudy, dvdy, dwdy);
+
+            final int[] texels = mipmapped.levelTexels(level);
+            final int   w      = mipmapped.levelWidth (level), h = mipmapped.levelHeight(level);
+
+            //the nearest texels of a clamped texture or of a repeated one that is a power of two wide and high are read directly,
+            //computed like Texture.sample computes them, so the filter and the wrap mode are not checked per pixel
+            if (nearest && clamp)
+            {
+                for (; x <= to; x++, index++)
+                {
+                    final double pixelW = rowW + x * dwdx;
+                    final double tx     = (rowU + x * dudx) / pixelW * w, ty = (1 - (rowV + x * dvdx) / pixelW) * h;
+
+                    final int texel = texels[(tx <= 0 ? 0 : tx >= w ? w - 1 : (int) tx) + (ty <= 0 ? 0 : ty >= h ? h - 1 : (int) ty) * w];
+
+                    image.blendStoredPixel(index, rowZ + x * dzdx, image.toStoredColor(texture, texel));
+                }
+
+                continue;
+            }
+
+            if (nearest && (w & (w - 1)) == 0 && (h & (h - 1)) == 0)
+            {
+                for (; x <= to; x++, index++)
+                {
+                    final double pixelW = rowW + x * dwdx;
+                    final double tx     = (rowU + x * dudx) / pixelW * w, ty = (1 - (rowV + x * dvdx) / pixelW) * h;
+
+                    final int texel = texels[(Texture.floor(tx) & (w - 1)) + (Texture.floor(ty) & (h - 1)) * w];
+
+                    image.blendStoredPixel(index, rowZ + x * dzdx, image.toStoredColor(texture, texel));
+                }
+
+                continue;
+            }
+
+            for (; x <= to; x++, index++)
+            {
+                image.blendStoredPixel(index, rowZ + x * dzdx, image.toStoredColor(texture, mipmapped.sample(rowU + x * dudx, rowV + x * dvdx, rowW + x * dwdx, level)));
+            }
+        }
+    }
+
+    /**
+     * @return the first step i with {@code edge + i * step >= 0}, or a number bigger than every column if there is none
+     */
+    private static int firstInside(final long edge, final long step)
+    {
+        if (edge >= 0) return 0;
+        if (step <= 0) return Integer.MAX_VALUE / 2;
+
+        return (int) Math.min(Integer.MAX_VALUE / 2, (step - 1 - edge) / step);
+    }
+
+    /**
+     * @return the last step i not bigger than columns with {@code edge + i * step >= 0}, or -1 if there is none
+     */
+    private static int lastInside(final long edge, final long step, final int columns)
+    {
+        if (step > 0) return columns;
+        if (edge < 0) return -1;
+        if (step == 0) return columns;
+
+        return (int) Math.min(columns, edge / -step);
+    }
+
+    private static long snap(final double coordinate) { return (long) Math.floor(coordinate * SUBPIXEL_STEPS + 0.5); }
+
+    private static int ceilToPixel (final long coordinate) { return (int) -Math.floorDiv(-coordinate, SUBPIXEL_STEPS); }
+    private static int floorToPixel(final long coordinate) { return (int)  Math.floorDiv( coordinate, SUBPIXEL_STEPS); }
+
+    /**
+     * With y pointing down and a positive area the inside of the triangle is to the right of every edge,
+     * a top edge is horizontal and points to the right, a left edge points up.
+     */
+    private static boolean isTopLeft(final long fromX, final long fromY, final long toX, final long toY)
+    {
+        return (toY == fromY && toX > fromX) || toY < fromY;
+    }
+}
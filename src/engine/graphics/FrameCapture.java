@@ -0,0 +1,423 @@
+package engine.graphics;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.imageio.ImageIO;
+
+import engine.utils.ImageUtils;
+import engine.utils.color.Color;
+import engine.utils.destroyable.IDestroyable;
+import engine.utils.destroyable.ObjectIsDestroyedException;
+
+/**
+ * Writes frames to files in the background, for replays and for comparing frames against reference frames. <p>
+ *
+ * {@link #capture(Image)} copies the colors of an image into one of a fixed number of pooled slots and hands it to the encoder threads,
+ * which write it as {@code frame_000000.png}, {@code frame_000001.png}, ... into the directory, see {@link CaptureFormat}.
+ * Capturing costs a copy of the colors on the calling thread, encoding and writing happen on the encoder threads. <p>
+ *
+ * If every slot is still waiting to be written, the frame is dropped instead of waiting, so a slow disk never stalls the game loop.
+ * A dropped frame still takes a number, so the gaps in the numbers show which frames are missing. <p>
+ *
+ * A capture is meant to be fed by a single thread, see {@link engine.window.Window#setFrameCapture(FrameCapture)}. <p>
+ *
+ * @author NextLegacy
+ */
+public final class FrameCapture implements IDestroyable
+{
+    public static final int DEFAULT_SLOTS   = 8;
+    public static final int DEFAULT_WORKERS = 1;
+
+    private final File          directory;
+    private final CaptureFormat format   ;
+
+    private final ArrayBlockingQueue<Slot> free   ;
+    private final ArrayBlockingQueue<Slot> pending;
+
+    private final Thread[] workers;
+
+    private final AtomicInteger inFlight; // frames that got captured and are not written yet
+    private final AtomicLong    written ;
+    private final AtomicLong    failed  ;
+
+    private long captured;
+    private long dropped ;
+
+    private volatile boolean isDestroyed;
+
+    public FrameCapture(final String directory, final CaptureFormat format) { this(directory, format, DEFAULT_SLOTS, DEFAULT_WORKERS); }
+
+    /**
+     * @param directory the directory to write the frames into, created if it does not exist
+     * @param slots the number of frames that can wait to be written before frames get dropped
+     * @param workers the number of encoder threads
+     */
+    public FrameCapture(final String directory, final CaptureFormat format, final int slots, final int workers)
+    {
+        if (slots   <= 0) throw new IllegalArgumentException("A FrameCapture needs at least one slot!");
+        if (workers <= 0) throw new IllegalArgumentException("A FrameCapture needs at least one worker!");
+
+        this.directory = new File(directory);
+        this.format    = format;
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+            throw new RuntimeException("Could not create the directory " + directory + "!");
+
+        free    = new ArrayBlockingQueue<>(slots);
+        pending = new ArrayBlockingQueue<>(slots);
+
+        for (int i = 0; i < slots; i++) free.add(new Slot());
+
+        inFlight = new AtomicInteger();
+        written  = new AtomicLong   ();
+        failed   = new AtomicLong   ();
+
+        this.workers = new Thread[workers];
+
+        for (int i = 0; i < workers; i++)
+        {
+            this.workers[i] = new Thread(this::runWorker, "capture-" + i);
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
+    }
+
+    public CaptureFormat format   () { return format   ; }
+    public File          directory() { return directory; }
+
+    /**
+     * @return the number of frames that were passed to {@link #capture(Image)}, written or dropped
+     */
+    public long captured() { return captured      ; }
+    public long dropped () { return dropped       ; }
+    public long written () { return written.get() ; }
+    public long failed  () { return failed .get() ; }
+
+    /**
+     * Copies the colors of the image into a free slot and queues it for writing, does not create any objects once the slots fit the image size.
+     * @return false if the frame got dropped, because every slot is still waiting to be written
+     */
+    public boolean capture(final Image image)
+    {
+        ObjectIsDestroyedException.throwIfIsDestroyed(this);
+
+        final long index = captured++;
+
+        final Slot slot = free.poll();
+
+        if (slot == null)
+        {
+            dropped++;
+
+            return false;
+        }
+
+        slot.set(image, index);
+
+        inFlight.incrementAndGet();
+
+        pending.add(slot);
+
+        return true;
+    }
+
+    /**
+     * Waits until every captured frame that was not dropped is written, 
+     * or until no encoder thread is left that could write them, if all of them died of an error.
+     */
+    public void flush()
+    {
+        while (inFlight.get() > 0 && isWorkerAlive()) LockSupport.parkNanos(100_000);
+    }
+
+    private boolean isWorkerAlive()
+    {
+        for (Thread worker : workers) if (worker.isAlive()) return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean isDestroyed() { return isDestroyed; }
+
+    /**
+     * Writes the frames that are still waiting and stops the encoder threads.
+     */
+    @Override
+    public void destroy()
+    {
+        if (isDestroyed) return;
+
+        flush();
+
+        isDestroyed = true;
+
+        for (Thread worker : workers) worker.interrupt();
+
+        try
+        {
+            for (Thread worker : workers) worker.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker()
+    {
+        final Encoder encoder = new Encoder();
+
+        while (!isDestroyed)
+        {
+            final Slot slot;
+
+            try
+            {
+                slot = pending.take();
+            }
+            catch (InterruptedException e)
+            {
+                continue;
+            }
+
+            final File file = new File(directory, String.format("frame_%06d.%s", slot.index, format.extension()));
+
+            try
+            {
+                encoder.write(slot, format, file);
+
+                written.incrementAndGet();
+            }
+            // a frame that can not be encoded must not stop the thread, the frames after it still get written
+            catch (IOException | RuntimeException e)
+            {
+                failed.incrementAndGet();
+
+                e.printStackTrace();
+            }
+            finally
+            {
+                free.add(slot);
+
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A pooled copy of the colors of a frame.
+     */
+    private static final class Slot
+    {
+        int[]   colors       ;
+        int     width        ;
+        int     height       ;
+        long    index        ;
+        boolean premultiplied;
+
+        void set(final Image image, final long index)
+        {
+            if (colors == null || colors.length != image.pixels()) colors = new int[image.pixels()];
+
+            System.arraycopy(image.colorBuffer(), 0, colors, 0, image.pixels());
+
+            width         = image.width ();
+            height        = image.height();
+            premultiplied = image.isPremultiplied();
+            this.index    = index;
+        }
+    }
+
+    /**
+     * The buffers of an encoder thread, reused from frame to frame.
+     */
+    private static final class Encoder
+    {
+        private static final int QOI_OP_INDEX = 0x00;
+        private static final int QOI_OP_DIFF  = 0x40;
+        private static final int QOI_OP_LUMA  = 0x80;
+        private static final int QOI_OP_RUN   = 0xc0;
+        private static final int QOI_OP_RGB   = 0xfe;
+        private static final int QOI_OP_RGBA  = 0xff;
+
+        private static final int QOI_HEADER_SIZE = 14;
+        private static final int QOI_END_SIZE    = 8;
+
+        private byte[]        bytes = new byte[0];
+        private BufferedImage bufferedImage;
+
+        private final int[] qoiIndex = new int[64];
+
+        void write(final Slot slot, final CaptureFormat format, final File file) throws IOException
+        {
+            // every format stores straight colors
+            if (slot.premultiplied) for (int i = 0; i < slot.colors.length; i++) slot.colors[i] = Color.unpremultiply(slot.colors[i]);
+
+            switch (format)
+            {
+                case PNG: writePng(slot, file); break;
+                case QOI: write(file, encodeQoi(slot)); break;
+                case RAW: write(file, encodeRaw(slot)); break;
+            }
+        }
+
+        private void write(final File file, final int length) throws IOException
+        {
+            try (OutputStream stream = new FileOutputStream(file))
+            {
+                stream.write(bytes, 0, length);
+            }
+        }
+
+        private void writePng(final Slot slot, final File file) throws IOException
+        {
+            if (bufferedImage == null || bufferedImage.getWidth() != slot.width || bufferedImage.getHeight() != slot.height)
+                bufferedImage = new BufferedImage(slot.width, slot.height, BufferedImage.TYPE_INT_ARGB);
+
+            System.arraycopy(slot.colors, 0, ImageUtils.getBufferedImageDataArray(bufferedImage), 0, slot.colors.length);
+
+            if (!ImageIO.write(bufferedImage, "png", file)) throw new IOException("No png writer found!");
+        }
+
+        private byte[] bytes(final int capacity)
+        {
+            if (bytes.length < capacity) bytes = new byte[capacity];
+
+            return bytes;
+        }
+
+        private int encodeRaw(final Slot slot)
+        {
+            final int[] colors = slot.colors;
+
+            final byte[] bytes = bytes(8 + colors.length * 4);
+
+            int p = putInt(bytes, 0, slot.width);
+            p = putInt(bytes, p, slot.height);
+
+            for (int i = 0; i < colors.length; i++) p = putInt(bytes, p, colors[i]);
+
+            return p;
+        }
+
+        /**
+         * Encodes the colors as QOI with 4 channels, see https://qoiformat.org/qoi-specification.pdf.
+         * @return the number of bytes
+         */
+        private int encodeQoi(final Slot slot)
+        {
+            final int[] colors = slot.colors;
+
+            // the worst case is a QOI_OP_RGBA of 5 bytes per pixel
+            final byte[] bytes = bytes(QOI_HEADER_SIZE + colors.length * 5 + QOI_END_SIZE);
+
+            bytes[0] = 'q'; bytes[1] = 'o'; bytes[2] = 'i'; bytes[3] = 'f';
+
+            int p = putInt(bytes, 4, slot.width);
+            p = putInt(bytes, p, slot.height);
+
+            bytes[p++] = 4; // channels
+            bytes[p++] = 0; // sRGB with linear alpha
+
+            Arrays.fill(qoiIndex, 0);
+
+            int previous = 0xff000000; // opaque black in ARGB
+            int run      = 0;
+
+            for (int i = 0; i < colors.length; i++)
+            {
+                final int color = colors[i];
+
+                if (color == previous)
+                {
+                    if (++run == 62 || i == colors.length - 1)
+                    {
+                        bytes[p++] = (byte) (QOI_OP_RUN | (run - 1));
+
+                        run = 0;
+                    }
+
+                    continue;
+                }
+
+                if (run > 0)
+                {
+                    bytes[p++] = (byte) (QOI_OP_RUN | (run - 1));
+
+                    run = 0;
+                }
+
+                final int a = color >>> 24, r = (color >> 16) & 0xff, g = (color >> 8) & 0xff, b = color & 0xff;
+
+                final int hash = (r * 3 + g * 5 + b * 7 + a * 11) & 63;
+
+                if (qoiIndex[hash] == color)
+                {
+                    bytes[p++] = (byte) (QOI_OP_INDEX | hash);
+                }
+                else
+                {
+                    qoiIndex[hash] = color;
+
+                    if (a == previous >>> 24)
+                    {
+                        // the differences wrap around like bytes
+                        final int dr = (byte) (r - ((previous >> 16) & 0xff));
+                        final int dg = (byte) (g - ((previous >>  8) & 0xff));
+                        final int db = (byte) (b - ( previous        & 0xff));
+
+                        final int drg = dr - dg, dbg = db - dg;
+
+                        if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1)
+                        {
+                            bytes[p++] = (byte) (QOI_OP_DIFF | (dr + 2) << 4 | (dg + 2) << 2 | (db + 2));
+                        }
+                        else if (dg >= -32 && dg <= 31 && drg >= -8 && drg <= 7 && dbg >= -8 && dbg <= 7)
+                        {
+                            bytes[p++] = (byte) (QOI_OP_LUMA | (dg + 32));
+                            bytes[p++] = (byte) ((drg + 8) << 4 | (dbg + 8));
+                        }
+                        else
+                        {
+                            bytes[p++] = (byte) QOI_OP_RGB;
+                            bytes[p++] = (byte) r; bytes[p++] = (byte) g; bytes[p++] = (byte) b;
+                        }
+                    }
+                    else
+                    {
+                        bytes[p++] = (byte) QOI_OP_RGBA;
+                        bytes[p++] = (byte) r; bytes[p++] = (byte) g; bytes[p++] = (byte) b; bytes[p++] = (byte) a;
+                    }
+                }
+
+                previous = color;
+            }
+
+            for (int i = 0; i < QOI_END_SIZE - 1; i++) bytes[p++] = 0;
+
+            bytes[p++] = 1;
+
+            return p;
+        }
+
+        private static int putInt(final byte[] bytes, final int p, final int value)
+        {
+            bytes[p    ] = (byte) (value >>> 24);
+            bytes[p + 1] = (byte) (value >>> 16);
+            bytes[p + 2] = (byte) (value >>>  8);
+            bytes[p + 3] = (byte)  value;
+
+            return p + 4;
+        }
+    }
+}
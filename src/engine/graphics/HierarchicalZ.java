@@ -0,0 +1,132 @@
+package engine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * A coarse depth structure on top of the buffers of an {@link Image}, see {@link DrawableImage#setHierarchicalZ(boolean)}. <p>
+ *
+ * The image is divided into tiles of {@link #TILE_SIZE} x {@link #TILE_SIZE} pixels, every tile knows the biggest depth
+ * of its pixels and whether all of its pixels are opaque. A fragment that is farther away than every pixel of an opaque tile
+ * can not change the tile, so whole triangles and tiles of blits can be rejected before they get rasterized. <p>
+ *
+ * Drawing only ever lowers the depth of a pixel, but blending can make an opaque pixel transparent, therefore
+ * every draw call marks the tiles it touched dirty and dirty tiles are scanned again the next time they are queried.
+ * Writing into the buffers of the image directly requires {@link #invalidateAll()}. <p>
+ *
+ * Tile views of a {@link RenderQueue} share the structure of their image. As the tiles of a {@link RenderPool}
+ * are a multiple of {@link #TILE_SIZE}, no two threads ever touch the same tile. <p>
+ *
+ * @author NextLegacy
+ */
+final class HierarchicalZ
+{
+    static final int TILE_SHIFT = 3;
+    static final int TILE_SIZE  = 1 << TILE_SHIFT;
+
+    private final Image image;
+
+    private final int[] colorBuffer;
+
+    private final int width ;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+
+    // depth a fragment has to be farther away than to be hidden by the tile, infinity if the tile is not opaque
+    private final double [] occluderDepth;
+    private final boolean[] dirty;
+
+    HierarchicalZ(final Image image)
+    {
+        this.image  = image;
+        colorBuffer = image.colorBuffer;
+
+        width  = image.width ();
+        height = image.height();
+        tilesX = (width  + TILE_SIZE - 1) >> TILE_SHIFT;
+        tilesY = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+
+        occluderDepth = new double [tilesX * tilesY];
+        dirty         = new boolean[tilesX * tilesY];
+
+        invalidateAll();
+    }
+
+    void invalidateAll() { Arrays.fill(dirty, true); }
+
+    void invalidate(final int index)
+    {
+        final int y = index / width;
+
+        dirty[((index - y * width) >> TILE_SHIFT) + (y >> TILE_SHIFT) * tilesX] = true;
+    }
+
+    /**
+     * Marks all tiles dirty that overlap the rectangle from (x0, y0) to (x1, y1), both inclusive.
+     */
+    void invalidate(final int x0, final int y0, final int x1, final int y1)
+    {
+        final int tileX0 = Math.max(x0, 0) >> TILE_SHIFT, tileX1 = Math.min(x1, width  - 1) >> TILE_SHIFT;
+        final int tileY0 = Math.max(y0, 0) >> TILE_SHIFT, tileY1 = Math.min(y1, height - 1) >> TILE_SHIFT;
+
+        if (tileX0 > tileX1 || tileY0 > tileY1) return;
+
+        for (int tileY = tileY0; tileY <= tileY1; tileY++)
+            Arrays.fill(dirty, tileX0 + tileY * tilesX, tileX1 + tileY * tilesX + 1, true);
+    }
+
+    /**
+     * @return true if every pixel in the rectangle from (x0, y0) to (x1, y1), both inclusive,
+     *         is opaque and nearer than the given depth, so no fragment with at least this depth can change them
+     */
+    boolean isOccluded(final int x0, final int y0, final int x1, final int y1, final double z)
+    {
+        final int tileX0 = Math.max(x0, 0) >> TILE_SHIFT, tileX1 = Math.min(x1, width  - 1) >> TILE_SHIFT;
+        final int tileY0 = Math.max(y0, 0) >> TILE_SHIFT, tileY1 = Math.min(y1, height - 1) >> TILE_SHIFT;
+
+        if (tileX0 > tileX1 || tileY0 > tileY1) return false;
+
+        for (int tileY = tileY0; tileY <= tileY1; tileY++)
+        for (int tileX = tileX0; tileX <= tileX1; tileX++)
+        {
+            if (!(z > occluderDepth(tileX, tileY))) return false;
+        }
+
+        return true;
+    }
+
+    boolean isTileOccluded(final int tileX, final int tileY, final double z) { return z > occluderDepth(tileX, tileY); }
+
+    /**
+     * @return the biggest depth of the pixels in the tile, or {@link Double#POSITIVE_INFINITY} if not all of them are opaque
+     */
+    double occluderDepth(final int tileX, final int tileY)
+    {
+        final int tile = tileX + tileY * tilesX;
+
+        if (dirty[tile]) scan(tileX, tileY, tile);
+
+        return occluderDepth[tile];
+    }
+
+    private void scan(final int tileX, final int tileY, final int tile)
+    {
+        final int x0 = tileX << TILE_SHIFT, x1 = Math.min(x0 + TILE_SIZE, width );
+        final int y0 = tileY << TILE_SHIFT, y1 = Math.min(y0 + TILE_SIZE, height);
+
+        double maxZ = Double.NEGATIVE_INFINITY;
+
+        for (int y = y0; y < y1; y++)
+        for (int index = x0 + y * width, end = x1 + y * width; index < end; index++)
+        {
+            if (colorBuffer[index] >>> 24 != 0xff) { maxZ = Double.POSITIVE_INFINITY; y = y1; break; }
+
+            final double z = image.getZ(index);
+
+            if (z > maxZ) maxZ = z;
+        }
+
+        occluderDepth[tile] = maxZ;
+        dirty        [tile] = false;
+    }
+}
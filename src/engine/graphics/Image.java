@@ -10,6 +10,7 @@ import engine.math.FinalVector;
 import engine.math.Vector4;
 import engine.utils.ArrayUtils;
 import engine.utils.ImageUtils;
+import engine.utils.color.Color;
 
 /**
  * This Image class does store colors and depths in form of a {@link #colorBuffer} and {@link #zBuffer}.
@@ -18,6 +19,15 @@ import engine.utils.ImageUtils;
  * 
  * <p>
  * 
+ * The depths are stored in the {@link DepthFormat} the image got created with, {@link DepthFormat#DOUBLE} by default.
+ * Only the buffer of that format exists, {@link #getZ(int)} reads the depth of a pixel in any format.
+ * 
+ * <p>
+ * 
+ * The colors are straight ARGB colors, unless the image is premultiplied, see {@link #isPremultiplied()}.
+ * 
+ * <p>
+ * 
  * To use Graphics use {@link DrawableImage}.
  */
 public class Image
@@ -28,8 +38,20 @@ public class Image
 
     protected final int pixels; 
 
+    protected final DepthFormat depthFormat;
+
     protected final int   [] colorBuffer;
-    protected final double[] zBuffer    ;
+
+    // only the buffer of the depth format exists, the others are null
+    protected final double[] zBuffer     ;
+    protected final float [] floatZBuffer;
+    protected final int   [] intZBuffer  ;
+
+    // the depth of every pixel of an image without depth buffer
+    protected double constantZ;
+
+    // whether the red, green and blue of the colors are stored multiplied by their alpha
+    protected boolean premultiplied;
 
     public Image(final BufferedImage image) 
     {
@@ -51,16 +73,71 @@ public class Image
     }
 
     public Image(final int[] colorBuffer, final double[] zBuffer, final Vector4 size)
+    {
+        this(colorBuffer, DepthFormat.DOUBLE, zBuffer, null, null, size);
+    }
+
+    public Image(final int[] colorBuffer, final float[] zBuffer, final Vector4 size)
+    {
+        this(colorBuffer, DepthFormat.FLOAT, null, zBuffer, null, size);
+    }
+
+    /**
+     * @param zBuffer the depths as fixed point numbers, see {@link DepthFormat#INT}
+     */
+    public Image(final int[] colorBuffer, final int[] zBuffer, final Vector4 size)
+    {
+        this(colorBuffer, DepthFormat.INT, null, null, zBuffer, size);
+    }
+
+    public Image(final Vector4 size, final DepthFormat depthFormat)
+    {
+        this(new int[(int) size.x() * (int) size.y()], size, depthFormat);
+    }
+
+    /**
+     * Creates an image with a new depth buffer of the given format.
+     */
+    public Image(final int[] colorBuffer, final Vector4 size, final DepthFormat depthFormat)
+    {
+        this(colorBuffer, depthFormat, 
+            depthFormat == DepthFormat.DOUBLE ? new double[(int) size.x() * (int) size.y()] : null,
+            depthFormat == DepthFormat.FLOAT  ? new float [(int) size.x() * (int) size.y()] : null,
+            depthFormat == DepthFormat.INT    ? new int   [(int) size.x() * (int) size.y()] : null,
+            size);
+    }
+
+    /**
+     * Creates an image that shares the buffers of the given image.
+     */
+    protected Image(final Image image)
+    {
+        this(image.colorBuffer, image.depthFormat, image.zBuffer, image.floatZBuffer, image.intZBuffer, image.size);
+
+        constantZ     = image.constantZ    ;
+        premultiplied = image.premultiplied;
+    }
+
+    private Image(final int[] colorBuffer, final DepthFormat depthFormat, 
+        final double[] zBuffer, final float[] floatZBuffer, final int[] intZBuffer, final Vector4 size)
     {
         this.size = size.toFinalVector();
 
-        this.colorBuffer = colorBuffer;
-        this.zBuffer     = zBuffer    ;
+        this.depthFormat  = depthFormat ;
+        this.colorBuffer  = colorBuffer ;
+        this.zBuffer      = zBuffer     ;
+        this.floatZBuffer = floatZBuffer;
+        this.intZBuffer   = intZBuffer  ;
         
         pixels = width() * height();
 
+        final int zBufferLength = depthFormat == DepthFormat.DOUBLE ? zBuffer     .length :
+                                  depthFormat == DepthFormat.FLOAT  ? floatZBuffer.length :
+                                  depthFormat == DepthFormat.INT    ? intZBuffer  .length :
+                                                                      pixels              ;
+
         if (pixels != colorBuffer.length ||
-            pixels != zBuffer    .length)
+            pixels != zBufferLength)
         {
             throw new RuntimeException("Image size does not match colorBuffer and/or zBuffer size!");
         }
@@ -82,6 +159,22 @@ public class Image
      */
     public final int getPixel(double u, double v, double w) { int index = getIndex(u, v, w); return isPixelValid(index) ? colorBuffer[index] : ERROR_COLOR; }
 
+    /**
+     * @param index The index of the pixel, which has to be valid.
+     * 
+     * @return The depth of the pixel at the given index, independent of the {@link DepthFormat} of this image.
+     */
+    public final double getZ(final int index)
+    {
+        switch (depthFormat)
+        {
+            case DOUBLE: return zBuffer[index];
+            case FLOAT : return DepthFormat.fromFloat(floatZBuffer[index]);
+            case INT   : return DepthFormat.fromInt  (intZBuffer  [index]);
+            default    : return constantZ;
+        }
+    }
+
     /**
      * @param x The x coordinate, in range [0, width].
      * @param y The y coordinate, in range [0, height].
@@ -127,7 +220,28 @@ public class Image
     public int         height     () { return (int) size.y(); }
     public int         pixels     () { return pixels        ; }
     public int   []    colorBuffer() { return colorBuffer   ; }
-    public double[]    zBuffer    () { return zBuffer       ; }
+    public DepthFormat depthFormat() { return depthFormat   ; }
+
+    /**
+     * @return whether the colors of {@link #colorBuffer()} are stored with their red, green and blue premultiplied by their alpha, 
+     *         see {@link engine.utils.color.Color#premultiply(int)} and {@link DrawableImage#setPremultiplied(boolean)}
+     */
+    public boolean isPremultiplied() { return premultiplied; }
+
+    /**
+     * @return the depth buffer if this image stores its depths as {@link DepthFormat#DOUBLE}, otherwise null
+     */
+    public double[] zBuffer     () { return zBuffer     ; }
+
+    /**
+     * @return the depth buffer if this image stores its depths as {@link DepthFormat#FLOAT}, otherwise null
+     */
+    public float [] floatZBuffer() { return floatZBuffer; }
+
+    /**
+     * @return the depth buffer if this image stores its depths as {@link DepthFormat#INT}, otherwise null
+     */
+    public int   [] intZBuffer  () { return intZBuffer  ; }
     
     public BufferedImage toBufferedImage()
     { 
@@ -137,6 +251,8 @@ public class Image
 
         ArrayUtils.copy(colorBuffer, buffer, pixels);
 
+        if (premultiplied) for (int i = 0; i < pixels; i++) buffer[i] = Color.unpremultiply(buffer[i]);
+
         return bufferedImage;
     }
 
@@ -1,9 +1,12 @@
 package engine.graphics;
 
+import java.util.Arrays;
+
 import engine.math.FinalVector;
 import engine.math.Vector;
 import engine.math.Vector4;
 import engine.utils.MathUtils;
+import engine.utils.color.Color;
 
 /**
  * A collection of algorithms for 2D graphics. <p>
@@ -28,9 +31,11 @@ final class ImageAlgorithms2D
         int x = x0;
         int y = y0;
 
+        image.invalidateArea(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1));
+
         while (true)
         {
-            image.drawPixel(x, y, z, color);
+            image.drawPrimitivePixel(x, y, z, color);
 
             if (x == x1 && y == y1) break;
 
@@ -171,127 +176,325 @@ final class ImageAlgorithms2D
     {
         if (x0 == x1 && y0 == y1) { image.drawPixel(x0, y0, z, color); return; }
 
-        final int imageWidth  = image.width ();
-        final int imageHeight = image.height();
-
-        final int biggerX  = x0 > x1 ? x0 : x1;
-        final int biggerY  = y0 > y1 ? y0 : y1;
-        final int smallerX = x0 < x1 ? x0 : x1;
-        final int smallerY = y0 < y1 ? y0 : y1;
-
-        int x = smallerX;
-        int y = smallerY;
+        final int imageWidth = image.width();
 
-        //w and h are just the width and height of the Rectangle, width and height are the clipped version of this
-        int w = biggerX - smallerX;
-        int h = biggerY - smallerY;        
+        //The rectangle covers [smaller, bigger) on both axes, clipped against the clip rectangle of the image
+        final int startX = Math.max(Math.min(x0, x1), image.clipX0);
+        final int startY = Math.max(Math.min(y0, y1), image.clipY0);
+        final int endX   = Math.min(Math.max(x0, x1), image.clipX1);
+        final int endY   = Math.min(Math.max(y0, y1), image.clipY1);
 
         //Not a single Pixel is inside the Bounds of this
-        if (x >= imageWidth || y >= imageHeight || x <= -w || y <= -h) 
+        if (startX >= endX || startY >= endY) 
             return;
 
-        //width and height, that lies inside the Bounds of this
-        int width  = (x + w > imageWidth  ? imageWidth  - x : w) + (x < 0 ? x : 0);
-        int height = (y + h > imageHeight ? imageHeight - y : h) + (y < 0 ? y : 0);
+        if (image.depthFormat == DepthFormat.NONE) { fillRectWithoutDepth(image, startX, startY, endX, endY, color); return; }
 
-        //Start Index
-        int thisStartIndex = (x < 0 ? 0 : x) + (y < 0 ? 0 : y) * imageWidth;
+        final int storedColor = image.toStoredColor(color);
 
-        //Needed in the While-Loop, to avoid usage of repetitive multiplication (y * any_width = any_height). 
-        //It may be faster, for that reason its here.
-        int thisHeight = 0;
+        for (int y = startY; y < endY; y++)
+        {
+            //Index of the first and behind the last pixel of the current line
+            final int lineStartIndex = startX + y * imageWidth;
+            final int lineEndIndex   = endX   + y * imageWidth;
+
+            for (int thisIndex = lineStartIndex; thisIndex < lineEndIndex; thisIndex++)
+                image.blendStoredPixel(thisIndex, z, storedColor);
+        }
 
-        //Last Index in current line
-        int thisMaxWidthIndex = thisStartIndex + width;
-        //Last Index that has to be filled
-        int thisMaxIndex = thisStartIndex + height * imageWidth;
+        if (image.hierarchicalZ != null) image.hierarchicalZ.invalidate(startX, startY, endX - 1, endY - 1);
+    }
 
-        //Index of this that is gonna be drawn on
-        int thisIndex = thisStartIndex;
+    /**
+     * Without depth buffer an opaque color overrides the pixels, so whole lines get filled at once,
+     * and a fully transparent color does not change anything.
+     */
+    private static void fillRectWithoutDepth(final DrawableImage image,
+        final int startX, final int startY, final int endX, final int endY, final int color)
+    {
+        image.fragmentsShaded += (long) (endX - startX) * (endY - startY);
 
-        while(true)
-        {
-            //draw Pixel
-            image.drawPixel(thisIndex, z, color);
-            
-            thisIndex++;
+        final int argb  = color | image.alphaMask;
+        final int alpha = argb >>> 24;
 
-            if (thisIndex == thisMaxWidthIndex) 
-            {
-                //Increase Height by one (width of Rectangle)
-                thisHeight += imageWidth; 
+        if (alpha == 0) return;
 
-                //Reset Indices to most left point shifted down by current Height
-                thisIndex = thisStartIndex  + thisHeight;
+        final int[] colors = image.colorBuffer;
 
-                //Set new last point in line
-                thisMaxWidthIndex = thisIndex + width;
+        final int storedColor = image.toStoredColor(argb);
 
-                //If reached last Index, step out of loop
-                if (thisIndex == thisMaxIndex) break;
-            }
+        for (int y = startY; y < endY; y++)
+        {
+            final int lineStartIndex = startX + y * image.width();
+            final int lineEndIndex   = endX   + y * image.width();
+
+            if (alpha == 0xff) { Arrays.fill(colors, lineStartIndex, lineEndIndex, argb); continue; }
+
+            for (int thisIndex = lineStartIndex; thisIndex < lineEndIndex; thisIndex++)
+                colors[thisIndex] = image.mixStoredColors(colors[thisIndex], storedColor);
         }
     }
 
     static void drawImage(final DrawableImage graphicsImage, 
         final Image image, final int x, final int y)
     {
-        final int graphicsImageWidth  = graphicsImage.width ();
-        final int graphicsImageHeight = graphicsImage.height();
+        final int imageWidth = image.width();
+
+        //Area of the image that lies inside the clip rectangle of this, in coordinates of this
+        final int startX = Math.max(x, graphicsImage.clipX0);
+        final int startY = Math.max(y, graphicsImage.clipY0);
+        final int endX   = Math.min(x + imageWidth    , graphicsImage.clipX1);
+        final int endY   = Math.min(y + image.height(), graphicsImage.clipY1);
 
         //Not a single Pixel is inside the Bounds of this
-        if (x >= graphicsImageWidth || y >= graphicsImageHeight || x <= -image.width() || y <= -image.height()) 
+        if (startX >= endX || startY >= endY) 
             return;
 
-        //width and height, that lies inside the Bounds of this
-        int width  = (x + image.width()  > graphicsImageWidth  ? graphicsImageWidth  - x : image.width() ) + (x < 0 ? x : 0);
-        int height = (y + image.height() > graphicsImageHeight ? graphicsImageHeight - y : image.height()) + (y < 0 ? y : 0);
+        final HierarchicalZ hierarchicalZ = graphicsImage.hierarchicalZ;
 
-        //Start Index, for image and this
-        int imageStartIndex = (x < 0 ? -x : 0) + (y < 0 ? -y : 0) * image.width();
-        int thisStartIndex  = (x < 0 ?  0 : x) + (y < 0 ?  0 : y) * graphicsImageWidth;
+        //An image drawn onto itself reads pixels it has already drawn, which only gives the same result in the order of the lines
+        if (hierarchicalZ == null || image.colorBuffer == graphicsImage.colorBuffer)
+        {
+            drawImageArea(graphicsImage, image, x, y, startX, startY, endX, endY);
 
-        //Needed in the While-Loop, to avoid usage of repetitive multiplication (y * any_width = any_height (in which any means image or this)). 
-        //It may be faster, for that reason its here.
-        int imageHeight = 0;
-        int thisHeight  = 0;
+            if (hierarchicalZ != null) hierarchicalZ.invalidate(startX, startY, endX - 1, endY - 1);
 
-        //Last Index in current line
-        int imageMaxWidthIndex = imageStartIndex + width;
-        //Last Index that has to be filled
-        int imageMaxIndex = imageStartIndex + height * image.width();
-        
-        //Index of Image that is gonna be used to get Color and ZValue
-        int imageIndex = imageStartIndex;
-        //Index of this that is gonna be drawn on
-        int thisIndex  = thisStartIndex;
+            return;
+        }
+
+        //Every tile of the hierarchical depth buffer that hides the part of the image in it gets skipped
+        for (int tileY = startY >> HierarchicalZ.TILE_SHIFT; tileY <= (endY - 1) >> HierarchicalZ.TILE_SHIFT; tileY++)
+        for (int tileX = startX >> HierarchicalZ.TILE_SHIFT; tileX <= (endX - 1) >> HierarchicalZ.TILE_SHIFT; tileX++)
+        {
+            final int areaStartX = Math.max(startX, tileX << HierarchicalZ.TILE_SHIFT);
+            final int areaStartY = Math.max(startY, tileY << HierarchicalZ.TILE_SHIFT);
+            final int areaEndX   = Math.min(endX  , (tileX + 1) << HierarchicalZ.TILE_SHIFT);
+            final int areaEndY   = Math.min(endY  , (tileY + 1) << HierarchicalZ.TILE_SHIFT);
+
+            final double occluderDepth = hierarchicalZ.occluderDepth(tileX, tileY);
+
+            if (occluderDepth != Double.POSITIVE_INFINITY && 
+                minZ(image, areaStartX - x, areaStartY - y, areaEndX - x, areaEndY - y) > occluderDepth)
+                continue;
+
+            drawImageArea(graphicsImage, image, x, y, areaStartX, areaStartY, areaEndX, areaEndY);
+
+            hierarchicalZ.invalidate(areaStartX, areaStartY, areaStartX, areaStartY);
+        }
+    }
+
+    /**
+     * Draws the area from (startX, startY) inclusive to (endX, endY) exclusive of the image, which is placed at (x, y).
+     * The area has to lie inside of the clip rectangle.
+     */
+    private static void drawImageArea(final DrawableImage graphicsImage, final Image image, final int x, final int y,
+        final int startX, final int startY, final int endX, final int endY)
+    {
+        final int graphicsImageWidth = graphicsImage.width();
+        final int imageWidth         = image        .width();
 
-        while(true)
+        final int width = endX - startX;
+
+        for (int thisY = startY; thisY < endY; thisY++)
         {
-            //draw Pixel
-            graphicsImage.drawPixel(thisIndex, image.zBuffer[imageIndex], image.colorBuffer[imageIndex]);
+            //Index of this that is gonna be drawn on and index of image that is gonna be used to get Color and ZValue
+            int thisIndex  = startX + thisY * graphicsImageWidth;
+            int imageIndex = (startX - x) + (thisY - y) * imageWidth;
+
+            //Without depth buffer the depths of the image do not matter, 
+            //an image drawn onto itself is excluded as copying whole runs would not read the pixels it has already drawn
+            if (graphicsImage.depthFormat == DepthFormat.NONE && image.colorBuffer != graphicsImage.colorBuffer)
+            {
+                graphicsImage.fragmentsShaded += width;
 
-            //Increase Index (going one step right)
-            thisIndex++;
-            imageIndex++;
+                if (graphicsImage.alphaMask != 0) copyRow (graphicsImage, thisIndex, image, imageIndex, width);
+                else                              blendRow(graphicsImage, thisIndex, image, imageIndex, width);
 
-            //If reached last Point in Line, execute following
-            if (imageIndex == imageMaxWidthIndex) 
+                continue;
+            }
+
+            //Images with the same depth format as this compare the stored depths directly, without converting them,
+            //an image without depth buffer drawn onto itself is blended pixel by pixel below
+            if (image.depthFormat == graphicsImage.depthFormat && image.depthFormat != DepthFormat.NONE)
             {
-                //Increase Height by one (width of corresponding Image)
-                thisHeight  += graphicsImageWidth; 
-                imageHeight += image.width();
-                
-                //Reset Indices to most left point shifted down by current Height
-                thisIndex  = thisStartIndex  + thisHeight;
-                imageIndex = imageStartIndex + imageHeight;
-                
-                //Set new last point in line
-                imageMaxWidthIndex = imageIndex + width;
-
-                //If reached last Index, step out of loop
-                if (imageIndex == imageMaxIndex) break;
+                graphicsImage.fragmentsShaded += width;
+
+                switch (image.depthFormat)
+                {
+                    case DOUBLE: blendDoubleRow(graphicsImage, thisIndex, image, imageIndex, width); break;
+                    case FLOAT : blendFloatRow (graphicsImage, thisIndex, image, imageIndex, width); break;
+                    case INT   : blendIntRow   (graphicsImage, thisIndex, image, imageIndex, width); break;
+                    default    : break;
+                }
+
+                continue;
+            }
+
+            final int imageLineEndIndex = imageIndex + width;
+
+            //One loop per depth format of the image, so the depth format is not checked per pixel
+            switch (image.depthFormat)
+            {
+                case DOUBLE:
+                    for (; imageIndex < imageLineEndIndex; thisIndex++, imageIndex++)
+                        graphicsImage.blendStoredPixel(thisIndex, image.zBuffer[imageIndex], graphicsImage.toStoredColor(image, image.colorBuffer[imageIndex]));
+                    break;
+                case FLOAT:
+                    for (; imageIndex < imageLineEndIndex; thisIndex++, imageIndex++)
+                        graphicsImage.blendStoredPixel(thisIndex, DepthFormat.fromFloat(image.floatZBuffer[imageIndex]), graphicsImage.toStoredColor(image, image.colorBuffer[imageIndex]));
+                    break;
+                case INT:
+                    for (; imageIndex < imageLineEndIndex; thisIndex++, imageIndex++)
+                        graphicsImage.blendStoredPixel(thisIndex, DepthFormat.fromInt(image.intZBuffer[imageIndex]), graphicsImage.toStoredColor(image, image.colorBuffer[imageIndex]));
+                    break;
+                case NONE:
+                    for (; imageIndex < imageLineEndIndex; thisIndex++, imageIndex++)
+                        graphicsImage.blendStoredPixel(thisIndex, image.constantZ, graphicsImage.toStoredColor(image, image.colorBuffer[imageIndex]));
+                    break;
             }
         }
     }
+
+    //The row blends do the same as DrawableImage.blendStoredPixel for a source and a destination with the same depth format,
+    //including making the colors opaque on an opaque image
+
+    private static void blendDoubleRow(final DrawableImage graphicsImage, int thisIndex, final Image image, int imageIndex, final int width)
+    {
+        final int   [] colors      = graphicsImage.colorBuffer, imageColors = image.colorBuffer;
+        final double[] depths      = graphicsImage.zBuffer    , imageDepths = image.zBuffer    ;
+
+        final int alphaMask = graphicsImage.alphaMask;
+
+        for (final int end = imageIndex + width; imageIndex < end; thisIndex++, imageIndex++)
+        {
+            final double z = imageDepths[imageIndex];
+
+            final int color = graphicsImage.toStoredColor(image, imageColors[imageIndex]) | alphaMask;
+
+            if (z <= depths[thisIndex]) 
+            { 
+                depths[thisIndex] = z; 
+                colors[thisIndex] = graphicsImage.mixStoredColors(colors[thisIndex], color); 
+            }
+            else if (colors[thisIndex] >>> 24 != 0xff) colors[thisIndex] = graphicsImage.mixStoredColors(color, colors[thisIndex]);
+        }
+    }
+
+    private static void blendFloatRow(final DrawableImage graphicsImage, int thisIndex, final Image image, int imageIndex, final int width)
+    {
+        final int  [] colors      = graphicsImage.colorBuffer , imageColors = image.colorBuffer ;
+        final float[] depths      = graphicsImage.floatZBuffer, imageDepths = image.floatZBuffer;
+
+        final int alphaMask = graphicsImage.alphaMask;
+
+        for (final int end = imageIndex + width; imageIndex < end; thisIndex++, imageIndex++)
+        {
+            final float z = imageDepths[imageIndex];
+
+            final int color = graphicsImage.toStoredColor(image, imageColors[imageIndex]) | alphaMask;
+
+            if (z <= depths[thisIndex]) 
+            { 
+                depths[thisIndex] = z; 
+                colors[thisIndex] = graphicsImage.mixStoredColors(colors[thisIndex], color); 
+            }
+            else if (colors[thisIndex] >>> 24 != 0xff) colors[thisIndex] = graphicsImage.mixStoredColors(color, colors[thisIndex]);
+        }
+    }
+
+    private static void blendIntRow(final DrawableImage graphicsImage, int thisIndex, final Image image, int imageIndex, final int width)
+    {
+        final int[] colors      = graphicsImage.colorBuffer, imageColors = image.colorBuffer;
+        final int[] depths      = graphicsImage.intZBuffer , imageDepths = image.intZBuffer ;
+
+        final int alphaMask = graphicsImage.alphaMask;
+
+        for (final int end = imageIndex + width; imageIndex < end; thisIndex++, imageIndex++)
+        {
+            final int z = imageDepths[imageIndex];
+
+            final int color = graphicsImage.toStoredColor(image, imageColors[imageIndex]) | alphaMask;
+
+            if (z <= depths[thisIndex]) 
+            { 
+                depths[thisIndex] = z; 
+                colors[thisIndex] = graphicsImage.mixStoredColors(colors[thisIndex], color); 
+            }
+            else if (colors[thisIndex] >>> 24 != 0xff) colors[thisIndex] = graphicsImage.mixStoredColors(color, colors[thisIndex]);
+        }
+    }
+
+    /**
+     * Copies a row onto an opaque image without depth buffer, the pixels get made opaque as they would by blending them.
+     */
+    private static void copyRow(final DrawableImage graphicsImage, final int thisIndex, final Image image, final int imageIndex, final int width)
+    {
+        final int[] colors = graphicsImage.colorBuffer, imageColors = image.colorBuffer;
+
+        final int alphaMask = graphicsImage.alphaMask;
+
+        //an opaque color is the same premultiplied or not, only premultiplied colors that are not opaque have to be converted back
+        if (image.premultiplied && !graphicsImage.premultiplied)
+        {
+            for (int i = 0; i < width; i++) colors[thisIndex + i] = Color.unpremultiply(imageColors[imageIndex + i]) | alphaMask;
+
+            return;
+        }
+
+        for (int i = 0; i < width; i++) colors[thisIndex + i] = imageColors[imageIndex + i] | alphaMask;
+    }
+
+    /**
+     * Blends a row onto an image without depth buffer. Runs of opaque pixels get copied as a whole 
+     * and runs of fully transparent pixels get skipped, as blending them would not change anything.
+     */
+    private static void blendRow(final DrawableImage graphicsImage, int thisIndex, final Image image, int imageIndex, final int width)
+    {
+        final int[] colors = graphicsImage.colorBuffer, imageColors = image.colorBuffer;
+
+        final int end = imageIndex + width;
+
+        while (imageIndex < end)
+        {
+            final int alpha = imageColors[imageIndex] >>> 24;
+
+            if (alpha != 0xff && alpha != 0) 
+            { 
+                colors[thisIndex] = graphicsImage.mixStoredColors(colors[thisIndex], graphicsImage.toStoredColor(image, imageColors[imageIndex]));
+
+                thisIndex++; imageIndex++;
+
+                continue; 
+            }
+
+            int runEnd = imageIndex + 1;
+
+            while (runEnd < end && imageColors[runEnd] >>> 24 == alpha) runEnd++;
+
+            if (alpha == 0xff) System.arraycopy(imageColors, imageIndex, colors, thisIndex, runEnd - imageIndex);
+
+            thisIndex += runEnd - imageIndex;
+            imageIndex = runEnd;
+        }
+    }
+
+    /**
+     * @return the smallest depth of the image in the area from (x0, y0) inclusive to (x1, y1) exclusive
+     */
+    private static double minZ(final Image image, final int x0, final int y0, final int x1, final int y1)
+    {
+        if (image.depthFormat == DepthFormat.NONE) return image.constantZ;
+
+        double minZ = Double.POSITIVE_INFINITY;
+
+        for (int y = y0; y < y1; y++)
+        for (int index = x0 + y * image.width(), end = x1 + y * image.width(); index < end; index++)
+        {
+            final double z = image.getZ(index);
+
+            if (z < minZ) minZ = z;
+        }
+
+        return minZ;
+    }
 }
@@ -1,13 +1,11 @@
 package engine.graphics;
 
-import engine.math.FinalVector;
 import engine.math.Matrix;
-import engine.math.Vector;
 import engine.math.Vector4;
+import engine.threed.IndexedMesh;
 import engine.threed.Mesh;
 import engine.threed.Triangle;
 import engine.threed.Vertex;
-import engine.utils.ArrayUtils;
 
 import static engine.utils.MathUtils.*;
 
@@ -22,6 +20,16 @@ import static engine.utils.MathUtils.*;
 final class ImageAlgorithms3D 
 {
     ImageAlgorithms3D() { }
+
+    // layout of a vertex in a vertex array: the screen position, the depth and the texture coordinate (u / w, v / w, 1 / w)
+    static final int X = 0;
+    static final int Y = 1;
+    static final int Z = 2;
+    static final int U = 3;
+    static final int V = 4;
+    static final int W = 5;
+
+    static final int STRIDE = 6;
     
     static void line(final DrawableImage image, 
         final Vertex a, final Vertex b, final Image texture)
@@ -56,11 +64,16 @@ final class ImageAlgorithms3D
         double v_slope = (b.texture.y - a.texture.y) * inversedLongerSideLength;
         double w_slope = (b.texture.z - a.texture.z) * inversedLongerSideLength;
 
+        final int endX = (int) b.x;
+        final int endY = (int) b.y;
+
+        image.invalidateArea(Math.min(x, endX), Math.min(y, endY), Math.max(x, endX), Math.max(y, endY));
+
         while (true)
         {
-            image.drawPixel(x, y, z, texture.getPixel(u, v, w));
+            image.drawPrimitivePixel(x, y, z, texture.getPixel(u, v, w));
 
-            if (x == (int)b.x && y == (int)b.y) break;
+            if (x == endX && y == endY) break;
 
             e2 = 2 * err;
 
@@ -75,475 +88,343 @@ final class ImageAlgorithms3D
         }
     }
 
-    static void triangleUnchecked(final DrawableImage image,
-        final Triangle triangle, final Image texture)
+    /**
+     * Copies the vertex of a {@link Triangle} into a vertex array, the texture coordinate of the vertex is (u / w, v / w, 1 / w).
+     */
+    static void writeVertex(final double[] vertices, final int offset, final Vertex vertex)
     {
-        Vertex a = triangle.a; Vertex b = triangle.b; Vertex c = triangle.c;
-
-        if      (b.y == c.y) fillBottomFlatTriangle(image, a, b, c, texture);
-        else if (a.y == b.y) fillTopFlatTriangle   (image, a, b, c, texture);
-        else                 fillNoneFlatTriangle  (image, a, b, c, texture);
+        vertices[offset + X] = vertex.x;
+        vertices[offset + Y] = vertex.y;
+        vertices[offset + Z] = vertex.z;
+        vertices[offset + U] = vertex.texture.x;
+        vertices[offset + V] = vertex.texture.y;
+        vertices[offset + W] = vertex.texture.z;
     }
 
     static void triangle(final DrawableImage image, 
-        final Triangle triangle, final Image texture)
+        final Triangle triangle, final Image texture, final Rasterizer rasterizer)
     {
-        triangleUnchecked(image, triangle.sortedForY(), texture);
+        final double[] vertices = image.triangleVertices;
+
+        writeVertex(vertices, 0         , triangle.a);
+        writeVertex(vertices, STRIDE    , triangle.b);
+        writeVertex(vertices, STRIDE * 2, triangle.c);
+
+        triangle(image, vertices, 0, STRIDE, STRIDE * 2, texture, rasterizer);
     }
 
-    static void fillNoneFlatTriangle(final DrawableImage image, 
-        final Vertex a, final Vertex b, final Vertex c, final Image texture)
+    static void triangle(final DrawableImage image, 
+        final double[] vertices, final int a, final int b, final int c, final Image texture, final Rasterizer rasterizer)
     {
-        final double slope = (b.y - a.y) / (c.y - a.y);
+        final HierarchicalZ hierarchicalZ = image.hierarchicalZ;
 
-        final double dcax = (c.x - a.x);
-        final double dcay = (c.y - a.y);
+        //area the triangle might touch, the rasterizers truncate, one pixel of padding keeps it conservative
+        final int x0 = Math.max(image.clipX0    , floor(Math.min(vertices[a + X], Math.min(vertices[b + X], vertices[c + X]))) - 1);
+        final int y0 = Math.max(image.clipY0    , floor(Math.min(vertices[a + Y], Math.min(vertices[b + Y], vertices[c + Y]))) - 1);
+        final int x1 = Math.min(image.clipX1 - 1, floor(Math.max(vertices[a + X], Math.max(vertices[b + X], vertices[c + X]))) + 1);
+        final int y1 = Math.min(image.clipY1 - 1, floor(Math.max(vertices[a + Y], Math.max(vertices[b + Y], vertices[c + Y]))) + 1);
 
-        final double x = a.x + (slope * dcax);
-        final double y = b.y;
+        if (hierarchicalZ != null)
+        {
+            if (x0 > x1 || y0 > y1) return;
 
-        final double dl = sqrt(dcax * dcax + dcay * dcay);
-        final double dp = sqrt((x - a.x) * (x - a.x) + (y - a.y) * (y - a.y));
+            //depth is linear in screen space, the nearest point of the triangle is one of its vertices
+            final double minZ = Math.min(vertices[a + Z], Math.min(vertices[b + Z], vertices[c + Z]));
 
-        final double t = dp / dl;
+            if (hierarchicalZ.isOccluded(x0, y0, x1, y1, minZ)) return;
+        }
 
-        Vertex d = new Vertex
-        (
-            fvec(
-                a.x + (slope * dcax),
-                b.y,
-                lerp(a.z, c.z, t),
-                lerp(a.w, c.w, t)
-            ),
-            lerp(a.texture, c.texture, t),
-            lerp(a.normal , c.normal , t)
-        );
+        switch (rasterizer)
+        {
+            case SCANLINE     : scanlineTriangle               (image, vertices, a, b, c, texture); break;
+            case EDGE_FUNCTION: EdgeFunctionRasterizer.triangle(image, vertices, a, b, c, texture); break;
+        }
 
-        fillBottomFlatTriangle(image, a, b, d, texture);
-        fillTopFlatTriangle   (image, b, d, c, texture);
+        if (hierarchicalZ != null) hierarchicalZ.invalidate(x0, y0, x1, y1);
     }
 
-    static void fillBottomFlatTriangle(final DrawableImage image, 
-        final Vertex a, final Vertex b, final Vertex c, final Image texture)
+    /**
+     * Rasterizes the triangle whose vertices start at the offsets a, b and c of the vertex array. <p>
+     * 
+     * The vertices are copied sorted by y into the raster buffer of the image, 
+     * so the vertex array is not changed and may be the buffer of the caller.
+     */
+    static void scanlineTriangle(final DrawableImage image, 
+        final double[] vertices, int a, int b, int c, final Image texture)
     {
-        double ay = floor(a.y);
-        double by = floor(b.y);
-        double cy = floor(c.y);
+        int swap;
 
-        double x1 = a.x;
-        double x2 = a.x;
+        if (vertices[b + Y] < vertices[a + Y]) { swap = a; a = b; b = swap; }
+        if (vertices[c + Y] < vertices[a + Y]) { swap = a; a = c; c = swap; }
+        if (vertices[c + Y] < vertices[b + Y]) { swap = b; b = c; c = swap; }
 
-        double z1 = a.z;
-        double z2 = a.z;
+        final double[] r = image.rasterVertices;
 
-        double w1 = a.w;
-        double w2 = a.w;
+        System.arraycopy(vertices, a, r, 0         , STRIDE);
+        System.arraycopy(vertices, b, r, STRIDE    , STRIDE);
+        System.arraycopy(vertices, c, r, STRIDE * 2, STRIDE);
 
-        double u1 = a.texture.x;
-        double v1 = a.texture.y;
-        double tw1 = a.texture.z;
+        if (texture instanceof Texture) textureGradients(image.textureGradients, r, 0, STRIDE, STRIDE * 2);
 
-        double u2 = a.texture.x;
-        double v2 = a.texture.y;
-        double tw2 = a.texture.z;
+        if      (r[STRIDE + Y] == r[STRIDE * 2 + Y]) fillBottomFlatTriangle(image, r, 0, STRIDE, STRIDE * 2, texture);
+        else if (r[         Y] == r[STRIDE     + Y]) fillTopFlatTriangle   (image, r, 0, STRIDE, STRIDE * 2, texture);
+        else                                         fillNoneFlatTriangle  (image, r, 0, STRIDE, STRIDE * 2, texture);
+    }
 
-        double nx1 = a.normal.x;
-        double ny1 = a.normal.y;
-        double nz1 = a.normal.z;
+    /**
+     * Splits the triangle at the height of b into a bottom and a top flat triangle,
+     * the fourth vertex d is written behind c, which is why the raster buffer has room for four vertices.
+     */
+    static void fillNoneFlatTriangle(final DrawableImage image, 
+        final double[] r, final int a, final int b, final int c, final Image texture)
+    {
+        final int d = STRIDE * 3;
+
+        final double t = (r[b + Y] - r[a + Y]) / (r[c + Y] - r[a + Y]);
+
+        for (int i = 0; i < STRIDE; i++)
+            r[d + i] = r[a + i] + (r[c + i] - r[a + i]) * t;
+
+        r[d + Y] = r[b + Y];
+
+        fillBottomFlatTriangle(image, r, a, b, d, texture);
+        fillTopFlatTriangle   (image, r, b, d, c, texture);
+    }
 
-        double nx2 = a.normal.x;
-        double ny2 = a.normal.y;
-        double nz2 = a.normal.z;
+    static void fillBottomFlatTriangle(final DrawableImage image, 
+        final double[] r, final int a, final int b, final int c, final Image texture)
+    {
+        double ay = floor(r[a + Y]);
+        double by = floor(r[b + Y]);
+        double cy = floor(r[c + Y]);
 
-        double invdy1 = 1 / (by - ay);
-        double invdy2 = 1 / (cy - ay);
+        //a degenerated edge has only one scanline, which must not be multiplied with an infinite slope
+        double invdy1 = by == ay ? 0 : 1 / (by - ay);
+        double invdy2 = cy == ay ? 0 : 1 / (cy - ay);
 
-        double x1_slope = (b.x - a.x) * invdy1;
-        double z1_slope = (b.z - a.z) * invdy1;
-        double w1_slope = (b.w - a.w) * invdy1;
+        double x1_slope = (r[b + X] - r[a + X]) * invdy1;
+        double z1_slope = (r[b + Z] - r[a + Z]) * invdy1;
 
-        double u1_slope = (b.texture.x - a.texture.x) * invdy1;
-        double v1_slope = (b.texture.y - a.texture.y) * invdy1;
-        double tw1_slope = (b.texture.z - a.texture.z) * invdy1;
+        double u1_slope  = (r[b + U] - r[a + U]) * invdy1;
+        double v1_slope  = (r[b + V] - r[a + V]) * invdy1;
+        double tw1_slope = (r[b + W] - r[a + W]) * invdy1;
 
-        double nx1_slope = (b.normal.x - a.normal.x) * invdy1;
-        double ny1_slope = (b.normal.y - a.normal.y) * invdy1;
-        double nz1_slope = (b.normal.z - a.normal.z) * invdy1;
+        double x2_slope = (r[c + X] - r[a + X]) * invdy2;
+        double z2_slope = (r[c + Z] - r[a + Z]) * invdy2;
 
-        double x2_slope = (c.x - a.x) * invdy2;
-        double z2_slope = (c.z - a.z) * invdy2;
-        double w2_slope = (c.w - a.w) * invdy2;
+        double u2_slope  = (r[c + U] - r[a + U]) * invdy2;
+        double v2_slope  = (r[c + V] - r[a + V]) * invdy2;
+        double tw2_slope = (r[c + W] - r[a + W]) * invdy2;
 
-        double u2_slope = (c.texture.x - a.texture.x) * invdy2;
-        double v2_slope = (c.texture.y - a.texture.y) * invdy2;
-        double tw2_slope = (c.texture.z - a.texture.z) * invdy2;
+        final double ax = r[a + X], az = r[a + Z], au = r[a + U], av = r[a + V], aw = r[a + W];
 
-        double nx2_slope = (c.normal.x - a.normal.x) * invdy2;
-        double ny2_slope = (c.normal.y - a.normal.y) * invdy2;
-        double nz2_slope = (c.normal.z - a.normal.z) * invdy2;
+        //Only the scanlines inside the clip rectangle are drawn, the attributes are calculated from the scanline index 
+        //instead of being accumulated, so every scanline is the same, no matter where drawing starts
+        final int firstY = (int) ay;
+        final int startY = Math.max(firstY, image.clipY0);
+        final int endY   = Math.min((int) by, image.clipY1 - 1);
 
-        for (int scanlineY = (int) ay; scanlineY <= by; scanlineY++)
+        for (int scanlineY = startY; scanlineY <= endY; scanlineY++)
         {
-            final Vertex vertex1 = new Vertex
-            (
-                fvec((int)x1, scanlineY, z1, w1),
-                fvec(u1, v1, tw1),
-                fvec(nx1, ny1, nz1)
-            );
+            final int k = scanlineY - firstY;
 
-            final Vertex vertex2 = new Vertex
-            (
-                fvec((int)x2, scanlineY, z2, w2),
-                fvec(u2, v2, tw2),
-                fvec(nx2, ny2, nz2)
+            span(image, scanlineY, 
+                (int) (ax + k * x1_slope), az + k * z1_slope, au + k * u1_slope, av + k * v1_slope, aw + k * tw1_slope,
+                (int) (ax + k * x2_slope), az + k * z2_slope, au + k * u2_slope, av + k * v2_slope, aw + k * tw2_slope,
+                texture
             );
-
-            line(image, vertex1, vertex2, texture);
-
-            x1 += x1_slope;
-            z1 += z1_slope;
-            w1 += w1_slope;
-
-            u1  += u1_slope;
-            v1  += v1_slope;
-            tw1 += tw1_slope;
-            
-            nx1 += nx1_slope;
-            ny1 += ny1_slope;
-            nz1 += nz1_slope;
-
-            x2 += x2_slope;
-            z2 += z2_slope;
-            w2 += w2_slope;
-
-            u2  += u2_slope;
-            v2  += v2_slope;
-            tw2 += tw2_slope;
-            
-            nx2 += nx2_slope;
-            ny2 += ny2_slope;
-            nz2 += nz2_slope;
         }
     }
 
     static void fillTopFlatTriangle(final DrawableImage image, 
-        final Vertex a, final Vertex b, final Vertex c, final Image texture)
+        final double[] r, final int a, final int b, final int c, final Image texture)
     {
-        double ay = floor(a.y);
-        double by = floor(b.y);
-        double cy = floor(c.y);
-
-        double x1 = c.x;
-        double x2 = c.x;
-
-        double z1 = c.z;
-        double z2 = c.z;
-
-        double w1 = c.w;
-        double w2 = c.w;
-
-        double u1 = c.texture.x;
-        double v1 = c.texture.y;
-        double tw1 = c.texture.z;
-
-        double u2 = c.texture.x;
-        double v2 = c.texture.y;
-        double tw2 = c.texture.z;
-
-        double nx1 = c.normal.x;
-        double ny1 = c.normal.y;
-        double nz1 = c.normal.z;
-
-        double nx2 = c.normal.x;
-        double ny2 = c.normal.y;
-        double nz2 = c.normal.z;
+        double ay = floor(r[a + Y]);
+        double by = floor(r[b + Y]);
+        double cy = floor(r[c + Y]);
 
-        double invdy1 = 1.0 / (cy - ay);
-        double invdy2 = 1.0 / (cy - by);
+        double invdy1 = cy == ay ? 0 : 1.0 / (cy - ay);
+        double invdy2 = cy == by ? 0 : 1.0 / (cy - by);
 
-        double x1_slope = (c.x - a.x) * invdy1;
-        double z1_slope = (c.z - a.z) * invdy1;
-        double w1_slope = (c.w - a.w) * invdy1;
+        double x1_slope = (r[c + X] - r[a + X]) * invdy1;
+        double z1_slope = (r[c + Z] - r[a + Z]) * invdy1;
         
-        double u1_slope  = (c.texture.x - a.texture.x) * invdy1;
-        double v1_slope  = (c.texture.y - a.texture.y) * invdy1;
-        double tw1_slope = (c.texture.z - a.texture.z) * invdy1;
+        double u1_slope  = (r[c + U] - r[a + U]) * invdy1;
+        double v1_slope  = (r[c + V] - r[a + V]) * invdy1;
+        double tw1_slope = (r[c + W] - r[a + W]) * invdy1;
 
-        double nx1_slope = (c.normal.x - a.normal.x) * invdy1;
-        double ny1_slope = (c.normal.y - a.normal.y) * invdy1;
-        double nz1_slope = (c.normal.z - a.normal.z) * invdy1;
+        double x2_slope = (r[c + X] - r[b + X]) * invdy2;
+        double z2_slope = (r[c + Z] - r[b + Z]) * invdy2;
 
-        double x2_slope = (c.x - b.x) * invdy2;
-        double z2_slope = (c.z - b.z) * invdy2;
-        double w2_slope = (c.w - b.w) * invdy2;
+        double u2_slope  = (r[c + U] - r[b + U]) * invdy2;
+        double v2_slope  = (r[c + V] - r[b + V]) * invdy2;
+        double tw2_slope = (r[c + W] - r[b + W]) * invdy2;
 
-        double u2_slope  = (c.texture.x - b.texture.x) * invdy2;
-        double v2_slope  = (c.texture.y - b.texture.y) * invdy2;
-        double tw2_slope = (c.texture.z - b.texture.z) * invdy2;
+        final double cx = r[c + X], cz = r[c + Z], cu = r[c + U], cv = r[c + V], cw = r[c + W];
 
-        double nx2_slope = (c.normal.x - b.normal.x) * invdy2;
-        double ny2_slope = (c.normal.y - b.normal.y) * invdy2;
-        double nz2_slope = (c.normal.z - b.normal.z) * invdy2;
+        //Same as in fillBottomFlatTriangle, but walking upwards from c
+        final int firstY = (int) cy;
+        final int startY = Math.min(firstY, image.clipY1 - 1);
+        final int endY   = Math.max((int) ay, image.clipY0 - 1);
 
-        for (int scanlineY = (int) cy; scanlineY > ay; scanlineY--)
+        for (int scanlineY = startY; scanlineY > endY; scanlineY--)
         {
-            final Vertex vertex1 = new Vertex
-            (
-                fvec((int)x1, scanlineY, z1, w1),
-                fvec(u1, v1, tw1),
-                fvec(nx1, ny1, nz1)
-            );
+            final int k = firstY - scanlineY;
 
-            final Vertex vertex2 = new Vertex
-            (
-                fvec((int)x2, scanlineY, z2, w2),
-                fvec(u2, v2, tw2),
-                fvec(nx2, ny2, nz2)
+            span(image, scanlineY, 
+                (int) (cx - k * x1_slope), cz - k * z1_slope, cu - k * u1_slope, cv - k * v1_slope, cw - k * tw1_slope,
+                (int) (cx - k * x2_slope), cz - k * z2_slope, cu - k * u2_slope, cv - k * v2_slope, cw - k * tw2_slope,
+                texture
             );
+        }
+    }
 
-            line(image, vertex1, vertex2, texture);
+    /**
+     * Draws a horizontal scanline from x1 to x2, both inclusive. y has to lie inside of the clip rectangle.
+     * The attributes are interpolated from the x1 to the x2 end in (|x2 - x1| + 1) steps, 
+     * like {@link #line(DrawableImage, Vertex, Vertex, Image)} would do.
+     */
+    static void span(final DrawableImage image, final int y,
+        final int x1, final double z1, final double u1, final double v1, final double w1,
+        final int x2, final double z2, final double u2, final double v2, final double w2,
+        final Image texture)
+    {
+        final double inversedLength = 1.0 / (abs(x2 - x1) + 1);
 
-            x1 -= x1_slope;
-            z1 -= z1_slope;
-            w1 -= w1_slope;
-            
-            u1 -= u1_slope;
-            v1 -= v1_slope;
-            tw1 -= tw1_slope;
+        final double z_slope = (z2 - z1) * inversedLength;
+        final double u_slope = (u2 - u1) * inversedLength;
+        final double v_slope = (v2 - v1) * inversedLength;
+        final double w_slope = (w2 - w1) * inversedLength;
 
-            nx1 -= nx1_slope;
-            ny1 -= ny1_slope;
-            nz1 -= nz1_slope;
+        final int sx = x1 < x2 ? 1 : -1;
 
-            x2 -= x2_slope;
-            z2 -= z2_slope;
-            w2 -= w2_slope;
+        final int startX = Math.max(Math.min(x1, x2), image.clipX0);
+        final int endX   = Math.min(Math.max(x1, x2), image.clipX1 - 1);
 
-            u2 -= u2_slope;
-            v2 -= v2_slope;
-            tw2 -= tw2_slope;
+        if (!(texture instanceof Texture))
+        {
+            for (int x = startX; x <= endX; x++)
+            {
+                final int i = (x - x1) * sx;
 
-            nx2 -= nx2_slope;
-            ny2 -= ny2_slope;
-            nz2 -= nz2_slope;
+                image.blendStoredPixel(x + y * image.width(), z1 + i * z_slope, image.toStoredColor(texture, texture.getPixel(u1 + i * u_slope, v1 + i * v_slope, w1 + i * w_slope)));
+            }
+
+            return;
         }
-    }
 
-    static Vector4 intersectPlane(Vector4 planePosition, Vector4 planeNormal, Vector4 lineStart, Vector4 lineEnd) 
-    { 
-        planeNormal = planeNormal.normalized(); 
+        final Texture  mipmapped = (Texture) texture;
+        final double[] g         = image.textureGradients;
 
-        double planeD = -planeNormal.dot(planePosition); 
+        final boolean nearest = mipmapped.filter  () == TextureFilter.NEAREST;
+        final boolean clamp   = mipmapped.wrapMode() == WrapMode.CLAMP;
 
-        double ad = lineStart.dot(planeNormal); 
-        double bd = lineEnd  .dot(planeNormal); 
+        //without perspective every block gets the same level, see EdgeFunctionRasterizer
+        final boolean oneLevel = (g[2] == 0 && g[5] == 0) || !mipmapped.isMipmapped() || mipmapped.levels() == 1;
 
-        double t = (-planeD - ad) / (bd - ad); 
+        final int rowIndex = y * image.width();
 
-        Vector4 lineStartToEnd  = lineEnd.minus(lineStart); 
-        Vector4 lineToIntersect = lineStartToEnd.times(t); 
+        //the scanline is split into the blocks of Texture.LEVEL_BLOCK pixels that share a level
+        for (int x = startX; x <= endX; )
+        {
+            final int to     = oneLevel ? endX : Math.min(endX, x | Texture.LEVEL_BLOCK_MASK);
+            final int center = ((x & ~Texture.LEVEL_BLOCK_MASK) + Texture.LEVEL_BLOCK / 2 - x1) * sx;
 
-        return lineStart.plus(lineToIntersect); 
-    }
+            final int level = mipmapped.level(u1 + center * u_slope, v1 + center * v_slope, w1 + center * w_slope, g[0], g[1], g[2], g[3], g[4], g[5]);
 
-    static double dist(Vector4 p, Vector4 planePosition, Vector4 planeNormal) 
-    { 
-        return planeNormal.dot(p.minus(planePosition)); 
-    }
-    
-    static Triangle[] clipAgainstPlane(Vector4 planePosition, Vector4 planeNormal, Triangle triangle) 
-    { 
-		planeNormal = planeNormal.normalized();
-
-		Vertex[] inside_points  = new Vertex[3]; int nInsidePointCount = 0;
-		Vertex[] outside_points = new Vertex[3]; int nOutsidePointCount = 0;
-
-		double d0 = dist(triangle.a, planePosition, planeNormal);
-		double d1 = dist(triangle.b, planePosition, planeNormal);
-		double d2 = dist(triangle.c, planePosition, planeNormal);
-
-		if (d0 >= 0) inside_points [nInsidePointCount ++] = triangle.a;
-		else         outside_points[nOutsidePointCount++] = triangle.a;
-
-		if (d1 >= 0) inside_points [nInsidePointCount ++] = triangle.b;
-		else         outside_points[nOutsidePointCount++] = triangle.b;
-
-		if (d2 >= 0) inside_points [nInsidePointCount ++] = triangle.c;
-		else         outside_points[nOutsidePointCount++] = triangle.c;
-
-		if (nInsidePointCount == 0) return new Triangle[] { }; 
-		if (nInsidePointCount == 3) return new Triangle[] { triangle };
-
-		if (nInsidePointCount == 1 && nOutsidePointCount == 2)
-		{
-            double t = (planePosition.minus(inside_points[0])).dot(planeNormal) / (outside_points[0].minus(inside_points[0])).dot(planeNormal);
-
-            Vector4 intersection1 = intersectPlane(planePosition, planeNormal, inside_points[0], outside_points[0]);
-            Vector4 intersection2 = intersectPlane(planePosition, planeNormal, inside_points[0], outside_points[0]);
-            
-            Triangle newTriangle = new Triangle(
-                inside_points[0],
-                new Vertex
-                (
-                    intersection1,
-                    Vector.lerp(inside_points[0].texture, outside_points[0].texture, t),
-                    Vector.lerp(inside_points[0].texture, outside_points[0].texture, t)
-                ),
-                new Vertex
-                (
-                    intersection2,
-                    Vector.lerp(inside_points[0].texture, outside_points[1].texture, t),
-                    Vector.lerp(inside_points[0].texture, outside_points[1].texture, t)
-                )
-            );
+            final int[] texels = mipmapped.levelTexels(level);
+            final int   w      = mipmapped.levelWidth (level), h = mipmapped.levelHeight(level);
 
-			return new Triangle[] { newTriangle };
-		}
-
-		if (nInsidePointCount == 2 && nOutsidePointCount == 1)
-		{
-            double t = (planePosition.minus(inside_points[0])).dot(planeNormal) / (outside_points[0].minus(inside_points[0])).dot(planeNormal);
-
-            Triangle a = new Triangle(
-                inside_points[0],
-                inside_points[1],
-                new Vertex(
-                    intersectPlane(planePosition, planeNormal, inside_points[0], outside_points[0]),
-                    Vector.lerp(inside_points[0].texture, outside_points[0].texture, t),
-                    Vector.lerp(inside_points[0].texture, outside_points[0].texture, t)
-                )
-            );
+            //the nearest texels are read directly like in EdgeFunctionRasterizer
+            if (nearest && clamp)
+            {
+                for (; x <= to; x++)
+                {
+                    final int i = (x - x1) * sx;
 
-            Triangle b = new Triangle(
-                inside_points[1],
-                a.b,
-                new Vertex(
-                    intersectPlane(planePosition, planeNormal, inside_points[1], outside_points[0]),
-                    Vector.lerp(inside_points[1].texture, outside_points[0].texture, t),
-                    Vector.lerp(inside_points[1].texture, outside_points[0].texture, t)
-                )
-            );
+                    final double pixelW = w1 + i * w_slope;
+                    final double tx     = (u1 + i * u_slope) / pixelW * w, ty = (1 - (v1 + i * v_slope) / pixelW) * h;
 
-			return new Triangle[] { a, b };
-		}
+                    final int texel = texels[(tx <= 0 ? 0 : tx >= w ? w - 1 : (int) tx) + (ty <= 0 ? 0 : ty >= h ? h - 1 : (int) ty) * w];
 
-        return new Triangle[] { };
-    }
+                    image.blendStoredPixel(x + rowIndex, z1 + i * z_slope, image.toStoredColor(texture, texel));
+                }
 
-    static void mesh(final DrawableImage image, final Mesh mesh, final Matrix transform, final Matrix projection, final Matrix view, final Vector4 cameraPosition, final Image texture)
-    {
-        Triangle[] triangles = new Triangle[0];
+                continue;
+            }
 
-        for (int i = 0; i < mesh.triangles.length; i++)
-        {
-            final Triangle triangle = mesh.triangles[i];
+            if (nearest && (w & (w - 1)) == 0 && (h & (h - 1)) == 0)
+            {
+                for (; x <= to; x++)
+                {
+                    final int i = (x - x1) * sx;
 
-            Triangle transformedTriangle = triangle.transformed(transform);
+                    final double pixelW = w1 + i * w_slope;
+                    final double tx     = (u1 + i * u_slope) / pixelW * w, ty = (1 - (v1 + i * v_slope) / pixelW) * h;
 
-            Vector4 line1 = transformedTriangle.b.minus(transformedTriangle.a);
-            Vector4 line2 = transformedTriangle.c.minus(transformedTriangle.a);
+                    final int texel = texels[(Texture.floor(tx) & (w - 1)) + (Texture.floor(ty) & (h - 1)) * w];
 
-            Vector4 normal = line1.cross(line2).normalized();
+                    image.blendStoredPixel(x + rowIndex, z1 + i * z_slope, image.toStoredColor(texture, texel));
+                }
 
-            Vector4 cameraRay = transformedTriangle.a.minus(cameraPosition);
+                continue;
+            }
 
-            if (normal.dot(cameraRay) < 0.0)
+            for (; x <= to; x++)
             {
-                Triangle viewTriangle = transformedTriangle.transformed(view);
+                final int i = (x - x1) * sx;
 
-                Triangle[] clippedTriangles = clipAgainstPlane(vec(0, 0, 0.1), vec(0, 0, 1), viewTriangle);
-
-                for (int j = 0; j < clippedTriangles.length; j++)
-                {
-                    Triangle projectedTriangle = clippedTriangles[j].transformed(projection);
-
-                    final Vector4 offsetView = vec(1, 1);
-
-                    Vertex a = new Vertex
-                    (
-                        projectedTriangle.a.dividedBy(projectedTriangle.a.w).times(-1, -1).add(offsetView).times(0.5 * image.width(), 0.5 * image.height()),
-                        new FinalVector
-                        (
-                            projectedTriangle.a.texture.x / projectedTriangle.a.w,
-                            projectedTriangle.a.texture.y / projectedTriangle.a.w,
-                            1 / projectedTriangle.a.w
-                        ),
-                        projectedTriangle.a.normal
-                    );
-
-                    Vertex b = new Vertex
-                    (
-                        projectedTriangle.b.dividedBy(projectedTriangle.b.w).times(-1, -1).add(offsetView).times(0.5 * image.width(), 0.5 * image.height()),
-                        new FinalVector
-                        (
-                            projectedTriangle.b.texture.x / projectedTriangle.b.w,
-                            projectedTriangle.b.texture.y / projectedTriangle.b.w,
-                            1 / projectedTriangle.b.w
-                        ),
-                        projectedTriangle.b.normal
-                    );
-
-                    Vertex c = new Vertex
-                    (
-                        projectedTriangle.c.dividedBy(projectedTriangle.c.w).times(-1, -1).add(offsetView).times(0.5 * image.width(), 0.5 * image.height()),
-                        new FinalVector
-                        (
-                            projectedTriangle.c.texture.x / projectedTriangle.c.w,
-                            projectedTriangle.c.texture.y / projectedTriangle.c.w,
-                            1 / projectedTriangle.c.w
-                        ),
-                        projectedTriangle.c.normal
-                    );
-
-                    triangles = ArrayUtils.push(triangles, new Triangle(a, b, c));
-                }
+                image.blendStoredPixel(x + y * image.width(), z1 + i * z_slope, image.toStoredColor(texture, mipmapped.sample(u1 + i * u_slope, v1 + i * v_slope, w1 + i * w_slope, level)));
             }
         }
+    }
 
-        final Vector4[] clipPlanes = new Vector4[]
-        {
-            vec(0, 0, 0),
-            vec(0, image.height() - 1, 1000),
-            vec(0, 0, 0),
-            vec(image.width() - 1, 0, 1)
-        };
-
-        final Vector4[] clipNormals = new Vector4[]
-        {
-            vec(0, 1, 0),
-            vec(0, -1, 0),
-            vec(1, 0, 0),
-            vec(-1, 0, 0)
-        };
-
-        Triangle[] clippedTriangles = new Triangle[0];
+    /**
+     * Writes the gradients of u, v and w of the triangle in x and then in y direction into the array,
+     * a {@link Texture} chooses its mip level from them. A degenerated triangle has no gradients.
+     */
+    static void textureGradients(final double[] gradients, final double[] vertices, final int a, final int b, final int c)
+    {
+        final double ex1 = vertices[b + X] - vertices[a + X], ey1 = vertices[b + Y] - vertices[a + Y];
+        final double ex2 = vertices[c + X] - vertices[a + X], ey2 = vertices[c + Y] - vertices[a + Y];
 
-        for (int i = 0; i < triangles.length; i++)
-        {
-            Triangle triangle = triangles[i];
+        final double determinant = ex1 * ey2 - ex2 * ey1;
 
-            Triangle[] clipped = new Triangle[] { triangle };
+        final double inversedDeterminant = determinant == 0 ? 0 : 1 / determinant;
 
-            for (int j = 0; j < clipPlanes.length; j++)
-            {
-                Triangle[] newTriangles = new Triangle[0];
-
-                for (int k = 0; k < clipped.length; k++)
-                {
-                    Triangle[] clippedTriangle = clipAgainstPlane(clipPlanes[j], clipNormals[j], clipped[k]);
+        gradients[0] = gradientX(vertices, a, b, c, U, ey1, ey2, inversedDeterminant);
+        gradients[1] = gradientX(vertices, a, b, c, V, ey1, ey2, inversedDeterminant);
+        gradients[2] = gradientX(vertices, a, b, c, W, ey1, ey2, inversedDeterminant);
+        gradients[3] = gradientY(vertices, a, b, c, U, ex1, ex2, inversedDeterminant);
+        gradients[4] = gradientY(vertices, a, b, c, V, ex1, ex2, inversedDeterminant);
+        gradients[5] = gradientY(vertices, a, b, c, W, ex1, ex2, inversedDeterminant);
+    }
 
-                    newTriangles = ArrayUtils.push(newTriangles, clippedTriangle);
-                }
+    /**
+     * @return how much the attribute changes per pixel in x direction, ex and ey are the edges from a to b and from a to c
+     */
+    static double gradientX(final double[] vertices, final int a, final int b, final int c, final int attribute,
+        final double ey1, final double ey2, final double inversedDeterminant)
+    {
+        return ((vertices[b + attribute] - vertices[a + attribute]) * ey2 - (vertices[c + attribute] - vertices[a + attribute]) * ey1) * inversedDeterminant;
+    }
 
-                clipped = newTriangles;
-            }
+    /**
+     * @return how much the attribute changes per pixel in y direction, ex and ey are the edges from a to b and from a to c
+     */
+    static double gradientY(final double[] vertices, final int a, final int b, final int c, final int attribute,
+        final double ex1, final double ex2, final double inversedDeterminant)
+    {
+        return ((vertices[c + attribute] - vertices[a + attribute]) * ex1 - (vertices[b + attribute] - vertices[a + attribute]) * ex2) * inversedDeterminant;
+    }
 
-            clippedTriangles = ArrayUtils.push(clippedTriangles, clipped);
-        }
+    static void mesh(final DrawableImage image, final Mesh mesh, final Matrix transform, final Matrix projection, final Matrix view, final Vector4 cameraPosition, final Image texture)
+    {
+        image.meshPipeline().mesh(image, mesh, transform, projection, view, cameraPosition, texture);
+    }
 
-        for (int i = 0; i < clippedTriangles.length; i++)
-        {
-            triangle(image, clippedTriangles[i], texture);
-        }
+    static void mesh(final DrawableImage image, final IndexedMesh mesh, final Matrix transform, final Matrix projection, final Matrix view, final Vector4 cameraPosition, final Image texture)
+    {
+        image.meshPipeline().mesh(image, mesh, transform, projection, view, cameraPosition, texture);
     }
 }
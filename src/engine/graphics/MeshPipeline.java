@@ -0,0 +1,337 @@
+package engine.graphics;
+
+import engine.math.Matrix;
+import engine.math.Vector4;
+import engine.threed.Bounds;
+import engine.threed.Frustum;
+import engine.threed.IndexedMesh;
+import engine.threed.Mesh;
+import engine.threed.Triangle;
+import engine.threed.Vertex;
+
+import static engine.graphics.ImageAlgorithms3D.*;
+
+/**
+ * The vertex pipeline behind {@link ImageAlgorithms3D#mesh}. <p>
+ *
+ * Meshes and clusters of their triangles whose bounds are outside of the view {@link Frustum} are skipped before any vertex is transformed,
+ * the numbers of drawn and skipped meshes and clusters are counted, see {@link DrawableImage#meshesDrawn()}.
+ * Without frustum culling every cluster is drawn, see {@link DrawableImage#setFrustumCulling(boolean)}.
+ * The other vertices are transformed into primitive scratch buffers, one per component, as a batch, see {@link Matrix#transformPoints}.
+ * Triangles are culled in world space,
+ * clipped as polygons against the near plane and the borders of the image and handed to the rasterizer as array offsets.
+ * The buffers only grow, so once they are big enough drawing a mesh does not create a single object. <p>
+ *
+ * A {@link Mesh} is copied into the same buffers an {@link IndexedMesh} uses, with every corner being its own vertex. <p>
+ *
+ * Every {@link DrawableImage} owns its own pipeline. <p>
+ *
+ * @author NextLegacy
+ */
+final class MeshPipeline
+{
+    private static final double NEAR_PLANE = 0.1;
+
+    // a triangle clipped against 5 planes has at most 8 corners
+    private static final int MAX_POLYGON_VERTICES = 8;
+
+    // the vertices of the mesh, in world and in view space, one buffer per component
+    private double[] x      = new double[0], y      = new double[0], z      = new double[0], w      = new double[0];
+    private double[] worldX = new double[0], worldY = new double[0], worldZ = new double[0], worldW = new double[0];
+    private double[] viewX  = new double[0], viewY  = new double[0], viewZ  = new double[0], viewW  = new double[0];
+
+    // uvs and indices of a Mesh, the index of corner i is always i
+    private double[] meshUvs     = new double[0];
+    private int   [] meshIndices = new int   [0];
+
+    // the polygon that gets clipped, ping-pong between the two buffers, layout see ImageAlgorithms3D
+    private double[] polygon = new double[MAX_POLYGON_VERTICES * STRIDE];
+    private double[] clipped = new double[MAX_POLYGON_VERTICES * STRIDE];
+
+    // x, y, z, w of the vertex that is being projected
+    private final double[] projected = new double[4];
+
+    private final Frustum frustum   = new Frustum();
+    private final Matrix  modelView = new Matrix ();
+
+    // the clusters of the current mesh that intersect the frustum
+    private int[] visibleClusters = new int[0];
+
+    long meshesDrawn   , meshesCulled  ;
+    long clustersDrawn , clustersCulled;
+
+    boolean isFrustumCulling = true;
+
+    void mesh(final DrawableImage image, final IndexedMesh mesh, final Matrix transform, final Matrix projection, final Matrix viewMatrix, final Vector4 cameraPosition, final Image texture)
+    {
+        int visible = 0;
+
+        if (intersectsFrustum(mesh.bounds, mesh.clusterCount(), transform, projection, viewMatrix))
+            for (int cluster = 0; cluster < mesh.clusterCount(); cluster++)
+                if (!isFrustumCulling || frustum.intersects(mesh.clusterBounds(cluster)))
+                    visibleClusters[visible++] = cluster;
+
+        count(visible, mesh.clusterCount());
+
+        if (visible == 0) return;
+
+        // only the vertices from the lowest to the highest one the visible clusters use get transformed
+        int lowest = Integer.MAX_VALUE, highest = 0;
+
+        for (int i = 0; i < visible; i++)
+        {
+            lowest  = Math.min(lowest , mesh.clusterLowestVertex (visibleClusters[i]));
+            highest = Math.max(highest, mesh.clusterHighestVertex(visibleClusters[i]));
+        }
+
+        final int vertexCount = highest - lowest + 1;
+
+        ensureVertexCapacity(vertexCount);
+
+        final double[] positions = mesh.positions;
+
+        for (int i = 0; i < vertexCount; i++)
+        {
+            x[i] = positions[(lowest + i) * 3    ];
+            y[i] = positions[(lowest + i) * 3 + 1];
+            z[i] = positions[(lowest + i) * 3 + 2];
+        }
+
+        transform .transformPoints(x     , y     , z     ,         worldX, worldY, worldZ, worldW, vertexCount);
+        viewMatrix.transform      (worldX, worldY, worldZ, worldW, viewX , viewY , viewZ , viewW , vertexCount);
+
+        for (int i = 0; i < visible; i++)
+        {
+            final int from = visibleClusters[i] * IndexedMesh.CLUSTER_SIZE * 3;
+            final int to   = Math.min(from + IndexedMesh.CLUSTER_SIZE * 3, mesh.indices.length);
+
+            triangles(image, mesh.indices, from, to, lowest, mesh.uvs, projection, cameraPosition, texture);
+        }
+    }
+
+    void mesh(final DrawableImage image, final Mesh mesh, final Matrix transform, final Matrix projection, final Matrix viewMatrix, final Vector4 cameraPosition, final Image texture)
+    {
+        int visible = 0;
+
+        if (intersectsFrustum(mesh.bounds, mesh.clusterCount(), transform, projection, viewMatrix))
+            for (int cluster = 0; cluster < mesh.clusterCount(); cluster++)
+                if (!isFrustumCulling || frustum.intersects(mesh.clusterBounds(cluster)))
+                    visibleClusters[visible++] = cluster;
+
+        count(visible, mesh.clusterCount());
+
+        if (visible == 0) return;
+
+        final Triangle[] triangles = mesh.triangles;
+
+        ensureVertexCapacity(triangles.length * 3);
+
+        if (meshUvs.length < triangles.length * 3 * 2)
+        {
+            meshUvs     = new double[x.length * 2];
+            meshIndices = new int   [x.length    ];
+
+            for (int i = 0; i < meshIndices.length; i++) meshIndices[i] = i;
+        }
+
+        // the triangles of the visible clusters are copied one after another
+        int vertexCount = 0;
+
+        for (int i = 0; i < visible; i++)
+        {
+            final int from = visibleClusters[i] * IndexedMesh.CLUSTER_SIZE;
+            final int to   = Math.min(from + IndexedMesh.CLUSTER_SIZE, triangles.length);
+
+            for (int t = from; t < to; t++)
+            {
+                meshVertex(vertexCount++, triangles[t].a);
+                meshVertex(vertexCount++, triangles[t].b);
+                meshVertex(vertexCount++, triangles[t].c);
+            }
+        }
+
+        transform .transform(x     , y     , z     , w     , worldX, worldY, worldZ, worldW, vertexCount);
+        viewMatrix.transform(worldX, worldY, worldZ, worldW, viewX , viewY , viewZ , viewW , vertexCount);
+
+        triangles(image, meshIndices, 0, vertexCount, 0, meshUvs, projection, cameraPosition, texture);
+    }
+
+    /**
+     * Sets the frustum to the one in the space of the mesh and tests the bounds of the whole mesh against it, 
+     * makes room for the clusters that intersect it. Without frustum culling every mesh intersects it.
+     */
+    private boolean intersectsFrustum(final Bounds bounds, final int clusterCount, final Matrix transform, final Matrix projection, final Matrix viewMatrix)
+    {
+        if (visibleClusters.length < clusterCount) visibleClusters = new int[clusterCount];
+
+        if (!isFrustumCulling) return true;
+
+        frustum.set(transform.times(viewMatrix, modelView), projection, NEAR_PLANE);
+
+        return frustum.intersects(bounds);
+    }
+
+    private void count(final int visibleClusters, final int clusterCount)
+    {
+        if (visibleClusters == 0) meshesCulled++;
+        else                      meshesDrawn ++;
+
+        clustersDrawn  += visibleClusters;
+        clustersCulled += clusterCount - visibleClusters;
+    }
+
+    private void meshVertex(final int index, final Vertex vertex)
+    {
+        x[index] = vertex.x;
+        y[index] = vertex.y;
+        z[index] = vertex.z;
+        w[index] = vertex.w;
+
+        meshUvs[index * 2    ] = vertex.texture.x;
+        meshUvs[index * 2 + 1] = vertex.texture.y;
+    }
+
+    private void ensureVertexCapacity(final int vertexCount)
+    {
+        if (x.length >= vertexCount) return;
+
+        final int capacity = Math.max(vertexCount, x.length * 2);
+
+        x      = new double[capacity]; y      = new double[capacity]; z      = new double[capacity]; w      = new double[capacity];
+        worldX = new double[capacity]; worldY = new double[capacity]; worldZ = new double[capacity]; worldW = new double[capacity];
+        viewX  = new double[capacity]; viewY  = new double[capacity]; viewZ  = new double[capacity]; viewW  = new double[capacity];
+    }
+
+    /**
+     * Culls, clips and draws the triangles {@code indices[from .. to - 1]}, 
+     * vertex {@code i} is stored at {@code i - firstVertex} in the buffers and at {@code i} in the uvs.
+     */
+    private void triangles(final DrawableImage image, final int[] indices, final int from, final int to, final int firstVertex, final double[] uvs, final Matrix projection, final Vector4 cameraPosition, final Image texture)
+    {
+        final double cameraX = cameraPosition.x();
+        final double cameraY = cameraPosition.y();
+        final double cameraZ = cameraPosition.z();
+
+        final double maxX = image.width () - 1;
+        final double maxY = image.height() - 1;
+
+        for (int t = from; t < to; t += 3)
+        {
+            final int a = indices[t] - firstVertex, b = indices[t + 1] - firstVertex, c = indices[t + 2] - firstVertex;
+
+            //backface culling in world space, a degenerated triangle has no normal and gets culled too
+            final double ax = worldX[a], ay = worldY[a], az = worldZ[a];
+
+            final double x1 = worldX[b] - ax, y1 = worldY[b] - ay, z1 = worldZ[b] - az;
+            final double x2 = worldX[c] - ax, y2 = worldY[c] - ay, z2 = worldZ[c] - az;
+
+            final double normalX = y1 * z2 - z1 * y2;
+            final double normalY = z1 * x2 - x1 * z2;
+            final double normalZ = x1 * y2 - y1 * x2;
+
+            if (!(normalX * (ax - cameraX) + normalY * (ay - cameraY) + normalZ * (az - cameraZ) < 0)) continue;
+
+            writeViewVertex(0         , a, a + firstVertex, uvs);
+            writeViewVertex(STRIDE    , b, b + firstVertex, uvs);
+            writeViewVertex(STRIDE * 2, c, c + firstVertex, uvs);
+
+            int count = clip(3, Z, 1, NEAR_PLANE);
+
+            if (count < 3) continue;
+
+            for (int i = 0; i < count; i++)
+            {
+                project(i * STRIDE, projection, image);
+            }
+
+            count = clip(count, Y,  1, 0   );
+            count = clip(count, Y, -1, maxY);
+            count = clip(count, X,  1, 0   );
+            count = clip(count, X, -1, maxX);
+
+            //the clipped polygon is convex, a fan covers it
+            for (int i = 2; i < count; i++)
+            {
+                image.fillTriangle(polygon, 0, (i - 1) * STRIDE, i * STRIDE, texture);
+            }
+        }
+    }
+
+    /**
+     * Writes a vertex in view space into the polygon, with the homogeneous w stored in {@link ImageAlgorithms3D#W}.
+     */
+    private void writeViewVertex(final int offset, final int vertex, final int uv, final double[] uvs)
+    {
+        polygon[offset + X] = viewX[vertex];
+        polygon[offset + Y] = viewY[vertex];
+        polygon[offset + Z] = viewZ[vertex];
+        polygon[offset + W] = viewW[vertex];
+        polygon[offset + U] = uvs[uv * 2    ];
+        polygon[offset + V] = uvs[uv * 2 + 1];
+    }
+
+    /**
+     * Projects a vertex of the polygon from view space into screen space,
+     * u, v and w are divided by the homogeneous w so they can be interpolated linearly in screen space.
+     */
+    private void project(final int offset, final Matrix projection, final DrawableImage image)
+    {
+        projection.transform(polygon[offset + X], polygon[offset + Y], polygon[offset + Z], polygon[offset + W], projected, 0);
+
+        final double inversedW = projected[3] == 0 ? 1 : 1 / projected[3];
+
+        polygon[offset + X] = (1 - projected[0] * inversedW) * 0.5 * image.width ();
+        polygon[offset + Y] = (1 - projected[1] * inversedW) * 0.5 * image.height();
+        polygon[offset + Z] =      projected[2] * inversedW;
+        polygon[offset + U] =      polygon[offset + U] * inversedW;
+        polygon[offset + V] =      polygon[offset + V] * inversedW;
+        polygon[offset + W] =                            inversedW;
+    }
+
+    /**
+     * Clips the polygon against the plane {@code sign * (component - offset) >= 0} (Sutherland-Hodgman). <p>
+     *
+     * @return the number of vertices of the clipped polygon
+     */
+    private int clip(final int count, final int component, final double sign, final double offset)
+    {
+        if (count < 3) return 0;
+
+        final double[] source      = polygon;
+        final double[] destination = clipped;
+
+        int result = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            final int current = i * STRIDE;
+            final int next    = (i + 1 == count ? 0 : i + 1) * STRIDE;
+
+            final double d0 = sign * (source[current + component] - offset);
+            final double d1 = sign * (source[next    + component] - offset);
+
+            if (d0 >= 0)
+            {
+                System.arraycopy(source, current, destination, result * STRIDE, STRIDE);
+                result++;
+            }
+
+            if ((d0 >= 0) != (d1 >= 0))
+            {
+                final double t = d0 / (d0 - d1);
+
+                final int intersection = result * STRIDE;
+
+                for (int j = 0; j < STRIDE; j++)
+                    destination[intersection + j] = source[current + j] + (source[next + j] - source[current + j]) * t;
+
+                result++;
+            }
+        }
+
+        polygon = destination;
+        clipped = source;
+
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package engine.graphics;
+
+/**
+ * The algorithms a {@link DrawableImage} can rasterize 3D triangles with, see {@link DrawableImage#setRasterizer(Rasterizer)}. <p>
+ * 
+ * @author NextLegacy
+ */
+public enum Rasterizer
+{
+    /**
+     * Splits every triangle into a flat top and a flat bottom half and draws them line by line.
+     */
+    SCANLINE,
+
+    /**
+     * Solves the covered interval of every row from the edge functions of the triangle, only the covered pixels get touched.
+     * Triangles that share an edge are watertight, no pixel on the edge gets drawn twice or left out.
+     */
+    EDGE_FUNCTION
+}
@@ -0,0 +1,70 @@
+package engine.graphics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import engine.utils.destroyable.IDestroyable;
+
+/**
+ * A RenderPool is a {@link ForkJoinPool} that is used to rasterize the draw calls of a {@link DrawableImage} in parallel. <p>
+ *
+ * A {@link DrawableImage} with a RenderPool records its draw calls instead of executing them directly.
+ * The recorded draw calls are binned into square tiles of {@link #tileSize()} pixels and every tile
+ * is rasterized by one worker when the image gets flushed. <p>
+ *
+ * A RenderPool can be shared by multiple images. <p>
+ *
+ * @see DrawableImage#setRenderPool(RenderPool)
+ *
+ * @author NextLegacy
+ * @version 1.0
+ */
+public final class RenderPool implements IDestroyable
+{
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private final ForkJoinPool pool;
+
+    private final int workers ;
+    private final int tileSize;
+
+    private boolean isDestroyed;
+
+    public RenderPool()                  { this(Runtime.getRuntime().availableProcessors()); }
+    public RenderPool(final int workers) { this(workers, DEFAULT_TILE_SIZE); }
+
+    /**
+     * @param workers the number of threads
+     * @param tileSize the edge length of a tile in pixels, rounded up to a multiple of 8, 
+     *                 so no two tiles share a tile of the hierarchical depth buffer
+     */
+    public RenderPool(final int workers, final int tileSize)
+    {
+        if (workers  <= 0) throw new IllegalArgumentException("A RenderPool needs at least one worker!");
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size of a RenderPool must be positive!");
+
+        this.workers  = workers ;
+        this.tileSize = (tileSize + HierarchicalZ.TILE_SIZE - 1) & -HierarchicalZ.TILE_SIZE;
+
+        pool = new ForkJoinPool(workers);
+    }
+
+    public int workers () { return workers ; }
+    public int tileSize() { return tileSize; }
+
+    void invoke(final ForkJoinTask<?> task) { pool.invoke(task); }
+
+    @Override
+    public void destroy()
+    {
+        if (isDestroyed) return;
+
+        isDestroyed = true;
+
+        pool.shutdown();
+    }
+
+    @Override public boolean isDestroyed() { return isDestroyed; }
+
+    @Override public String toString() { return getClass().getSimpleName() + "(workers: " + workers + " | tile size: " + tileSize + ")"; }
+}
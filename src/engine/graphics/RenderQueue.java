@@ -0,0 +1,181 @@
+package engine.graphics;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+import engine.utils.Lambda.Action1;
+
+/**
+ * Records the draw calls of a {@link DrawableImage} that uses a {@link RenderPool}. <p>
+ *
+ * Every recorded draw call is binned into all tiles its bounding box overlaps.
+ * On {@link #flush()} every tile replays its draw calls in the order they were recorded onto a tile view,
+ * which shares the buffers of the image but clips everything outside of the tile.
+ * Because a pixel is only ever written by the tile it lies in and in the same order as the serial path would do,
+ * the result is identical to drawing serially. <p>
+ *
+ * @author NextLegacy
+ */
+final class RenderQueue
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final RenderPool pool;
+
+    private final int tileSize;
+    private final int tilesX  ;
+    private final int tilesY  ;
+
+    private final DrawableImage[] tiles;
+
+    private final int[][] bins    ;
+    private final int  [] binSizes;
+
+    private Action1<DrawableImage>[] commands;
+    private int                      commandCount;
+
+    RenderQueue(final DrawableImage image, final RenderPool pool)
+    {
+        this.pool = pool;
+
+        tileSize = pool.tileSize();
+        tilesX   = (image.width () + tileSize - 1) / tileSize;
+        tilesY   = (image.height() + tileSize - 1) / tileSize;
+
+        tiles    = new DrawableImage[tilesX * tilesY];
+        bins     = new int          [tilesX * tilesY][];
+        binSizes = new int          [tilesX * tilesY];
+
+        for (int ty = 0; ty < tilesY; ty++)
+        for (int tx = 0; tx < tilesX; tx++)
+        {
+            final int tile = tx + ty * tilesX;
+
+            tiles[tile] = new DrawableImage((Image) image);
+            tiles[tile].setClip(tx * tileSize, ty * tileSize, (tx + 1) * tileSize, (ty + 1) * tileSize);
+            tiles[tile].hierarchicalZ = image.hierarchicalZ;
+            tiles[tile].alphaMask     = image.alphaMask;
+            tiles[tile].premultiplied = image.premultiplied;
+
+            bins[tile] = new int[INITIAL_CAPACITY];
+        }
+
+        commands = newCommandArray(INITIAL_CAPACITY);
+    }
+
+    RenderPool pool    () { return pool             ; }
+    boolean    isEmpty () { return commandCount == 0; }
+
+    void setHierarchicalZ(final HierarchicalZ hierarchicalZ)
+    {
+        for (DrawableImage tile : tiles) tile.hierarchicalZ = hierarchicalZ;
+    }
+
+    void setAlphaMask(final int alphaMask)
+    {
+        for (DrawableImage tile : tiles) tile.alphaMask = alphaMask;
+    }
+
+    void setPremultiplied(final boolean premultiplied)
+    {
+        for (DrawableImage tile : tiles) tile.premultiplied = premultiplied;
+    }
+
+    long fragmentsShaded()
+    {
+        long fragments = 0;
+
+        for (DrawableImage tile : tiles) fragments += tile.fragmentsShaded;
+
+        return fragments;
+    }
+
+    void resetFragmentsShaded() { for (DrawableImage tile : tiles) tile.fragmentsShaded = 0; }
+
+    /**
+     * Records a draw call. <p>
+     *
+     * @param x0 the smallest x coordinate the draw call might touch
+     * @param y0 the smallest y coordinate the draw call might touch
+     * @param x1 the biggest x coordinate the draw call might touch
+     * @param y1 the biggest y coordinate the draw call might touch
+     * @param command the draw call, which gets executed once for every tile it overlaps
+     */
+    void record(int x0, int y0, int x1, int y1, final Action1<DrawableImage> command)
+    {
+        final int maxX = tilesX * tileSize - 1;
+        final int maxY = tilesY * tileSize - 1;
+
+        //Not a single Pixel is inside the Bounds of the image
+        if (x1 < 0 || y1 < 0 || x0 > maxX || y0 > maxY || x0 > x1 || y0 > y1)
+            return;
+
+        x0 = x0 < 0 ? 0 : x0; x1 = x1 > maxX ? maxX : x1;
+        y0 = y0 < 0 ? 0 : y0; y1 = y1 > maxY ? maxY : y1;
+
+        if (commandCount == commands.length)
+            commands = Arrays.copyOf(commands, commandCount * 2);
+
+        final int index = commandCount++;
+
+        commands[index] = command;
+
+        for (int ty = y0 / tileSize, ty1 = y1 / tileSize; ty <= ty1; ty++)
+        for (int tx = x0 / tileSize, tx1 = x1 / tileSize; tx <= tx1; tx++)
+        {
+            final int tile = tx + ty * tilesX;
+
+            if (binSizes[tile] == bins[tile].length)
+                bins[tile] = Arrays.copyOf(bins[tile], binSizes[tile] * 2);
+
+            bins[tile][binSizes[tile]++] = index;
+        }
+    }
+
+    /**
+     * Rasterizes all recorded draw calls on the {@link RenderPool} and blocks until all tiles are done.
+     */
+    void flush()
+    {
+        if (commandCount == 0) return;
+
+        pool.invoke(new TileTask(0, tiles.length));
+
+        Arrays.fill(commands, 0, commandCount, null);
+        Arrays.fill(binSizes, 0);
+
+        commandCount = 0;
+    }
+
+    private void renderTile(final int tile)
+    {
+        final DrawableImage view = tiles   [tile];
+        final int[]         bin  = bins    [tile];
+        final int           size = binSizes[tile];
+
+        for (int i = 0; i < size; i++)
+            commands[bin[i]].run(view);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Action1<DrawableImage>[] newCommandArray(final int length) { return (Action1<DrawableImage>[]) new Action1[length]; }
+
+    @SuppressWarnings("serial")
+    private final class TileTask extends RecursiveAction
+    {
+        private final int from;
+        private final int to  ;
+
+        TileTask(final int from, final int to) { this.from = from; this.to = to; }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1) { renderTile(from); return; }
+
+            final int middle = (from + to) >>> 1;
+
+            invokeAll(new TileTask(from, middle), new TileTask(middle, to));
+        }
+    }
+}
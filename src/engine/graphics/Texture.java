@@ -0,0 +1,272 @@
+package engine.graphics;
+
+import engine.utils.color.Color;
+
+/**
+ * An {@link Image} made for being drawn onto triangles, for example with {@link DrawableImage#fillTriangle(engine.threed.Triangle, Image)}. <p>
+ *
+ * A texture copies the colors of an image and precomputes a chain of mip levels, each half as wide and high as the one before, down to 1 x 1.
+ * The rasterizers choose the level for every few pixels from how far the texture coordinate moves from one pixel to the next,
+ * so a triangle that shows the texture smaller than it is reads a level whose texels are about one pixel apart,
+ * instead of single texels that are scattered over the whole texture. That avoids the flickering of minified textures
+ * and keeps the texels that get read in the cache. <p>
+ *
+ * Level 0 is the {@link #colorBuffer()} of the texture, a copy of the colors of the image, so the texture can be used like the image it got created from.
+ * Changing the image afterwards does not change the texture, changing the colors of the texture does not update its other levels. <p>
+ *
+ * Mip levels and bilinear filtering average the colors in premultiplied space, so transparent texels do not bleed their color into their neighbours. <p>
+ *
+ * @author NextLegacy
+ */
+public final class Texture extends Image
+{
+    // the rasterizers choose the level once for every block of 8 pixels of a row, at the center of the block,
+    // the blocks start at multiples of 8, so the levels do not depend on where a span or a tile starts
+    static final int LEVEL_BLOCK      = 8;
+    static final int LEVEL_BLOCK_MASK = LEVEL_BLOCK - 1;
+
+    private final int     levels ;
+    private final int[]   widths ;
+    private final int[]   heights;
+    private final int[][] texels ; // the texels of every level, row by row like the colors of an image
+
+    private WrapMode      wrapMode   ;
+    private TextureFilter filter     ;
+    private boolean       isMipmapped;
+
+    public Texture(final Image image) { this(image, WrapMode.REPEAT, TextureFilter.BILINEAR); }
+
+    public Texture(final Image image, final WrapMode wrapMode, final TextureFilter filter)
+    {
+        super(image.colorBuffer().clone(), image.size(), DepthFormat.NONE);
+
+        premultiplied = image.isPremultiplied();
+
+        this.wrapMode    = wrapMode;
+        this.filter      = filter  ;
+        this.isMipmapped = true    ;
+
+        int count = 1;
+
+        for (int w = width(), h = height(); w > 1 || h > 1; w = Math.max(1, w >> 1), h = Math.max(1, h >> 1)) count++;
+
+        levels  = count;
+        widths  = new int  [levels];
+        heights = new int  [levels];
+        texels  = new int[levels][];
+
+        widths [0] = width ();
+        heights[0] = height();
+        texels [0] = colorBuffer;
+
+        for (int level = 1; level < levels; level++)
+        {
+            widths [level] = Math.max(1, widths [level - 1] >> 1);
+            heights[level] = Math.max(1, heights[level - 1] >> 1);
+            texels [level] = new int[widths[level] * heights[level]];
+
+            downsample(level);
+        }
+    }
+
+    /**
+     * Fills the level with the average of every 2 x 2 texels of the level before,
+     * the last row or column of a level with an odd size is repeated.
+     */
+    private void downsample(final int level)
+    {
+        final int[] source = texels[level - 1], target = texels[level];
+
+        final int sourceWidth = widths[level - 1], width = widths[level];
+
+        final int lastX = sourceWidth - 1, lastY = heights[level - 1] - 1;
+
+        for (int y = 0; y < heights[level]; y++)
+        {
+            final int row0 = Math.min(y * 2, lastY) * sourceWidth, row1 = Math.min(y * 2 + 1, lastY) * sourceWidth;
+
+            for (int x = 0; x < width; x++)
+            {
+                final int x0 = Math.min(x * 2, lastX), x1 = Math.min(x * 2 + 1, lastX);
+
+                target[x + y * width] = average(source[row0 + x0], source[row0 + x1], source[row1 + x0], source[row1 + x1]);
+            }
+        }
+    }
+
+    private int average(int c0, int c1, int c2, int c3)
+    {
+        if (!premultiplied) { c0 = Color.premultiply(c0); c1 = Color.premultiply(c1); c2 = Color.premultiply(c2); c3 = Color.premultiply(c3); }
+
+        // two channels per int, the sum of four channels still fits into the 16 bits of a channel, + 2 rounds
+        final int rb = ((c0 & 0x00ff00ff) + (c1 & 0x00ff00ff) + (c2 & 0x00ff00ff) + (c3 & 0x00ff00ff) + 0x00020002) >>> 2 & 0x00ff00ff;
+        final int ag = ((c0 >>> 8 & 0x00ff00ff) + (c1 >>> 8 & 0x00ff00ff) + (c2 >>> 8 & 0x00ff00ff) + (c3 >>> 8 & 0x00ff00ff) + 0x00020002) << 6 & 0xff00ff00;
+
+        return premultiplied ? ag | rb : Color.unpremultiply(ag | rb);
+    }
+
+    public int levels() { return levels; }
+
+    public int levelWidth (final int level) { return widths [level]; }
+    public int levelHeight(final int level) { return heights[level]; }
+
+    /**
+     * @return the color of the texel at (x, y) of the level, which has to lie inside of the level
+     */
+    public int getTexel(final int level, final int x, final int y) { return texels[level][x + y * widths[level]]; }
+
+    /**
+     * @return the texels of the level row by row, read directly by the spans of the rasterizers
+     */
+    int[] levelTexels(final int level) { return texels[level]; }
+
+    public WrapMode      wrapMode   () { return wrapMode   ; }
+    public TextureFilter filter     () { return filter     ; }
+    public boolean       isMipmapped() { return isMipmapped; }
+
+    public void setWrapMode(final WrapMode      wrapMode) { this.wrapMode = wrapMode; }
+    public void setFilter  (final TextureFilter filter  ) { this.filter   = filter  ; }
+
+    /**
+     * @param isMipmapped whether {@link #level(double, double, double, double, double, double, double, double, double)} chooses a level,
+     * otherwise the texture is always sampled from level 0
+     */
+    public void setMipmapped(final boolean isMipmapped) { this.isMipmapped = isMipmapped; }
+
+    /**
+     * Samples level 0 at the texture coordinate (u / w, v / w), like {@link #getPixel(double, double, double)},
+     * but filtered and wrapped like this texture is set up to.
+     */
+    public int sample(final double u, final double v, final double w) { return sample(u, v, w, 0); }
+
+    /**
+     * Samples the texture at the texture coordinate (u / w, v / w) from the level whose texels are the closest to one pixel apart,
+     * the derivatives are the ones of u, v and w of the vertex array in x and y direction on the screen.
+     */
+    public int sample(final double u, final double v, final double w,
+        final double dudx, final double dvdx, final double dwdx, final double dudy, final double dvdy, final double dwdy)
+    {
+        return sample(u, v, w, level(u, v, w, dudx, dvdx, dwdx, dudy, dvdy, dwdy));
+    }
+
+    /**
+     * Samples the given level at the texture coordinate (u / w, v / w).
+     */
+    public int sample(final double u, final double v, final double w, final int level)
+    {
+        final int l = Math.max(0, Math.min(levels - 1, level));
+
+        //This texture starts at the top left corner, so the v coordinate is flipped, divided like in getIndex, so level 0 picks the same texels
+        final double x = u / w * widths[l];
+        final double y = (1 - v / w) * heights[l];
+
+        return filter == TextureFilter.NEAREST ? nearest(l, x, y) : bilinear(l, x, y);
+    }
+
+    /**
+     * @return the level whose texels are the closest to one pixel apart at the texture coordinate (u / w, v / w),
+     * given the derivatives of u, v and w in x and y direction on the screen
+     */
+    public int level(final double u, final double v, final double w,
+        final double dudx, final double dvdx, final double dwdx, final double dudy, final double dvdy, final double dwdy)
+    {
+        if (!isMipmapped || levels == 1) return 0;
+
+        final double inversedW = 1 / w;
+
+        final double s = u * inversedW, t = v * inversedW;
+
+        //the derivative of u / w is (du - u / w * dw) / w, scaled to texels of level 0
+        final double dsdx = (dudx - s * dwdx) * inversedW * width(), dtdx = (dvdx - t * dwdx) * inversedW * height();
+        final double dsdy = (dudy - s * dwdy) * inversedW * width(), dtdy = (dvdy - t * dwdy) * inversedW * height();
+
+        //the squared number of texels of level 0 one pixel covers in the direction it covers the most
+        final double footprintX = dsdx * dsdx + dtdx * dtdx, footprintY = dsdy * dsdy + dtdy * dtdy;
+        final double footprint  = footprintX > footprintY ? footprintX : footprintY;
+
+        //round(log2(sqrt(footprint))) without a logarithm, an infinite or NaN footprint ends up at the last level
+        final int level = Math.getExponent(2 * footprint) >> 1;
+
+        return level < 0 ? 0 : Math.min(level, levels - 1);
+    }
+
+    private int nearest(final int level, final double x, final double y)
+    {
+        final int width = widths[level];
+
+        return texels[level][wrap(x, width) + wrap(y, heights[level]) * width];
+    }
+
+    private int bilinear(final int level, double x, double y)
+    {
+        //texel centers lie at .5
+        x -= 0.5;
+        y -= 0.5;
+
+        final int x0 = floor(x), y0 = floor(y);
+
+        // 8 bit weights of the right and the bottom texels
+        final int fx = (int) ((x - x0) * 256), fy = (int) ((y - y0) * 256);
+
+        final int w = widths[level], h = heights[level];
+
+        final int left = wrap(x0, w), right = wrap(x0 + 1, w), top = wrap(y0, h), bottom = wrap(y0 + 1, h);
+
+        final int[] texels = this.texels[level];
+
+        int c00 = texels[left + top    * w], c10 = texels[right + top    * w];
+        int c01 = texels[left + bottom * w], c11 = texels[right + bottom * w];
+
+        if (!premultiplied)
+        {
+            c00 = Color.premultiply(c00); c10 = Color.premultiply(c10);
+            c01 = Color.premultiply(c01); c11 = Color.premultiply(c11);
+        }
+
+        final int color = lerp(lerp(c00, c10, fx), lerp(c01, c11, fx), fy);
+
+        return premultiplied ? color : Color.unpremultiply(color);
+    }
+
+    /**
+     * @param f the weight of c1 from 0 to 256
+     */
+    private static int lerp(final int c0, final int c1, final int f)
+    {
+        final int f_ = 256 - f;
+
+        // two channels per int, a channel times a weight still fits into the 16 bits of a channel
+        final int rb = ((c0 & 0x00ff00ff) * f_ + (c1 & 0x00ff00ff) * f) >>> 8 & 0x00ff00ff;
+        final int ag = ((c0 >>> 8 & 0x00ff00ff) * f_ + (c1 >>> 8 & 0x00ff00ff) * f) & 0xff00ff00;
+
+        return ag | rb;
+    }
+
+    /**
+     * @return the column or row of the texel the coordinate in texels lies in
+     */
+    private int wrap(final double coordinate, final int size)
+    {
+        //clamped before the conversion, so no floor is needed and coordinates that do not fit into an int stay in range
+        if (wrapMode == WrapMode.CLAMP) return coordinate <= 0 ? 0 : coordinate >= size ? size - 1 : (int) coordinate;
+
+        return wrap(floor(coordinate), size);
+    }
+
+    private int wrap(final int coordinate, final int size)
+    {
+        if (wrapMode == WrapMode.CLAMP) return coordinate < 0 ? 0 : coordinate >= size ? size - 1 : coordinate;
+
+        //most textures are a power of two wide and high, those wrap with a mask
+        if ((size & (size - 1)) == 0) return coordinate & (size - 1);
+
+        return Math.floorMod(coordinate, size);
+    }
+
+    static int floor(final double value)
+    {
+        final int floor = (int) value;
+
+        return value < floor ? floor - 1 : floor;
+    }
+}
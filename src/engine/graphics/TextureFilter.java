@@ -0,0 +1,19 @@
+package engine.graphics;
+
+/**
+ * The ways a {@link Texture} blends the texels around a texture coordinate, see {@link Texture#setFilter(TextureFilter)}. <p>
+ * 
+ * @author NextLegacy
+ */
+public enum TextureFilter
+{
+    /**
+     * Takes the texel the texture coordinate lies in, like {@link Image#getPixel(double, double, double)} does.
+     */
+    NEAREST,
+
+    /**
+     * Interpolates the four texels nearest to the texture coordinate by their distance, which smooths magnified textures.
+     */
+    BILINEAR
+}
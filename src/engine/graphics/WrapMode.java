@@ -0,0 +1,19 @@
+package engine.graphics;
+
+/**
+ * What a {@link Texture} samples outside of the texture coordinates from 0 to 1, see {@link Texture#setWrapMode(WrapMode)}. <p>
+ * 
+ * @author NextLegacy
+ */
+public enum WrapMode
+{
+    /**
+     * The texture repeats, a coordinate of 1.25 samples the same as 0.25.
+     */
+    REPEAT,
+
+    /**
+     * The texels at the edges continue, a coordinate of 1.25 samples the same as 1.
+     */
+    CLAMP
+}
@@ -5,6 +5,8 @@ import static engine.utils.MathUtils.*;
 /**
  * A immutable version of the {@link Vector4} class. <p>
  * 
+ * The derived values are computed when they are asked for, so creating a final vector creates no further objects. <p>
+ * 
  * @author NextLegacy
  * @version 1.0
  * @since 1.0
@@ -18,12 +20,6 @@ public class FinalVector extends Vector4
     public final double z;
     public final double w;
 
-    private final Vector inverted;
-    private final Vector normalized;
-    private final double normalSquared;
-    private final double magnitude;
-    private final Vector angle;
-
     public FinalVector(Vector4 v) { this(v.x(), v.y(), v.z(), v.w()); }
     public FinalVector()                                       { this(0, 0, 0, 1);  }
     public FinalVector(double x)                               { this(x, 0, 0, 1);  }
@@ -35,14 +31,6 @@ public class FinalVector extends Vector4
         this.y = y;
         this.z = z;
         this.w = w;
-
-        Vector self = vec(this);
-
-        inverted      = self.inverted        ();       
-        magnitude     = self.magnitude       ();
-        normalized    = self.normalized      ();
-        normalSquared = self.magnitudeSquared();
-        angle         = self.angle           ();
     }
 
     public final double x() { return x; }
@@ -50,11 +38,11 @@ public class FinalVector extends Vector4
     public final double z() { return z; }
     public final double w() { return w; }
 
-    @Override public Vector inverted        () { return inverted     ; }
-    @Override public Vector normalized      () { return normalized   ; }
-    @Override public double magnitudeSquared() { return normalSquared; }
-    @Override public double magnitude       () { return magnitude    ; }
-    @Override public Vector angle           () { return angle        ; }
+    @Override public Vector inverted        () { return inverted  (new Vector()); }
+    @Override public Vector normalized      () { return normalized(new Vector()); }
+    @Override public double magnitudeSquared() { return dot(this); }
+    @Override public double magnitude       () { return Math.sqrt(magnitudeSquared()); }
+    @Override public Vector angle           () { return vec(angleTo(Vector.right), angleTo(Vector.up)); }
 
     @Override
     public FinalVector clone() 
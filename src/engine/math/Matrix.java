@@ -15,7 +15,9 @@ import java.util.Locale;
  * 
  * The matrix is stored in column-major order. <p>
  * 
- * This class is immutable. <p>
+ * The methods that return a matrix create a new one, the matrices of the engine, like {@link Transform#transformationMatrix()},
+ * are shared and never change. The overloads that take a destination write the result into it instead and create nothing,
+ * only pass matrices you created yourself, for example with {@link Scratch#matrix()}. <p>
  * 
  * You can use the {@link #toString()} method to get a string representation of the matrix. <p>
  * 
@@ -42,6 +44,9 @@ public final class Matrix
 
     public static final int ARRAY_LENGTH = 16;
 
+    // the number of vertices the batch transforms process at once, the sources and a destination of 1024 vertices fit into the L1 cache
+    private static final int BATCH_BLOCK = 1024;
+
     private String str_m;
 
     private final double[] m;
@@ -78,11 +83,22 @@ public final class Matrix
         );
     }
 
-    public Matrix times(Matrix matrix)
+    /**
+     * @return the value at the index of the array the matrix is stored in, the row times 4 plus the column
+     */
+    public double get(final int index) { return m[index]; }
+
+    public Matrix times(Matrix matrix) { return times(matrix, new Matrix()); }
+
+    /**
+     * Multiplies this matrix by the given matrix and writes the result into the destination, which may be one of both.
+     * @return the destination
+     */
+    public Matrix times(final Matrix matrix, final Matrix destination)
     {
         final double[] _m = matrix.m;
 
-        return new Matrix(
+        return destination.set(
             m[ 0] * _m[0] + m[ 1] * _m[4] + m[ 2] * _m[8] + m[ 3] * _m[12]  ,  m[ 0] * _m[1] + m[ 1] * _m[5] + m[ 2] * _m[9] + m[ 3] * _m[13]  ,  m[ 0] * _m[2] + m[ 1] * _m[6] + m[ 2] * _m[10] + m[ 3] * _m[14]  ,  m[ 0] * _m[3] + m[ 1] * _m[7] + m[ 2] * _m[11] + m[ 3] * _m[15],  
             m[ 4] * _m[0] + m[ 5] * _m[4] + m[ 6] * _m[8] + m[ 7] * _m[12]  ,  m[ 4] * _m[1] + m[ 5] * _m[5] + m[ 6] * _m[9] + m[ 7] * _m[13]  ,  m[ 4] * _m[2] + m[ 5] * _m[6] + m[ 6] * _m[10] + m[ 7] * _m[14]  ,  m[ 4] * _m[3] + m[ 5] * _m[7] + m[ 6] * _m[11] + m[ 7] * _m[15],  
             m[ 8] * _m[0] + m[ 9] * _m[4] + m[10] * _m[8] + m[11] * _m[12]  ,  m[ 8] * _m[1] + m[ 9] * _m[5] + m[10] * _m[9] + m[11] * _m[13]  ,  m[ 8] * _m[2] + m[ 9] * _m[6] + m[10] * _m[10] + m[11] * _m[14]  ,  m[ 8] * _m[3] + m[ 9] * _m[7] + m[10] * _m[11] + m[11] * _m[15],  
@@ -90,19 +106,124 @@ public final class Matrix
         );
     }
 
-    public Vector times(Vector4 vector)
+    public Vector times(Vector4 vector) { return times(vector, new Vector()); }
+
+    /**
+     * Transforms the vector and writes the result into the destination, which may be the vector itself.
+     * @return the destination
+     */
+    public Vector times(final Vector4 vector, final Vector destination)
     {
-        return vec(
-            vector.x() * m[ 0] + vector.y() * m[ 4] + vector.z() * m[ 8] + vector.w() * m[12],
-            vector.x() * m[ 1] + vector.y() * m[ 5] + vector.z() * m[ 9] + vector.w() * m[13],
-            vector.x() * m[ 2] + vector.y() * m[ 6] + vector.z() * m[10] + vector.w() * m[14],
-            vector.x() * m[ 3] + vector.y() * m[ 7] + vector.z() * m[11] + vector.w() * m[15]
+        final double x = vector.x(), y = vector.y(), z = vector.z(), w = vector.w();
+
+        return destination.set(
+            x * m[ 0] + y * m[ 4] + z * m[ 8] + w * m[12],
+            x * m[ 1] + y * m[ 5] + z * m[ 9] + w * m[13],
+            x * m[ 2] + y * m[ 6] + z * m[10] + w * m[14],
+            x * m[ 3] + y * m[ 7] + z * m[11] + w * m[15]
         );
     }
 
-    public Matrix quickInverse()
+    /**
+     * Transforms the vector (x, y, z, w) like {@link #times(Vector4)} does, but writes the result into the given array
+     * instead of creating a new vector. <p>
+     * 
+     * @param destination the array the transformed x, y, z and w get written into
+     * @param offset the index of x in the destination array
+     */
+    public void transform(final double x, final double y, final double z, final double w, final double[] destination, final int offset)
     {
-        return new Matrix(
+        destination[offset    ] = x * m[ 0] + y * m[ 4] + z * m[ 8] + w * m[12];
+        destination[offset + 1] = x * m[ 1] + y * m[ 5] + z * m[ 9] + w * m[13];
+        destination[offset + 2] = x * m[ 2] + y * m[ 6] + z * m[10] + w * m[14];
+        destination[offset + 3] = x * m[ 3] + y * m[ 7] + z * m[11] + w * m[15];
+    }
+
+    /**
+     * Transforms the points (x, y, z, 1) of the given arrays like {@link #times(Vector4)} does and writes the results into the destination arrays. <p>
+     * 
+     * The arrays hold one component each and every component of the result is computed by a loop of its own,
+     * a loop that only reads and writes arrays sequentially, which the JIT compiles to SIMD instructions.
+     * If a destination array is one of the source arrays, the points are transformed one by one instead. <p>
+     * 
+     * @param count the number of points, starting at index 0
+     */
+    public void transformPoints(final double[] x, final double[] y, final double[] z, final double[] toX, final double[] toY, final double[] toZ, final double[] toW, final int count)
+    {
+        if (isAnyOf(toX, x, y, z) || isAnyOf(toY, x, y, z) || isAnyOf(toZ, x, y, z) || isAnyOf(toW, x, y, z))
+        {
+            for (int i = 0; i < count; i++) transform(x[i], y[i], z[i], 1, toX, toY, toZ, toW, i);
+
+            return;
+        }
+
+        // in blocks, so the sources stay in the cache while they are read for every component
+        for (int from = 0; from < count; from += BATCH_BLOCK)
+        {
+            final int to = Math.min(from + BATCH_BLOCK, count);
+
+            row(x, y, z, m[0], m[4], m[ 8], m[12], toX, from, to);
+            row(x, y, z, m[1], m[5], m[ 9], m[13], toY, from, to);
+            row(x, y, z, m[2], m[6], m[10], m[14], toZ, from, to);
+            row(x, y, z, m[3], m[7], m[11], m[15], toW, from, to);
+        }
+    }
+
+    /**
+     * Transforms the vectors (x, y, z, w) of the given arrays like {@link #transformPoints} does for points.
+     * 
+     * @param count the number of vectors, starting at index 0
+     */
+    public void transform(final double[] x, final double[] y, final double[] z, final double[] w, final double[] toX, final double[] toY, final double[] toZ, final double[] toW, final int count)
+    {
+        if (isAnyOf(toX, x, y, z, w) || isAnyOf(toY, x, y, z, w) || isAnyOf(toZ, x, y, z, w) || isAnyOf(toW, x, y, z, w))
+        {
+            for (int i = 0; i < count; i++) transform(x[i], y[i], z[i], w[i], toX, toY, toZ, toW, i);
+
+            return;
+        }
+
+        for (int from = 0; from < count; from += BATCH_BLOCK)
+        {
+            final int to = Math.min(from + BATCH_BLOCK, count);
+
+            row(x, y, z, w, m[0], m[4], m[ 8], m[12], toX, from, to);
+            row(x, y, z, w, m[1], m[5], m[ 9], m[13], toY, from, to);
+            row(x, y, z, w, m[2], m[6], m[10], m[14], toZ, from, to);
+            row(x, y, z, w, m[3], m[7], m[11], m[15], toW, from, to);
+        }
+    }
+
+    private void transform(final double x, final double y, final double z, final double w, final double[] toX, final double[] toY, final double[] toZ, final double[] toW, final int i)
+    {
+        toX[i] = x * m[ 0] + y * m[ 4] + z * m[ 8] + w * m[12];
+        toY[i] = x * m[ 1] + y * m[ 5] + z * m[ 9] + w * m[13];
+        toZ[i] = x * m[ 2] + y * m[ 6] + z * m[10] + w * m[14];
+        toW[i] = x * m[ 3] + y * m[ 7] + z * m[11] + w * m[15];
+    }
+
+    private static void row(final double[] x, final double[] y, final double[] z, final double a, final double b, final double c, final double d, final double[] destination, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) destination[i] = x[i] * a + y[i] * b + z[i] * c + d;
+    }
+
+    private static void row(final double[] x, final double[] y, final double[] z, final double[] w, final double a, final double b, final double c, final double d, final double[] destination, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) destination[i] = x[i] * a + y[i] * b + z[i] * c + w[i] * d;
+    }
+
+    private static boolean isAnyOf(final double[] array, final double[] a, final double[] b, final double[] c                  ) { return array == a || array == b || array == c             ; }
+    private static boolean isAnyOf(final double[] array, final double[] a, final double[] b, final double[] c, final double[] d) { return array == a || array == b || array == c || array == d; }
+
+    public Matrix quickInverse() { return quickInverse(new Matrix()); }
+
+    /**
+     * Writes the quick inverse into the destination, which may be this matrix.
+     * @return the destination
+     */
+    public Matrix quickInverse(final Matrix destination)
+    {
+        return destination.set(
             m[ 0]                                           , m[ 4]                                           , m[ 8]                                           , 0,
             m[ 1]                                           , m[ 5]                                           , m[ 9]                                           , 0,
             m[ 2]                                           , m[ 6]                                           , m[10]                                           , 0,
@@ -110,6 +231,46 @@ public final class Matrix
         );
     }
 
+    /**
+     * Copies the values of the given matrix into this one.
+     * @return this matrix
+     */
+    public Matrix set(final Matrix matrix)
+    {
+        throwIfIsConstant(this);
+
+        if (matrix != this) System.arraycopy(matrix.m, 0, m, 0, Matrix.ARRAY_LENGTH);
+
+        str_m = "";
+
+        return this;
+    }
+
+    /**
+     * Sets this matrix to the identity.
+     * @return this matrix
+     */
+    public Matrix setIdentity() { return set(IDENTITY); }
+
+    /**
+     * Writes the values into this matrix, the arguments are evaluated before anything gets written, 
+     * so the destination of an operation may be one of its operands.
+     * @return this matrix
+     */
+    public Matrix set(double _0, double _1, double _2, double _3, double _4, double _5, double _6, double _7,double _8, double _9, double _10, double _11,double _12, double _13, double _14, double _15)
+    {
+        throwIfIsConstant(this);
+
+        m[ 0] =  _0; m[ 1] =  _1; m[ 2] =  _2; m[ 3] =  _3;
+        m[ 4] =  _4; m[ 5] =  _5; m[ 6] =  _6; m[ 7] =  _7;
+        m[ 8] =  _8; m[ 9] =  _9; m[10] = _10; m[11] = _11;
+        m[12] = _12; m[13] = _13; m[14] = _14; m[15] = _15;
+
+        str_m = "";
+
+        return this;
+    }
+
     public static Matrix MakeLookAt(Vector4 pos, Vector4 target, Vector4 up)
     {
         Vector newForward = target.minus(pos).normalize();
@@ -150,9 +311,16 @@ public final class Matrix
         return quaternion.matrix();
     }
 
-    public static Matrix MakeTranslation(Vector4 v)
+    public static Matrix MakeRotation(final Quaternion quaternion, final Matrix destination)
     {
-        return new Matrix(
+        return quaternion.matrix(destination);
+    }
+
+    public static Matrix MakeTranslation(Vector4 v) { return MakeTranslation(v, new Matrix()); }
+
+    public static Matrix MakeTranslation(final Vector4 v, final Matrix destination)
+    {
+        return destination.set(
             1    , 0    , 0    , 0,
             0    , 1    , 0    , 0, 
             0    , 0    , 1    , 0,
@@ -160,9 +328,11 @@ public final class Matrix
         );
     }
 
-    public static Matrix MakeScale(Vector4 v)
+    public static Matrix MakeScale(Vector4 v) { return MakeScale(v, new Matrix()); }
+
+    public static Matrix MakeScale(final Vector4 v, final Matrix destination)
     {
-        return new Matrix(
+        return destination.set(
             v.x(), 0    , 0    , 0,
             0    , v.y(), 0    , 0, 
             0    , 0    , v.z(), 0,
@@ -175,13 +345,28 @@ public final class Matrix
         return scale.times(rotation).times(translation);
     }
 
-    public static Matrix MakeTransformation(Vector4 position, Vector4 scale, Quaternion rotation)
+    public static Matrix MakeTransformation(Vector4 position, Vector4 scale, Quaternion rotation) { return MakeTransformation(position, scale, rotation, new Matrix()); }
+
+    /**
+     * Writes the same matrix as {@link #MakeTransformation(Matrix, Matrix, Matrix)} of the scale, rotation and translation matrices into the destination,
+     * without creating or multiplying them: the scale multiplies the rows of the rotation and the translation is the last row.
+     * @return the destination
+     */
+    public static Matrix MakeTransformation(final Vector4 position, final Vector4 scale, final Quaternion rotation, final Matrix destination)
     {
-        Matrix T = Matrix.MakeTranslation(position);
-        Matrix S = Matrix.MakeScale(scale);
-        Matrix R = Matrix.MakeRotation(rotation);
+        rotation.matrix(destination);
 
-        return S.times(R).times(T);
+        final double[] m = destination.m;
+
+        final double x = scale.x(), y = scale.y(), z = scale.z();
+
+        m[ 0] *= x; m[ 1] *= x; m[ 2] *= x;
+        m[ 4] *= y; m[ 5] *= y; m[ 6] *= y;
+        m[ 8] *= z; m[ 9] *= z; m[10] *= z;
+
+        m[12] = position.x(); m[13] = position.y(); m[14] = position.z();
+
+        return destination;
     }
 
     public static Matrix MakeTransformation(Vector4 position, Vector4 scale, Vector4 euler)
@@ -270,6 +455,11 @@ public final class Matrix
         0, 0, 0, 1
     );
 
+    private static void throwIfIsConstant(final Matrix matrix)
+    {
+        if (matrix == IDENTITY) throw new RuntimeException("The identity matrix can not be changed!");
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private final class RuntimeMatrixArrayFormatException extends RuntimeException
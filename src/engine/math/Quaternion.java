@@ -4,7 +4,8 @@ import static engine.utils.MathUtils.*;
 
 /** 
  * This class represents a quaternion. <p>
- * This class is immutable. <p>
+ * This class is immutable, {@link Transform} detects changes of the rotation by its reference. 
+ * The components are stored directly, so creating a quaternion creates no further objects. <p>
  * 
  * @author NextLegacy
  * @version 1.0
@@ -13,7 +14,10 @@ public class Quaternion
 {    
     public static final Quaternion IDENTITY = Quaternion.FromEuler(FinalVector.zero);
 
-    private final FinalVector q;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double w;
     
     // angles in radians
     public Quaternion(double roll, double pitch, double yaw)
@@ -30,84 +34,101 @@ public class Quaternion
         double sinY = Math.sin(pitch);
         double sinZ = Math.sin(yaw);
 
-        q = fvec(
-            cosY * cosZ * sinX + cosX * sinY * sinZ,
-            cosX * cosZ * sinY - cosY * sinX * sinZ,
-            cosX * cosY * sinZ + cosZ * sinX * sinY,
-            cosX * cosY * cosZ - sinX * sinY * sinZ
-        );
+        x = cosY * cosZ * sinX + cosX * sinY * sinZ;
+        y = cosX * cosZ * sinY - cosY * sinX * sinZ;
+        z = cosX * cosY * sinZ + cosZ * sinX * sinY;
+        w = cosX * cosY * cosZ - sinX * sinY * sinZ;
+    }
+
+    private Quaternion(double x, double y, double z, double w) 
+    { 
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
     }
 
-    private Quaternion(double x, double y, double z, double w) { q = fvec(x, y, z, w); }
+    public double x() { return x; }
+    public double y() { return y; }
+    public double z() { return z; }
+    public double w() { return w; }
 
     public Quaternion plus(Quaternion quaternion)
     {
         return new Quaternion(
-            q.x + quaternion.q.x,
-            q.y + quaternion.q.y,
-            q.z + quaternion.q.z,
-            q.w + quaternion.q.w
+            x + quaternion.x,
+            y + quaternion.y,
+            z + quaternion.z,
+            w + quaternion.w
         );
     }
     
     public Quaternion minus(Quaternion quaternion)
     {
         return new Quaternion(
-            q.x - quaternion.q.x,
-            q.y - quaternion.q.y,
-            q.z - quaternion.q.z,
-            q.w - quaternion.q.w
+            x - quaternion.x,
+            y - quaternion.y,
+            z - quaternion.z,
+            w - quaternion.w
         );
     }
 
     public Quaternion times(Quaternion quaternion)
     {
         return new Quaternion(
-            q.x * quaternion.q.x,
-            q.y * quaternion.q.y,
-            q.z * quaternion.q.z,
-            q.w * quaternion.q.w
+            x * quaternion.x,
+            y * quaternion.y,
+            z * quaternion.z,
+            w * quaternion.w
         );
     }
 
     public Quaternion times(double n)
     {
         return new Quaternion(
-            q.x * n,
-            q.y * n,
-            q.z * n,
-            q.w * n
+            x * n,
+            y * n,
+            z * n,
+            w * n
         );
     }
 
     public Quaternion dividedBy(Quaternion quaternion)
     {
         return new Quaternion(
-            q.x / quaternion.q.x,
-            q.y / quaternion.q.y,
-            q.z / quaternion.q.z,
-            q.w / quaternion.q.w
+            x / quaternion.x,
+            y / quaternion.y,
+            z / quaternion.z,
+            w / quaternion.w
         );
     }
 
-    public Vector rotateVector(Vector4 vector)  
+    public Vector rotateVector(Vector4 vector) { return rotateVector(vector, new Vector()); }
+
+    /**
+     * Rotates the vector and writes the result into the destination, which may be the vector itself.
+     * @return the destination
+     */
+    public Vector rotateVector(final Vector4 vector, final Vector destination)
     { 
         //https://gamedev.stackexchange.com/a/50545
         /*
          * result = 2.0f * dot(u, v) * u
          *          + (s*s - dot(u, u)) * v
          *          + 2.0f * s * cross(u, v)
-         * 
-         * result = q * (2.0d * q.dot(vector))    +
-         *          vector * (q.w*q.w - q.dot(q)) +
-         *          q.cross(v) * (2.0d * q.w);
          */
 
-        return q.times(2.0d * q.dot(vector))
-                .plus(vector.times(q.w * q.w - q.magnitudeSquared()))
-                .plus(q.cross(vector).times(2.0d * q.w));
-        
-        //return matrix().times(vector);
+        final double vx = vector.x(), vy = vector.y(), vz = vector.z();
+
+        final double a = 2.0d * (x * vx + y * vy + z * vz);
+        final double b = w * w - (x * x + y * y + z * z);
+        final double c = 2.0d * w;
+
+        return destination.set(
+            x * a + vx * b + (y * vz - z * vy) * c,
+            y * a + vy * b + (z * vx - x * vz) * c,
+            z * a + vz * b + (x * vy - y * vx) * c
+        );
     }
 
     public Vector rotateVector2(Vector4 vector)
@@ -117,12 +138,12 @@ public class Quaternion
     
     public double norm()
     {
-        return q.magnitude();
+        return Math.sqrt(normSq());
     }
 
     public double normSq()
     {
-        return q.magnitudeSquared();
+        return x * x + y * y + z * z;
     }
 
     public Quaternion normalized()
@@ -144,19 +165,25 @@ public class Quaternion
         
         normSq = 1 / normSq;
 
-        return new Quaternion(-q.x * normSq, -q.y * normSq, -q.z * normSq, q.w * normSq);
+        return new Quaternion(-x * normSq, -y * normSq, -z * normSq, w * normSq);
     }
 
-    public Matrix matrix()
+    public Matrix matrix() { return matrix(new Matrix()); }
+
+    /**
+     * Writes the rotation matrix into the destination.
+     * @return the destination
+     */
+    public Matrix matrix(final Matrix destination)
     {
-        double n = q.w * q.w + q.x * q.x + q.y * q.y + q.z * q.z;
+        double n = w * w + x * x + y * y + z * z;
         double s = n == 0 ? 0 : 2 / n;
         
-        double wx = s * q.w * q.x, wy = s * q.w * q.y, wz = s * q.w * q.z;
-        double xx = s * q.x * q.x, xy = s * q.x * q.y, xz = s * q.x * q.z;
-        double yy = s * q.y * q.y, yz = s * q.y * q.z, zz = s * q.z * q.z;
+        double wx = s * w * x, wy = s * w * y, wz = s * w * z;
+        double xx = s * x * x, xy = s * x * y, xz = s * x * z;
+        double yy = s * y * y, yz = s * y * z, zz = s * z * z;
     
-        return new Matrix(
+        return destination.set(
             1 - yy - zz,      xy - wz,      xz + wy,          0,
                 xy + wz,  1 - xx - zz,      yz - wx,          0,
                 xz - wy,      yz + wx,  1 - xx - yy,          0,
@@ -166,19 +193,19 @@ public class Quaternion
 
     public Vector toEuler()
     {
-        double y2 = q.y*q.y;
+        double y2 = y*y;
 
         return new Vector
         (
-            Math.atan2(2 * (q.w * q.x + q.y * q.z), 1 - 2 * (q.x*q.x + y2)),
-            Math.asin (2 * (q.w * q.y - q.z * q.x)),
-            Math.atan2(2 * (q.w * q.z + q.x * q.y), 1 - 2 * (y2 + q.z*q.z))
+            Math.atan2(2 * (w * x + y * z), 1 - 2 * (x*x + y2)),
+            Math.asin (2 * (w * y - z * x)),
+            Math.atan2(2 * (w * z + x * y), 1 - 2 * (y2 + z*z))
         );
     }
 
     public final boolean equals(Quaternion quaternion)
     {
-        return quaternion != null && q.x == quaternion.q.x && q.y == quaternion.q.y && q.z == quaternion.q.z;
+        return quaternion != null && x == quaternion.x && y == quaternion.y && z == quaternion.z;
     }
 
     public final boolean equals(Object object)
@@ -194,9 +221,11 @@ public class Quaternion
     @Override
     public String toString() 
     {
-        return String.format("%s(%s)", getClass().getSimpleName(), q.toCompactString());
+        return String.format("%s(x: %s, y: %s, z: %s, w: %s)", getClass().getSimpleName(), x, y, z, w);
     }
 
+    public static Quaternion FromComponents(double x, double y, double z, double w) { return new Quaternion(x, y, z, w); }
+
     public static Quaternion FromEuler(Vector4 vector)
     {
         vector = vector.times(0.5d * RADIANT);
@@ -0,0 +1,54 @@
+package engine.math;
+
+/**
+ * Reusable vectors and matrices for the intermediate results of hot loops, so they do not create garbage. <p>
+ *
+ * Every thread has its own scratch, see {@link #get()}. It hands out its {@link #SIZE} vectors and matrices in turn,
+ * so an instance stays valid until the same scratch handed out {@link #SIZE} more of its kind.
+ * The values of an instance are whatever got written into it last, set them before reading them.
+ * Never keep an instance, copy the values into one you own instead. <p>
+ *
+ * <pre>
+ * final Scratch scratch = Scratch.get();
+ *
+ * for (...)
+ * {
+ *     final Vector direction = target.minus(position, scratch.vector()).normalize();
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author NextLegacy
+ */
+public final class Scratch
+{
+    public static final int SIZE = 16;
+
+    private static final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    private final Vector[] vectors ;
+    private final Matrix[] matrices;
+
+    private int nextVector;
+    private int nextMatrix;
+
+    private Scratch()
+    {
+        vectors  = new Vector[SIZE];
+        matrices = new Matrix[SIZE];
+
+        for (int i = 0; i < SIZE; i++)
+        {
+            vectors [i] = new Vector();
+            matrices[i] = new Matrix();
+        }
+    }
+
+    /**
+     * @return the scratch of the calling thread, fetch it once outside the loop
+     */
+    public static Scratch get() { return scratches.get(); }
+
+    public Vector vector() { final Vector vector = vectors [nextVector]; nextVector = (nextVector + 1) % SIZE; return vector; }
+    public Matrix matrix() { final Matrix matrix = matrices[nextMatrix]; nextMatrix = (nextMatrix + 1) % SIZE; return matrix; }
+}
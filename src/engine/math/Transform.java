@@ -2,18 +2,20 @@ package engine.math;
 
 /**
  * A class that represents a transformation of a Object in 3D space. <p>
+ * 
+ * The transformation matrix is cached, changes are detected by comparing the values of the position and scale
+ * and the reference of the rotation with the ones the matrix was built from,
+ * so writing into the vectors in place rebuilds the matrix as well. <p>
  */
 public final class Transform
 {
     private Matrix transformationMatrix;
 
-    private Matrix translationMatrix;
-    private Matrix rotationMatrix;
-    private Matrix scaleMatrix;
+    // the values the cached matrix was built from, NaN never equals anything, so the first call builds it
+    private double lastPositionX = Double.NaN, lastPositionY, lastPositionZ;
+    private double lastScaleX    = Double.NaN, lastScaleY   , lastScaleZ   ;
 
-    private Vector     lastPosition;
     private Quaternion lastRotation;
-    private Vector     lastScale;
 
     public Vector     position;
     public Quaternion rotation;
@@ -27,23 +29,53 @@ public final class Transform
     }
 
     /**
-     * this method is used to create, get and cache the transformation matrix of the transform.
+     * Copies the position, rotation and scale of the given transform. <p>
+     * 
+     * Only values that differ get replaced, by new vectors, so the cached transformation matrix stays valid if nothing changed
+     * and later changes of the given transform do not affect this one.
+     * @return this transform
+     */
+    public final Transform set(final Transform transform)
+    {
+        if (!transform.position.equals(position)) position = transform.position.clone();
+        if (!transform.scale   .equals(scale   )) scale    = transform.scale   .clone();
+
+        rotation = transform.rotation;
+
+        return this;
+    }
+
+    /**
+     * Writes the position into the position vector.
+     */
+    public final void setPosition(final double x, final double y, final double z) { position.set(x, y, z); }
+
+    /**
+     * Writes the scale into the scale vector.
+     */
+    public final void setScale   (final double x, final double y, final double z) { scale   .set(x, y, z); }
+
+    /**
+     * this method is used to create, get and cache the transformation matrix of the transform. <p>
+     * 
+     * The same matrix instance is returned as long as nothing changed, so comparing the references tells whether the transform changed.
      * @return the transformation matrix
      */
     public final Matrix transformationMatrix()
     {
-        final boolean positionChanged = position != lastPosition;
-        final boolean rotationChanged = rotation != lastRotation;
-        final boolean scaleChanged    = scale    != lastScale   ;
- 
-        final boolean changed = positionChanged || rotationChanged || scaleChanged;
+        final boolean positionChanged = position.x != lastPositionX || position.y != lastPositionY || position.z != lastPositionZ;
+        final boolean rotationChanged = rotation   != lastRotation;
+        final boolean scaleChanged    = scale   .x != lastScaleX    || scale   .y != lastScaleY    || scale   .z != lastScaleZ   ;
+
+        if (!positionChanged && !rotationChanged && !scaleChanged) return transformationMatrix;
 
-        if (positionChanged) { lastPosition = position; translationMatrix = Matrix.MakeTranslation(position); } 
-        if (rotationChanged) { lastRotation = rotation; rotationMatrix    = Matrix.MakeRotation   (rotation); }
-        if (scaleChanged   ) { lastScale    = scale   ; scaleMatrix       = Matrix.MakeScale      (scale   ); }
+        lastPositionX = position.x; lastPositionY = position.y; lastPositionZ = position.z;
+        lastRotation  = rotation  ;
+        lastScaleX    = scale   .x; lastScaleY    = scale   .y; lastScaleZ    = scale   .z;
 
-        if (changed) transformationMatrix = Matrix.MakeTransformation(translationMatrix, rotationMatrix, scaleMatrix);
+        // a new matrix, the old one may be shared, see GameObject#worldMatrix
+        transformationMatrix = Matrix.MakeTransformation(position, scale, rotation);
 
         return transformationMatrix;
     }
-}
\ No newline at end of file
+}
@@ -33,8 +33,8 @@ public final class Vector extends Vector4
         this.w = w;
     }
 
-    @Override public Vector inverted        () { return vec(this).inverse();   }
-    @Override public Vector normalized      () { return vec(this).normalize(); }
+    @Override public Vector inverted        () { return inverted  (new Vector()); }
+    @Override public Vector normalized      () { return normalized(new Vector()); }
     @Override public double magnitudeSquared() { return dot(this); }
     @Override public double magnitude       () { return Math.sqrt(magnitudeSquared()); }
     @Override public Vector angle           () { return vec(angleTo(Vector.right), angleTo(Vector.up)); }
@@ -69,10 +69,10 @@ public final class Vector extends Vector4
     public Vector addAll       (double n) { x += n; y += n; z += n; return this; }
     public Vector subtractAll  (double n) { x -= n; y -= n; z -= n; return this; }
 
-    public Vector multiplyBy(double x) { x *= x; return this; }
-    public Vector divideBy  (double x) { x /= x; return this; }
-    public Vector add       (double x) { x += x; return this; }
-    public Vector subtract  (double x) { x -= x; return this; }
+    public Vector multiplyBy(double x) { this.x *= x; return this; }
+    public Vector divideBy  (double x) { this.x /= x; return this; }
+    public Vector add       (double x) { this.x += x; return this; }
+    public Vector subtract  (double x) { this.x -= x; return this; }
 
     public Vector multiplyBy(double x, double y) { this.x *= x; this.y *= y; return this; }
     public Vector divideBy  (double x, double y) { this.x /= x; this.y /= y; return this; }
@@ -84,8 +84,18 @@ public final class Vector extends Vector4
     public Vector add       (double x, double y, double z) { this.x += x; this.y += y;  this.z += z; return this; }
     public Vector subtract  (double x, double y, double z) { this.x -= x; this.y -= y;  this.z -= z; return this; }
 
-    public Vector inverse  () { return multiplyBy(-1); }
-    public Vector normalize() { return divideBy(magnitude()); }
+    public Vector inverse  () { return multiplyAllBy(-1); }
+    public Vector normalize() { final double magnitude = magnitude(); return magnitude == 0 ? this : divideAllBy(magnitude); }
+
+    /**
+     * Transforms this vector by the matrix in place, see {@link Matrix#times(Vector4, Vector)}.
+     */
+    public Vector transform(Matrix matrix) { return matrix.times(this, this); }
+
+    /**
+     * Rotates this vector by the quaternion in place, see {@link Quaternion#rotateVector(Vector4, Vector)}.
+     */
+    public Vector rotate(Quaternion rotation) { return rotation.rotateVector(this, this); }
 
     public Vector clamp(Vector4 min, Vector4 max)
     {
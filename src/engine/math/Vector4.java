@@ -13,6 +13,9 @@ package engine.math;
  * 
  * You can use the {@link Vector4} type as a parameter to a method to accept both {@link FinalVector} and {@link Vector} types. <p>
  * 
+ * The operations create a new {@link Vector} for the result, the overloads that take a destination write the result into it instead
+ * and return it, the destination may be one of the operands. <p>
+ * 
  * @author NextLegacy
  * @version 1.0
  * @since 1.0
@@ -43,10 +46,23 @@ public abstract class Vector4
     public final Vector plus     (double x, double y) { return plus     (x, y, 0); }
     public final Vector minus    (double x, double y) { return minus    (x, y, 0); }
 
-    public final Vector times    (double x, double y, double z) { return new Vector(this.x() * x, this.y() * y, this.z() * z); }
-    public final Vector dividedBy(double x, double y, double z) { return new Vector(this.x() / (x==0?1:x), this.y() / (y==0?1:y), this.z() / (z==0?1:z)); }
-    public final Vector plus     (double x, double y, double z) { return new Vector(this.x() + x, this.y() + y, this.z() + z); }
-    public final Vector minus    (double x, double y, double z) { return new Vector(this.x() - x, this.y() - y, this.z() - z); }
+    public final Vector times    (double x, double y, double z) { return times    (x, y, z, new Vector()); }
+    public final Vector dividedBy(double x, double y, double z) { return dividedBy(x, y, z, new Vector()); }
+    public final Vector plus     (double x, double y, double z) { return plus     (x, y, z, new Vector()); }
+    public final Vector minus    (double x, double y, double z) { return minus    (x, y, z, new Vector()); }
+
+    public final Vector times    (Vector4 vector, Vector destination) { return times    (vector.x(), vector.y(), vector.z(), destination); }
+    public final Vector dividedBy(Vector4 vector, Vector destination) { return dividedBy(vector.x(), vector.y(), vector.z(), destination); }
+    public final Vector plus     (Vector4 vector, Vector destination) { return plus     (vector.x(), vector.y(), vector.z(), destination); }
+    public final Vector minus    (Vector4 vector, Vector destination) { return minus    (vector.x(), vector.y(), vector.z(), destination); }
+
+    public final Vector times    (double x, double y, double z, Vector destination) { return destination.set(this.x() * x, this.y() * y, this.z() * z); }
+    public final Vector dividedBy(double x, double y, double z, Vector destination) { return destination.set(this.x() / (x==0?1:x), this.y() / (y==0?1:y), this.z() / (z==0?1:z)); }
+    public final Vector plus     (double x, double y, double z, Vector destination) { return destination.set(this.x() + x, this.y() + y, this.z() + z); }
+    public final Vector minus    (double x, double y, double z, Vector destination) { return destination.set(this.x() - x, this.y() - y, this.z() - z); }
+
+    public final Vector inverted  (Vector destination) { return destination.set(this).inverse  (); }
+    public final Vector normalized(Vector destination) { return destination.set(this).normalize(); }
 
     public abstract Vector inverted        ();
     public abstract Vector normalized      ();
@@ -68,20 +84,29 @@ public abstract class Vector4
 
     public final double dot(Vector4 vec) { return x() * vec.x() + y() * vec.y() + z() * vec.z(); }
 
-    public final Vector cross(Vector4 v) 
+    public final Vector cross(Vector4 v) { return cross(v, new Vector()); }
+
+    public final Vector cross(Vector4 v, Vector destination) 
     { 
-        return new Vector(
+        return destination.set(
             y() * v.z() - z() * v.y(),
             z() * v.x() - x() * v.z(),
             x() * v.y() - y() * v.x()
         );
     }
 
-    public final double distanceTo(Vector4 vector) { return vector.minus(this).magnitude(); }
+    public final double distanceTo(Vector4 vector) 
+    { 
+        final double x = vector.x() - x(), y = vector.y() - y(), z = vector.z() - z();
+
+        return Math.sqrt(x * x + y * y + z * z); 
+    }
+
+    public final Vector directionTo(Vector4 vector) { return directionTo(vector, new Vector()); }
 
-    public final Vector directionTo(Vector4 vector)
+    public final Vector directionTo(Vector4 vector, Vector destination)
     {
-        return vector.minus(this).normalized();
+        return vector.minus(this, destination).normalize();
     }
 
     public final FinalVector toFinalVector() { return this instanceof FinalVector finalVector ? finalVector : new FinalVector(this); } // no need for a clone
@@ -0,0 +1,100 @@
+package engine.threed;
+
+/**
+ * An axis aligned bounding box and a bounding sphere around the vertices of a mesh or a part of it, in the space of the mesh. <p>
+ *
+ * The sphere is centered in the box and reaches the farthest vertex, so it is never bigger than the box, often smaller. <p>
+ *
+ * @author NextLegacy
+ * @see Frustum
+ */
+public final class Bounds
+{
+    public final double minX, minY, minZ;
+    public final double maxX, maxY, maxZ;
+
+    public final double centerX, centerY, centerZ;
+    public final double radius;
+
+    private Bounds(final double minX, final double minY, final double minZ, final double maxX, final double maxY, final double maxZ, final double radius)
+    {
+        this.minX = minX; this.minY = minY; this.minZ = minZ;
+        this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+
+        centerX = (minX + maxX) * 0.5;
+        centerY = (minY + maxY) * 0.5;
+        centerZ = (minZ + maxZ) * 0.5;
+
+        this.radius = radius;
+    }
+
+    /**
+     * @param positions x, y and z of the points, one after another
+     * @param from the index of the first point
+     * @param to the index after the last point
+     * @return the bounds of the points, empty bounds at the origin if there are none
+     */
+    public static Bounds Of(final double[] positions, final int from, final int to) { return Of(positions, null, from, to); }
+
+    /**
+     * @param positions x, y and z of the points, one after another
+     * @param indices the indices of the points, null for the points themselves
+     * @return the bounds of the points {@code indices[from .. to - 1]}, empty bounds at the origin if there are none
+     */
+    public static Bounds Of(final double[] positions, final int[] indices, final int from, final int to)
+    {
+        if (from >= to) return new Bounds(0, 0, 0, 0, 0, 0, 0);
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+        for (int k = from; k < to; k++)
+        {
+            final int i = (indices == null ? k : indices[k]) * 3;
+
+            minX = Math.min(minX, positions[i    ]); maxX = Math.max(maxX, positions[i    ]);
+            minY = Math.min(minY, positions[i + 1]); maxY = Math.max(maxY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]); maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+
+        final double centerX = (minX + maxX) * 0.5, centerY = (minY + maxY) * 0.5, centerZ = (minZ + maxZ) * 0.5;
+
+        double radiusSquared = 0;
+
+        for (int k = from; k < to; k++)
+        {
+            final int i = (indices == null ? k : indices[k]) * 3;
+
+            final double x = positions[i] - centerX, y = positions[i + 1] - centerY, z = positions[i + 2] - centerZ;
+
+            radiusSquared = Math.max(radiusSquared, x * x + y * y + z * z);
+        }
+
+        return new Bounds(minX, minY, minZ, maxX, maxY, maxZ, Math.sqrt(radiusSquared));
+    }
+
+    /**
+     * @return the bounds of the vertices of the triangles {@code triangles[from .. to - 1]}
+     */
+    public static Bounds Of(final Triangle[] triangles, final int from, final int to)
+    {
+        final double[] positions = new double[Math.max(0, to - from) * 9];
+
+        for (int i = from; i < to; i++)
+        {
+            final int p = (i - from) * 9;
+
+            positions[p    ] = triangles[i].a.x; positions[p + 1] = triangles[i].a.y; positions[p + 2] = triangles[i].a.z;
+            positions[p + 3] = triangles[i].b.x; positions[p + 4] = triangles[i].b.y; positions[p + 5] = triangles[i].b.z;
+            positions[p + 6] = triangles[i].c.x; positions[p + 7] = triangles[i].c.y; positions[p + 8] = triangles[i].c.z;
+        }
+
+        return Of(positions, 0, positions.length / 3);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "(min: " + minX + ", " + minY + ", " + minZ + " | max: " + maxX + ", " + maxY + ", " + maxZ + " | radius: " + radius + ")";
+    }
+}
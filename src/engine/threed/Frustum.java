@@ -0,0 +1,109 @@
+package engine.threed;
+
+import engine.math.Matrix;
+
+/**
+ * The view frustum of a {@link Camera} in the space of a mesh, used to skip meshes and parts of meshes that can not be visible
+ * before any of their vertices get transformed, see {@link Bounds}. <p>
+ *
+ * The frustum has a near plane and four side planes, the borders of the image. It has no far plane,
+ * because the mesh pipeline does not clip against one. A point (x, y, z) is inside if {@code a * x + b * y + c * z + d >= 0} holds for every plane,
+ * the planes are derived from the model view and the projection matrix, so they are in the space the model matrix transforms from
+ * and a non uniformly scaled mesh is tested exactly. <p>
+ *
+ * The test is conservative, bounds that are reported as outside are outside, bounds that are reported as inside may still be outside. <p>
+ *
+ * @author NextLegacy
+ */
+public final class Frustum
+{
+    private static final int PLANES = 5;
+
+    // a, b, c and d of the planes, a, b and c normalized
+    private final double[] planes;
+
+    private final Matrix modelViewProjection;
+
+    public Frustum()
+    {
+        planes              = new double[PLANES * 4];
+        modelViewProjection = new Matrix();
+    }
+
+    /**
+     * Sets the planes to the ones of the frustum, does not create any objects.
+     *
+     * @param modelView the model matrix times the view matrix, the view matrix alone for the frustum in world space
+     * @param projection the projection matrix
+     * @param near the distance of the near plane in view space
+     * @return this frustum
+     */
+    public Frustum set(final Matrix modelView, final Matrix projection, final double near)
+    {
+        final Matrix m = modelView.times(projection, modelViewProjection);
+
+        // points are row vectors, so a component of the transformed point is the dot product of the point and a column
+        setPlane(0, m.get(3) + m.get(0), m.get(7) + m.get(4), m.get(11) + m.get( 8), m.get(15) + m.get(12)); // left  : x >= -w
+        setPlane(1, m.get(3) - m.get(0), m.get(7) - m.get(4), m.get(11) - m.get( 8), m.get(15) - m.get(12)); // right : x <=  w
+        setPlane(2, m.get(3) + m.get(1), m.get(7) + m.get(5), m.get(11) + m.get( 9), m.get(15) + m.get(13)); // bottom: y >= -w
+        setPlane(3, m.get(3) - m.get(1), m.get(7) - m.get(5), m.get(11) - m.get( 9), m.get(15) - m.get(13)); // top   : y <=  w
+
+        // near: z >= near * w in view space
+        setPlane(4, modelView.get(2) - near * modelView.get(3), modelView.get(6) - near * modelView.get(7), modelView.get(10) - near * modelView.get(11), modelView.get(14) - near * modelView.get(15));
+
+        return this;
+    }
+
+    private void setPlane(final int plane, final double a, final double b, final double c, final double d)
+    {
+        final double length = Math.sqrt(a * a + b * b + c * c);
+
+        final double scale = length == 0 ? 1 : 1 / length;
+
+        planes[plane * 4    ] = a * scale;
+        planes[plane * 4 + 1] = b * scale;
+        planes[plane * 4 + 2] = c * scale;
+        planes[plane * 4 + 3] = d * scale;
+    }
+
+    /**
+     * Tests the bounding sphere and then the bounding box against every plane.
+     * @return false if the bounds are completely outside of the frustum
+     */
+    public boolean intersects(final Bounds bounds)
+    {
+        return intersects(bounds.centerX, bounds.centerY, bounds.centerZ, bounds.radius) &&
+               intersects(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+    }
+
+    /**
+     * @return false if the sphere is completely outside of the frustum
+     */
+    public boolean intersects(final double x, final double y, final double z, final double radius)
+    {
+        for (int i = 0; i < PLANES * 4; i += 4)
+            if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z + planes[i + 3] < -radius) return false;
+
+        return true;
+    }
+
+    /**
+     * @return false if the box is completely outside of the frustum
+     */
+    public boolean intersects(final double minX, final double minY, final double minZ, final double maxX, final double maxY, final double maxZ)
+    {
+        for (int i = 0; i < PLANES * 4; i += 4)
+        {
+            final double a = planes[i], b = planes[i + 1], c = planes[i + 2], d = planes[i + 3];
+
+            // the corner of the box that is the farthest inside
+            final double x = a >= 0 ? maxX : minX;
+            final double y = b >= 0 ? maxY : minY;
+            final double z = c >= 0 ? maxZ : minZ;
+
+            if (a * x + b * y + c * z + d < 0) return false;
+        }
+
+        return true;
+    }
+}
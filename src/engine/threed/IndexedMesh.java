@@ -0,0 +1,214 @@
+package engine.threed;
+
+import java.util.IdentityHashMap;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * A mesh that stores its vertices in primitive buffers and its triangles as indices into them. <p>
+ *
+ * Vertex {@code i} has its position at {@code positions[i * 3 .. i * 3 + 2]}, its texture coordinate at
+ * {@code uvs[i * 2 .. i * 2 + 1]} and its normal at {@code normals[i * 3 .. i * 3 + 2]}.
+ * Triangle {@code t} consists of the vertices {@code indices[t * 3 .. t * 3 + 2]}. <p>
+ *
+ * Compared to {@link Mesh} a vertex that is shared by multiple triangles is only stored once and no objects are needed per vertex. <p>
+ *
+ * The bounds of the mesh and of its clusters, runs of {@link #CLUSTER_SIZE} consecutive triangles, are computed once when the mesh gets created,
+ * so they are only valid as long as the positions do not change. They let the mesh pipeline skip meshes and clusters outside of the view,
+ * see {@link Frustum}. <p>
+ *
+ * @author NextLegacy
+ * @version 1.0
+ */
+public final class IndexedMesh
+{
+    public static final int POSITION_COMPONENTS = 3;
+    public static final int UV_COMPONENTS       = 2;
+    public static final int NORMAL_COMPONENTS   = 3;
+
+    /** The number of triangles of a cluster, the last cluster may have less. */
+    public static final int CLUSTER_SIZE = 128;
+
+    public final double[] positions;
+    public final double[] uvs      ;
+    public final double[] normals  ;
+
+    public final int[] indices;
+
+    public final Bounds bounds;
+
+    private final Bounds[] clusterBounds  ;
+    private final int   [] clusterVertices; // the lowest and the highest index of a vertex of every cluster
+
+    public IndexedMesh(final double[] positions, final double[] uvs, final double[] normals, final int[] indices)
+    {
+        final int vertexCount = positions.length / POSITION_COMPONENTS;
+
+        if (positions.length % POSITION_COMPONENTS != 0                               ||
+            uvs      .length                       != vertexCount * UV_COMPONENTS     ||
+            normals  .length                       != vertexCount * NORMAL_COMPONENTS ||
+            indices  .length % 3                   != 0                               )
+        {
+            throw new RuntimeException("IndexedMesh buffer sizes do not match!");
+        }
+
+        this.positions = positions;
+        this.uvs       = uvs      ;
+        this.normals   = normals  ;
+        this.indices   = indices  ;
+
+        bounds = Bounds.Of(positions, 0, vertexCount);
+
+        clusterBounds   = new Bounds[(triangleCount() + CLUSTER_SIZE - 1) / CLUSTER_SIZE];
+        clusterVertices = new int   [clusterBounds.length * 2];
+
+        for (int cluster = 0; cluster < clusterBounds.length; cluster++)
+        {
+            final int from = cluster * CLUSTER_SIZE * 3;
+            final int to   = Math.min(from + CLUSTER_SIZE * 3, indices.length);
+
+            clusterBounds[cluster] = Bounds.Of(positions, indices, from, to);
+
+            int lowest = Integer.MAX_VALUE, highest = 0;
+
+            for (int i = from; i < to; i++)
+            {
+                lowest  = Math.min(lowest , indices[i]);
+                highest = Math.max(highest, indices[i]);
+            }
+
+            clusterVertices[cluster * 2    ] = lowest ;
+            clusterVertices[cluster * 2 + 1] = highest;
+        }
+    }
+
+    public int vertexCount  () { return positions.length / POSITION_COMPONENTS; }
+    public int triangleCount() { return indices  .length / 3                  ; }
+    public int clusterCount () { return clusterBounds.length                  ; }
+
+    /** @return the bounds of the triangles {@code cluster * CLUSTER_SIZE} up to {@code (cluster + 1) * CLUSTER_SIZE - 1} */
+    public Bounds clusterBounds(final int cluster) { return clusterBounds[cluster]; }
+
+    /** @return the lowest index of a vertex of a triangle of the cluster */
+    public int clusterLowestVertex (final int cluster) { return clusterVertices[cluster * 2    ]; }
+    /** @return the highest index of a vertex of a triangle of the cluster */
+    public int clusterHighestVertex(final int cluster) { return clusterVertices[cluster * 2 + 1]; }
+
+    /**
+     * Creates a {@link Vertex} object of the vertex at the given index. <p>
+     */
+    public Vertex vertex(final int index)
+    {
+        final int p = index * POSITION_COMPONENTS;
+        final int t = index * UV_COMPONENTS;
+        final int n = index * NORMAL_COMPONENTS;
+
+        return new Vertex
+        (
+            fvec(positions[p], positions[p + 1], positions[p + 2]),
+            fvec(uvs      [t], uvs      [t + 1]                  ),
+            fvec(normals  [n], normals  [n + 1], normals  [n + 2])
+        );
+    }
+
+    /**
+     * Creates a {@link Triangle} object of the triangle at the given index. <p>
+     */
+    public Triangle triangle(final int index)
+    {
+        final int i = index * 3;
+
+        return new Triangle(vertex(indices[i]), vertex(indices[i + 1]), vertex(indices[i + 2]));
+    }
+
+    /**
+     * Converts this mesh to a {@link Mesh}. Triangles that share a vertex also share the {@link Vertex} object. <p>
+     */
+    public Mesh toMesh()
+    {
+        final Vertex[] vertices = new Vertex[vertexCount()];
+
+        for (int i = 0; i < vertices.length; i++)
+            vertices[i] = vertex(i);
+
+        final Triangle[] triangles = new Triangle[triangleCount()];
+
+        for (int i = 0; i < triangles.length; i++)
+            triangles[i] = new Triangle(vertices[indices[i * 3]], vertices[indices[i * 3 + 1]], vertices[indices[i * 3 + 2]]);
+
+        return new Mesh(triangles);
+    }
+
+    public String toString()
+    {
+        return getClass().getSimpleName() + "(vertices: " + vertexCount() + " | triangles: " + triangleCount() + ")";
+    }
+
+    /**
+     * Creates an indexed mesh from a {@link Mesh}. {@link Vertex} objects that are shared by multiple triangles become a single vertex. <p>
+     */
+    public static IndexedMesh FromMesh(final Mesh mesh)
+    {
+        final IdentityHashMap<Vertex, Integer> vertexIndices = new IdentityHashMap<>();
+
+        final Vertex[] vertices = new Vertex[mesh.triangles.length * 3];
+        final int   [] indices  = new int   [mesh.triangles.length * 3];
+
+        for (int i = 0; i < mesh.triangles.length; i++)
+        {
+            final Triangle triangle = mesh.triangles[i];
+
+            indices[i * 3    ] = indexOf(vertexIndices, vertices, triangle.a);
+            indices[i * 3 + 1] = indexOf(vertexIndices, vertices, triangle.b);
+            indices[i * 3 + 2] = indexOf(vertexIndices, vertices, triangle.c);
+        }
+
+        final int vertexCount = vertexIndices.size();
+
+        final double[] positions = new double[vertexCount * POSITION_COMPONENTS];
+        final double[] uvs       = new double[vertexCount * UV_COMPONENTS      ];
+        final double[] normals   = new double[vertexCount * NORMAL_COMPONENTS  ];
+
+        for (int i = 0; i < vertexCount; i++)
+        {
+            final Vertex vertex = vertices[i];
+
+            positions[i * 3] = vertex.x        ; positions[i * 3 + 1] = vertex.y        ; positions[i * 3 + 2] = vertex.z        ;
+            uvs      [i * 2] = vertex.texture.x; uvs      [i * 2 + 1] = vertex.texture.y;
+            normals  [i * 3] = vertex.normal .x; normals  [i * 3 + 1] = vertex.normal .y; normals  [i * 3 + 2] = vertex.normal .z;
+        }
+
+        return new IndexedMesh(positions, uvs, normals, indices);
+    }
+
+    private static int indexOf(final IdentityHashMap<Vertex, Integer> vertexIndices, final Vertex[] vertices, final Vertex vertex)
+    {
+        Integer index = vertexIndices.get(vertex);
+
+        if (index == null)
+        {
+            index = vertexIndices.size();
+
+            vertexIndices.put(vertex, index);
+
+            vertices[index] = vertex;
+        }
+
+        return index;
+    }
+
+    /**
+     * Creates an indexed mesh from an obj file. <p>
+     *
+     * The file is streamed and parsed without creating objects per line.
+     * Faces with more than three corners are triangulated as a fan.
+     * Corners that share the same position, texture coordinate and normal become a single vertex. <p>
+     *
+     * @param file The file to load
+     * @return The mesh, or an empty mesh if the file could not be read
+     */
+    public static IndexedMesh FromObjFile(final String file)
+    {
+        return ObjFileReader.read(file);
+    }
+}
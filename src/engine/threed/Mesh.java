@@ -1,27 +1,40 @@
 package engine.threed;
 
-import engine.math.Vector4;
-import engine.utils.FileUtils;
-
-import static engine.utils.MathUtils.*;
-import static engine.utils.ArrayUtils.*;
-
 /**
- * A mesh is a collection of triangles.
+ * A mesh is a collection of triangles. <p>
+ * 
+ * The bounds of the mesh and of its clusters, runs of {@link IndexedMesh#CLUSTER_SIZE} consecutive triangles, are computed once when the mesh gets created,
+ * see {@link IndexedMesh}. <p>
  * 
  * @author NextLegacy
  * @version 1.0
  */
 public final class Mesh 
 {
-    // TODO: optimize this by using a Vertex array and storing the indices for the triangles, way less pointer needed
+    // for a Vertex array with indices for the triangles, see IndexedMesh
     public final Triangle[] triangles;
+
+    public final Bounds bounds;
+
+    private final Bounds[] clusterBounds;
     
     public Mesh(Triangle[] triangles)
     {
         this.triangles = triangles;
+
+        bounds = Bounds.Of(triangles, 0, triangles.length);
+
+        clusterBounds = new Bounds[(triangles.length + IndexedMesh.CLUSTER_SIZE - 1) / IndexedMesh.CLUSTER_SIZE];
+
+        for (int cluster = 0; cluster < clusterBounds.length; cluster++)
+            clusterBounds[cluster] = Bounds.Of(triangles, cluster * IndexedMesh.CLUSTER_SIZE, Math.min((cluster + 1) * IndexedMesh.CLUSTER_SIZE, triangles.length));
     }
 
+    public int clusterCount() { return clusterBounds.length; }
+
+    /** @return the bounds of the triangles {@code cluster * CLUSTER_SIZE} up to {@code (cluster + 1) * CLUSTER_SIZE - 1} */
+    public Bounds clusterBounds(final int cluster) { return clusterBounds[cluster]; }
+
     public String toString()
     {
         String result = "";
@@ -32,65 +45,16 @@ public final class Mesh
         return result;
     }
     
-    // TODO: optimize this
     /**
-     * Creates a mesh from an obj file
+     * Creates a mesh from an obj file. <p>
+     * 
+     * The file is parsed by {@link IndexedMesh#FromObjFile(String)}, triangles that share a vertex share the {@link Vertex} object.
      * 
      * @param file The file to load
      * @return The mesh
      */
     public static Mesh FromObjFile(String file)
     {
-        String[] lines = FileUtils.getLines(file);
-
-        Triangle[] polygons = new Triangle[0];
-
-        Vector4[] vertices = new Vector4[0];
-        Vector4[] textures = new Vector4[0];
-        Vector4[] normals  = new Vector4[0];
-
-        for (int i = 0; i < lines.length; i++)
-        {
-            String line = lines[i];
-            String lineArgs = line.substring(2).trim();
-            char[] type = line.substring(0, 2).toCharArray();
-
-            String[] args = lineArgs.split(" ");
-
-            if (type[0] == 'v')
-                pushVertexData
-                (
-                    type[1] == ' ' ? vertices : 
-                    type[1] == 't' ? textures : 
-                    type[1] == 'n' ? normals  : null, 
-                    args
-                );
-
-            if (type[0] == 't')
-            {
-                Vertex[] polygonVertices = new Vertex[3];
-
-                for (int j = 0; j < 3; j++)
-                {
-                    String[] faceArgs = args[j].split("/");
-                    int[] indices = { toInt(faceArgs[0]), toInt(faceArgs[1]), toInt(faceArgs[2]) };
-
-                    polygonVertices[j] = new Vertex(
-                        vertices [indices[0]-1], 
-                        textures [indices[1]-1],
-                        normals  [indices[2]-1] 
-                    );
-                }
-
-                polygons = push(polygons, new Triangle(polygonVertices[0], polygonVertices[1], polygonVertices[2]));
-            }
-        }
-
-        return new Mesh(polygons);
-    }
-
-    private static Vector4[] pushVertexData(final Vector4[] array, final String[] args)
-    {
-        return push(array, fvec(toDouble(args[0]), toDouble(args[1]), toDouble(args[2])));
+        return IndexedMesh.FromObjFile(file).toMesh();
     }
 }
@@ -0,0 +1,405 @@
+package engine.threed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A streaming obj file parser that builds an {@link IndexedMesh}. <p>
+ *
+ * The file is read in chunks through a {@link FileChannel} and parsed directly from the bytes,
+ * all buffers are primitive arrays that grow by doubling. <p>
+ *
+ * Supported are {@code v}, {@code vt}, {@code vn} and {@code f} with the corner formats
+ * {@code p}, {@code p/t}, {@code p//n} and {@code p/t/n}, including negative (relative) indices.
+ * Everything else is ignored. <p>
+ *
+ * @author NextLegacy
+ */
+final class ObjFileReader
+{
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    // current line
+    private byte[] data;
+    private int    cursor;
+    private int    lineEnd;
+    private int    lineNumber;
+
+    // data of the file, referenced by the faces
+    private double[] filePositions = new double[3 * 1024]; private int filePositionCount;
+    private double[] fileUvs       = new double[2 * 1024]; private int fileUvCount      ;
+    private double[] fileNormals   = new double[3 * 1024]; private int fileNormalCount  ;
+
+    // unified vertices of the resulting mesh
+    private double[] positions = new double[3 * 1024];
+    private double[] uvs       = new double[2 * 1024];
+    private double[] normals   = new double[3 * 1024];
+    private int      vertexCount;
+
+    private int[] indices = new int[3 * 1024];
+    private int   indexCount;
+
+    // open addressing hash table from (position, uv, normal) file indices to vertex indices
+    private int[] tableKeys   = new int[3 * 4096];
+    private int[] tableValues = new int[    4096];
+    private int   tableSize;
+
+    // corners of the current face
+    private int[] face = new int[16];
+
+    private ObjFileReader() { Arrays.fill(tableValues, -1); }
+
+    static IndexedMesh read(final String file)
+    {
+        final ObjFileReader reader = new ObjFileReader();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
+        {
+            reader.read(channel);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+
+            return new IndexedMesh(new double[0], new double[0], new double[0], new int[0]);
+        }
+
+        return reader.toMesh();
+    }
+
+    private void read(final FileChannel channel) throws IOException
+    {
+        data = new byte[CHUNK_SIZE];
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        int length = 0; // bytes in data
+        int start  = 0; // start of the current line
+
+        boolean endOfFile = false;
+
+        while (!endOfFile)
+        {
+            // move the unfinished line to the front and fill the rest of the buffer
+            if (start > 0)
+            {
+                System.arraycopy(data, start, data, 0, length - start);
+                length -= start;
+                start   = 0;
+            }
+
+            if (length == data.length)
+            {
+                data   = Arrays.copyOf(data, data.length * 2);
+                buffer = ByteBuffer.wrap(data);
+            }
+
+            buffer.limit(data.length).position(length);
+
+            final int read = channel.read(buffer);
+
+            if (read < 0) endOfFile = true;
+            else          length   += read;
+
+            for (int i = start; i < length; i++)
+            {
+                if (data[i] != '\n') continue;
+
+                parseLine(start, i);
+
+                start = i + 1;
+            }
+
+            // the last line does not need to end with a line break
+            if (endOfFile && start < length)
+                parseLine(start, length);
+        }
+
+        data = null;
+    }
+
+    private void parseLine(final int start, final int end)
+    {
+        lineNumber++;
+
+        cursor  = start;
+        lineEnd = end;
+
+        skipWhitespace();
+
+        if (cursor + 1 >= lineEnd) return;
+
+        final byte a = data[cursor    ];
+        final byte b = data[cursor + 1];
+
+        if (a == 'v' && isWhitespace(b)) { cursor += 1; filePositions = pushDouble3(filePositions, filePositionCount); filePositionCount += 3; return; }
+        if (a == 'f' && isWhitespace(b)) { cursor += 1; parseFace(); return; }
+
+        if (cursor + 2 >= lineEnd || !isWhitespace(data[cursor + 2])) return;
+
+        if (a == 'v' && b == 't') { cursor += 2; fileUvs     = pushDouble2(fileUvs    , fileUvCount    ); fileUvCount     += 2; return; }
+        if (a == 'v' && b == 'n') { cursor += 2; fileNormals = pushDouble3(fileNormals, fileNormalCount); fileNormalCount += 3; return; }
+    }
+
+    private double[] pushDouble3(double[] array, final int count)
+    {
+        if (count + 3 > array.length) array = Arrays.copyOf(array, array.length * 2);
+
+        array[count    ] = parseDouble();
+        array[count + 1] = parseDouble();
+        array[count + 2] = parseDouble();
+
+        return array;
+    }
+
+    private double[] pushDouble2(double[] array, final int count)
+    {
+        if (count + 2 > array.length) array = Arrays.copyOf(array, array.length * 2);
+
+        array[count    ] = parseDouble();
+        array[count + 1] = parseDouble();
+
+        return array;
+    }
+
+    private void parseFace()
+    {
+        int corners = 0;
+
+        while (true)
+        {
+            skipWhitespace();
+
+            if (cursor >= lineEnd) break;
+
+            final int position = resolve(parseInt(), filePositionCount / 3);
+            int       uv       = -1;
+            int       normal   = -1;
+
+            if (cursor < lineEnd && data[cursor] == '/')
+            {
+                cursor++;
+
+                if (cursor < lineEnd && data[cursor] != '/') uv = resolve(parseInt(), fileUvCount / 2);
+
+                if (cursor < lineEnd && data[cursor] == '/')
+                {
+                    cursor++;
+
+                    normal = resolve(parseInt(), fileNormalCount / 3);
+                }
+            }
+
+            if (corners == face.length) face = Arrays.copyOf(face, face.length * 2);
+
+            face[corners++] = vertex(position, uv, normal);
+        }
+
+        if (corners < 3) throw error("face with less than three corners");
+
+        for (int i = 2; i < corners; i++)
+        {
+            if (indexCount + 3 > indices.length) indices = Arrays.copyOf(indices, indices.length * 2);
+
+            indices[indexCount++] = face[0    ];
+            indices[indexCount++] = face[i - 1];
+            indices[indexCount++] = face[i    ];
+        }
+    }
+
+    private int resolve(final int index, final int count)
+    {
+        final int resolved = index > 0 ? index - 1 : count + index;
+
+        if (index == 0 || resolved < 0 || resolved >= count) throw error("index " + index + " out of range");
+
+        return resolved;
+    }
+
+    /**
+     * @return the index of the vertex with the given file indices, a new vertex is created if there is none yet
+     */
+    private int vertex(final int position, final int uv, final int normal)
+    {
+        final int mask = tableValues.length - 1;
+
+        int slot = hash(position, uv, normal) & mask;
+
+        while (tableValues[slot] != -1)
+        {
+            if (tableKeys[slot * 3] == position && tableKeys[slot * 3 + 1] == uv && tableKeys[slot * 3 + 2] == normal)
+                return tableValues[slot];
+
+            slot = (slot + 1) & mask;
+        }
+
+        final int vertex = vertexCount++;
+
+        tableKeys  [slot * 3    ] = position;
+        tableKeys  [slot * 3 + 1] = uv      ;
+        tableKeys  [slot * 3 + 2] = normal  ;
+        tableValues[slot        ] = vertex  ;
+
+        if (++tableSize * 2 > tableValues.length) growTable();
+
+        if (vertexCount * 3 > positions.length)
+        {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+            uvs       = Arrays.copyOf(uvs      , uvs      .length * 2);
+            normals   = Arrays.copyOf(normals  , normals  .length * 2);
+        }
+
+        System.arraycopy(filePositions, position * 3, positions, vertex * 3, 3);
+
+        if (uv     != -1) System.arraycopy(fileUvs    , uv     * 2, uvs    , vertex * 2, 2);
+        if (normal != -1) System.arraycopy(fileNormals, normal * 3, normals, vertex * 3, 3);
+
+        return vertex;
+    }
+
+    private void growTable()
+    {
+        final int[] oldKeys   = tableKeys;
+        final int[] oldValues = tableValues;
+
+        tableKeys   = new int[oldKeys  .length * 2];
+        tableValues = new int[oldValues.length * 2];
+
+        Arrays.fill(tableValues, -1);
+
+        final int mask = tableValues.length - 1;
+
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            if (oldValues[i] == -1) continue;
+
+            int slot = hash(oldKeys[i * 3], oldKeys[i * 3 + 1], oldKeys[i * 3 + 2]) & mask;
+
+            while (tableValues[slot] != -1) slot = (slot + 1) & mask;
+
+            System.arraycopy(oldKeys, i * 3, tableKeys, slot * 3, 3);
+
+            tableValues[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(final int position, final int uv, final int normal)
+    {
+        int hash = position * 0x9E3779B1;
+
+        hash = (hash ^ (hash >>> 15)) + uv     * 0x85EBCA77;
+        hash = (hash ^ (hash >>> 13)) + normal * 0xC2B2AE3D;
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private IndexedMesh toMesh()
+    {
+        return new IndexedMesh
+        (
+            Arrays.copyOf(positions, vertexCount * 3),
+            Arrays.copyOf(uvs      , vertexCount * 2),
+            Arrays.copyOf(normals  , vertexCount * 3),
+            Arrays.copyOf(indices  , indexCount     )
+        );
+    }
+
+    //
+    // NUMBER PARSING
+    //
+
+    private static boolean isWhitespace(final byte b) { return b == ' ' || b == '\t' || b == '\r'; }
+    private static boolean isDigit     (final byte b) { return b >= '0' && b <= '9'; }
+
+    private void skipWhitespace() { while (cursor < lineEnd && isWhitespace(data[cursor])) cursor++; }
+
+    private int parseInt()
+    {
+        final boolean negative = cursor < lineEnd && data[cursor] == '-';
+
+        if (negative || (cursor < lineEnd && data[cursor] == '+')) cursor++;
+
+        if (cursor >= lineEnd || !isDigit(data[cursor])) throw error("expected an integer");
+
+        int value = 0;
+
+        while (cursor < lineEnd && isDigit(data[cursor]))
+            value = value * 10 + (data[cursor++] - '0');
+
+        return negative ? -value : value;
+    }
+
+    private double parseDouble()
+    {
+        skipWhitespace();
+
+        final boolean negative = cursor < lineEnd && data[cursor] == '-';
+
+        if (negative || (cursor < lineEnd && data[cursor] == '+')) cursor++;
+
+        final int start = cursor;
+
+        long mantissa = 0;
+        int  exponent = 0;
+        int  digits   = 0;
+
+        while (cursor < lineEnd && isDigit(data[cursor]))
+        {
+            // a long holds 18 decimal digits, the remaining ones only shift the value
+            if (digits < 18) { mantissa = mantissa * 10 + (data[cursor] - '0'); if (mantissa != 0) digits++; }
+            else             { exponent++; }
+
+            cursor++;
+        }
+
+        if (cursor < lineEnd && data[cursor] == '.')
+        {
+            cursor++;
+
+            while (cursor < lineEnd && isDigit(data[cursor]))
+            {
+                if (digits < 18) { mantissa = mantissa * 10 + (data[cursor] - '0'); exponent--; if (mantissa != 0) digits++; }
+
+                cursor++;
+            }
+        }
+
+        //neither an integer nor a fraction part, or only a single dot
+        if (cursor == start || (cursor == start + 1 && data[start] == '.')) throw error("expected a number");
+
+        if (cursor < lineEnd && (data[cursor] == 'e' || data[cursor] == 'E'))
+        {
+            cursor++;
+
+            exponent += parseInt();
+        }
+
+        if (cursor < lineEnd && !isWhitespace(data[cursor])) throw error("expected a number");
+
+        double value = mantissa;
+
+        if      (exponent < 0) value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+        else if (exponent > 0) value =  exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[ exponent] : value * Math.pow(10, exponent);
+
+        return negative ? -value : value;
+    }
+
+    private RuntimeException error(final String message)
+    {
+        return new RuntimeException("Invalid obj file, " + message + " in line " + lineNumber + "!");
+    }
+}
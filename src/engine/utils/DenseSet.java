@@ -0,0 +1,215 @@
+package engine.utils;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A set of objects, compared by identity, that adds, removes and looks up in constant time. <p>
+ *
+ * The elements are kept in a dense array, removing an element moves the last element into its place,
+ * so the order of the elements is the order they were added in until something gets removed.
+ * The index of every element is kept in an open addressing hash table keyed by {@link System#identityHashCode(Object)}. <p>
+ *
+ * {@link #toArray()} returns a snapshot that is not affected by later changes of the set, the same snapshot is returned until the set changes,
+ * so iterating over the snapshot while elements get added or removed is safe and costs a single copy per change, not per element. <p>
+ *
+ * @author NextLegacy
+ */
+public final class DenseSet<T>
+{
+    private static final int MINIMUM_CAPACITY = 8;
+
+    private final IntFunction<T[]> arrayFactory;
+
+    private T[] elements;
+    private int size    ;
+
+    private T[] snapshot;
+
+    // slots of the hash table, the key and the index of the key in elements
+    private Object[] keys   ;
+    private int   [] indices;
+    private int      mask   ;
+
+    /**
+     * @param arrayFactory creates arrays of the element type, for example {@code GameObject[]::new}
+     */
+    public DenseSet(final IntFunction<T[]> arrayFactory)
+    {
+        this.arrayFactory = arrayFactory;
+
+        elements = arrayFactory.apply(MINIMUM_CAPACITY);
+        snapshot = arrayFactory.apply(0);
+
+        keys    = new Object[MINIMUM_CAPACITY * 2];
+        indices = new int   [MINIMUM_CAPACITY * 2];
+        mask    = keys.length - 1;
+    }
+
+    public int     size    () { return size     ; }
+    public boolean isEmpty () { return size == 0; }
+
+    public T get(final int index)
+    {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        return elements[index];
+    }
+
+    public boolean contains(final T element) { return element != null && find(element) >= 0; }
+
+    /**
+     * @return whether the element got added, false if it is null or already contained
+     */
+    public boolean add(final T element)
+    {
+        if (element == null) return false;
+
+        int slot = find(element);
+
+        if (slot >= 0) return false;
+
+        if (size == elements.length)
+        {
+            elements = Arrays.copyOf(elements, size * 2);
+
+            // the table stays at most half full
+            rehash(keys.length * 2);
+
+            slot = find(element);
+        }
+
+        slot = ~slot;
+
+        keys   [slot] = element;
+        indices[slot] = size;
+
+        elements[size++] = element;
+
+        snapshot = null;
+
+        return true;
+    }
+
+    /**
+     * @return whether the element got removed, false if it was not contained
+     */
+    public boolean remove(final T element)
+    {
+        if (element == null) return false;
+
+        final int slot = find(element);
+
+        if (slot < 0) return false;
+
+        final int index = indices[slot];
+
+        removeSlot(slot);
+
+        final T last = elements[--size];
+
+        elements[size] = null;
+
+        if (index != size)
+        {
+            elements[index] = last;
+            indices[find(last)] = index;
+        }
+
+        snapshot = null;
+
+        return true;
+    }
+
+    public void clear()
+    {
+        if (size == 0) return;
+
+        Arrays.fill(elements, 0, size, null);
+        Arrays.fill(keys, null);
+
+        size = 0;
+
+        snapshot = null;
+    }
+
+    /**
+     * @return the elements in their current order, the array must not be changed, it is shared until the set changes
+     */
+    public T[] toArray()
+    {
+        if (snapshot == null)
+        {
+            snapshot = arrayFactory.apply(size);
+
+            System.arraycopy(elements, 0, snapshot, 0, size);
+        }
+
+        return snapshot;
+    }
+
+    private int slot(final Object key)
+    {
+        final int hash = System.identityHashCode(key) * 0x9E3779B9;
+
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @return the slot of the key, or the complement of the empty slot the key belongs into
+     */
+    private int find(final Object key)
+    {
+        int slot = slot(key);
+
+        while (keys[slot] != null)
+        {
+            if (keys[slot] == key) return slot;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return ~slot;
+    }
+
+    /**
+     * Empties the slot and moves the following keys back, so every key stays reachable from its own slot without tombstones.
+     */
+    private void removeSlot(int slot)
+    {
+        keys[slot] = null;
+
+        for (int next = (slot + 1) & mask; keys[next] != null; next = (next + 1) & mask)
+        {
+            final int home = slot(keys[next]);
+
+            // the key may move into the empty slot if the empty slot lies between its home slot and its current slot
+            final boolean movable = slot <= next ? home <= slot || home > next : home <= slot && home > next;
+
+            if (!movable) continue;
+
+            keys   [slot] = keys   [next];
+            indices[slot] = indices[next];
+            keys   [next] = null;
+
+            slot = next;
+        }
+    }
+
+    private void rehash(final int capacity)
+    {
+        keys    = new Object[capacity];
+        indices = new int   [capacity];
+        mask    = capacity - 1;
+
+        for (int i = 0; i < size; i++)
+        {
+            final int slot = ~find(elements[i]);
+
+            keys   [slot] = elements[i];
+            indices[slot] = i;
+        }
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + Arrays.toString(toArray()); }
+}
@@ -8,6 +8,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.VolatileImage;
 
+import engine.graphics.DepthFormat;
 import engine.graphics.Image;
 import engine.math.FinalVector;
 import engine.math.Vector4;
@@ -24,11 +25,11 @@ public final class ImageUtils
 {
     private ImageUtils() { }
 
-    private final static GraphicsConfiguration gfx_config;
+    private final static GraphicsConfiguration gfx_config; // null if headless, plain ARGB images are used then
 
     static 
     {
-        gfx_config = Screen.DEFAULT_SCREEN.GRAPHICS_CONFIGURATION;
+        gfx_config = Screen.isHeadless() ? null : Screen.DEFAULT_SCREEN.GRAPHICS_CONFIGURATION;
     }
 
     public static int[] getBufferedImageDataArray(final BufferedImage bufferedImage)
@@ -56,15 +57,30 @@ public final class ImageUtils
     //    //ArrayUtils.copy(source.zBuffer    (), destination.zBuffer    (), x0, y0, x1, y1, destination.width(), destination.height());
     //}
 
+    /**
+     * Copies the colors and depths of the source into the destination, both images need the same {@link DepthFormat}.
+     */
     public static void imageCopy(Image source, Image destination)
     {
+        if (source.depthFormat() != destination.depthFormat())
+            throw new RuntimeException("Can not copy an image with " + source.depthFormat() + " depth into an image with " + destination.depthFormat() + " depth!");
+
         ArrayUtils.copy(source.colorBuffer(), destination.colorBuffer(), destination.pixels());
-        ArrayUtils.copy(source.zBuffer    (), destination.zBuffer    (), destination.pixels());
+
+        switch (source.depthFormat())
+        {
+            case DOUBLE: ArrayUtils.copy(source.zBuffer     (), destination.zBuffer     (), destination.pixels()); break;
+            case FLOAT : ArrayUtils.copy(source.floatZBuffer(), destination.floatZBuffer(), destination.pixels()); break;
+            case INT   : ArrayUtils.copy(source.intZBuffer  (), destination.intZBuffer  (), destination.pixels()); break;
+            case NONE  : break;
+        }
     }
 
     //https://stackoverflow.com/q/29067108/12821391
     public static BufferedImage createCompatibleBufferedImage(int width, int height)
     {
+        if (gfx_config == null) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
         return gfx_config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
     }
 
@@ -75,6 +91,8 @@ public final class ImageUtils
 
     public static VolatileImage createCompatibleVolatileImage(int width, int height)
     {
+        if (gfx_config == null) throw new RuntimeException("Volatile images need a screen, the environment is headless!");
+
         return gfx_config.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
     }
 
@@ -85,7 +103,7 @@ public final class ImageUtils
 
     public static BufferedImage toCompatibleBufferedImage(BufferedImage image) 
     {
-        if (image.getColorModel().equals(gfx_config.getColorModel()))
+        if (gfx_config == null ? image.getType() == BufferedImage.TYPE_INT_ARGB : image.getColorModel().equals(gfx_config.getColorModel()))
             return image;
 
         BufferedImage new_image = createCompatibleBufferedImage(image.getWidth(), image.getHeight());
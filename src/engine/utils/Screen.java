@@ -31,7 +31,8 @@ public final class Screen
     {
         GRAPHICS_ENVIRONMENT = GraphicsEnvironment.getLocalGraphicsEnvironment();
     
-        GRAPHICS_DEVICES = GRAPHICS_ENVIRONMENT.getScreenDevices();
+        // a headless environment has no screens, only headless windows can be used there, see engine.window.Window
+        GRAPHICS_DEVICES = GraphicsEnvironment.isHeadless() ? new GraphicsDevice[0] : GRAPHICS_ENVIRONMENT.getScreenDevices();
         
         SCREENS = new Screen[GRAPHICS_DEVICES.length];
 
@@ -40,9 +41,9 @@ public final class Screen
             SCREENS[i] = new Screen(GRAPHICS_DEVICES[i]);
         }
 
-        if (SCREENS.length == 0) throw new RuntimeException("No screens found"); // hmm, who will ever be able to read this error?
+        if (SCREENS.length == 0 && !GraphicsEnvironment.isHeadless()) throw new RuntimeException("No screens found"); // hmm, who will ever be able to read this error?
 
-        DEFAULT_SCREEN = SCREENS[0];
+        DEFAULT_SCREEN = SCREENS.length == 0 ? null : SCREENS[0];
     }
 
     public final GraphicsDevice GRAPHICS_DEVICE;
@@ -86,6 +87,11 @@ public final class Screen
         return "Screen(id: " + GRAPHICS_DEVICE.getIDstring() + " | size: " + SCREEN_SIZE.toSizeString() + ")";    
     }
 
+    /**
+     * @return whether there are no screens, because the environment is headless
+     */
+    public static boolean isHeadless() { return DEFAULT_SCREEN == null; }
+
     public static Screen get(final int i)
     {
         return SCREENS[i];
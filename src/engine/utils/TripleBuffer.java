@@ -0,0 +1,63 @@
+package engine.utils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands data from a single writing thread to a single reading thread without locking. <p>
+ *
+ * The buffer holds three instances: the writer fills one, the reader reads one and the third holds the latest published one.
+ * Publishing and reading swap their instance with the third, so neither thread ever waits for the other,
+ * the writer never touches the instance that is read and the reader always gets the latest published instance. <p>
+ *
+ * Everything the writer did before {@link #publish()} is visible to the reader after {@link #read()} returned the instance. <p>
+ *
+ * @author NextLegacy
+ */
+public final class TripleBuffer<T>
+{
+    // set on the index of the middle instance when it got published and not read yet
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final List<T> instances;
+
+    private final AtomicInteger middle;
+
+    private int back ;
+    private int front;
+
+    /**
+     * The reader starts with the first instance.
+     */
+    public TripleBuffer(final T first, final T second, final T third)
+    {
+        instances = List.of(first, second, third);
+
+        front  = 0;
+        middle = new AtomicInteger(1);
+        back   = 2;
+    }
+
+    /**
+     * @return the instance the writer fills, only to be called by the writing thread
+     */
+    public T write() { return instances.get(back); }
+
+    /**
+     * Publishes the instance returned by {@link #write()}, the writer gets another instance to fill.
+     * Only to be called by the writing thread.
+     */
+    public void publish() { back = middle.getAndSet(back | FRESH) & INDEX; }
+
+    /**
+     * @return the latest published instance, or the same instance as before if nothing got published since,
+     *         only to be called by the reading thread
+     */
+    public T read()
+    {
+        if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & INDEX;
+
+        return instances.get(front);
+    }
+}
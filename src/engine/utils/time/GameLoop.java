@@ -1,5 +1,9 @@
 package engine.utils.time;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * This class is used to create a game loop.
  * 
@@ -12,22 +16,36 @@ package engine.utils.time;
  * <li>{@link #end()} - gets called when the game loop ends</li> 
  * </ul>
  * 
+ * With {@link #setRenderThreaded(boolean)} frames are rendered on a thread of their own,
+ * so a slow frame does not delay the ticks and slow ticks do not delay the frames. <p>
+ * 
+ * Ticks and frames are due at fixed intervals, the time until they are due is accumulated in whole nanoseconds, so the rate does not drift.
+ * With {@link #setSleeping(boolean)} the loop sleeps until the next tick or frame is due instead of spinning,
+ * with {@link #setUncapped(boolean)} ticks and frames run back to back as fast as possible. <p>
+ * 
  * @author NextLegacy
  * @version 1.0
  */
 public abstract class GameLoop implements Runnable
 {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
     private Thread thread;
+    private Thread renderThread;
     
     private boolean isThreadRunning;
     private volatile boolean shouldStopThread;
+    private volatile boolean shouldStopRenderThread;
+
+    private boolean isRenderThreaded;
+    private boolean isSleeping;
+    private boolean isUncapped;
 
     private int FPS;
     private int TPS;
 
-    private float TICK_INTERVAL;
-    private float FRAME_INTERVAL;
-
     private float TICK_INTERVAL_IN_SECONDS;
     private float FRAME_INTERVAL_IN_SECONDS;
 
@@ -39,18 +57,32 @@ public abstract class GameLoop implements Runnable
 
     private float frameSkips;
 
+    private volatile long tickTime; // when the last tick was due, see interpolationAlpha
+
+    private volatile float cpuUsage      ; // of the game loop thread
+    private volatile float renderCpuUsage; // of the render thread
+
+    private final Histogram tickJitter ;
+    private final Histogram frameJitter;
+
     private float frameDeltaTime;
     private float frameDeltaTimeInSeconds;
     private float tickDeltaTime;
     private float tickDeltaTimeInSeconds;
 
-    public GameLoop(int TPS, int FPS) { setTPS(TPS); setFPS(FPS); }
+    public GameLoop(int TPS, int FPS) 
+    { 
+        setTPS(TPS); 
+        setFPS(FPS);
+
+        tickJitter  = new Histogram();
+        frameJitter = new Histogram();
+    }
 
     public void setTPS(int TPS)
     {
         this.TPS = TPS;
 
-        TICK_INTERVAL            = 1e9f / TPS;
         TICK_INTERVAL_IN_SECONDS = 1.0f / TPS;
     }
 
@@ -58,7 +90,6 @@ public abstract class GameLoop implements Runnable
     {
         this.FPS = FPS;
 
-        FRAME_INTERVAL            = 1e9f / FPS;
         FRAME_INTERVAL_IN_SECONDS = 1.0f / FPS;
     }
 
@@ -83,6 +114,69 @@ public abstract class GameLoop implements Runnable
         thread = null;
     }
 
+    /**
+     * Renders on a thread of its own instead of alternating with the updates, takes effect when the thread gets started. <p>
+     * 
+     * {@link #update()} and {@link #render()} then run concurrently and may only share data that is safe to share, 
+     * like snapshots handed over by a {@link engine.utils.TripleBuffer}. The thread waits for the next tick instead of spinning. <p>
+     */
+    public void setRenderThreaded(boolean renderThreaded) { isRenderThreaded = renderThreaded; }
+
+    public boolean isRenderThreaded      () { return isRenderThreaded      ; }
+
+    /**
+     * Parks the threads until the next tick or frame is due and spins only for the last microseconds before it, see {@link Time#sleepUntil(long)},
+     * instead of spinning all the time. Saves most of a core when the ticks and frames are cheap, at the cost of waking up a few microseconds later. <p>
+     */
+    public void setSleeping(boolean sleeping) { isSleeping = sleeping; }
+
+    public boolean isSleeping            () { return isSleeping            ; }
+
+    /**
+     * Runs a tick and a frame in every iteration of the loop without waiting, so they run as fast as possible instead of at their rates,
+     * a render thread renders frames back to back. Used to render or simulate in batches and to benchmark. <p>
+     */
+    public void setUncapped(boolean uncapped) { isUncapped = uncapped; }
+
+    public boolean isUncapped            () { return isUncapped            ; }
+
+    /**
+     * How far the time advanced from the last tick towards the next one, so rendering can blend the states of the last two ticks. <p>
+     * 
+     * @return from 0 right when a tick was due to 1 when the next one is due
+     */
+    public double interpolationAlpha()
+    {
+        final double alpha = (Time.nanos() - tickTime) * (double) TPS / NANOS_PER_SECOND;
+
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    /**
+     * @return the CPU time the game loop and the render thread used in the last second, as a share of one core, -1 if the JVM does not measure it
+     */
+    public float cpuUsage() 
+    { 
+        if (cpuUsage < 0) return -1;
+
+        return isRenderThreaded ? cpuUsage + Math.max(0, renderCpuUsage) : cpuUsage; 
+    }
+
+    /**
+     * @return how late the ticks started compared to when they were due, since the game loop started
+     */
+    public Histogram tickJitter () { return tickJitter ; }
+
+    /**
+     * @return how late the frames started compared to when they were due, since the game loop started
+     */
+    public Histogram frameJitter() { return frameJitter; }
+
+    /**
+     * @return whether the current thread is the render thread of a render threaded game loop
+     */
+    public boolean isRenderThread        () { return renderThread != null && Thread.currentThread() == renderThread; }
+
     public boolean isThreadRunning       () { return isThreadRunning       ; }
 
     public float  currentFPS             () { return currentFPS             ; }
@@ -113,13 +207,16 @@ public abstract class GameLoop implements Runnable
         elapsedTime          = 0l  ;
         elapsedTimeInSeconds = 0.0f;
 
-        float deltaT = 0.0f;
-        float deltaF = 0.0f;
-        long  time   = 0l  ;
+        // the nanoseconds times the rate, a tick or a frame is due whenever its accumulator reaches a second
+        long tickAccumulator  = 0l;
+        long frameAccumulator = 0l;
+        long time             = 0l;
 
         long now  = Time.nanos(); 
         long last = now         ;
 
+        long cpuTime = cpuTime();
+
         int ticks  = TPS;
         int frames = FPS;
         
@@ -128,9 +225,24 @@ public abstract class GameLoop implements Runnable
 
         frameDeltaTime = FRAME_INTERVAL_IN_SECONDS;
         tickDeltaTime  = TICK_INTERVAL_IN_SECONDS ;
+
+        tickTime = now;
+
+        tickJitter .clear();
+        frameJitter.clear();
         
         start();
 
+        final boolean isRenderThreaded = this.isRenderThreaded;
+
+        if (isRenderThreaded)
+        {
+            shouldStopRenderThread = false;
+
+            renderThread = new Thread(this::runRenderThread, "render");
+            renderThread.start();
+        }
+
         while(!shouldStopThread && isActive())
         {
             now = Time.nanos();
@@ -140,18 +252,23 @@ public abstract class GameLoop implements Runnable
 
             last = now;
             
-            deltaT += elapsedTime / TICK_INTERVAL;
-            deltaF += elapsedTime / FRAME_INTERVAL;
+            tickAccumulator  += elapsedTime * TPS;
+            frameAccumulator += elapsedTime * FPS;
+
+            // exactly one tick and one frame are due
+            if (isUncapped) tickAccumulator = frameAccumulator = NANOS_PER_SECOND;
 
             time += elapsedTime;
 
             while (
-                    deltaT >= 1 && // update while respecting intended tps
-                    isActive()     // isActive() check, because updates might turned off engine
+                    tickAccumulator >= NANOS_PER_SECOND && // update while respecting intended tps
+                    isActive()                             // isActive() check, because updates might turned off engine
                   )
             {
                 final long beforeUpdate = Time.nanos();
 
+                tickJitter.record(beforeUpdate - due(now, tickAccumulator, TPS));
+
                 update();
              
                 final long afterUpdate = Time.nanos();
@@ -160,17 +277,21 @@ public abstract class GameLoop implements Runnable
                 tickDeltaTimeInSeconds = tickDeltaTime * 1.0E-9f;
 
                 ticks++;
-                deltaT--;
+                tickAccumulator -= NANOS_PER_SECOND;
             }
+
+            tickTime = now - tickAccumulator / TPS;
         
             //After updates, gameloop or engine might be deactivated, no need to continue, therefore break from gameloop
             if (!isActive())
                 break;
 
-            if (deltaF >= 1)
+            if (!isRenderThreaded && frameAccumulator >= NANOS_PER_SECOND)
             {
                 final long beforeRender = Time.nanos();
 
+                frameJitter.record(beforeRender - due(now, frameAccumulator, FPS));
+
                 render();
 
                 final long afterRender = Time.nanos();
@@ -179,25 +300,138 @@ public abstract class GameLoop implements Runnable
                 frameDeltaTimeInSeconds = frameDeltaTime * 1.0E-9f;
 
                 frames++;
-                deltaF--;
+                frameAccumulator -= NANOS_PER_SECOND;
             }
             
-            frameSkips = deltaF >= 1 ? deltaF - 1 : 0;
+            if (!isRenderThreaded) frameSkips = frameAccumulator >= NANOS_PER_SECOND ? (float) frameAccumulator / NANOS_PER_SECOND - 1 : 0;
 
-            if(time >= 1e9) //If one Second passed
+            if(time >= NANOS_PER_SECOND) //If one Second passed
             {
                 currentTPS = ticks;
-                currentFPS = frames;
+
+                if (!isRenderThreaded) currentFPS = frames;
+
+                final long newCpuTime = cpuTime();
+
+                cpuUsage = cpuTime < 0 ? -1 : (float) (newCpuTime - cpuTime) / time;
+                cpuTime  = newCpuTime;
 
                 ticks  = 0;
                 frames = 0;
                 time   = 0;
             }
+
+            // wait for the next tick, and for the next frame if it gets rendered by this thread
+            long wait = untilDue(tickAccumulator, TPS);
+
+            if (!isRenderThreaded) wait = Math.min(wait, untilDue(frameAccumulator, FPS));
+
+            if (!isUncapped)
+            {
+                if      (isSleeping      ) Time.sleepUntil(now + wait);
+                else if (isRenderThreaded) LockSupport.parkNanos(wait);
+            }
         }
 
+        if (isRenderThreaded) stopRenderThread();
+
         end();
 
         isThreadRunning  = false;
         shouldStopThread = false;
     }
+
+    private void runRenderThread()
+    {
+        long frameAccumulator = 0l;
+        long time             = 0l;
+
+        long now  = Time.nanos();
+        long last = now         ;
+
+        long cpuTime = cpuTime();
+
+        int frames = 0;
+
+        while (!shouldStopRenderThread)
+        {
+            now = Time.nanos();
+
+            frameAccumulator += (now - last) * FPS;
+            time             += (now - last);
+
+            last = now;
+
+            if (isUncapped) frameAccumulator = NANOS_PER_SECOND;
+
+            if (frameAccumulator >= NANOS_PER_SECOND)
+            {
+                final long beforeRender = Time.nanos();
+
+                frameJitter.record(beforeRender - due(now, frameAccumulator, FPS));
+
+                render();
+
+                final long afterRender = Time.nanos();
+
+                frameDeltaTime = (afterRender - beforeRender);
+                frameDeltaTimeInSeconds = frameDeltaTime * 1.0E-9f;
+
+                frames++;
+                frameAccumulator -= NANOS_PER_SECOND;
+            }
+
+            frameSkips = frameAccumulator >= NANOS_PER_SECOND ? (float) frameAccumulator / NANOS_PER_SECOND - 1 : 0;
+
+            // frames that could not be rendered in time are skipped instead of rendered back to back, they would show the same snapshot
+            if (frameAccumulator > NANOS_PER_SECOND) frameAccumulator = NANOS_PER_SECOND;
+            else if (!isUncapped)
+            {
+                if (isSleeping) Time.sleepUntil(now + untilDue(frameAccumulator, FPS));
+                else            LockSupport.parkNanos(untilDue(frameAccumulator, FPS));
+            }
+
+            if (time >= NANOS_PER_SECOND) 
+            {
+                currentFPS = frames;
+
+                final long newCpuTime = cpuTime();
+
+                renderCpuUsage = cpuTime < 0 ? -1 : (float) (newCpuTime - cpuTime) / time;
+                cpuTime        = newCpuTime;
+
+                frames = 0;
+                time   = 0;
+            }
+        }
+    }
+
+    /**
+     * @return when the oldest tick or frame that is due was due, the accumulator has to be at least a second
+     */
+    private static long due(final long now, final long accumulator, final int rate) { return now - (accumulator - NANOS_PER_SECOND) / rate; }
+
+    /**
+     * @return the nanoseconds until the next tick or frame is due, at most 0 if one is due already
+     */
+    private static long untilDue(final long accumulator, final int rate) { return (NANOS_PER_SECOND - accumulator + rate - 1) / rate; }
+
+    /**
+     * @return the CPU time of the current thread in nanoseconds, -1 if the JVM does not measure it
+     */
+    private static long cpuTime() { return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1; }
+
+    private void stopRenderThread()
+    {
+        shouldStopRenderThread = true;
+
+        try 
+        {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        renderThread = null;
+    }
 }
@@ -0,0 +1,100 @@
+package engine.utils.time;
+
+/**
+ * Counts durations in buckets whose bounds double from one bucket to the next. <p>
+ *
+ * Bucket 0 counts the durations below 1 microsecond, bucket i the ones from 2^(i - 1) up to 2^i microseconds
+ * and the last bucket everything longer, so a few buckets cover everything from the wake up latency of a thread to a stalled frame. <p>
+ *
+ * The {@link GameLoop} records how late ticks and frames start compared to when they were due.
+ * A histogram is written by a single thread, other threads may read counts that are a moment old. <p>
+ *
+ * @author NextLegacy
+ */
+public final class Histogram
+{
+    public static final int BUCKETS = 21;
+
+    private final long[] counts;
+
+    private long count;
+    private long sum  ;
+    private long max  ;
+
+    public Histogram() { counts = new long[BUCKETS]; }
+
+    /**
+     * @param nanos the duration in nanoseconds, negative ones count as 0
+     */
+    public void record(final long nanos)
+    {
+        final long duration = Math.max(0, nanos);
+
+        // the number of bits of the microseconds is the bucket, 0 for 0, 1 for 1, 2 for 2 and 3, ...
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(duration / 1000));
+
+        counts[bucket]++;
+
+        count++;
+        sum += duration;
+        max  = Math.max(max, duration);
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+
+        count = sum = max = 0;
+    }
+
+    public long count(final int bucket) { return counts[bucket]; }
+
+    public long   count() { return count; }
+    public long   max  () { return max  ; }
+    public double mean () { return count == 0 ? 0 : (double) sum / count; }
+
+    /**
+     * @return the upper bound of the bucket in nanoseconds, {@link Long#MAX_VALUE} for the last one
+     */
+    public static long upperBound(final int bucket) { return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000; }
+
+    /**
+     * @param percentile from 0 to 1
+     * @return the upper bound of the bucket that holds the percentile in nanoseconds, the maximum if that is the last bucket
+     */
+    public long percentile(final double percentile)
+    {
+        final double rank = percentile * count;
+
+        long below = 0;
+
+        for (int i = 0; i < BUCKETS - 1; i++)
+        {
+            below += counts[i];
+
+            if (below >= rank && below > 0) return upperBound(i);
+        }
+
+        return max;
+    }
+
+    /**
+     * @return a line per bucket that has counts, with its upper bound and its share of all counts
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            if (counts[i] == 0) continue;
+
+            final String bound = i == BUCKETS - 1 ? ">= " + (upperBound(i - 1) / 1000) + " us" : "< " + (upperBound(i) / 1000) + " us";
+
+            builder.append(String.format("%14s: %8d (%5.1f%%)%n", bound, counts[i], 100.0 * counts[i] / count));
+        }
+
+        return builder.toString();
+    }
+}
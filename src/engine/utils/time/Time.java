@@ -1,5 +1,7 @@
 package engine.utils.time;
 
+import java.util.concurrent.locks.LockSupport;
+
 import engine.utils.ArrayUtils;
 import engine.utils.Lambda.Action0;
 import engine.utils.Lambda.ActionList;
@@ -21,9 +23,31 @@ public final class Time
     public static final double MILLIS_TO_NANOS  = 1.0E6;
     public static final double SECONDS_TO_NANOS = 1.0E9;
 
+    // parking tends to wake up late by tens of microseconds, so the last stretch before a deadline is spun instead
+    private static final long SPIN_NANOS = 100_000;
+
     public static long   nanos  () { return System.nanoTime()         ; }
     public static double millis () { return nanos() * NANOS_TO_MILLIS ; }
     public static double seconds() { return nanos() * NANOS_TO_SECONDS; }
+
+    /**
+     * Waits until {@link #nanos()} reaches the deadline. <p>
+     * 
+     * The thread is parked until shortly before the deadline, so it uses no CPU while waiting, 
+     * and spins for the last microseconds, so it wakes up on time. Returns early if the thread gets interrupted. <p>
+     * 
+     * @param deadline the time to wait for, in the time of {@link #nanos()}
+     */
+    public static void sleepUntil(final long deadline)
+    {
+        long remaining;
+
+        while ((remaining = deadline - nanos()) > 0 && !Thread.currentThread().isInterrupted())
+        {
+            if (remaining > SPIN_NANOS) LockSupport.parkNanos(remaining - SPIN_NANOS);
+            else                        Thread.onSpinWait();
+        }
+    }
     
     /**
      * This method measures the time taken to run the given action. <p>
@@ -13,7 +13,11 @@ import engine.math.Vector4;
 import engine.utils.ImageUtils;
 import engine.utils.Screen;
 import engine.utils.time.Time;
+import engine.graphics.DepthFormat;
+import engine.graphics.DirtyRegion;
 import engine.graphics.DrawableImage;
+import engine.graphics.FrameCapture;
+import engine.graphics.RenderPool;
 import engine.window.Input.Input;
 
 // TODO: implement openGL rendering system and just easily refactor the whole engine...
@@ -32,7 +36,18 @@ import engine.window.Input.Input;
  * It has a proper rendering system that can be used to draw on the screen. <p>
  * 
  * You have to implement the {@link #renderImage(WindowLayer)} which will be called
- * for every {@link WindowLayer} objects.
+ * for every {@link WindowLayer} objects. <p>
+ * 
+ * With {@link #setRenderPool(RenderPool)} the layers and the window buffer can be rasterized in parallel tiles. <p>
+ * 
+ * With {@link #setDepthFormat(String, DepthFormat)} every layer can store its depths in a smaller format or without depth at all,
+ * which makes clearing and compositing it cheaper. <p>
+ * 
+ * A headless window, created without a screen, has no frame and uses no AWT component at all. 
+ * Its layers get rendered and composited onto the window buffer as usual, see {@link #windowBuffer()}, 
+ * so it works on machines without a display, like servers and build machines. <p>
+ * 
+ * With {@link #setFrameCapture(FrameCapture)} every rendered frame gets written to files in the background. <p>
  * 
  * @author NextLegacy
  * @version 1.0
@@ -59,8 +74,22 @@ public abstract class Window
 
     private FinalVector windowSize;
 
+    private String title;
+
     private boolean isInFullScreenMode;
 
+    // with dirty tracking only the changed areas of the layers get composited and presented
+    private boolean     dirtyTracking;
+    private DirtyRegion redrawRegion;
+    private DirtyRegion presentRegion;
+    private DirtyRegion unpresentedRegion;
+    private DirtyRegion lastPresentedRegion;
+    private Graphics    presentGraphics;
+
+    private boolean premultiplied;
+
+    private FrameCapture frameCapture;
+
     public Window(Screen screen, Vector4 size, String... layers)
     {
         if (screen == null) throw new NullPointerException("Screen is null!");
@@ -69,6 +98,23 @@ public abstract class Window
         this.layers = layers;
         this.size   = size.toFinalVector();
 
+        title = "";
+
+        initializeBuffers();
+    }
+
+    /**
+     * Creates a headless window, it has no frame and its input never receives any events. <p>
+     */
+    public Window(Vector4 size, String... layers)
+    {
+        this.screen = null;
+        this.layers = layers;
+        this.size   = size.toFinalVector();
+
+        title = "";
+        input = new Input();
+
         initializeBuffers();
     }
 
@@ -77,6 +123,8 @@ public abstract class Window
         destroyFrame();
 
         frame = new Frame(screen.GRAPHICS_CONFIGURATION);
+
+        frame.setTitle(title);
         
         if (input == null) input = new Input();
 
@@ -110,6 +158,9 @@ public abstract class Window
         }
         
         strategy = frame.getBufferStrategy();
+
+        // the new buffers are empty
+        unpresentedRegion.addAll();
     }
 
     private final void destroyFrame()
@@ -122,23 +173,233 @@ public abstract class Window
 
     private final void initializeBuffers()
     {
-        frameBuffer = ImageUtils.createCompatibleBufferedImage(size);
+        // a headless window has nothing to present the frame buffer on
+        frameBuffer = isHeadless() ? null : ImageUtils.createCompatibleBufferedImage(size);
         
-        windowBuffer = new DrawableImage(frameBuffer);
+        DrawableImage _windowBuffer = createWindowBuffer(windowBuffer == null ? DepthFormat.DOUBLE : windowBuffer.depthFormat());
+
+        if (windowBuffer != null) _windowBuffer.setRenderPool(windowBuffer.renderPool());
+
+        windowBuffer = _windowBuffer;
 
         WindowLayer[] _windowLayers = new WindowLayer[layers.length];
 
         for (int i = 0; i < _windowLayers.length; i++)
-            _windowLayers[i] = new WindowLayer(layers[i], size);
+            _windowLayers[i] = createWindowLayer(i, windowLayers == null ? DepthFormat.DOUBLE : windowLayers[i].depthFormat());
 
         windowLayers = _windowLayers;
+
+        redrawRegion        = new DirtyRegion(windowBuffer.width(), windowBuffer.height());
+        presentRegion       = new DirtyRegion(windowBuffer.width(), windowBuffer.height());
+        unpresentedRegion   = new DirtyRegion(windowBuffer.width(), windowBuffer.height());
+        lastPresentedRegion = new DirtyRegion(windowBuffer.width(), windowBuffer.height());
+
+        redrawRegion.addAll();
+    }
+
+    private final DrawableImage createWindowBuffer(DepthFormat depthFormat)
+    {
+        DrawableImage windowBuffer = isHeadless() ? new DrawableImage(size, depthFormat) : new DrawableImage(frameBuffer, depthFormat);
+
+        windowBuffer.setPremultiplied(premultiplied);
+
+        return windowBuffer;
+    }
+
+    private final WindowLayer createWindowLayer(int index, DepthFormat depthFormat)
+    {
+        WindowLayer windowLayer = new WindowLayer(layers[index], size, depthFormat);
+
+        // keep the settings of the layers when the buffers get recreated
+        if (windowLayers != null) 
+        {
+            WindowLayer previous = windowLayers[index];
+
+            windowLayer.setRenderPool    (previous.renderPool       ());
+            windowLayer.setHierarchicalZ (previous.hasHierarchicalZ () && depthFormat != DepthFormat.NONE);
+            windowLayer.setRasterizer    (previous.rasterizer       ());
+            windowLayer.setOpaque        (previous.isOpaque         ());
+            windowLayer.setRetained      (previous.isRetained       ());
+        }
+
+        windowLayer.setDirtyTracking(dirtyTracking);
+        windowLayer.setPremultiplied(premultiplied);
+
+        return windowLayer;
+    }
+
+    /**
+     * Recreates a layer with the given {@link DepthFormat}, the content of the layer is lost. <p>
+     * 
+     * @param layer the name of the layer
+     * @param depthFormat the format the layer stores its depths in
+     */
+    public final Window setDepthFormat(String layer, DepthFormat depthFormat)
+    {
+        for (int i = 0; i < windowLayers.length; i++)
+        {
+            if (windowLayers[i].is(layer) && windowLayers[i].depthFormat() != depthFormat)
+                windowLayers[i] = createWindowLayer(i, depthFormat);
+        }
+
+        return this;
+    }
+
+    /**
+     * Declares whether everything drawn onto a layer is opaque, see {@link DrawableImage#setOpaque(boolean)}. <p>
+     * 
+     * A layer with {@link DepthFormat#NONE} that is opaque draws sprites and rectangles as plain copies, 
+     * a layer with {@link DepthFormat#NONE} that is not opaque still skips the depth test and fully transparent pixels. <p>
+     * 
+     * @param layer the name of the layer
+     * @param opaque whether the layer only contains opaque pixels
+     */
+    public final Window setOpaque(String layer, boolean opaque)
+    {
+        windowLayer(layer).setOpaque(opaque);
+
+        return this;
+    }
+
+    /**
+     * Enables or disables dirty tracking for all layers, see {@link DrawableImage#setDirtyTracking(boolean)}. <p>
+     * 
+     * With dirty tracking clearing a layer only resets what got drawn onto it, 
+     * and only the areas of the layers that changed get composited onto the window buffer and presented on the frame.
+     * Combined with {@link #setRetained(String, boolean)} a mostly static window costs almost nothing per frame. <p>
+     * 
+     * @param dirtyTracking whether to track the changed areas
+     */
+    public final Window setDirtyTracking(boolean dirtyTracking)
+    {
+        this.dirtyTracking = dirtyTracking;
+
+        for (int i = 0; i < windowLayers.length; i++)
+            windowLayers[i].setDirtyTracking(dirtyTracking);
+
+        redrawRegion.addAll();
+
+        return this;
+    }
+
+    /**
+     * Declares whether a layer keeps its content across frames, see {@link WindowLayer#setRetained(boolean)}. <p>
+     * 
+     * A retained layer is not cleared before it gets rendered, so only what changed has to be drawn 
+     * and erased with {@link DrawableImage#clear(int, int, int, int)}. <p>
+     * 
+     * @param layer the name of the layer
+     * @param retained whether the content of the layer persists across frames
+     */
+    public final Window setRetained(String layer, boolean retained)
+    {
+        windowLayer(layer).setRetained(retained);
+
+        return this;
+    }
+
+    /**
+     * Recreates the window buffer the layers get composited onto with the given {@link DepthFormat}. <p>
+     * 
+     * With {@link DepthFormat#NONE} the layers are simply drawn over each other in their order, without comparing their depths. <p>
+     * 
+     * @param depthFormat the format the window buffer stores its depths in
+     */
+    public final Window setWindowBufferDepthFormat(DepthFormat depthFormat)
+    {
+        if (windowBuffer.depthFormat() == depthFormat) return this;
+
+        DrawableImage _windowBuffer = createWindowBuffer(depthFormat);
+
+        _windowBuffer.setRenderPool(windowBuffer.renderPool());
+
+        windowBuffer = _windowBuffer;
+
+        redrawRegion.addAll();
+
+        return this;
+    }
+
+    /**
+     * Stores the colors of all layers and of the window buffer premultiplied by their alpha, see {@link DrawableImage#setPremultiplied(boolean)}. <p>
+     * 
+     * Compositing the layers onto the window buffer then blends a single multiply add per channel. 
+     * The window buffer is opaque, so the frames look the same as with straight colors. <p>
+     */
+    public final Window setPremultiplied(boolean premultiplied)
+    {
+        this.premultiplied = premultiplied;
+
+        windowBuffer.setPremultiplied(premultiplied);
+
+        for (int i = 0; i < windowLayers.length; i++)
+            windowLayers[i].setPremultiplied(premultiplied);
+
+        redrawRegion.addAll();
+
+        return this;
+    }
+
+    public final boolean isPremultiplied() { return premultiplied; }
+
+    /**
+     * Sets the {@link RenderPool} of all layers and of the window buffer the layers get composited onto. <p>
+     * 
+     * @param renderPool the render pool, or null to render serially
+     */
+    public final Window setRenderPool(RenderPool renderPool)
+    {
+        windowBuffer.setRenderPool(renderPool);
+
+        for (int i = 0; i < windowLayers.length; i++)
+            windowLayers[i].setRenderPool(renderPool);
+
+        return this;
+    }
+
+    /**
+     * Sets the {@link RenderPool} of a single layer. <p>
+     * 
+     * @param layer the name of the layer
+     * @param renderPool the render pool, or null to render the layer serially
+     */
+    public final Window setRenderPool(String layer, RenderPool renderPool)
+    {
+        windowLayer(layer).setRenderPool(renderPool);
+
+        return this;
+    }
+
+    /**
+     * Captures every frame once the layers are composited onto the window buffer, see {@link FrameCapture}. <p>
+     * 
+     * The window does not destroy the capture, destroy it once the capturing is done to write the frames that are still waiting. <p>
+     * 
+     * @param frameCapture the capture, or null to stop capturing
+     */
+    public final Window setFrameCapture(FrameCapture frameCapture)
+    {
+        this.frameCapture = frameCapture;
+
+        return this;
     }
 
-    public final Window setTitle(String newTitle) { frame.setTitle(newTitle); return this; }
+    public final FrameCapture frameCapture() { return frameCapture; }
+
+    public final Window setTitle(String newTitle) 
+    { 
+        title = newTitle; 
+
+        if (frame != null) frame.setTitle(newTitle); 
+
+        return this; 
+    }
 
     // TODO: this seems wrongs, why set size to windowSize and updateFrameSize()?
     public final void setFullScreen(boolean fullScreen)
     {
+        if (isHeadless()) return;
+
         if   (fullScreen) screen.setFullScreen(frame, () -> { isInFullScreenMode = false; updateFrameSize(); });
         else              screen.setFullScreen(null , null);
 
@@ -152,6 +413,8 @@ public abstract class Window
     public final void setScreen(final Screen screen)
     {
         if (screen == null) throw new NullPointerException("Screen is null!");
+
+        if (isHeadless()) throw new RuntimeException("A headless window can not be shown on a screen!");
         
         this.screen = screen;
 
@@ -180,6 +443,8 @@ public abstract class Window
 
     public final void setDecorated(boolean decorated)
     {
+        if (frame == null) return;
+
         frame.setUndecorated(!decorated);
         frame.setCursor(new Cursor(Cursor.CUSTOM_CURSOR));
     }
@@ -188,13 +453,15 @@ public abstract class Window
     {
         this.position = position.toFinalVector();
 
-        frame.setLocation((int) position.x(), (int) position.y());
+        if (frame != null) frame.setLocation((int) position.x(), (int) position.y());
 
         return this;
     }
 
     public final Window setPositionToCenter()
     {
+        if (isHeadless()) return this;
+
         return setPosition(screen.SCREEN_SIZE.dividedBy(2).minus(size.dividedBy(2)));
     }
     
@@ -202,9 +469,15 @@ public abstract class Window
     public final FinalVector   position      () { return position      ; }
     public final int           width         () { return (int) size.x(); }
     public final int           height        () { return (int) size.y(); }
-    public final int           verticalBorder() { return frame.getInsets().top; }
+    public final int           verticalBorder() { return frame == null ? 0 : frame.getInsets().top; }
     public final Input         input         () { return input   ; }
-    public final String        title         () { return frame.getTitle(); }
+    public final String        title         () { return title   ; }
+    public final boolean       isHeadless    () { return screen == null; }
+
+    /**
+     * @return the image the layers get composited onto, what the last rendered frame looks like
+     */
+    public final DrawableImage windowBuffer  () { return windowBuffer; }
     
     public final FinalVector size  (double widthRatio, double heightRatio) { return size.times(widthRatio, heightRatio).toFinalVector(); }
     public final double      width (double ratio) { return width () * ratio; }
@@ -230,7 +503,7 @@ public abstract class Window
 
     public final void start()
     {
-        if (frame != null)
+        if (frame != null || isHeadless())
             return; 
 
         initializeFrame();
@@ -286,6 +559,11 @@ public abstract class Window
     {
         renderImages();
         renderImagesOntoWindowBuffer();
+
+        final FrameCapture capture = frameCapture;
+
+        if (capture != null) capture.capture(windowBuffer);
+
         renderFrameBufferOntoFrame();
     }
 
@@ -294,21 +572,52 @@ public abstract class Window
     public final void renderImages()
     {
         for (int i = 0; i < windowLayers.length; i++)
+        {
             renderImage(windowLayers[i]);
+            
+            windowLayers[i].flush();
+        }
     }
 
     public final void renderImagesOntoWindowBuffer()
     {   
+        if (dirtyTracking)
+        {
+            for (int i = 0; i < windowLayers.length; i++)
+            {
+                redrawRegion.add(windowLayers[i].dirtyRegion());
+                windowLayers[i].dirtyRegion().clear();
+            }
+
+            windowBuffer.redraw(redrawRegion, windowLayers);
+            windowBuffer.flush();
+
+            unpresentedRegion.add(redrawRegion);
+            redrawRegion.clear();
+
+            return;
+        }
+
         windowBuffer.clear();
 
         for (int i = 0; i < windowLayers.length; i++)
             windowBuffer.drawImage(windowLayers[i]);
+
+        windowBuffer.flush();
     }
 
     public final void renderFrameBufferOntoFrame()
     {
         if (frame == null || !input.isFocused()) return;
 
+        // the buffer that gets drawn onto is one of several, it misses what changed since it got shown the last time
+        presentRegion.clear();
+        presentRegion.add(unpresentedRegion  );
+        presentRegion.add(lastPresentedRegion);
+
+        // restored or lost contents have to be drawn completely
+        boolean whole = !dirtyTracking;
+
         do 
         {
             do 
@@ -320,17 +629,34 @@ public abstract class Window
                     //graphics.setColor(Color.BLACK);
                     //graphics.fillRect(0, 0, width(), height()); 
 
-                    graphics.drawImage(frameBuffer, 0, verticalBorder(), null);
+                    if (whole) graphics.drawImage(frameBuffer, 0, verticalBorder(), null);
+                    else
+                    {
+                        presentGraphics = graphics;
+                        presentRegion.forEach(this::presentArea);
+                        presentGraphics = null;
+                    }
                 
                 //RENDER END
 
                 graphics.dispose();
 
+                whole = true;
+
             } while (strategy.contentsRestored());
     
             strategy.show();
 
         } while (strategy.contentsLost());
+
+        lastPresentedRegion.clear();
+        lastPresentedRegion.add(unpresentedRegion);
+        unpresentedRegion.clear();
+    }
+
+    private final void presentArea(int x0, int y0, int x1, int y1)
+    {
+        presentGraphics.drawImage(frameBuffer, x0, y0 + verticalBorder(), x1, y1 + verticalBorder(), x0, y0, x1, y1, null);
     }
 
     public String toString()
@@ -1,6 +1,7 @@
 package engine.window;
 
 import engine.math.Vector4;
+import engine.graphics.DepthFormat;
 import engine.graphics.DrawableImage;
 
 /**
@@ -9,6 +10,9 @@ import engine.graphics.DrawableImage;
  * It extends {@link DrawableImage} with the addition of a name for 
  * proper identification. <p>
  * 
+ * A retained layer is not cleared before it gets rendered, its content persists across frames
+ * and only has to be changed where something changed, see {@link DrawableImage#clear(int, int, int, int)}. <p>
+ * 
  * @author NextLegacy
  * @version 1.0
  */
@@ -16,14 +20,24 @@ public final class WindowLayer extends DrawableImage
 {
     private final String name;
 
+    private boolean isRetained;
+
     WindowLayer(String name, Vector4 size)
     {
-        super(size);
+        this(name, size, DepthFormat.DOUBLE);
+    }
+
+    WindowLayer(String name, Vector4 size, DepthFormat depthFormat)
+    {
+        super(size, depthFormat);
         this.name = name; 
     }
     
     public String name() { return name; }
 
+    public void    setRetained(boolean retained) { isRetained = retained; }
+    public boolean isRetained ()                 { return isRetained; }
+
     public boolean is   (String name) { return this.name == name; }
     public boolean isNot(String name) { return this.name != name; }
 }
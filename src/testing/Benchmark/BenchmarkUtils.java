@@ -0,0 +1,29 @@
+package testing.Benchmark;
+
+import engine.utils.time.Time;
+
+/**
+ * Helpers the benchmarks share. <p>
+ *
+ * @author NextLegacy
+ */
+final class BenchmarkUtils
+{
+    private BenchmarkUtils() { }
+
+    /**
+     * Runs the action warmup times, so the JIT compiles it, and then times it runs times.
+     *
+     * @return the fastest time of a run in nanoseconds
+     */
+    static double measure(final int warmup, final int runs, final Runnable action)
+    {
+        for (int i = 0; i < warmup; i++) action.run();
+
+        double time = Double.MAX_VALUE;
+
+        for (int i = 0; i < runs; i++) time = Math.min(time, Time.measureTime(action::run));
+
+        return time;
+    }
+}
@@ -0,0 +1,209 @@
+package testing.Benchmark;
+
+import engine.graphics.DepthFormat;
+import engine.graphics.DrawableImage;
+import engine.utils.color.Color;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Measures blended pixels per second of the float blend {@link Color#mix(int, int)} used to do, of {@link Color#mix(int, int)},
+ * which blends two channels per int operation, and of {@link Color#mixPremultiplied(int, int)},
+ * and of compositing two translucent 1280x720 layers onto a window buffer with straight and with premultiplied colors. <p>
+ *
+ * Checks first that {@link Color#mix(int, int)}, {@link Color#mixPremultiplied(int, int)}, {@link Color#premultiply(int)}
+ * and {@link Color#unpremultiply(int)} are identical to rounded per channel references for every alpha and every pair of channel values,
+ * and how far premultiplied blending onto an opaque background is from {@link Color#mix(int, int)}.
+ */
+public class ColorBlendBenchmark
+{
+    static final int COLORS = 1 << 20;
+    static final int WIDTH  = 1280;
+    static final int HEIGHT = 720;
+    static final int WARMUP = 5;
+    static final int RUNS   = 10;
+
+    static long sink;
+
+    public static void main(String[] args)
+    {
+        check();
+
+        final Random random = new Random(42);
+
+        final int[] backgrounds = new int[COLORS];
+        final int[] foregrounds = new int[COLORS];
+
+        for (int i = 0; i < COLORS; i++)
+        {
+            backgrounds[i] = 0xff000000 | random.color();
+            foregrounds[i] = random.randomInt(1, 254) << 24 | random.color();
+        }
+
+        final int[] premultipliedBackgrounds = new int[COLORS];
+        final int[] premultipliedForegrounds = new int[COLORS];
+
+        for (int i = 0; i < COLORS; i++)
+        {
+            premultipliedBackgrounds[i] = Color.premultiply(backgrounds[i]);
+            premultipliedForegrounds[i] = Color.premultiply(foregrounds[i]);
+        }
+
+        final double floatMix = measure(WARMUP, RUNS, () -> { for (int i = 0; i < COLORS; i++) sink += floatMix(backgrounds[i], foregrounds[i]); });
+        final double mix      = measure(WARMUP, RUNS, () -> { for (int i = 0; i < COLORS; i++) sink += Color.mix(backgrounds[i], foregrounds[i]); });
+        final double mixPre   = measure(WARMUP, RUNS, () -> { for (int i = 0; i < COLORS; i++) sink += Color.mixPremultiplied(premultipliedBackgrounds[i], premultipliedForegrounds[i]); });
+
+        System.out.printf("float mix         : %8.1f M blended pixels per second%n", COLORS / (floatMix * Time.NANOS_TO_SECONDS) / 1e6);
+        System.out.printf("mix               : %8.1f M blended pixels per second%n", COLORS / (mix      * Time.NANOS_TO_SECONDS) / 1e6);
+        System.out.printf("mixPremultiplied  : %8.1f M blended pixels per second%n", COLORS / (mixPre   * Time.NANOS_TO_SECONDS) / 1e6);
+
+        for (DepthFormat depthFormat : new DepthFormat[] { DepthFormat.NONE, DepthFormat.DOUBLE })
+        {
+            final double straight      = composite(depthFormat, false);
+            final double premultiplied = composite(depthFormat, true );
+
+            System.out.printf("composite %-6s  : straight %8.1f, premultiplied %8.1f M blended pixels per second%n", depthFormat,
+                2.0 * WIDTH * HEIGHT / (straight      * Time.NANOS_TO_SECONDS) / 1e6,
+                2.0 * WIDTH * HEIGHT / (premultiplied * Time.NANOS_TO_SECONDS) / 1e6);
+        }
+
+        if (sink == 42) System.out.println();
+    }
+
+    /**
+     * @return the fastest time in nanoseconds to composite two layers whose pixels are all translucent onto a window buffer
+     */
+    static double composite(final DepthFormat depthFormat, final boolean premultiplied)
+    {
+        final Random random = new Random(7);
+
+        final DrawableImage windowBuffer = new DrawableImage(vec(WIDTH, HEIGHT), depthFormat);
+        final DrawableImage background   = new DrawableImage(vec(WIDTH, HEIGHT), depthFormat);
+        final DrawableImage foreground   = new DrawableImage(vec(WIDTH, HEIGHT), depthFormat);
+
+        for (int i = 0; i < WIDTH * HEIGHT; i++)
+        {
+            background.colorBuffer()[i] = random.randomInt(1, 254) << 24 | random.color();
+            foreground.colorBuffer()[i] = random.randomInt(1, 254) << 24 | random.color();
+        }
+
+        windowBuffer.setPremultiplied(premultiplied);
+        background  .setPremultiplied(premultiplied);
+        foreground  .setPremultiplied(premultiplied);
+
+        return measure(WARMUP, RUNS, () ->
+        {
+            windowBuffer.clear();
+            windowBuffer.drawImage(background);
+            windowBuffer.drawImage(foreground);
+        });
+    }
+
+    /**
+     * Compares the integer blends and conversions with {@link #reference(int, int, int, int, boolean)} channel by channel,
+     * giving each channel of a color a different value, so a channel that leaks into its neighbour is caught.
+     */
+    static void check()
+    {
+        boolean mix = true, mixPremultiplied = true, premultiply = true, unpremultiply = true, roundTrip = true;
+
+        int opaque = 0;
+
+        for (int a = 0; a <= 0xff; a++)
+        {
+            for (int f = 0; f <= 0xff; f++)
+            {
+                final int argbF = a << 24 | f << 16 | (0xff - f) << 8 | (f ^ 0x5a);
+
+                for (int b = 0; b <= 0xff; b++)
+                {
+                    final int argbB = b << 24 | (0xff - b) << 16 | (b ^ 0xa5) << 8 | b;
+
+                    mix &= Color.mix(argbB, argbF) == reference(argbB, argbF, a, 0xff - a, false);
+
+                    if (f <= a)
+                    {
+                        // a premultiplied foreground, no channel is bigger than its alpha
+                        final int premultipliedF = a << 24 | f << 16 | (a - f) << 8 | (f >>> 1);
+
+                        mixPremultiplied &= Color.mixPremultiplied(argbB, premultipliedF) == reference(argbB, premultipliedF, 0xff, 0xff - a, true);
+                    }
+
+                    final int straight      = Color.mix(argbB | 0xff000000, argbF);
+                    final int premultiplied = Color.unpremultiply(Color.mixPremultiplied(argbB | 0xff000000, Color.premultiply(argbF)));
+
+                    for (int shift = 0; shift < 24; shift += 8)
+                        opaque = Math.max(opaque, Math.abs(((straight >>> shift) & 0xff) - ((premultiplied >>> shift) & 0xff)));
+                }
+
+                premultiply &= Color.premultiply(argbF) == (a == 0 ? 0 : a << 24 | (reference(0, argbF, a, 0, false) & 0x00ffffff));
+
+                final int argb = a << 24 | (f ^ 0x5a) << 16 | f << 8 | (0xff - f);
+
+                unpremultiply &= Color.unpremultiply(argb) == (a == 0 ? 0 : a << 24 | unpremultiply(argb >>> 16 & 0xff, a) << 16 | unpremultiply(argb >>> 8 & 0xff, a) << 8 | unpremultiply(argb & 0xff, a));
+
+                if (f <= a) roundTrip &= Color.premultiply(Color.unpremultiply(a << 24 | f << 16 | (a - f) << 8 | (f >>> 1))) == (a == 0 ? 0 : a << 24 | f << 16 | (a - f) << 8 | (f >>> 1));
+            }
+        }
+
+        System.out.printf("mix               : identical : %b%n", mix             );
+        System.out.printf("mixPremultiplied  : identical : %b%n", mixPremultiplied);
+        System.out.printf("premultiply       : identical : %b%n", premultiply     );
+        System.out.printf("unpremultiply     : identical : %b%n", unpremultiply   );
+        System.out.printf("premultiply of unpremultiply : identical : %b%n", roundTrip);
+        System.out.printf("premultiplied onto opaque    : red, green and blue at most %d from mix%n", opaque);
+
+        if (!(mix && mixPremultiplied && premultiply && unpremultiply && roundTrip))
+            throw new RuntimeException("A blend or conversion of Color differs from its reference");
+    }
+
+    /**
+     * Every channel becomes {@code round((f * fWeight + b * bWeight) / 255)}, or {@code f + round(b * bWeight / 255)} when premultiplied,
+     * a fully opaque foreground is returned as it is.
+     */
+    static int reference(int argbB, int argbF, int fWeight, int bWeight, boolean premultiplied)
+    {
+        if (argbF >>> 24 == 0xff) return argbF;
+
+        int argb = 0;
+
+        for (int shift = 0; shift < 32; shift += 8)
+        {
+            final int f = (argbF >>> shift) & 0xff;
+            final int b = (argbB >>> shift) & 0xff;
+
+            final int channel = premultiplied ? f + (int) Math.round(b * bWeight / 255.0) : (int) Math.round((f * fWeight + b * bWeight) / 255.0);
+
+            argb |= channel << shift;
+        }
+
+        return argb;
+    }
+
+    /**
+     * @return {@code round(c * 255 / a)}, at most 255
+     */
+    static int unpremultiply(int c, int a)
+    {
+        return Math.min(0xff, (int) Math.round(c * 255.0 / a));
+    }
+
+    /**
+     * What {@link Color#mix(int, int)} did before it blended in integers.
+     */
+    static int floatMix(int argbB, int argbF)
+    {
+        if (argbF >>> 24 == 0xff) return argbF;
+
+        final float t  = (argbF >>> 24) / 255f;
+        final float t_ = 1f - t;
+
+        return (int) (((argbF >>> 24)       ) * t + ((argbB >>> 24)       ) * t_) << 24 |
+               (int) (((argbF >>> 16) & 0xFF) * t + ((argbB >>> 16) & 0xFF) * t_) << 16 |
+               (int) (((argbF >>>  8) & 0xFF) * t + ((argbB >>>  8) & 0xFF) * t_) <<  8 |
+               (int) (((argbF       ) & 0xFF) * t + ((argbB       ) & 0xFF) * t_)       ;
+    }
+}
@@ -0,0 +1,83 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DrawableImage;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Composites 4 translucent layers with depth buffers, like the layers of a window, onto a window buffer at 720p, 1080p and 4K
+ * and reports the cost per layer, once like {@link engine.window.Window#renderImagesOntoWindowBuffer()} does,
+ * by clearing the window buffer and drawing the layers one after another,
+ * and once in a single pass over bands of {@link #BAND_HEIGHT} rows, where every layer gets drawn onto a band
+ * before the next band is cleared, so the band stays in the cache. Compares the output of both.
+ */
+public class CompositorBenchmark
+{
+    static final int[][] SIZES       = { { 1280, 720 }, { 1920, 1080 }, { 3840, 2160 } };
+    static final int     LAYERS      = 4;
+    static final int     BAND_HEIGHT = 16;
+    static final int     WARMUP      = 10;
+    static final int     RUNS        = 8;
+
+    public static void main(String[] args)
+    {
+        System.out.printf("%d layers%n", LAYERS);
+
+        for (int[] size : SIZES) run(size[0], size[1]);
+    }
+
+    static void run(final int width, final int height)
+    {
+        final Random random = new Random(42);
+
+        final DrawableImage windowBuffer = new DrawableImage(vec(width, height));
+        final DrawableImage bandBuffer   = new DrawableImage(vec(width, height));
+
+        final DrawableImage[] layers = new DrawableImage[LAYERS];
+
+        for (int i = 0; i < LAYERS; i++)
+        {
+            layers[i] = new DrawableImage(vec(width, height));
+
+            final int[]    colors = layers[i].colorBuffer();
+            final double[] depths = layers[i].zBuffer    ();
+
+            for (int j = 0; j < colors.length; j++)
+            {
+                colors[j] = random.randomInt(1, 254) << 24 | random.color();
+                depths[j] = random.randomDouble(0, 1);
+            }
+        }
+
+        final double layerByLayer = measure(WARMUP, RUNS, () ->
+        {
+            windowBuffer.clear();
+
+            for (DrawableImage layer : layers) windowBuffer.drawImage(layer);
+        });
+
+        final double inBands = measure(WARMUP, RUNS, () ->
+        {
+            for (int y = 0; y < height; y += BAND_HEIGHT)
+            {
+                final int bandEnd = Math.min(height, y + BAND_HEIGHT);
+
+                bandBuffer.clear  (0, y, width, bandEnd);
+                bandBuffer.setClip(0, y, width, bandEnd);
+
+                for (DrawableImage layer : layers) bandBuffer.drawImage(layer);
+            }
+
+            bandBuffer.resetClip();
+        });
+
+        System.out.printf("%4d x %4d: layer by layer %8.3f ms per layer, in bands %8.3f ms per layer, identical : %b%n", width, height,
+            layerByLayer * Time.NANOS_TO_MILLIS / LAYERS, inBands * Time.NANOS_TO_MILLIS / LAYERS,
+            Arrays.equals(windowBuffer.colorBuffer(), bandBuffer.colorBuffer()) && Arrays.equals(windowBuffer.zBuffer(), bandBuffer.zBuffer()));
+    }
+}
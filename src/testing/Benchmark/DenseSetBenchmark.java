@@ -0,0 +1,91 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.GameObject;
+import engine.utils.ArrayUtils;
+import engine.utils.DenseSet;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+/**
+ * Spawns and despawns game objects in a scene of 1k, 10k and 100k objects, once with the copying arrays
+ * {@link engine.Scene} used before ({@link ArrayUtils#contains}, {@link ArrayUtils#push} and {@link ArrayUtils#remove})
+ * and once with a {@link DenseSet}. Every tick a snapshot of the objects is taken, like {@link engine.Scene} does before updating them.
+ * Compares the time per spawn and despawn.
+ */
+public class DenseSetBenchmark
+{
+    static final int[] SIZES           = { 1_000, 10_000, 100_000 };
+    static final int   SPAWNS          = 2_000;
+    static final int   SPAWNS_PER_TICK = 167; // 10k spawns per second at 60 ticks per second
+    static final int   RUNS            = 5;
+
+    public static void main(String[] args)
+    {
+        for (int size : SIZES)
+        {
+            GameObject[] objects = new GameObject[size + SPAWNS];
+
+            for (int i = 0; i < objects.length; i++) objects[i] = new GameObject();
+
+            double arrayTime = Double.MAX_VALUE;
+            double setTime   = Double.MAX_VALUE;
+
+            for (int run = 0; run < RUNS; run++)
+            {
+                arrayTime = Math.min(arrayTime, arrays  (objects, size));
+                setTime   = Math.min(setTime  , denseSet(objects, size));
+            }
+
+            System.out.printf("%6d objects : arrays %9.3f us/spawn, dense set %7.3f us/spawn, %7.1fx faster%n",
+                size, arrayTime / SPAWNS * 1e-3, setTime / SPAWNS * 1e-3, arrayTime / setTime);
+        }
+    }
+
+    /**
+     * @return the nanoseconds the spawns and despawns took
+     */
+    static long arrays(GameObject[] objects, int size)
+    {
+        GameObject[] scene = Arrays.copyOf(objects, size);
+
+        Random random = new Random(42);
+
+        long start = Time.nanos();
+
+        for (int i = 0; i < SPAWNS; i++)
+        {
+            GameObject spawned   = objects[size + i];
+            GameObject despawned = scene[random.randomInt(scene.length)];
+
+            if (!ArrayUtils.contains(scene, spawned  )) scene = ArrayUtils.push  (scene, spawned  );
+            if ( ArrayUtils.contains(scene, despawned)) scene = ArrayUtils.remove(scene, despawned);
+
+            // the arrays are their own snapshot
+        }
+
+        return Time.nanos() - start;
+    }
+
+    static long denseSet(GameObject[] objects, int size)
+    {
+        DenseSet<GameObject> scene = new DenseSet<>(GameObject[]::new);
+
+        for (int i = 0; i < size; i++) scene.add(objects[i]);
+
+        Random random = new Random(42);
+
+        long start = Time.nanos();
+
+        for (int i = 0; i < SPAWNS; i++)
+        {
+            scene.add   (objects[size + i]);
+            scene.remove(scene.get(random.randomInt(scene.size())));
+
+            if (i % SPAWNS_PER_TICK == 0) scene.toArray();
+        }
+
+        return Time.nanos() - start;
+    }
+}
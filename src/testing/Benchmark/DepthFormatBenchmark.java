@@ -0,0 +1,84 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DepthFormat;
+import engine.graphics.DrawableImage;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Clears and composites several full screen layers onto a window buffer, like {@link engine.window.Window#render()} does,
+ * once for every {@link DepthFormat}, and compares the time of both steps, the memory of the depth buffers and the output.
+ */
+public class DepthFormatBenchmark
+{
+    static final int WIDTH  = 1080;
+    static final int HEIGHT = 720;
+    static final int LAYERS = 4;
+    static final int WARMUP = 10;
+    static final int FRAMES = 30;
+
+    public static void main(String[] args)
+    {
+        int[] reference = null;
+
+        for (DepthFormat format : DepthFormat.values())
+        {
+            Random random = new Random(42);
+
+            DrawableImage   window  = new DrawableImage(vec(WIDTH, HEIGHT), format);
+            DrawableImage[] layers  = new DrawableImage[LAYERS];
+            DrawableImage[] sprites = new DrawableImage[LAYERS];
+
+            for (int i = 0; i < LAYERS; i++)
+            {
+                layers [i] = new DrawableImage(vec(WIDTH, HEIGHT), format);
+                // the layers are drawn back to front, so the output does not depend on whether the depths get compared
+                sprites[i] = sprite(format, 0.9 - i * 0.1, random);
+            }
+
+            Runnable clear     = () -> { for (DrawableImage layer : layers) layer.fill(DrawableImage.CLEAR_Z, 0); window.clear(); };
+            Runnable composite = () ->
+            {
+                for (int i = 0; i < LAYERS; i++) layers[i].drawImage(sprites[i]);
+                for (int i = 0; i < LAYERS; i++) window   .drawImage(layers [i]);
+            };
+
+            double clearTime     = measure(WARMUP, FRAMES, clear    ) * Time.NANOS_TO_MILLIS;
+            double compositeTime = measure(WARMUP, FRAMES, composite) * Time.NANOS_TO_MILLIS;
+
+            clear    .run();
+            composite.run();
+
+            if (reference == null) reference = window.colorBuffer().clone();
+
+            long depthBytes = (long) (LAYERS + 1) * WIDTH * HEIGHT * format.bytesPerPixel();
+
+            System.out.printf("%-6s : clear %7.3f ms, composite %8.3f ms, depth buffers %5.2f MB, identical to DOUBLE : %b%n",
+                format, clearTime, compositeTime, depthBytes / 1e6, Arrays.equals(reference, window.colorBuffer()));
+        }
+    }
+
+    /**
+     * @return a full screen sprite with opaque, half transparent and fully transparent blocks at the given depth
+     */
+    static DrawableImage sprite(DepthFormat format, double z, Random random)
+    {
+        DrawableImage sprite = new DrawableImage(vec(WIDTH, HEIGHT), format);
+
+        sprite.fillZ(z);
+
+        for (int i = 0; i < sprite.pixels(); i++)
+        {
+            int block = (i % WIDTH) / 32 + (i / WIDTH) / 32;
+
+            sprite.colorBuffer()[i] = (block % 3 == 0 ? 0xff000000 : block % 3 == 1 ? 0x80000000 : 0) | random.color();
+        }
+
+        return sprite;
+    }
+}
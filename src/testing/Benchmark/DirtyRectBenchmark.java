@@ -0,0 +1,159 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DirtyRegion;
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Renders a mostly static window, a background and a UI that never change and a cursor that moves every frame,
+ * once like {@link engine.window.Window#render()} without dirty tracking, where every layer gets cleared, redrawn and composited,
+ * and once with dirty tracking and retained background and UI layers, where only the area of the cursor gets cleared and composited.
+ * Compares the time per frame, the pixels composited per frame and the output. <p>
+ *
+ * The window itself needs a display, so the window buffer is composited directly
+ * the same way {@link engine.window.Window#renderImagesOntoWindowBuffer()} does.
+ */
+public class DirtyRectBenchmark
+{
+    static final int WIDTH  = 1080;
+    static final int HEIGHT = 720;
+    static final int PANELS = 40;
+    static final int WARMUP = 20;
+    static final int FRAMES = 50;
+
+    static Image  background;
+    static Image  cursor;
+    static int[]  panels;
+
+    static DrawableImage   windowBuffer;
+    static DrawableImage[] layers;
+    static DirtyRegion     redrawRegion;
+
+    static int  frame;
+    static long pixelsComposited;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        background = new Image(vec(WIDTH, HEIGHT));
+
+        for (int i = 0; i < background.pixels(); i++) background.colorBuffer()[i] = 0xff000000 | random.color();
+
+        Arrays.fill(background.zBuffer(), 0.9);
+
+        cursor = new Image(vec(24, 24));
+
+        for (int i = 0; i < cursor.pixels(); i++) cursor.colorBuffer()[i] = (i % 24 + i / 24 < 24 ? 0xff000000 : 0) | random.color();
+
+        Arrays.fill(cursor.zBuffer(), 0.1);
+
+        panels = new int[PANELS * 5];
+
+        for (int i = 0; i < PANELS; i++)
+        {
+            panels[i * 5    ] = random.randomInt(WIDTH  - 200);
+            panels[i * 5 + 1] = random.randomInt(HEIGHT - 100);
+            panels[i * 5 + 2] = random.randomInt(40, 200);
+            panels[i * 5 + 3] = random.randomInt(20, 100);
+            panels[i * 5 + 4] = (i % 2 == 0 ? 0xff000000 : 0x80000000) | random.color();
+        }
+
+        int[] reference = run(false);
+        int[] tracked   = run(true );
+
+        System.out.printf("identical : %b%n", Arrays.equals(reference, tracked));
+    }
+
+    /**
+     * @return the window buffer after the last frame
+     */
+    static int[] run(boolean dirtyTracking)
+    {
+        windowBuffer = new DrawableImage(vec(WIDTH, HEIGHT));
+        layers       = new DrawableImage[] { new DrawableImage(vec(WIDTH, HEIGHT)), new DrawableImage(vec(WIDTH, HEIGHT)), new DrawableImage(vec(WIDTH, HEIGHT)) };
+        redrawRegion = new DirtyRegion(WIDTH, HEIGHT);
+
+        frame = 0;
+
+        if (dirtyTracking)
+        {
+            for (DrawableImage layer : layers) layer.setDirtyTracking(true);
+
+            // the background and the UI are retained, they are drawn once
+            background(layers[0]);
+            ui        (layers[1]);
+        }
+
+        Runnable render = dirtyTracking ? DirtyRectBenchmark::trackedFrame : DirtyRectBenchmark::fullFrame;
+
+        pixelsComposited = 0;
+
+        double time = measure(WARMUP, FRAMES, render);
+
+        System.out.printf("dirty tracking %-5b : %8.3f ms/frame, %9d pixels composited/frame%n",
+            dirtyTracking, time * Time.NANOS_TO_MILLIS, pixelsComposited / (WARMUP + FRAMES));
+
+        return windowBuffer.colorBuffer();
+    }
+
+    static void fullFrame()
+    {
+        for (DrawableImage layer : layers) layer.clear();
+
+        background(layers[0]);
+        ui        (layers[1]);
+        cursor    (layers[2]);
+
+        windowBuffer.clear();
+
+        for (DrawableImage layer : layers) windowBuffer.drawImage(layer);
+
+        pixelsComposited += WIDTH * HEIGHT;
+    }
+
+    static void trackedFrame()
+    {
+        layers[2].clear();
+
+        cursor(layers[2]);
+
+        for (DrawableImage layer : layers)
+        {
+            redrawRegion.add(layer.dirtyRegion());
+            layer.dirtyRegion().clear();
+        }
+
+        redrawRegion.forEach((x0, y0, x1, y1) -> pixelsComposited += (x1 - x0) * (y1 - y0));
+
+        windowBuffer.redraw(redrawRegion, layers);
+
+        redrawRegion.clear();
+    }
+
+    static void background(DrawableImage image) { image.drawImage(background); }
+
+    static void ui(DrawableImage image)
+    {
+        for (int i = 0; i < PANELS; i++)
+        {
+            int x = panels[i * 5], y = panels[i * 5 + 1];
+
+            image.fillRect(x, y, x + panels[i * 5 + 2], y + panels[i * 5 + 3], 0.5, panels[i * 5 + 4]);
+        }
+    }
+
+    static void cursor(DrawableImage image)
+    {
+        frame++;
+
+        image.drawImage(cursor, (frame * 7) % (WIDTH - 24), (frame * 3) % (HEIGHT - 24));
+    }
+}
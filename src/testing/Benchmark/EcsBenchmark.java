@@ -0,0 +1,130 @@
+package testing.Benchmark;
+
+import engine.GameObject;
+import engine.Script;
+import engine.ecs.Archetype;
+import engine.ecs.Component;
+import engine.ecs.World;
+import engine.math.Transform;
+import engine.math.Vector;
+import engine.utils.random.Random;
+
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Moves 100k objects by their velocity, once as game objects with one of three script classes, walked like {@link engine.Scene} updates them,
+ * once as entities of a {@link World} with a single system, and once as game objects bound to entities,
+ * including copying the transforms in and out of the world. Compares the time per object.
+ */
+public class EcsBenchmark
+{
+    static final int    OBJECTS = 100_000;
+    static final int    WARMUP  = 20;
+    static final int    TICKS   = 50;
+    static final double DT      = 1.0 / 60;
+
+    static final Component VELOCITY = Component.Create("velocity", 0, 0, 0);
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        double[] velocities = new double[OBJECTS * 3];
+
+        for (int i = 0; i < velocities.length; i++) velocities[i] = random.randomDouble(-10, 10);
+
+        // scene path: every object has a script, three classes make the call site megamorphic like in a real scene
+        GameObject[] gameObjects = new GameObject[OBJECTS];
+        Mover     [] scripts     = new Mover     [OBJECTS];
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            gameObjects[i] = new GameObject();
+            gameObjects[i].transform = new Transform();
+
+            scripts[i] = i % 3 == 0 ? new Mover() : i % 3 == 1 ? new SlowMover() : new FastMover();
+            scripts[i].velocity = new Vector(velocities[i * 3], velocities[i * 3 + 1], velocities[i * 3 + 2]);
+
+            gameObjects[i].addScript(scripts[i]);
+        }
+
+        double sceneTime = measure(WARMUP, TICKS, () ->
+        {
+            for (int i = 0; i < OBJECTS; i++)
+                if (gameObjects[i].isActive() && scripts[i].isActive())
+                    scripts[i].step();
+        });
+
+        // world path: the same motion as a system over contiguous columns
+        World world = new World();
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            int entity = world.create(Component.POSITION, VELOCITY);
+
+            for (int field = 0; field < 3; field++) world.set(entity, VELOCITY, field, velocities[i * 3 + field]);
+        }
+
+        world.addSystem(EcsBenchmark::move, Component.POSITION, VELOCITY);
+
+        double worldTime = measure(WARMUP, TICKS, world::update);
+
+        // bridge: game objects backed by entities, the transforms get copied into the world and back every tick
+        World bridge = new World();
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            GameObject gameObject = new GameObject();
+
+            gameObject.transform = new Transform();
+
+            int entity = gameObject.bindEntity(bridge);
+
+            bridge.add(entity, VELOCITY);
+
+            for (int field = 0; field < 3; field++) bridge.set(entity, VELOCITY, field, velocities[i * 3 + field]);
+        }
+
+        bridge.addSystem(EcsBenchmark::move, Component.POSITION, VELOCITY);
+
+        double bridgeTime = measure(WARMUP, TICKS, bridge::update);
+
+        System.out.printf("scene  : %7.2f ns/object%n", sceneTime  / OBJECTS);
+        System.out.printf("world  : %7.2f ns/object, speedup %5.2fx%n", worldTime  / OBJECTS, sceneTime / worldTime );
+        System.out.printf("bridge : %7.2f ns/object, speedup %5.2fx%n", bridgeTime / OBJECTS, sceneTime / bridgeTime);
+    }
+
+    static void move(Archetype archetype, int from, int to)
+    {
+        double[] x  = archetype.column(Component.POSITION, 0), vx = archetype.column(VELOCITY, 0);
+        double[] y  = archetype.column(Component.POSITION, 1), vy = archetype.column(VELOCITY, 1);
+        double[] z  = archetype.column(Component.POSITION, 2), vz = archetype.column(VELOCITY, 2);
+
+        for (int i = from; i < to; i++)
+        {
+            x[i] += vx[i] * DT;
+            y[i] += vy[i] * DT;
+            z[i] += vz[i] * DT;
+        }
+    }
+
+    static class Mover extends Script
+    {
+        Vector velocity;
+
+        // Script.update is only callable by the engine, the benchmark calls it through here
+        final void step() { update(); }
+
+        @Override protected void update() { transform().position.add(velocity.x * DT, velocity.y * DT, velocity.z * DT); }
+    }
+
+    static class SlowMover extends Mover
+    {
+        @Override protected void update() { transform().position.add(velocity.x * DT * 0.5, velocity.y * DT * 0.5, velocity.z * DT * 0.5); }
+    }
+
+    static class FastMover extends Mover
+    {
+        @Override protected void update() { transform().position.add(velocity.x * DT * 2, velocity.y * DT * 2, velocity.z * DT * 2); }
+    }
+}
@@ -0,0 +1,118 @@
+package testing.Benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import engine.graphics.CaptureFormat;
+import engine.graphics.DrawableImage;
+import engine.graphics.FrameCapture;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * Compares how long the thread that renders is stalled per frame by exporting a 1280x720 frame with {@link engine.graphics.Image#export(String, String)}
+ * to capturing it with a {@link FrameCapture}, which only copies the frame and encodes it in the background.
+ * Frames are fed at 60 frames per second, the capture reports how many it dropped because the encoder could not keep up,
+ * and how large a frame is in each {@link CaptureFormat}.
+ */
+public class FrameCaptureBenchmark
+{
+    static final int WIDTH   = 1280;
+    static final int HEIGHT  = 720;
+    static final int FPS     = 60;
+    static final int FRAMES  = 240;
+    static final int EXPORTS = 20;
+
+    public static void main(String[] args) throws IOException
+    {
+        final File directory = Files.createTempDirectory("frames").toFile();
+
+        final DrawableImage frame = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        draw(frame, 0);
+
+        double export = Double.MAX_VALUE;
+
+        for (int i = 0; i < EXPORTS; i++)
+        {
+            final String path = new File(directory, "export.png").getPath();
+
+            export = Math.min(export, Time.measureTime(() -> frame.export(path, "png")));
+        }
+
+        System.out.printf("Image.export png : %8.3f ms per frame on the calling thread%n", export * Time.NANOS_TO_MILLIS);
+
+        for (CaptureFormat format : CaptureFormat.values())
+        {
+            final File formatDirectory = new File(directory, format.extension());
+
+            final FrameCapture capture = new FrameCapture(formatDirectory.getPath(), format);
+
+            long total = 0;
+            long max   = 0;
+
+            long deadline = Time.nanos();
+
+            for (int i = 0; i < FRAMES; i++)
+            {
+                draw(frame, i);
+
+                final long start = Time.nanos();
+
+                capture.capture(frame);
+
+                final long time = Time.nanos() - start;
+
+                total += time;
+                max    = Math.max(max, time);
+
+                deadline += (long) (Time.SECONDS_TO_NANOS / FPS);
+
+                Time.sleepUntil(deadline);
+            }
+
+            capture.destroy();
+
+            long bytes = 0;
+
+            for (File file : formatDirectory.listFiles()) { bytes += file.length(); file.delete(); }
+
+            formatDirectory.delete();
+
+            System.out.printf("capture %-8s : %8.3f ms per frame, %8.3f ms at most, %4d written, %4d dropped, %8.1f kB per frame%n",
+                format, total * Time.NANOS_TO_MILLIS / FRAMES, max * Time.NANOS_TO_MILLIS, capture.written(), capture.dropped(),
+                capture.written() == 0 ? 0 : bytes / 1024.0 / capture.written());
+        }
+
+        for (File file : directory.listFiles()) file.delete();
+
+        directory.delete();
+    }
+
+    /**
+     * A gradient with a few moving rectangles and some noise, compressible like a rendered frame.
+     */
+    static void draw(final DrawableImage frame, final int index)
+    {
+        final Random random = new Random(index);
+
+        final int[] colors = frame.colorBuffer();
+
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                colors[x + y * WIDTH] = 0xff000000 | (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | ((x + index) & 0xff);
+
+        for (int i = 0; i < 32; i++)
+        {
+            final int x = random.randomInt(0, WIDTH  - 100);
+            final int y = random.randomInt(0, HEIGHT - 100);
+
+            frame.fillRect(x, y, x + 100, y + 100, 0, 0xff000000 | random.color());
+        }
+
+        for (int i = 0; i < 2000; i++) colors[random.randomInt(0, WIDTH * HEIGHT - 1)] = 0xff000000 | random.color();
+    }
+}
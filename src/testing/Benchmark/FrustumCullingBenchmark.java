@@ -0,0 +1,104 @@
+package testing.Benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.math.FinalVector;
+import engine.math.Matrix;
+import engine.math.Quaternion;
+import engine.threed.Camera;
+import engine.threed.IndexedMesh;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Draws 64 meshes of 20.000 triangles on a ring around the camera, most of them behind or beside it,
+ * once with and once without frustum culling, see {@link DrawableImage#setFrustumCulling(boolean)}.
+ * Compares the time of a frame and the output, times drawing only the meshes that are out of view with and without culling,
+ * and prints the culling counters of a frame.
+ */
+public class FrustumCullingBenchmark
+{
+    static final int WIDTH  = 1080;
+    static final int HEIGHT = 720;
+    static final int MESHES = 64;
+    static final int WARMUP = 10;
+    static final int FRAMES = 30;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        Image texture = new Image(vec(256, 256));
+
+        for (int i = 0; i < texture.pixels(); i++) texture.colorBuffer()[i] = 0xff000000 | random.color();
+
+        IndexedMesh mesh = MeshAllocationBenchmark.grid();
+
+        Camera camera = new Camera(90, (double) HEIGHT / WIDTH, 0.1, 1000);
+
+        camera.position = vec(0, 2, 0);
+        camera.updateViewMatrix(FinalVector.forward);
+
+        Matrix[] transforms = new Matrix[MESHES];
+
+        for (int i = 0; i < MESHES; i++)
+        {
+            double angle = 2 * Math.PI * i / MESHES;
+
+            transforms[i] = Matrix.MakeTransformation(vec(Math.sin(angle) * 40, 0, Math.cos(angle) * 40), vec(1, 1, 1), new Quaternion(0, angle, 0));
+        }
+
+        DrawableImage image     = new DrawableImage(vec(WIDTH, HEIGHT));
+        DrawableImage reference = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        reference.setFrustumCulling(false);
+
+        // the meshes that are out of view, found by the counters
+        List<Matrix> culled = new ArrayList<>();
+
+        for (Matrix transform : transforms)
+        {
+            long count = image.meshesCulled();
+
+            image.mesh(camera, mesh, transform, texture);
+
+            if (image.meshesCulled() > count) culled.add(transform);
+        }
+
+        double on  = measure(WARMUP, FRAMES, () -> frame(image    , camera, mesh, transforms, texture));
+        double off = measure(WARMUP, FRAMES, () -> frame(reference, camera, mesh, transforms, texture));
+
+        Matrix[] outOfView = culled.toArray(new Matrix[0]);
+
+        double culledOn  = measure(WARMUP, FRAMES, () -> { for (Matrix transform : outOfView) image    .mesh(camera, mesh, transform, texture); });
+        double culledOff = measure(WARMUP, FRAMES, () -> { for (Matrix transform : outOfView) reference.mesh(camera, mesh, transform, texture); });
+
+        image.resetCullingCounters();
+
+        frame(image    , camera, mesh, transforms, texture);
+        frame(reference, camera, mesh, transforms, texture);
+
+        boolean identical = Arrays.equals(image.colorBuffer(), reference.colorBuffer()) && Arrays.equals(image.zBuffer(), reference.zBuffer());
+
+        System.out.printf("meshes  : %d drawn, %d culled%n", image.meshesDrawn  (), image.meshesCulled  ());
+        System.out.printf("clusters: %d drawn, %d culled%n", image.clustersDrawn(), image.clustersCulled());
+        System.out.printf("culling on         : %8.3f ms/frame%n", on  * Time.NANOS_TO_MILLIS);
+        System.out.printf("culling off        : %8.3f ms/frame, identical : %b%n", off * Time.NANOS_TO_MILLIS, identical);
+        System.out.printf("out of view mesh   : %8.3f us each with culling, %8.3f us each without%n", 
+            culledOn / 1000 / outOfView.length, culledOff / 1000 / outOfView.length);
+    }
+
+    static void frame(DrawableImage image, Camera camera, IndexedMesh mesh, Matrix[] transforms, Image texture)
+    {
+        image.clear();
+
+        for (Matrix transform : transforms) image.mesh(camera, mesh, transform, texture);
+    }
+}
@@ -0,0 +1,118 @@
+package testing.Benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import engine.Engine;
+import engine.GameObject;
+import engine.Scene;
+import engine.Script;
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.math.FinalVector;
+import engine.math.Matrix;
+import engine.math.Quaternion;
+import engine.threed.Camera;
+import engine.threed.IndexedMesh;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * Runs a headless engine, see {@link Engine#Engine(engine.math.Vector4, int, int, String...)}, uncapped for a fixed number of frames,
+ * each frame a swaying mesh of 20.000 triangles, and reports the frames per second and how much of the window buffer got covered.
+ * Needs no display, so it runs on machines without one.
+ */
+public class HeadlessEngineBenchmark
+{
+    static final int WIDTH  = 640;
+    static final int HEIGHT = 360;
+    static final int FRAMES = 2000;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Random random = new Random(42);
+
+        Image texture = new Image(vec(256, 256));
+
+        for (int i = 0; i < texture.pixels(); i++) texture.colorBuffer()[i] = 0xff000000 | random.color();
+
+        IndexedMesh mesh = MeshAllocationBenchmark.grid();
+
+        Engine engine = new Engine(vec(WIDTH, HEIGHT), 60, 60, "main").setUncapped(true);
+
+        CountDownLatch ended = new CountDownLatch(1);
+
+        MeshScript script = new MeshScript(mesh, texture, engine);
+
+        engine.setActiveScene(new Scene()
+        {
+            @Override
+            protected void init()
+            {
+                GameObject gameObject = new GameObject();
+
+                addGameObject(gameObject);
+
+                gameObject.addScript(script);
+            }
+
+            @Override
+            protected void end() { ended.countDown(); }
+        });
+
+        engine.activate();
+
+        ended.await();
+
+        DrawableImage frame = engine.window().windowBuffer();
+
+        int covered = 0;
+
+        for (int i = 0; i < frame.pixels(); i++) if (frame.colorBuffer()[i] != DrawableImage.CLEAR_COLOR) covered++;
+
+        double seconds = (script.end - script.start) * Time.NANOS_TO_SECONDS;
+
+        System.out.printf("headless: %d frames in %6.3f s, %8.1f frames/s, %d pixels covered in the last frame%n", script.frames - 1, seconds, (script.frames - 1) / seconds, covered);
+    }
+
+    static class MeshScript extends Script
+    {
+        final IndexedMesh mesh;
+        final Image       texture;
+        final Engine      engine;
+        final Camera      camera;
+
+        int  frames;
+        long start;
+        long end;
+
+        MeshScript(IndexedMesh mesh, Image texture, Engine engine)
+        {
+            this.mesh    = mesh;
+            this.texture = texture;
+            this.engine  = engine;
+
+            camera = new Camera(90, (double) HEIGHT / WIDTH, 0.1, 1000);
+
+            camera.position = vec(0, 2, -4);
+            camera.updateViewMatrix(FinalVector.forward);
+        }
+
+        @Override
+        protected void render()
+        {
+            if (frames == 0) start = Time.nanos();
+
+            Matrix transform = Matrix.MakeTransformation(vec(-5, 0, 0), vec(1, 1, 1), new Quaternion(0, Math.sin(frames * 0.01) * 0.3, 0));
+
+            image().mesh(camera, mesh, transform, texture);
+
+            if (++frames <= FRAMES) return;
+
+            end = Time.nanos();
+
+            engine.deactivate();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.graphics.Rasterizer;
+import engine.threed.Triangle;
+import engine.threed.Vertex;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Draws a scene with heavy overdraw, an opaque foreground, 3D props behind it and layered sprite backgrounds behind everything,
+ * with and without the hierarchical depth buffer, and compares the fragments shaded, the frame time and the output.
+ */
+public class HierarchicalZBenchmark
+{
+    static final int WIDTH     = 1080;
+    static final int HEIGHT    = 720;
+    static final int TRIANGLES = 1000;
+    static final int LAYERS    = 4;
+    static final int WARMUP    = 10;
+    static final int FRAMES    = 30;
+
+    static Image      foreground;
+    static Image[]    backgrounds;
+    static Image      texture;
+    static Triangle[] props;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        foreground = sprite(WIDTH, HEIGHT * 2 / 3, 0.2, random);
+
+        backgrounds = new Image[LAYERS];
+
+        for (int i = 0; i < LAYERS; i++) backgrounds[i] = sprite(WIDTH, HEIGHT, 0.6 + i * 0.1, random);
+
+        texture = sprite(256, 256, 0, random);
+
+        props = new Triangle[TRIANGLES];
+
+        for (int i = 0; i < TRIANGLES; i++)
+        {
+            double x = random.randomDouble(0, WIDTH), y = random.randomDouble(0, HEIGHT), z = random.randomDouble(0.3, 0.5);
+
+            props[i] = new Triangle
+            (
+                vertex(x                               , y                               , z),
+                vertex(x + random.randomDouble(-80, 80), y + random.randomDouble(-80, 80), z),
+                vertex(x + random.randomDouble(-80, 80), y + random.randomDouble(-80, 80), z)
+            );
+        }
+
+        for (Rasterizer rasterizer : Rasterizer.values())
+        {
+            DrawableImage reference = new DrawableImage(vec(WIDTH, HEIGHT));
+            DrawableImage image     = new DrawableImage(vec(WIDTH, HEIGHT));
+
+            reference.setRasterizer(rasterizer);
+            image    .setRasterizer(rasterizer);
+
+            image.setHierarchicalZ(true);
+
+            for (DrawableImage i : new DrawableImage[] { reference, image })
+            {
+                double time = measure(WARMUP, FRAMES, () -> frame(i)) * Time.NANOS_TO_MILLIS;
+
+                i.resetFragmentsShaded();
+
+                frame(i);
+
+                System.out.printf("%-13s hierarchical z %-5b : %8.3f ms/frame, %10d fragments shaded/frame%n",
+                    rasterizer, i.hasHierarchicalZ(), time, i.fragmentsShaded());
+            }
+
+            boolean identical = Arrays.equals(image.colorBuffer(), reference.colorBuffer()) &&
+                                Arrays.equals(image.zBuffer    (), reference.zBuffer    ());
+
+            System.out.printf("%-13s identical : %b%n", rasterizer, identical);
+        }
+    }
+
+    static Image sprite(int width, int height, double z, Random random)
+    {
+        Image sprite = new Image(vec(width, height));
+
+        int color = 0xff000000 | random.color();
+
+        for (int i = 0; i < sprite.pixels(); i++) sprite.colorBuffer()[i] = (i / width) % 16 < 8 ? color : 0xff000000 | random.color();
+
+        Arrays.fill(sprite.zBuffer(), z);
+
+        return sprite;
+    }
+
+    static Vertex vertex(double x, double y, double z)
+    {
+        return new Vertex(fvec(x, y, z, 1), fvec(x / WIDTH, y / HEIGHT, 1), fvec(0, 0, 1));
+    }
+
+    static void frame(DrawableImage image)
+    {
+        image.clear();
+
+        image.drawImage(foreground, 0, HEIGHT - foreground.height());
+
+        for (Triangle t : props) image.fillTriangle(t, texture);
+
+        for (Image background : backgrounds) image.drawImage(background);
+    }
+}
@@ -0,0 +1,140 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DepthFormat;
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.utils.Lambda.Action1;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Draws the layers of a typical 2D game, a tilemap of opaque tiles and a HUD of sprites with transparent borders 
+ * and opaque and half transparent panels, once onto layers with depth buffer and once onto layers without ({@link DepthFormat#NONE}),
+ * the tilemap layer is declared opaque, the HUD is drawn a second time onto opaque layers. Compares the time per frame and the output.
+ */
+public class Layer2DBenchmark
+{
+    static final int WIDTH     = 1080;
+    static final int HEIGHT    = 720;
+    static final int TILE_SIZE = 32;
+    static final int SPRITES   = 200;
+    static final int PANELS    = 40;
+    static final int WARMUP    = 20;
+    static final int FRAMES    = 50;
+
+    static final double Z = 0.5; // everything at the same depth is drawn in order, like without depth buffer
+
+    static Image[] tiles;
+    static Image   sprite;
+    static int[]   spritePositions;
+    static int[]   panels;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        tiles = new Image[8];
+
+        for (int i = 0; i < tiles.length; i++) tiles[i] = image(TILE_SIZE, 0xff000000 | random.color(), random);
+
+        sprite = image(48, 0xff000000 | random.color(), random);
+
+        //a round sprite, fully transparent outside, half transparent at the border
+        for (int y = 0; y < 48; y++)
+        for (int x = 0; x < 48; x++)
+        {
+            double distance = Math.hypot(x - 23.5, y - 23.5);
+
+            int alpha = distance > 24 ? 0 : distance > 21 ? 0x80 : 0xff;
+
+            sprite.colorBuffer()[x + y * 48] = alpha << 24 | (sprite.colorBuffer()[x + y * 48] & 0xffffff);
+        }
+
+        spritePositions = new int[SPRITES * 2];
+
+        for (int i = 0; i < SPRITES; i++)
+        {
+            spritePositions[i * 2    ] = random.randomInt(WIDTH  - 48);
+            spritePositions[i * 2 + 1] = random.randomInt(HEIGHT - 48);
+        }
+
+        panels = new int[PANELS * 5];
+
+        for (int i = 0; i < PANELS; i++)
+        {
+            panels[i * 5    ] = random.randomInt(WIDTH  - 200);
+            panels[i * 5 + 1] = random.randomInt(HEIGHT - 100);
+            panels[i * 5 + 2] = random.randomInt(40, 200);
+            panels[i * 5 + 3] = random.randomInt(20, 100);
+            panels[i * 5 + 4] = (i % 2 == 0 ? 0xff000000 : 0x80000000) | random.color();
+        }
+
+        DrawableImage tilemap = new DrawableImage(vec(WIDTH, HEIGHT), DepthFormat.NONE);
+        DrawableImage hud     = new DrawableImage(vec(WIDTH, HEIGHT), DepthFormat.NONE);
+        DrawableImage opaque  = new DrawableImage(vec(WIDTH, HEIGHT), DepthFormat.NONE);
+
+        tilemap.setOpaque(true);
+        opaque .setOpaque(true);
+
+        compare("tilemap", Layer2DBenchmark::tilemap, tilemap);
+        compare("hud"    , Layer2DBenchmark::hud    , hud    );
+        compare("opaque" , Layer2DBenchmark::hud    , opaque );
+    }
+
+    static void compare(String name, Action1<DrawableImage> frame, DrawableImage layer)
+    {
+        DrawableImage reference = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        //an opaque reference makes the half transparent sprites and panels opaque like the layer does
+        reference.setOpaque(layer.isOpaque());
+
+        double referenceTime = measure(WARMUP, FRAMES, () -> frame.run(reference)) * Time.NANOS_TO_MILLIS;
+        double layerTime     = measure(WARMUP, FRAMES, () -> frame.run(layer    )) * Time.NANOS_TO_MILLIS;
+
+        frame.run(reference);
+        frame.run(layer    );
+
+        System.out.printf("%-7s : %-6s %7.3f ms/frame, %-6s opaque %-5b %7.3f ms/frame, %5.1fx faster, identical : %b%n", 
+            name, reference.depthFormat(), referenceTime, layer.depthFormat(), layer.isOpaque(), layerTime, 
+            referenceTime / layerTime, Arrays.equals(reference.colorBuffer(), layer.colorBuffer()));
+    }
+
+    static Image image(int size, int color, Random random)
+    {
+        Image image = new Image(vec(size, size));
+
+        for (int i = 0; i < image.pixels(); i++) image.colorBuffer()[i] = (i / size + i % size) % 8 < 4 ? color : 0xff000000 | random.color();
+
+        Arrays.fill(image.zBuffer(), Z);
+
+        return image;
+    }
+
+    static void tilemap(DrawableImage image)
+    {
+        image.clear();
+
+        for (int y = 0, i = 0; y < HEIGHT; y += TILE_SIZE)
+        for (int x = 0; x < WIDTH; x += TILE_SIZE, i++)
+            image.drawImage(tiles[i % tiles.length], x, y);
+    }
+
+    static void hud(DrawableImage image)
+    {
+        image.fill(DrawableImage.CLEAR_Z, 0);
+
+        for (int i = 0; i < SPRITES; i++) image.drawImage(sprite, spritePositions[i * 2], spritePositions[i * 2 + 1]);
+
+        for (int i = 0; i < PANELS; i++)
+        {
+            int x = panels[i * 5], y = panels[i * 5 + 1];
+
+            image.fillRect(x, y, x + panels[i * 5 + 2], y + panels[i * 5 + 3], Z, panels[i * 5 + 4]);
+        }
+    }
+}
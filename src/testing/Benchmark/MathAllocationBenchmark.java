@@ -0,0 +1,112 @@
+package testing.Benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import engine.math.Matrix;
+import engine.math.Quaternion;
+import engine.math.Scratch;
+import engine.math.Vector;
+import engine.utils.random.Random;
+
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Runs the math of a typical script for 10k objects, composing a transformation matrix with the one of a parent,
+ * transforming a point, rotating a direction and steering towards a target, once with the operations that return new objects
+ * and once with the overloads that write into destinations taken from a {@link Scratch}.
+ * Compares the time and the allocated bytes per object.
+ */
+public class MathAllocationBenchmark
+{
+    static final int OBJECTS = 10_000;
+    static final int WARMUP  = 50;
+    static final int FRAMES  = 100;
+
+    static Vector    [] positions = new Vector    [OBJECTS];
+    static Vector    [] scales    = new Vector    [OBJECTS];
+    static Quaternion[] rotations = new Quaternion[OBJECTS];
+    static Vector    [] targets   = new Vector    [OBJECTS];
+
+    static Matrix parent;
+
+    static double sink;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            positions[i] = new Vector(random.randomDouble(-10, 10), random.randomDouble(-10, 10), random.randomDouble(-10, 10));
+            scales   [i] = new Vector(random.randomDouble(0.5, 2), random.randomDouble(0.5, 2), random.randomDouble(0.5, 2));
+            rotations[i] = new Quaternion(random.randomDouble(-3, 3), random.randomDouble(-3, 3), random.randomDouble(-3, 3));
+            targets  [i] = new Vector(random.randomDouble(-10, 10), random.randomDouble(-10, 10), random.randomDouble(-10, 10));
+        }
+
+        parent = Matrix.MakeTransformation(new Vector(1, 2, 3), new Vector(1, 1, 1), new Quaternion(0.1, 0.2, 0.3));
+
+        double[] allocating = measureAllocating(MathAllocationBenchmark::allocating);
+        double[] inPlace    = measureAllocating(MathAllocationBenchmark::inPlace   );
+
+        System.out.printf("allocating : %7.1f ns/object, %6.0f bytes/object%n", allocating[0] / OBJECTS, allocating[1] / OBJECTS);
+        System.out.printf("in place   : %7.1f ns/object, %6.0f bytes/object, speedup %5.2fx%n", inPlace[0] / OBJECTS, inPlace[1] / OBJECTS, allocating[0] / inPlace[0]);
+    }
+
+    static void allocating()
+    {
+        double sum = 0;
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            Matrix world = Matrix.MakeTransformation(Matrix.MakeTranslation(positions[i]), Matrix.MakeRotation(rotations[i]), Matrix.MakeScale(scales[i])).times(parent);
+
+            Vector point     = world.times(new Vector(1, 1, 1));
+            Vector forward   = rotations[i].rotateVector(new Vector(0, 0, 1));
+            Vector direction = point.directionTo(targets[i]);
+            Vector steering  = direction.minus(forward).times(0.1);
+
+            sum += forward.plus(steering).normalized().cross(direction).x;
+        }
+
+        sink += sum;
+    }
+
+    static void inPlace()
+    {
+        final Scratch scratch = Scratch.get();
+
+        double sum = 0;
+
+        for (int i = 0; i < OBJECTS; i++)
+        {
+            Matrix world = Matrix.MakeTransformation(positions[i], scales[i], rotations[i], scratch.matrix()).times(parent, scratch.matrix());
+
+            Vector point     = scratch.vector().set(1, 1, 1, 1).transform(world);
+            Vector forward   = scratch.vector().set(0, 0, 1, 1).rotate(rotations[i]);
+            Vector direction = point.directionTo(targets[i], scratch.vector());
+            Vector steering  = direction.minus(forward, scratch.vector()).multiplyAllBy(0.1);
+
+            sum += forward.add(steering).normalize().cross(direction, steering).x;
+        }
+
+        sink += sum;
+    }
+
+    /**
+     * @return the fastest time of a frame in nanoseconds and the bytes allocated by it
+     */
+    static double[] measureAllocating(Runnable frame)
+    {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        double time = measure(WARMUP, FRAMES, frame);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+
+        frame.run();
+
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        return new double[] { time, bytes };
+    }
+}
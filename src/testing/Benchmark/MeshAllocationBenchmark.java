@@ -0,0 +1,120 @@
+package testing.Benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.math.FinalVector;
+import engine.math.Matrix;
+import engine.threed.Camera;
+import engine.threed.IndexedMesh;
+import engine.threed.Mesh;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * Draws a mesh as {@link IndexedMesh} and as {@link Mesh} and counts the bytes the render thread allocates per frame.
+ * After the warmup the mesh pipeline must not allocate at all, the process exits with status 1 if it does.
+ */
+public class MeshAllocationBenchmark
+{
+    static final int WIDTH  = 1080;
+    static final int HEIGHT = 720;
+    static final int GRID   = 100; // 100 * 100 quads * 2 = 20.000 triangles
+    static final int WARMUP = 20;
+    static final int FRAMES = 100;
+
+    public static void main(String[] args)
+    {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Random random = new Random(42);
+
+        Image texture = new Image(vec(256, 256));
+
+        for (int i = 0; i < texture.pixels(); i++) texture.colorBuffer()[i] = 0xff000000 | random.color();
+
+        IndexedMesh indexedMesh = grid();
+        Mesh        mesh        = indexedMesh.toMesh();
+
+        Camera camera = new Camera(90, (double) HEIGHT / WIDTH, 0.1, 1000);
+
+        camera.position = vec(0, 2, -4);
+        camera.updateViewMatrix(FinalVector.forward);
+
+        Matrix transform = Matrix.MakeTranslation(vec(-GRID * 0.05, 0, 0));
+
+        DrawableImage image = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        boolean allocationFree = true;
+
+        for (Object m : new Object[] { indexedMesh, mesh })
+        {
+            Runnable frame = m instanceof IndexedMesh ?
+                () -> { image.clear(); image.mesh(camera, indexedMesh, transform, texture); } :
+                () -> { image.clear(); image.mesh(camera, mesh       , transform, texture); };
+
+            for (int i = 0; i < WARMUP; i++) frame.run();
+
+            long threadId = Thread.currentThread().getId();
+            long bytes    = threads.getThreadAllocatedBytes(threadId);
+            long start    = System.nanoTime();
+
+            for (int i = 0; i < FRAMES; i++) frame.run();
+
+            double time = (System.nanoTime() - start) / (double) FRAMES * Time.NANOS_TO_MILLIS;
+
+            // getThreadAllocatedBytes itself allocates nothing, the difference is the allocation of the frames
+            long allocated = threads.getThreadAllocatedBytes(threadId) - bytes;
+
+            int covered = 0;
+
+            for (int i = 0; i < image.pixels(); i++) if (image.zBuffer()[i] != DrawableImage.CLEAR_Z) covered++;
+
+            System.out.printf("%-11s : %8.3f ms/frame, %6d bytes/frame, %d pixels covered%n",
+                m.getClass().getSimpleName(), time, allocated / FRAMES, covered);
+
+            allocationFree &= allocated == 0;
+        }
+
+        System.out.println(allocationFree ? "mesh pipeline is allocation free" : "mesh pipeline allocates!");
+
+        if (!allocationFree) System.exit(1);
+    }
+
+    static IndexedMesh grid()
+    {
+        double[] positions = new double[(GRID + 1) * (GRID + 1) * 3];
+        double[] uvs       = new double[(GRID + 1) * (GRID + 1) * 2];
+        double[] normals   = new double[(GRID + 1) * (GRID + 1) * 3];
+        int   [] indices   = new int   [GRID * GRID * 6];
+
+        for (int y = 0; y <= GRID; y++)
+        for (int x = 0; x <= GRID; x++)
+        {
+            int i = x + y * (GRID + 1);
+
+            positions[i * 3    ] = x * 0.1;
+            positions[i * 3 + 1] = Math.sin(x * 0.2) * Math.cos(y * 0.2) * 0.5;
+            positions[i * 3 + 2] = y * 0.1;
+
+            uvs[i * 2    ] = (double) x / GRID;
+            uvs[i * 2 + 1] = (double) y / GRID;
+
+            normals[i * 3 + 1] = 1;
+        }
+
+        for (int y = 0, j = 0; y < GRID; y++)
+        for (int x = 0; x < GRID; x++)
+        {
+            int a = x + y * (GRID + 1), b = a + 1, c = a + GRID + 1, d = c + 1;
+
+            indices[j++] = a; indices[j++] = b; indices[j++] = d;
+            indices[j++] = a; indices[j++] = d; indices[j++] = c;
+        }
+
+        return new IndexedMesh(positions, uvs, normals, indices);
+    }
+}
@@ -0,0 +1,61 @@
+package testing.Benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import engine.threed.IndexedMesh;
+import engine.utils.time.Time;
+
+/**
+ * Writes a grid with about one million triangles into a temporary obj file and measures how long loading it takes.
+ */
+public class ObjLoaderBenchmark
+{
+    static final int GRID = 708; // 708 * 708 quads * 2 = 1.002.528 triangles
+
+    public static void main(String[] args) throws IOException
+    {
+        File file = File.createTempFile("grid", ".obj");
+
+        file.deleteOnExit();
+
+        writeGrid(file);
+
+        System.out.printf("file size : %.1f MB%n", file.length() / 1e6);
+
+        for (int i = 0; i < 5; i++)
+        {
+            IndexedMesh[] mesh = new IndexedMesh[1];
+
+            double time = Time.measureTime(() -> mesh[0] = IndexedMesh.FromObjFile(file.getPath()));
+
+            System.out.printf("run %d     : %8.1f ms, %s%n", i, time * Time.NANOS_TO_MILLIS, mesh[0]);
+        }
+    }
+
+    static void writeGrid(File file) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+        {
+            for (int y = 0; y <= GRID; y++)
+            for (int x = 0; x <= GRID; x++)
+            {
+                writer.write("v " + (x * 0.125) + " " + Math.sin(x * 0.1) * Math.cos(y * 0.1) + " " + (y * -0.125) + "\n");
+                writer.write("vt " + ((double) x / GRID) + " " + ((double) y / GRID) + "\n");
+            }
+
+            writer.write("vn 0.0 1.0 0.0\n");
+
+            for (int y = 0; y < GRID; y++)
+            for (int x = 0; x < GRID; x++)
+            {
+                int a = x + y * (GRID + 1) + 1, b = a + 1, c = a + GRID + 1, d = c + 1;
+
+                writer.write("f " + a + "/" + a + "/1 " + b + "/" + b + "/1 " + d + "/" + d + "/1\n");
+                writer.write("f " + a + "/" + a + "/1 " + d + "/" + d + "/1 " + c + "/" + c + "/1\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package testing.Benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import engine.Engine;
+import engine.GameObject;
+import engine.IParallelScript;
+import engine.Scene;
+import engine.Script;
+import engine.UpdatePool;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * Runs a headless engine, see {@link Engine#Engine(engine.math.Vector4, int, int, String...)}, uncapped for a fixed number of ticks
+ * with {@link #OBJECTS} game objects that each have an {@link IParallelScript}, once on an {@link UpdatePool} with a single worker
+ * and once with a worker per processor, and reports the mean {@link UpdatePool#serialTime()} and {@link UpdatePool#parallelTime()} per tick.
+ * The number of workers of the second run can be given as the first argument.
+ * Needs no display, so it runs on machines without one.
+ */
+public class ParallelUpdateBenchmark
+{
+    static final int OBJECTS    = 20_000;
+    static final int ITERATIONS = 20; // steps of the simulation every parallel script does per tick
+    static final int WARMUP     = 200;
+    static final int TICKS      = 1000;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final int workers    = args.length > 0 ? Integer.parseInt(args[0]) : processors;
+
+        System.out.printf("%d parallel scripts, %d processors%n", OBJECTS, processors);
+
+        run(1);
+
+        if (workers > 1) run(workers);
+    }
+
+    static void run(final int workers) throws InterruptedException
+    {
+        UpdatePool pool = new UpdatePool(workers);
+
+        Engine engine = new Engine(vec(64, 64), 60, 60, "main").setUncapped(true).setUpdatePool(pool);
+
+        CountDownLatch ended = new CountDownLatch(1);
+
+        RecordScript record = new RecordScript(pool, engine);
+
+        engine.setActiveScene(new Scene()
+        {
+            @Override
+            protected void init()
+            {
+                GameObject recorder = new GameObject();
+
+                addGameObject(recorder);
+
+                recorder.addScript(record);
+
+                for (int i = 0; i < OBJECTS; i++)
+                {
+                    GameObject gameObject = new GameObject();
+
+                    addGameObject(gameObject);
+
+                    gameObject.addScript(new SpringScript(i));
+                }
+            }
+
+            @Override
+            protected void end() { ended.countDown(); }
+        });
+
+        engine.activate();
+
+        ended.await();
+
+        pool.destroy();
+
+        System.out.printf("%2d workers: serial %7.3f ms per tick, parallel %7.3f ms per tick, %d parallel scripts per tick%n", workers,
+            record.serialTime * Time.NANOS_TO_MILLIS / TICKS, record.parallelTime * Time.NANOS_TO_MILLIS / TICKS, record.parallelScripts);
+    }
+
+    /**
+     * Runs on the game loop thread before the parallel scripts, so it reads the times of the tick before.
+     */
+    static class RecordScript extends Script
+    {
+        final UpdatePool pool;
+        final Engine     engine;
+
+        int  ticks;
+        long serialTime;
+        long parallelTime;
+        int  parallelScripts;
+
+        RecordScript(UpdatePool pool, Engine engine) { this.pool = pool; this.engine = engine; }
+
+        @Override
+        protected void update()
+        {
+            if (ticks++ <= WARMUP) return;
+
+            serialTime     += pool.serialTime  ();
+            parallelTime   += pool.parallelTime();
+            parallelScripts = pool.parallelScripts();
+
+            if (ticks > WARMUP + TICKS) engine.deactivate();
+        }
+    }
+
+    /**
+     * A damped spring that only changes its own state.
+     */
+    static class SpringScript extends Script implements IParallelScript
+    {
+        double position;
+        double velocity;
+
+        SpringScript(int seed) { position = Math.sin(seed); }
+
+        @Override
+        protected void update()
+        {
+            for (int i = 0; i < ITERATIONS; i++)
+            {
+                velocity += (-position * 40 - velocity * 0.5) * 0.001;
+                position += velocity * 0.001 + Math.sqrt(Math.abs(velocity)) * 1e-9;
+            }
+        }
+    }
+}
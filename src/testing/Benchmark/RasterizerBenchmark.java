@@ -0,0 +1,141 @@
+package testing.Benchmark;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.graphics.Rasterizer;
+import engine.threed.Triangle;
+import engine.threed.Vertex;
+import engine.utils.random.Random;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Compares the throughput of the scanline and the edge function rasterizer in triangles and pixels per second
+ * for small, medium and large triangles, and checks which of them draws a triangulated grid watertight.
+ */
+public class RasterizerBenchmark
+{
+    static final int WIDTH     = 1080;
+    static final int HEIGHT    = 720;
+    static final int TRIANGLES = 2000;
+    static final int WARMUP    = 10;
+    static final int FRAMES    = 30;
+
+    static final int GRID      = 40; // watertight check, 40 * 40 jittered quads
+    static final int CELL_SIZE = 15;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        Image texture = new Image(vec(256, 256));
+
+        for (int i = 0; i < texture.pixels(); i++) texture.colorBuffer()[i] = 0xff000000 | random.color();
+
+        for (int size : new int[] { 8, 40, 200 })
+        {
+            Triangle[] triangles = new Triangle[TRIANGLES];
+
+            double area = 0;
+
+            for (int i = 0; i < TRIANGLES; i++)
+            {
+                double x = random.randomDouble(0, WIDTH - size), y = random.randomDouble(0, HEIGHT - size);
+
+                triangles[i] = new Triangle
+                (
+                    vertex(x + random.randomDouble(0, size), y + random.randomDouble(0, size), random.randomDouble(0.1, 1)),
+                    vertex(x + random.randomDouble(0, size), y + random.randomDouble(0, size), random.randomDouble(0.1, 1)),
+                    vertex(x + random.randomDouble(0, size), y + random.randomDouble(0, size), random.randomDouble(0.1, 1))
+                );
+
+                Triangle t = triangles[i];
+
+                area += abs((t.b.x - t.a.x) * (t.c.y - t.a.y) - (t.c.x - t.a.x) * (t.b.y - t.a.y)) * 0.5;
+            }
+
+            for (Rasterizer rasterizer : Rasterizer.values())
+            {
+                DrawableImage image = new DrawableImage(vec(WIDTH, HEIGHT));
+
+                image.setRasterizer(rasterizer);
+
+                double seconds = measureTriangles(image, triangles, texture) * 1e-9;
+
+                System.out.printf("%-13s size %3d : %8.2f M triangles/s, %8.2f M pixels/s%n",
+                    rasterizer, size, TRIANGLES / seconds * 1e-6, area / seconds * 1e-6);
+            }
+        }
+
+        for (Rasterizer rasterizer : Rasterizer.values())
+        {
+            System.out.printf("%-13s watertight : %b%n", rasterizer, isWatertight(rasterizer, random));
+        }
+    }
+
+    static Vertex vertex(double x, double y, double z)
+    {
+        return new Vertex(fvec(x, y, z, 1), fvec(x / WIDTH, y / HEIGHT, 1), fvec(0, 0, 1));
+    }
+
+    /**
+     * @return the fastest time in nanoseconds it took to draw all triangles once, the minimum is the least noisy
+     */
+    static double measureTriangles(DrawableImage image, Triangle[] triangles, Image texture)
+    {
+        Runnable frame = () ->
+        {
+            image.clear();
+
+            for (Triangle t : triangles) image.fillTriangle(t, texture);
+        };
+
+        return measure(WARMUP, FRAMES, frame);
+    }
+
+    /**
+     * Draws a jittered grid of triangles with a half transparent color, a pixel inside of the grid that got drawn
+     * not exactly once has a different color than the ones that did.
+     */
+    static boolean isWatertight(Rasterizer rasterizer, Random random)
+    {
+        Image texture = new Image(vec(1, 1));
+
+        texture.colorBuffer()[0] = 0x80ff0000;
+
+        Vertex[][] grid = new Vertex[GRID + 1][GRID + 1];
+
+        for (int y = 0; y <= GRID; y++)
+        for (int x = 0; x <= GRID; x++)
+        {
+            boolean border = x == 0 || y == 0 || x == GRID || y == GRID;
+
+            double jitterX = border ? 0 : random.randomDouble(-CELL_SIZE * 0.2, CELL_SIZE * 0.2);
+            double jitterY = border ? 0 : random.randomDouble(-CELL_SIZE * 0.2, CELL_SIZE * 0.2);
+
+            grid[y][x] = new Vertex(fvec(10 + x * CELL_SIZE + jitterX, 10 + y * CELL_SIZE + jitterY, 1, 1), fvec(0.5, 0.5, 1), fvec(0, 0, 1));
+        }
+
+        DrawableImage image = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        image.setRasterizer(rasterizer);
+
+        for (int y = 0; y < GRID; y++)
+        for (int x = 0; x < GRID; x++)
+        {
+            image.fillTriangle(new Triangle(grid[y][x], grid[y][x + 1], grid[y + 1][x + 1]), texture);
+            image.fillTriangle(new Triangle(grid[y][x], grid[y + 1][x + 1], grid[y + 1][x]), texture);
+        }
+
+        int expected = image.colorBuffer()[(10 + CELL_SIZE / 2) + (10 + CELL_SIZE / 2) * WIDTH];
+
+        for (int y = 11; y < 10 + GRID * CELL_SIZE - 1; y++)
+        for (int x = 11; x < 10 + GRID * CELL_SIZE - 1; x++)
+        {
+            if (image.colorBuffer()[x + y * WIDTH] != expected) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+package testing.Benchmark;
+
+import engine.utils.time.GameLoop;
+import engine.utils.time.Time;
+
+/**
+ * Runs a game loop whose frames take longer than the frame interval, once rendering between the updates
+ * and once rendering on a thread of its own, see {@link GameLoop#setRenderThreaded(boolean)}.
+ * Compares the ticks per second and how evenly the ticks are spaced.
+ */
+public class RenderThreadBenchmark
+{
+    static final int    TPS           = 60;
+    static final int    FPS           = 60;
+    static final double UPDATE_MILLIS = 1;
+    static final double RENDER_MILLIS = 25; // saturates rendering, the frame interval is 16.7 ms
+    static final double SECONDS       = 3;
+
+    public static void main(String[] args)
+    {
+        run(false);
+        run(true );
+    }
+
+    static void run(boolean renderThreaded)
+    {
+        BenchmarkLoop loop = new BenchmarkLoop();
+
+        loop.setRenderThreaded(renderThreaded);
+        loop.run();
+
+        double mean     = (loop.lastTick - loop.firstTick) / (double) (loop.ticks - 1);
+        double variance = loop.squaredIntervals / (loop.ticks - 1) - mean * mean;
+
+        System.out.printf("render threaded %-5b : %5.1f ticks/s, %5.1f frames/s, tick interval %6.2f ms +- %6.2f ms, longest %6.2f ms%n",
+            renderThreaded, loop.ticks / SECONDS, loop.frames / SECONDS, mean * Time.NANOS_TO_MILLIS,
+            Math.sqrt(Math.max(variance, 0)) * Time.NANOS_TO_MILLIS, loop.longestInterval * Time.NANOS_TO_MILLIS);
+    }
+
+    static void work(double millis)
+    {
+        long end = Time.nanos() + (long) (millis * Time.MILLIS_TO_NANOS);
+
+        while (Time.nanos() < end) Thread.onSpinWait();
+    }
+
+    static class BenchmarkLoop extends GameLoop
+    {
+        long   start;
+        long   firstTick;
+        long   lastTick;
+        long   longestInterval;
+        double squaredIntervals;
+        int    ticks;
+        volatile int frames;
+
+        BenchmarkLoop() { super(TPS, FPS); }
+
+        @Override public boolean isActive() { return Time.nanos() - start < SECONDS * Time.SECONDS_TO_NANOS; }
+
+        @Override protected void start() { start = Time.nanos(); }
+        @Override protected void end  () { }
+
+        @Override
+        protected void update()
+        {
+            long now = Time.nanos();
+
+            if (ticks == 0) firstTick = now;
+            else
+            {
+                long interval = now - lastTick;
+
+                longestInterval   = Math.max(longestInterval, interval);
+                squaredIntervals += (double) interval * interval;
+            }
+
+            lastTick = now;
+            ticks++;
+
+            work(UPDATE_MILLIS);
+        }
+
+        @Override
+        protected void render()
+        {
+            work(RENDER_MILLIS);
+
+            frames++;
+        }
+    }
+}
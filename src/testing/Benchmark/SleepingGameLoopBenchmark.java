@@ -0,0 +1,85 @@
+package testing.Benchmark;
+
+import engine.utils.time.GameLoop;
+import engine.utils.time.Histogram;
+import engine.utils.time.Time;
+
+/**
+ * Runs a game loop with cheap ticks and frames, once spinning between them and once sleeping, see {@link GameLoop#setSleeping(boolean)},
+ * each with and without a render thread. Compares the CPU usage, the rates and how late the ticks start, and prints the histogram of the sleeping loop.
+ */
+public class SleepingGameLoopBenchmark
+{
+    static final int    TPS           = 60;
+    static final int    FPS           = 144;
+    static final double UPDATE_MILLIS = 0.5;
+    static final double RENDER_MILLIS = 2;
+    static final double SECONDS       = 3;
+
+    public static void main(String[] args)
+    {
+        run(false, false);
+        run(false, true );
+        run(true , false);
+
+        BenchmarkLoop loop = run(true, true);
+
+        System.out.println();
+        System.out.println("tick jitter of the sleeping, render threaded loop:");
+        System.out.print(loop.tickJitter());
+    }
+
+    static BenchmarkLoop run(boolean renderThreaded, boolean sleeping)
+    {
+        BenchmarkLoop loop = new BenchmarkLoop();
+
+        loop.setRenderThreaded(renderThreaded);
+        loop.setSleeping      (sleeping      );
+        loop.run();
+
+        Histogram jitter = loop.tickJitter();
+
+        System.out.printf("render threaded %-5b, sleeping %-5b : cpu %5.1f%% of a core, %5.1f ticks/s, %5.1f frames/s, tick jitter p50 < %6.0f us, p99 < %6.0f us, max %8.1f us%n",
+            renderThreaded, sleeping, loop.cpuUsage() * 100, loop.ticks / SECONDS, loop.frames / SECONDS,
+            jitter.percentile(0.5) / 1000.0, jitter.percentile(0.99) / 1000.0, jitter.max() / 1000.0);
+
+        return loop;
+    }
+
+    static void work(double millis)
+    {
+        long end = Time.nanos() + (long) (millis * Time.MILLIS_TO_NANOS);
+
+        while (Time.nanos() < end) Thread.onSpinWait();
+    }
+
+    static class BenchmarkLoop extends GameLoop
+    {
+        long start;
+        int  ticks;
+        volatile int frames;
+
+        BenchmarkLoop() { super(TPS, FPS); }
+
+        @Override public boolean isActive() { return Time.nanos() - start < SECONDS * Time.SECONDS_TO_NANOS; }
+
+        @Override protected void start() { start = Time.nanos(); }
+        @Override protected void end  () { }
+
+        @Override
+        protected void update()
+        {
+            ticks++;
+
+            work(UPDATE_MILLIS);
+        }
+
+        @Override
+        protected void render()
+        {
+            work(RENDER_MILLIS);
+
+            frames++;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package testing.Benchmark;
+
+import engine.GameObject;
+import engine.SpatialGrid;
+import engine.math.Matrix;
+import engine.math.Transform;
+import engine.math.Vector;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Puts 10k, 100k and 1M game objects into a {@link SpatialGrid}, spread over a cube with 1 game object per 1000 cubic units,
+ * and measures the update after 1% of them moved, radius queries, the 16 nearest game objects and raycasts,
+ * and compares the radius query to a linear scan over the world matrices of all game objects like a filter over the scene does.
+ * Run with -Xmx2g or more for the 1M game objects.
+ */
+public class SpatialGridBenchmark
+{
+    static final int[]  COUNTS    = { 10_000, 100_000, 1_000_000 };
+    static final double DENSITY   = 0.001;
+    static final double RADIUS    = 20;
+    static final int    NEAREST   = 16;
+    static final int    QUERIES   = 1000;
+    static final int    WARMUP    = 3;
+    static final int    RUNS      = 5;
+
+    static long sink;
+
+    public static void main(String[] args)
+    {
+        for (int count : COUNTS) run(count);
+
+        if (sink == 42) System.out.println();
+    }
+
+    static void run(final int count)
+    {
+        final Random random = new Random(42);
+
+        final double size = Math.cbrt(count / DENSITY);
+
+        final GameObject[] gameObjects = new GameObject[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            gameObjects[i] = new GameObject();
+            gameObjects[i].transform = new Transform();
+            gameObjects[i].transform.setPosition(random.randomDouble(0, size), random.randomDouble(0, size), random.randomDouble(0, size));
+        }
+
+        final SpatialGrid grid = new SpatialGrid(RADIUS);
+
+        final double build = Time.measureTime(() -> { for (GameObject gameObject : gameObjects) grid.add(gameObject); });
+
+        final Vector[] points     = new Vector[QUERIES];
+        final Vector[] directions = new Vector[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++)
+        {
+            points    [i] = new Vector(random.randomDouble(0, size), random.randomDouble(0, size), random.randomDouble(0, size));
+            directions[i] = new Vector(random.randomDouble(-1, 1), random.randomDouble(-1, 1), random.randomDouble(-1, 1));
+        }
+
+        final double update = measure(WARMUP, RUNS, () ->
+        {
+            for (int i = 0; i < count / 100; i++)
+                gameObjects[random.randomInt(0, count - 1)].transform.setPosition(random.randomDouble(0, size), random.randomDouble(0, size), random.randomDouble(0, size));
+
+            grid.update();
+        });
+
+        final double idle = measure(WARMUP, RUNS, grid::update);
+
+        final double radius  = measure(WARMUP, RUNS, () -> { for (Vector point : points) sink += grid.inRadius(point, RADIUS).length; }) / QUERIES;
+        final double nearest = measure(WARMUP, RUNS, () -> { for (Vector point : points) sink += grid.nearest (point, NEAREST).length; }) / QUERIES;
+
+        final double raycast = measure(WARMUP, RUNS, () ->
+        {
+            for (int i = 0; i < QUERIES; i++) if (grid.raycast(points[i], directions[i], size, 1) != null) sink++;
+        }) / QUERIES;
+
+        // a linear scan is slow, a few queries are enough
+        final int scans = 20;
+
+        final double scan = measure(WARMUP, RUNS, () ->
+        {
+            for (int q = 0; q < scans; q++)
+            {
+                final Vector point = points[q];
+
+                for (GameObject gameObject : gameObjects)
+                {
+                    final Matrix m = gameObject.worldMatrix();
+
+                    final double dx = m.get(12) - point.x, dy = m.get(13) - point.y, dz = m.get(14) - point.z;
+
+                    if (dx * dx + dy * dy + dz * dz <= RADIUS * RADIUS) sink++;
+                }
+            }
+        }) / scans;
+
+        System.out.printf("%,9d game objects, %,7d cells%n", count, grid.cellCount());
+        System.out.printf("    build          : %10.3f ms%n", build   * Time.NANOS_TO_MILLIS);
+        System.out.printf("    update, 1%% moved: %10.3f ms%n", update  * Time.NANOS_TO_MILLIS);
+        System.out.printf("    update, none   : %10.3f ms%n", idle    * Time.NANOS_TO_MILLIS);
+        System.out.printf("    radius query   : %10.3f us, linear scan %10.3f us, speedup %8.1fx%n", radius / 1000, scan / 1000, scan / radius);
+        System.out.printf("    %d nearest     : %10.3f us%n", NEAREST, nearest / 1000);
+        System.out.printf("    raycast        : %10.3f us%n", raycast / 1000);
+    }
+}
@@ -0,0 +1,168 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.graphics.Rasterizer;
+import engine.graphics.Texture;
+import engine.graphics.TextureFilter;
+import engine.graphics.WrapMode;
+import engine.threed.Triangle;
+import engine.threed.Vertex;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Draws a 2048x2048 texture minified onto a grid of small quads, onto a ground plane in perspective
+ * and turned by 90 degrees onto the whole screen with both rasterizers,
+ * once from an {@link Image}, which reads single texels scattered over the whole texture,
+ * and from a {@link Texture} without mip levels, with mip levels and nearest filtering and with mip levels and bilinear filtering.
+ * Reports the time per frame and how many kilobytes of texels the level the grid reads holds, which is the memory the texture lookups walk through. <p>
+ *
+ * The first argument sets the width and height of the texture. Mip levels save the memory traffic of a texture that does not fit into the cache,
+ * a texture that does is read as fast from level 0 as from a smaller level. <p>
+ *
+ * The textures take turns over several rounds and the fastest frame of all rounds counts,
+ * so every texture is measured with the rasterizers compiled for all of them.
+ */
+public class TextureBenchmark
+{
+    static final int WIDTH        = 1080;
+    static final int HEIGHT       = 720;
+    static final int TEXTURE_SIZE = 2048;
+    static final int CELL_SIZE    = 60; // grid of 18 x 12 quads, each showing the whole texture
+    static final int WARMUP       = 5;
+    static final int FRAMES       = 15;
+    static final int ROUNDS       = 3;
+
+    public static void main(String[] args)
+    {
+        final Random random = new Random(42);
+
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : TEXTURE_SIZE;
+
+        final Image image = new Image(vec(size, size));
+
+        for (int i = 0; i < image.pixels(); i++) image.colorBuffer()[i] = 0xff000000 | random.color();
+
+        final long start = Time.nanos();
+
+        final Texture point     = new Texture(image, WrapMode.CLAMP, TextureFilter.NEAREST );
+        final Texture nearest   = new Texture(image, WrapMode.CLAMP, TextureFilter.NEAREST );
+        final Texture bilinear  = new Texture(image, WrapMode.CLAMP, TextureFilter.BILINEAR);
+
+        System.out.printf("creating a texture: %8.3f ms, %d levels%n", (Time.nanos() - start) * Time.NANOS_TO_MILLIS / 3, point.levels());
+
+        point.setMipmapped(false);
+
+        final int level = nearest.level(0.5, 0.5, 1, 1.0 / CELL_SIZE, 0, 0, 0, 1.0 / CELL_SIZE, 0);
+
+        System.out.printf("the grid reads level %d of %d x %d texels, %8.1f kB instead of %8.1f kB%n", level, nearest.levelWidth(level), nearest.levelHeight(level),
+            nearest.levelWidth(level) * nearest.levelHeight(level) * 4 / 1024.0, size * size * 4 / 1024.0);
+
+        final Triangle[] grid    = grid   ();
+        final Triangle[] plane   = plane  ();
+        final Triangle[] rotated = rotated();
+
+        final Image[]  textures = { image, point, nearest, bilinear };
+        final String[] names    = { "Image", "Texture without mip levels", "Texture nearest", "Texture bilinear" };
+
+        for (Rasterizer rasterizer : Rasterizer.values())
+        {
+            final DrawableImage target = new DrawableImage(vec(WIDTH, HEIGHT));
+
+            target.setRasterizer(rasterizer);
+
+            final double[][] times = new double[textures.length][3];
+
+            for (double[] time : times) Arrays.fill(time, Double.MAX_VALUE);
+
+            for (int round = 0; round < ROUNDS; round++)
+            for (int i = 0; i < textures.length; i++)
+            {
+                times[i][0] = Math.min(times[i][0], measureTriangles(target, grid   , textures[i]));
+                times[i][1] = Math.min(times[i][1], measureTriangles(target, plane  , textures[i]));
+                times[i][2] = Math.min(times[i][2], measureTriangles(target, rotated, textures[i]));
+            }
+
+            for (int i = 0; i < textures.length; i++)
+            {
+                System.out.printf("%-13s %-27s : grid %8.3f ms, plane %8.3f ms, rotated %8.3f ms%n", rasterizer, names[i],
+                    times[i][0] * Time.NANOS_TO_MILLIS, times[i][1] * Time.NANOS_TO_MILLIS, times[i][2] * Time.NANOS_TO_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Quads of {@link #CELL_SIZE} pixels that cover the screen, each showing the whole texture.
+     */
+    static Triangle[] grid()
+    {
+        final int columns = WIDTH / CELL_SIZE, rows = HEIGHT / CELL_SIZE;
+
+        final Triangle[] triangles = new Triangle[columns * rows * 2];
+
+        for (int y = 0; y < rows; y++)
+        for (int x = 0; x < columns; x++)
+        {
+            final double x0 = x * CELL_SIZE, y0 = y * CELL_SIZE, x1 = x0 + CELL_SIZE, y1 = y0 + CELL_SIZE;
+
+            final Vertex a = vertex(x0, y0, 0, 1, 1), b = vertex(x1, y0, 1, 1, 1), c = vertex(x1, y1, 1, 0, 1), d = vertex(x0, y1, 0, 0, 1);
+
+            triangles[(x + y * columns) * 2    ] = new Triangle(a, b, c);
+            triangles[(x + y * columns) * 2 + 1] = new Triangle(a, c, d);
+        }
+
+        return triangles;
+    }
+
+    /**
+     * A ground plane from the bottom of the screen to the horizon in the middle of it, the far edge is 10 times farther away than the near one.
+     */
+    static Triangle[] plane()
+    {
+        final double far = 0.1, halfFarWidth = WIDTH * far / 2;
+
+        final Vertex a = vertex(WIDTH / 2 - halfFarWidth, HEIGHT / 2, 0, 1, far), b = vertex(WIDTH / 2 + halfFarWidth, HEIGHT / 2, 1, 1, far);
+        final Vertex c = vertex(WIDTH, HEIGHT, 1, 0, 1), d = vertex(0, HEIGHT, 0, 0, 1);
+
+        return new Triangle[] { new Triangle(a, b, c), new Triangle(a, c, d) };
+    }
+
+    /**
+     * The texture turned by 90 degrees on a quad that covers the screen, so the rows of the screen walk down the columns of the texture.
+     */
+    static Triangle[] rotated()
+    {
+        final Vertex a = vertex(0, 0, 0, 0, 1), b = vertex(WIDTH, 0, 0, 1, 1), c = vertex(WIDTH, HEIGHT, 1, 1, 1), d = vertex(0, HEIGHT, 1, 0, 1);
+
+        return new Triangle[] { new Triangle(a, b, c), new Triangle(a, c, d) };
+    }
+
+    /**
+     * @param q 1 / w of the vertex, the texture coordinate is stored as (u / w, v / w, 1 / w)
+     */
+    static Vertex vertex(double x, double y, double u, double v, double q)
+    {
+        return new Vertex(fvec(x, y, 1 - q, 1), fvec(u * q, v * q, q), fvec(0, 0, 1));
+    }
+
+    /**
+     * @return the fastest time in nanoseconds it took to draw all triangles once
+     */
+    static double measureTriangles(DrawableImage target, Triangle[] triangles, Image texture)
+    {
+        final Runnable frame = () ->
+        {
+            target.clear();
+
+            for (Triangle t : triangles) target.fillTriangle(t, texture);
+        };
+
+        return measure(WARMUP, FRAMES, frame);
+    }
+}
@@ -0,0 +1,117 @@
+package testing.Benchmark;
+
+import java.util.Arrays;
+
+import engine.graphics.DrawableImage;
+import engine.graphics.Image;
+import engine.graphics.RenderPool;
+import engine.threed.Triangle;
+import engine.threed.Vertex;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+
+/**
+ * Compares the frame time of the serial render path with the tiled render path at 1, 2, 4 and 8 workers
+ * and checks that every tiled frame is identical to the serial one.
+ */
+public class TiledRenderBenchmark
+{
+    static final int WIDTH      = 1080;
+    static final int HEIGHT     = 720;
+    static final int TRIANGLES  = 400;
+    static final int RECTANGLES = 100;
+    static final int WARMUP     = 50;
+    static final int FRAMES     = 200;
+
+    static Image       texture;
+    static Image       sprite;
+    static Triangle[]  triangles;
+    static int     [][] rectangles;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        texture = new Image(vec(256, 256));
+        sprite  = new Image(vec(300, 200));
+
+        for (int i = 0; i < texture.pixels(); i++) texture.colorBuffer()[i] = 0xff000000 | random.color();
+        for (int i = 0; i < sprite .pixels(); i++) sprite .colorBuffer()[i] = 0x80000000 | random.color();
+
+        triangles = new Triangle[TRIANGLES];
+
+        for (int i = 0; i < TRIANGLES; i++)
+        {
+            double x = random.randomDouble(0, WIDTH ), y = random.randomDouble(0, HEIGHT);
+            double z = random.randomDouble(0.1, 1);
+
+            triangles[i] = new Triangle
+            (
+                vertex(x                                 , y                                 , z),
+                vertex(x + random.randomDouble(-150, 150), y + random.randomDouble(-150, 150), z),
+                vertex(x + random.randomDouble(-150, 150), y + random.randomDouble(-150, 150), z)
+            );
+        }
+
+        rectangles = new int[RECTANGLES][];
+
+        for (int i = 0; i < RECTANGLES; i++)
+        {
+            int x = random.randomInt(-50, WIDTH), y = random.randomInt(-50, HEIGHT);
+
+            rectangles[i] = new int[] { x, y, x + random.randomInt(1, 200), y + random.randomInt(1, 200), 0x80000000 | random.color() };
+        }
+
+        DrawableImage reference = new DrawableImage(vec(WIDTH, HEIGHT));
+
+        System.out.printf("serial    : %8.3f ms/frame%n", measure(reference));
+
+        for (int workers : new int[] { 1, 2, 4, 8 })
+        {
+            RenderPool    pool  = new RenderPool(workers);
+            DrawableImage image = new DrawableImage(vec(WIDTH, HEIGHT));
+
+            image.setRenderPool(pool);
+
+            double time = measure(image);
+
+            boolean identical = Arrays.equals(image.colorBuffer(), reference.colorBuffer()) &&
+                                Arrays.equals(image.zBuffer    (), reference.zBuffer    ());
+
+            System.out.printf("%d worker%s : %8.3f ms/frame (identical: %b)%n", workers, workers == 1 ? " " : "s", time, identical);
+
+            pool.destroy();
+        }
+    }
+
+    static Vertex vertex(double x, double y, double z)
+    {
+        return new Vertex(fvec(x, y, z, 1), fvec(x / WIDTH, y / HEIGHT, 1), fvec(0, 0, 1));
+    }
+
+    static double measure(DrawableImage image)
+    {
+        for (int i = 0; i < WARMUP; i++) frame(image);
+
+        double time = 0;
+
+        for (int i = 0; i < FRAMES; i++) time += Time.measureTime(() -> frame(image));
+
+        return time / FRAMES * Time.NANOS_TO_MILLIS;
+    }
+
+    static void frame(DrawableImage image)
+    {
+        image.clear();
+
+        image.drawImage(sprite, 100, 100);
+        image.drawImage(sprite, 700, 400);
+
+        for (int[] r : rectangles) image.fillRect(r[0], r[1], r[2], r[3], 0.5, r[4]);
+        for (Triangle t : triangles) image.fillTriangle(t, texture);
+
+        image.flush();
+    }
+}
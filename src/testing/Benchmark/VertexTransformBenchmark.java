@@ -0,0 +1,65 @@
+package testing.Benchmark;
+
+import engine.math.Matrix;
+import engine.math.Quaternion;
+import engine.math.Vector;
+import engine.math.Vector4;
+import engine.utils.random.Random;
+
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Transforms 100k vertices by a model view matrix, once vertex by vertex into new vectors like {@link engine.threed.Triangle#transformed} does,
+ * once vertex by vertex into an interleaved array, and once as a batch over one array per component with {@link Matrix#transformPoints}.
+ * Reports the vertices per second and checks that all give the same results.
+ */
+public class VertexTransformBenchmark
+{
+    static final int VERTICES = 100_000;
+    static final int WARMUP   = 50;
+    static final int RUNS     = 100;
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+
+        Matrix matrix = Matrix.MakeTransformation(new Vector(1, 2, 3), new Vector(2, 2, 2), new Quaternion(0.3, 0.2, 0.1))
+                              .times(Matrix.MakeProjection(90, 1, 0.1, 1000));
+
+        Vector4 [] vectors     = new Vector4[VERTICES];
+        double  [] interleaved = new double [VERTICES * 3];
+        double  [] x           = new double [VERTICES], y = new double[VERTICES], z = new double[VERTICES];
+
+        for (int i = 0; i < VERTICES; i++)
+        {
+            x[i] = random.randomDouble(-10, 10);
+            y[i] = random.randomDouble(-10, 10);
+            z[i] = random.randomDouble(-10, 10);
+
+            vectors[i] = new Vector(x[i], y[i], z[i]);
+
+            interleaved[i * 3] = x[i]; interleaved[i * 3 + 1] = y[i]; interleaved[i * 3 + 2] = z[i];
+        }
+
+        Vector[] objects = new Vector[VERTICES];
+        double[] result  = new double[VERTICES * 4];
+        double[] toX     = new double[VERTICES], toY = new double[VERTICES], toZ = new double[VERTICES], toW = new double[VERTICES];
+
+        double perObject = measure(WARMUP, RUNS, () -> { for (int i = 0; i < VERTICES; i++) objects[i] = matrix.times(vectors[i]); });
+
+        double perVertex = measure(WARMUP, RUNS, () ->
+        {
+            for (int i = 0; i < VERTICES; i++) matrix.transform(interleaved[i * 3], interleaved[i * 3 + 1], interleaved[i * 3 + 2], 1, result, i * 4);
+        });
+
+        double batch = measure(WARMUP, RUNS, () -> matrix.transformPoints(x, y, z, toX, toY, toZ, toW, VERTICES));
+
+        for (int i = 0; i < VERTICES; i++)
+            if (objects[i].x != result[i * 4] || toX[i] != result[i * 4] || objects[i].w != result[i * 4 + 3] || toW[i] != result[i * 4 + 3])
+                throw new RuntimeException("The transformed vertex " + i + " differs!");
+
+        System.out.printf("vectors     : %8.1f million vertices/s%n", VERTICES / perObject * 1000);
+        System.out.printf("interleaved : %8.1f million vertices/s%n", VERTICES / perVertex * 1000);
+        System.out.printf("batch       : %8.1f million vertices/s, speedup %5.2fx%n", VERTICES / batch * 1000, perVertex / batch);
+    }
+}
@@ -0,0 +1,212 @@
+package testing.Benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import engine.Engine;
+import engine.GameObject;
+import engine.Scene;
+import engine.Script;
+import engine.math.Matrix;
+import engine.math.Quaternion;
+import engine.math.Transform;
+import engine.math.Vector;
+import engine.utils.random.Random;
+import engine.utils.time.Time;
+
+import static engine.utils.MathUtils.*;
+import static testing.Benchmark.BenchmarkUtils.*;
+
+/**
+ * Computes the world matrices of a rig of 4096 bones, a tree of depth 12 with a chain of 64 bones hanging off one leaf,
+ * once by composing the transformation matrices of all ancestors for every bone like a script would,
+ * and once through the cached {@link GameObject#worldMatrix()}, while nothing, a single leaf or the root moves. <p>
+ *
+ * The cached world matrices are read once during a tick, where the transforms of the ancestors are looked at for changes,
+ * and once in a headless engine while rendering, after the engine updated the world matrices of the scene at the end of the tick.
+ * Compares the time per frame and checks that all of them give the same matrices.
+ */
+public class WorldMatrixBenchmark
+{
+    static final int TREE   = 4032;
+    static final int CHAIN  = 64;
+    static final int BONES  = TREE + CHAIN;
+    static final int WARMUP = 20;
+    static final int FRAMES = 50;
+
+    static GameObject[] bones;
+
+    static Random random;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        rig();
+
+        final GameObject leaf = bones[BONES - 1];
+        final GameObject root = bones[0];
+
+        check();
+
+        double naive  = measureMoving(WorldMatrixBenchmark::naive, null);
+        double idle   = measureMoving(WorldMatrixBenchmark::cached, null);
+        double onLeaf = measureMoving(WorldMatrixBenchmark::cached, leaf);
+        double onRoot = measureMoving(WorldMatrixBenchmark::cached, root);
+
+        check();
+
+        System.out.printf("naive               : %8.1f us/frame%n", naive / 1000);
+        System.out.printf("during a tick, idle : %8.1f us/frame, speedup %6.1fx%n", idle   / 1000, naive / idle  );
+        System.out.printf("during a tick, leaf : %8.1f us/frame, speedup %6.1fx%n", onLeaf / 1000, naive / onLeaf);
+        System.out.printf("during a tick, root : %8.1f us/frame, speedup %6.1fx%n", onRoot / 1000, naive / onRoot);
+
+        rendered("idle", -1       , naive);
+        rendered("leaf", BONES - 1, naive);
+        rendered("root", 0        , naive);
+    }
+
+    /**
+     * Builds the rig, the tree is a binary heap, the chain starts at the last leaf of the tree.
+     */
+    static void rig()
+    {
+        bones  = new GameObject[BONES];
+        random = new Random(42);
+
+        for (int i = 0; i < BONES; i++)
+        {
+            bones[i] = new GameObject("bone " + i);
+            bones[i].transform = new Transform();
+            bones[i].transform.setScale(1, 1, 1);
+
+            move(bones[i]);
+
+            if (i > 0) bones[i].setParent(bones[i < TREE ? (i - 1) / 2 : i - 1]);
+        }
+    }
+
+    /**
+     * Runs the rig in a headless engine, the bone moves in every update and all world matrices are read in every render.
+     *
+     * @param moving the index of the bone that moves, or -1
+     * @param naive the time of a naive frame in nanoseconds
+     */
+    static void rendered(String name, int moving, double naive) throws InterruptedException
+    {
+        rig();
+
+        Engine engine = new Engine(vec(64, 64), 60, 60, "main").setUncapped(true);
+
+        CountDownLatch ended = new CountDownLatch(1);
+
+        RigScript script = new RigScript(moving < 0 ? null : bones[moving], engine);
+
+        engine.setActiveScene(new Scene()
+        {
+            @Override
+            protected void init()
+            {
+                addGameObject(bones[0]);
+
+                GameObject gameObject = new GameObject();
+
+                addGameObject(gameObject);
+
+                gameObject.addScript(script);
+            }
+
+            @Override
+            protected void end() { ended.countDown(); }
+        });
+
+        engine.activate();
+
+        ended.await();
+
+        if (script.error != null) throw script.error;
+
+        System.out.printf("after a tick, %s  : %8.1f us/frame, speedup %6.1fx%n", name, script.time / 1000, naive / script.time);
+    }
+
+    static class RigScript extends Script
+    {
+        final GameObject moving;
+        final Engine     engine;
+
+        int    frames;
+        double time = Double.MAX_VALUE;
+
+        RuntimeException error;
+
+        RigScript(GameObject moving, Engine engine) { this.moving = moving; this.engine = engine; }
+
+        @Override
+        protected void update() { if (moving != null) move(moving); }
+
+        @Override
+        protected void render()
+        {
+            final double frame = Time.measureTime(WorldMatrixBenchmark::cached);
+
+            if (frames++ >= WARMUP) time = Math.min(time, frame);
+
+            if (frames < WARMUP + FRAMES) return;
+
+            try { check(); } catch (RuntimeException e) { error = e; }
+
+            engine.deactivate();
+        }
+    }
+
+    static Matrix naive(GameObject bone)
+    {
+        Matrix matrix = bone.transform.transformationMatrix();
+
+        for (GameObject parent = bone.parent(); parent != null; parent = parent.parent())
+            matrix = matrix.times(parent.transform.transformationMatrix());
+
+        return matrix;
+    }
+
+    static void naive()
+    {
+        for (GameObject bone : bones) naive(bone);
+    }
+
+    static void cached()
+    {
+        for (GameObject bone : bones) bone.worldMatrix();
+    }
+
+    static void move(GameObject bone)
+    {
+        bone.transform.position.set(random.randomDouble(-1, 1), random.randomDouble(-1, 1), random.randomDouble(-1, 1));
+        bone.transform.rotation = new Quaternion(random.randomDouble(-1, 1), random.randomDouble(-1, 1), random.randomDouble(-1, 1));
+    }
+
+    /**
+     * Throws if a cached world matrix differs from the composed one.
+     */
+    static void check()
+    {
+        double[] expected = new double[4];
+        double[] actual   = new double[4];
+
+        for (GameObject bone : bones)
+        {
+            naive(bone)      .transform(1, 2, 3, 1, expected, 0);
+            bone.worldMatrix().transform(1, 2, 3, 1, actual  , 0);
+
+            for (int i = 0; i < 4; i++)
+                if (Math.abs(expected[i] - actual[i]) > 1e-6 * (1 + Math.abs(expected[i])))
+                    throw new RuntimeException("The world matrix of " + bone + " is wrong: " + new Vector(actual[0], actual[1], actual[2]) + " instead of " + new Vector(expected[0], expected[1], expected[2]));
+        }
+    }
+
+    /**
+     * @param moving the bone that moves every frame, or null
+     * @return the fastest time of a frame in nanoseconds
+     */
+    static double measureMoving(Runnable frame, GameObject moving)
+    {
+        return measure(WARMUP, FRAMES, () -> { if (moving != null) move(moving); frame.run(); });
+    }
+}